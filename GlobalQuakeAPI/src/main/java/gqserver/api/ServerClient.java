@@ -23,6 +23,7 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -51,6 +52,7 @@ public class ServerClient {
     private final Object limitsLock = new Object();
 
     private final ExecutorService packetQueue;
+    private final AtomicInteger queuedPackets = new AtomicInteger();
     private boolean destroyed;
 
     static {
@@ -135,13 +137,28 @@ public class ServerClient {
             return;
         }
 
-        packetQueue.submit(() -> {
-            try {
-                sendPacketNow(packet);
-            } catch (IOException e) {
-                throw new RuntimeException(e);
-            }
-        });
+        queuedPackets.incrementAndGet();
+        try {
+            packetQueue.submit(() -> {
+                try {
+                    sendPacketNow(packet);
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                } finally {
+                    queuedPackets.decrementAndGet();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            queuedPackets.decrementAndGet();
+            throw e;
+        }
+    }
+
+    /**
+     * @return packets that were queued but not sent yet
+     */
+    public int getQueuedPackets() {
+        return queuedPackets.get();
     }
 
     public void sendPacketNow(Packet packet) throws IOException {
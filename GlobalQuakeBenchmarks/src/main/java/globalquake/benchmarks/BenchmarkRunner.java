@@ -0,0 +1,141 @@
+package globalquake.benchmarks;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Runs the benchmarks and optionally compares the results with a previous run.
+ * <pre>
+ * java -jar GlobalQuakeBenchmarks.jar [options] [benchmark regex...]
+ *   --out FILE          where to write the JSON results, benchmark-results.json by default
+ *   --baseline FILE     JSON results of a previous run to compare with
+ *   --threshold PCT     slowdown in percent that is reported as a regression, 10 by default
+ *   --compare FILE      only compare FILE with the baseline, without running anything
+ *   --quick             fewer and shorter iterations, for a rough check during development
+ * </pre>
+ * The exit code is 2 if any benchmark regressed, so that the comparison can be used in scripts.
+ * The benchmarks need the travel time table and the region data on the classpath, same as the application.
+ */
+public class BenchmarkRunner {
+
+    public static void main(String[] args) throws IOException, RunnerException {
+        Path out = Path.of("benchmark-results.json");
+        Path baseline = null;
+        Path compare = null;
+        double threshold = 10.0;
+        boolean quick = false;
+        List<String> includes = new ArrayList<>();
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--out" -> out = Path.of(nextArg(args, ++i));
+                case "--baseline" -> baseline = Path.of(nextArg(args, ++i));
+                case "--compare" -> compare = Path.of(nextArg(args, ++i));
+                case "--threshold" -> threshold = Double.parseDouble(nextArg(args, ++i));
+                case "--quick" -> quick = true;
+                default -> includes.add(args[i]);
+            }
+        }
+
+        if (compare == null) {
+            ChainedOptionsBuilder options = new OptionsBuilder()
+                    .resultFormat(ResultFormatType.JSON)
+                    .result(out.toString());
+
+            if (includes.isEmpty()) {
+                options.include(BenchmarkRunner.class.getPackageName() + ".*");
+            } else {
+                includes.forEach(options::include);
+            }
+
+            if (quick) {
+                options.warmupIterations(1)
+                        .warmupTime(TimeValue.milliseconds(500))
+                        .measurementIterations(2)
+                        .measurementTime(TimeValue.milliseconds(500));
+            }
+
+            new Runner(options.build()).run();
+            compare = out;
+        }
+
+        if (baseline != null) {
+            int regressions = compare(load(baseline), load(compare), threshold);
+            if (regressions > 0) {
+                System.err.printf("%d benchmark(s) regressed by more than %.1f%%%n", regressions, threshold);
+                System.exit(2);
+            }
+        }
+    }
+
+    private static String nextArg(String[] args, int i) {
+        if (i >= args.length) {
+            throw new IllegalArgumentException("Missing value of %s".formatted(args[i - 1]));
+        }
+        return args[i];
+    }
+
+    record Score(double value, double error, String unit, boolean higherIsBetter) {
+    }
+
+    /**
+     * @return scores of all the benchmarks in the JSON results, keyed by the benchmark name and its parameters
+     */
+    static Map<String, Score> load(Path path) throws IOException {
+        JSONArray results = new JSONArray(Files.readString(path));
+        Map<String, Score> scores = new LinkedHashMap<>();
+        for (int i = 0; i < results.length(); i++) {
+            JSONObject result = results.getJSONObject(i);
+            StringBuilder key = new StringBuilder(result.getString("benchmark"));
+            JSONObject params = result.optJSONObject("params");
+            if (params != null) {
+                new TreeSet<>(params.keySet()).forEach(name -> key.append(" %s=%s".formatted(name, params.get(name))));
+            }
+
+            JSONObject metric = result.getJSONObject("primaryMetric");
+            double error = metric.optDouble("scoreError", 0);
+            scores.put(key.toString(), new Score(metric.getDouble("score"), Double.isNaN(error) ? 0 : error,
+                    metric.getString("scoreUnit"), "thrpt".equals(result.getString("mode"))));
+        }
+        return scores;
+    }
+
+    /**
+     * Prints the change of every benchmark present in both results
+     *
+     * @return number of benchmarks that got slower by more than the threshold in percent
+     */
+    static int compare(Map<String, Score> baseline, Map<String, Score> current, double threshold) {
+        int regressions = 0;
+        for (var entry : current.entrySet()) {
+            Score before = baseline.get(entry.getKey());
+            Score after = entry.getValue();
+            if (before == null || !before.unit().equals(after.unit())) {
+                System.out.printf("%-80s %12.3f %s (no baseline)%n", entry.getKey(), after.value(), after.unit());
+                continue;
+            }
+
+            // positive change means slower, regardless of whether the mode measures time or throughput
+            double change = (after.higherIsBetter() ? before.value() / after.value() : after.value() / before.value()) - 1.0;
+            boolean regressed = change * 100.0 > threshold;
+            if (regressed) {
+                regressions++;
+            }
+
+            System.out.printf("%-80s %12.3f -> %12.3f %s %+7.1f%%%s%n", entry.getKey(), before.value(), after.value(),
+                    after.unit(), change * 100.0, regressed ? "  REGRESSION" : "");
+        }
+        return regressions;
+    }
+}
@@ -0,0 +1,109 @@
+package globalquake.benchmarks;
+
+import globalquake.core.GlobalQuake;
+import globalquake.core.earthquake.data.PickedEvent;
+import globalquake.core.events.GlobalQuakeEventHandler;
+import globalquake.core.geo.taup.TauPTravelTimeCalculator;
+import globalquake.utils.GeoUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Shared setup of the benchmarks, all the synthetic data are generated from fixed seeds so that runs are comparable
+ */
+public final class BenchmarkSupport {
+
+    private static BenchmarkGlobalQuake instance;
+
+    private BenchmarkSupport() {
+    }
+
+    /**
+     * Minimal instance for the code that reads the time or fires events through {@link GlobalQuake#instance}
+     */
+    public static class BenchmarkGlobalQuake extends GlobalQuake {
+
+        private volatile long time = System.currentTimeMillis();
+
+        BenchmarkGlobalQuake() {
+            eventHandler = new GlobalQuakeEventHandler().runHandler();
+        }
+
+        /**
+         * Moves the clock of the instance, so that the data of long running benchmarks do not end up in the future
+         */
+        public void setTime(long time) {
+            this.time = time;
+        }
+
+        @Override
+        public long currentTimeMillis() {
+            return time;
+        }
+
+        @Override
+        public boolean limitedWaveformBuffers() {
+            return false;
+        }
+
+        @Override
+        public boolean limitedSettings() {
+            return false;
+        }
+    }
+
+    /**
+     * Points the main folder to a temporary directory, so that the settings can be loaded without touching the user's data
+     */
+    public static synchronized void prepare() throws IOException {
+        if (GlobalQuake.mainFolder == null) {
+            File folder = Files.createTempDirectory("gq-benchmarks").toFile();
+            folder.deleteOnExit();
+            GlobalQuake.prepare(folder, null);
+        }
+    }
+
+    public static synchronized BenchmarkGlobalQuake prepareInstance() throws IOException {
+        prepare();
+        if (instance == null) {
+            instance = new BenchmarkGlobalQuake();
+        }
+        return instance;
+    }
+
+    /**
+     * Picks of a shallow earthquake at 0, 0 with origin time 0 recorded by stations up to maxDist km away
+     */
+    public static List<PickedEvent> createPickedEvents(int stations, double maxDist, long seed) throws Exception {
+        TauPTravelTimeCalculator.init();
+        Random random = new Random(seed);
+        List<PickedEvent> events = new ArrayList<>();
+        for (int i = 0; i < stations; i++) {
+            double[] latLon = GeoUtils.moveOnGlobe(0, 0, 50 + random.nextDouble() * (maxDist - 50), random.nextDouble() * 360.0);
+            double distGC = GeoUtils.greatCircleDistance(0, 0, latLon[0], latLon[1]);
+            double travel = TauPTravelTimeCalculator.getPWaveTravelTime(10.0, TauPTravelTimeCalculator.toAngle(distGC));
+            events.add(new PickedEvent((long) (travel * 1000) + random.nextInt(400), latLon[0], latLon[1], 0, 100));
+        }
+        return events;
+    }
+
+    /**
+     * Band limited noise with an occasional burst, close to what a broadband station records, in counts
+     */
+    public static int[] createWaveform(int samples, double sampleRate, long seed) {
+        Random random = new Random(seed);
+        int[] result = new int[samples];
+        double phase = 0;
+        for (int i = 0; i < samples; i++) {
+            phase += 2 * Math.PI * 1.5 / sampleRate;
+            double burst = (i / (int) (sampleRate * 60)) % 4 == 3 ? 20.0 : 1.0;
+            result[i] = (int) (500 * burst * Math.sin(phase) + random.nextGaussian() * 200.0);
+        }
+        return result;
+    }
+}
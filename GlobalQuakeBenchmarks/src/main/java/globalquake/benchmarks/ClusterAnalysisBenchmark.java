@@ -0,0 +1,124 @@
+package globalquake.benchmarks;
+
+import globalquake.core.analysis.Event;
+import globalquake.core.earthquake.ClusterAnalysis;
+import globalquake.core.earthquake.EarthquakeAnalysis;
+import globalquake.core.earthquake.data.Earthquake;
+import globalquake.core.geo.taup.TauPTravelTimeCalculator;
+import globalquake.core.intensity.IntensityTable;
+import globalquake.core.station.AbstractStation;
+import globalquake.core.station.GlobalStationManager;
+import globalquake.core.training.ClusterAnalysisTraining;
+import globalquake.utils.GeoUtils;
+import globalquake.utils.monitorable.MonitorableRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cluster analysis over a synthetic world-wide network that recorded a single earthquake,
+ * both when all the picks are new and in the steady state when nothing changed since the previous run
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ClusterAnalysisBenchmark {
+
+    @Param({"1000", "5000"})
+    public int stations;
+
+    private List<AbstractStation> stationList;
+    private long[] pWaves;
+    private double[] ratios;
+
+    private ClusterAnalysis steadyAnalysis;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        BenchmarkSupport.BenchmarkGlobalQuake globalQuake = BenchmarkSupport.prepareInstance();
+        TauPTravelTimeCalculator.init();
+
+        Random random = new Random(0);
+        stationList = new ArrayList<>();
+        for (int i = 0; i < stations; i++) {
+            double dist = random.nextDouble() * GeoUtils.EARTH_CIRCUMFERENCE / 2.0;
+            double[] latLon = GeoUtils.moveOnGlobe(0, 0, dist, random.nextDouble() * 360.0);
+            stationList.add(new ClusterAnalysisTraining.SimulatedStation(latLon[0], latLon[1], 0));
+        }
+
+        GlobalStationManager.createListOfClosestStations(stationList);
+
+        // M6.5 at 0, 0, 10 km with origin at 0
+        pWaves = new long[stations];
+        ratios = new double[stations];
+        long lastArrival = 0;
+        for (int i = 0; i < stations; i++) {
+            AbstractStation station = stationList.get(i);
+            double distGC = GeoUtils.greatCircleDistance(0, 0, station.getLatitude(), station.getLongitude());
+            double travel = TauPTravelTimeCalculator.getPWaveTravelTime(10.0, TauPTravelTimeCalculator.toAngle(distGC));
+            double ratio = IntensityTable.getIntensity(6.5, distGC) * random.nextDouble();
+            if (travel < 0 || ratio < 8.0) {
+                pWaves[i] = -1;
+                continue;
+            }
+
+            pWaves[i] = (long) (travel * 1000) + random.nextInt(2000) - 1000;
+            ratios[i] = ratio;
+            lastArrival = Math.max(lastArrival, pWaves[i]);
+        }
+
+        globalQuake.setTime(lastArrival + 1000);
+
+        steadyAnalysis = createAnalysis();
+        steadyAnalysis.run();
+    }
+
+    private ClusterAnalysis createAnalysis() {
+        for (int i = 0; i < stations; i++) {
+            AbstractStation station = stationList.get(i);
+            station.getAnalysis().removeDetectedEvents(new ArrayList<>(station.getAnalysis().getDetectedEvents()));
+            if (pWaves[i] < 0) {
+                continue;
+            }
+
+            Event event = new Event(station.getAnalysis());
+            event.maxRatio = ratios[i];
+            event.setpWave(pWaves[i]);
+            station.getAnalysis().addDetectedEvent(event);
+        }
+
+        MonitorableRegistry<Earthquake> earthquakes = new MonitorableRegistry<>(Earthquake::getUuid);
+        ClusterAnalysis clusterAnalysis = new ClusterAnalysis(earthquakes, stationList);
+        new EarthquakeAnalysis(clusterAnalysis, earthquakes);
+        return clusterAnalysis;
+    }
+
+    @State(Scope.Thread)
+    public static class FreshPicks {
+
+        ClusterAnalysis clusterAnalysis;
+
+        @Setup(Level.Invocation)
+        public void setup(ClusterAnalysisBenchmark benchmark) {
+            clusterAnalysis = benchmark.createAnalysis();
+        }
+    }
+
+    @Benchmark
+    public ClusterAnalysis runWithNewPicks(FreshPicks freshPicks) {
+        freshPicks.clusterAnalysis.run();
+        return freshPicks.clusterAnalysis;
+    }
+
+    @Benchmark
+    public ClusterAnalysis runSteadyState() {
+        steadyAnalysis.run();
+        return steadyAnalysis;
+    }
+}
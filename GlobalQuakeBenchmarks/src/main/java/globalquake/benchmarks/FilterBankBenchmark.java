@@ -0,0 +1,79 @@
+package globalquake.benchmarks;
+
+import globalquake.core.analysis.BetterAnalysis;
+import globalquake.core.analysis.FilterBank;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import uk.me.berndporr.iirj.Butterworth;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The three analysis bands filtered sample by sample, by blocks and by separate iirj filters, the scores are samples per second
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class FilterBankBenchmark {
+
+    private static final double SAMPLE_RATE = 100.0;
+    private static final int BLOCK = 400;
+
+    private static final double[] MIN_FREQS = {BetterAnalysis.minFreqDefault, BetterAnalysis.minFreqLow, BetterAnalysis.minFreqUltraLow};
+    private static final double[] MAX_FREQS = {BetterAnalysis.maxFreqDefault, BetterAnalysis.maxFreqLow, BetterAnalysis.maxFreqUltraLow};
+
+    private double[] input;
+    private double[][] output;
+
+    private FilterBank filterBank;
+    private Butterworth[] butterworths;
+
+    @Setup
+    public void setup() {
+        int[] waveform = BenchmarkSupport.createWaveform(BLOCK, SAMPLE_RATE, 0);
+        input = new double[BLOCK];
+        for (int i = 0; i < BLOCK; i++) {
+            input[i] = waveform[i];
+        }
+
+        filterBank = new FilterBank(SAMPLE_RATE, MIN_FREQS, MAX_FREQS);
+        output = new double[filterBank.getBands()][BLOCK];
+
+        butterworths = new Butterworth[filterBank.getBands()];
+        for (int band = 0; band < butterworths.length; band++) {
+            double min = MIN_FREQS[band];
+            double max = MAX_FREQS[band];
+            butterworths[band] = new Butterworth();
+            butterworths[band].bandPass(FilterBank.ORDER, SAMPLE_RATE, (min + max) * 0.5, max - min);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BLOCK)
+    public void perSample(Blackhole blackhole) {
+        for (double value : input) {
+            filterBank.accept(value);
+            blackhole.consume(filterBank.getOutput(0));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BLOCK)
+    public double[][] block() {
+        filterBank.process(input, 0, BLOCK, output);
+        return output;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BLOCK)
+    public void iirj(Blackhole blackhole) {
+        for (double value : input) {
+            for (Butterworth butterworth : butterworths) {
+                blackhole.consume(butterworth.filter(value));
+            }
+        }
+    }
+}
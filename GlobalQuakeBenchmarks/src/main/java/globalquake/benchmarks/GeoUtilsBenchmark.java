@@ -0,0 +1,69 @@
+package globalquake.benchmarks;
+
+import globalquake.utils.GeoUtils;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class GeoUtilsBenchmark {
+
+    private static final int QUERIES = 1024;
+
+    private final double[] lats = new double[QUERIES + 1];
+    private final double[] lons = new double[QUERIES + 1];
+    private final double[] alts = new double[QUERIES + 1];
+    private final double[] distances = new double[QUERIES];
+
+    @Setup
+    public void setup() {
+        Random random = new Random(0);
+        for (int i = 0; i <= QUERIES; i++) {
+            lats[i] = Math.toDegrees(Math.asin(2 * random.nextDouble() - 1));
+            lons[i] = random.nextDouble() * 360.0 - 180.0;
+            alts[i] = random.nextDouble() * 2.0;
+        }
+        for (int i = 0; i < QUERIES; i++) {
+            distances[i] = random.nextDouble() * 5000.0;
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(QUERIES)
+    public void greatCircleDistance(Blackhole blackhole) {
+        for (int i = 0; i < QUERIES; i++) {
+            blackhole.consume(GeoUtils.greatCircleDistance(lats[i], lons[i], lats[i + 1], lons[i + 1]));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(QUERIES)
+    public void geologicalDistance(Blackhole blackhole) {
+        for (int i = 0; i < QUERIES; i++) {
+            blackhole.consume(GeoUtils.geologicalDistance(lats[i], lons[i], -alts[i], lats[i + 1], lons[i + 1], alts[i + 1]));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(QUERIES)
+    public void calculateAngle(Blackhole blackhole) {
+        for (int i = 0; i < QUERIES; i++) {
+            blackhole.consume(GeoUtils.calculateAngle(lats[i], lons[i], lats[i + 1], lons[i + 1]));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(QUERIES)
+    public void moveOnGlobe(Blackhole blackhole) {
+        for (int i = 0; i < QUERIES; i++) {
+            blackhole.consume(GeoUtils.moveOnGlobe(lats[i], lons[i], distances[i], lons[i + 1]));
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package globalquake.benchmarks;
+
+import globalquake.ui.globe.GlobeRenderer;
+import globalquake.ui.globe.Point2D;
+import globalquake.ui.globe.RenderProperties;
+import globalquake.ui.globe.feature.RenderEntity;
+import globalquake.ui.globe.feature.RenderFeature;
+import globalquake.utils.monitorable.MonitorableCopyOnWriteArrayList;
+import org.apache.commons.math3.geometry.euclidean.threed.Vector3D;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hover, click and drag selection over a globe with 100k stations, the per-entity projection used before
+ * compared with the queries of the screen space index
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class GlobePickingBenchmark {
+
+    private static final int STATIONS = 100_000;
+    private static final int WIDTH = 1600;
+    private static final int HEIGHT = 900;
+    private static final double RADIUS = 10.0;
+
+    private final GlobeRenderer renderer = new GlobeRenderer();
+    private final PointFeature feature = new PointFeature();
+    private final Rectangle dragRectangle = new Rectangle(600, 300, 300, 200);
+
+    private RenderProperties properties;
+    private RenderProperties otherProperties;
+
+    private static class PointFeature extends RenderFeature<Point2D> {
+
+        private final MonitorableCopyOnWriteArrayList<Point2D> points = new MonitorableCopyOnWriteArrayList<>();
+
+        PointFeature() {
+            super(0);
+        }
+
+        @Override
+        public Collection<Point2D> getElements() {
+            return points;
+        }
+
+        @Override
+        public void createPolygon(GlobeRenderer renderer, RenderEntity<Point2D> entity, RenderProperties renderProperties) {
+        }
+
+        @Override
+        public void project(GlobeRenderer renderer, RenderEntity<Point2D> entity, RenderProperties renderProperties) {
+        }
+
+        @Override
+        public void render(GlobeRenderer renderer, Graphics2D graphics, RenderEntity<Point2D> entity, RenderProperties renderProperties) {
+        }
+
+        @Override
+        public Point2D getCenterCoords(RenderEntity<?> entity) {
+            return (Point2D) entity.getOriginal();
+        }
+    }
+
+    @Setup
+    public void setup() {
+        Random random = new Random(0);
+        List<Point2D> points = new ArrayList<>(STATIONS);
+        for (int i = 0; i < STATIONS; i++) {
+            // clustered around Europe like the real station coverage, the rest spread over the globe
+            if (i % 2 == 0) {
+                points.add(new Point2D(35 + random.nextDouble() * 30, -10 + random.nextDouble() * 40));
+            } else {
+                points.add(new Point2D(Math.toDegrees(Math.asin(2 * random.nextDouble() - 1)), random.nextDouble() * 360.0 - 180.0));
+            }
+        }
+        feature.points.addAll(points);
+        feature.updateEntities();
+
+        properties = createProperties();
+        otherProperties = createProperties();
+    }
+
+    private RenderProperties createProperties() {
+        RenderProperties result = new RenderProperties(WIDTH, HEIGHT, 50, 15, 0.45);
+        renderer.updateCamera(result);
+        return result;
+    }
+
+    @Benchmark
+    public void nearbyLinear(Blackhole blackhole) {
+        for (RenderEntity<Point2D> entity : feature.getEntities()) {
+            Vector3D pos = GlobeRenderer.createVec3D(entity.getOriginal());
+            if (!renderer.isAboveHorizon(pos, properties)) {
+                continue;
+            }
+            Point2D projected = renderer.projectPoint(pos, properties);
+            if (Math.hypot(projected.x - WIDTH / 2.0, projected.y - HEIGHT / 2.0) <= RADIUS) {
+                blackhole.consume(entity);
+            }
+        }
+    }
+
+    @Benchmark
+    public void nearbyIndexed(Blackhole blackhole) {
+        List<RenderEntity<?>> result = new ArrayList<>();
+        feature.collectNearby(renderer, WIDTH / 2.0, HEIGHT / 2.0, RADIUS, properties, result);
+        blackhole.consume(result);
+    }
+
+    @Benchmark
+    public void insideLinear(Blackhole blackhole) {
+        for (RenderEntity<Point2D> entity : feature.getEntities()) {
+            if (renderer.isMouseInside(entity.getOriginal(), dragRectangle, properties)) {
+                blackhole.consume(entity);
+            }
+        }
+    }
+
+    @Benchmark
+    public List<Point2D> insideIndexed() {
+        return renderer.getAllInside(feature, dragRectangle, properties);
+    }
+
+    /**
+     * Cost of the projection pass paid once per frame in which the view moved
+     */
+    @Benchmark
+    public Object buildIndex() {
+        RenderProperties swap = properties;
+        properties = otherProperties;
+        otherProperties = swap;
+        return feature.getScreenIndex(renderer, properties);
+    }
+}
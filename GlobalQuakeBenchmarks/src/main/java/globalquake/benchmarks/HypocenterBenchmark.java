@@ -0,0 +1,65 @@
+package globalquake.benchmarks;
+
+import globalquake.core.earthquake.EarthquakeAnalysis;
+import globalquake.core.earthquake.data.HypocenterFinderSettings;
+import globalquake.core.earthquake.data.HypocenterFinderThreadData;
+import globalquake.core.earthquake.data.PickedEvent;
+import globalquake.core.earthquake.data.PreliminaryHypocenter;
+import globalquake.core.earthquake.interval.ConfidenceIntervalCalculator;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class HypocenterBenchmark {
+
+    private static final HypocenterFinderSettings FINDER_SETTINGS = new HypocenterFinderSettings(2200, 50,
+            0.40, 1.00, 4, false);
+
+    private static final double[] CONFIDENCE_THRESHOLDS = {3.0, 2.0, 1.5, 1.25};
+
+    @Param({"16", "64"})
+    public int stations;
+
+    private List<PickedEvent> events;
+    private List<EarthquakeAnalysis.ExactPickedEvent> exactPickedEvents;
+    private HypocenterFinderThreadData threadData;
+    private PreliminaryHypocenter hypocenter;
+
+    @Setup
+    public void setup() throws Exception {
+        BenchmarkSupport.prepare();
+        events = BenchmarkSupport.createPickedEvents(stations, 1000, 0);
+        exactPickedEvents = EarthquakeAnalysis.createListOfExactPickedEvents(events);
+        EarthquakeAnalysis.calculateDistances(exactPickedEvents, 0, 0);
+        threadData = new HypocenterFinderThreadData(stations);
+        hypocenter = new PreliminaryHypocenter();
+        EarthquakeAnalysis.analyseHypocenter(hypocenter, 0, 0, 10.0, exactPickedEvents, FINDER_SETTINGS, threadData);
+    }
+
+    @Benchmark
+    public PreliminaryHypocenter analyseHypocenter() {
+        EarthquakeAnalysis.analyseHypocenter(hypocenter, 0, 0, 10.0, exactPickedEvents, FINDER_SETTINGS, threadData);
+        return hypocenter;
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public PreliminaryHypocenter scanArea() {
+        return EarthquakeAnalysis.scanArea(events, 500, 10_000, 0, 0, 40, 750, FINDER_SETTINGS, false);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public Object confidenceIntervals() {
+        ConfidenceIntervalCalculator calculator = new ConfidenceIntervalCalculator(events, hypocenter, FINDER_SETTINGS, 1.0);
+        calculator.calculateDepthConfidenceInterval();
+        return calculator.calculatePolygonConfidenceIntervals(CONFIDENCE_THRESHOLDS);
+    }
+}
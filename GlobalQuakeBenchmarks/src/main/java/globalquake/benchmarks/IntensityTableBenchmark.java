@@ -0,0 +1,60 @@
+package globalquake.benchmarks;
+
+import globalquake.core.intensity.IntensityTable;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Magnitude estimation of a single station, which inverts the intensity functions by {@link IntensityTable#findMagnitude}
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class IntensityTableBenchmark {
+
+    private static final int QUERIES = 256;
+
+    private final double[] magnitudes = new double[QUERIES];
+    private final double[] distances = new double[QUERIES];
+    private final double[] intensities = new double[QUERIES];
+
+    @Setup
+    public void setup() {
+        Random random = new Random(0);
+        for (int i = 0; i < QUERIES; i++) {
+            magnitudes[i] = 2.0 + random.nextDouble() * 7.0;
+            distances[i] = random.nextDouble() * 10000.0;
+            intensities[i] = IntensityTable.getIntensity(magnitudes[i], distances[i]);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(QUERIES)
+    public void getMagnitude(Blackhole blackhole) {
+        for (int i = 0; i < QUERIES; i++) {
+            blackhole.consume(IntensityTable.getMagnitude(distances[i], intensities[i]));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(QUERIES)
+    public void getMagnitudeByRatio(Blackhole blackhole) {
+        for (int i = 0; i < QUERIES; i++) {
+            blackhole.consume(IntensityTable.getMagnitudeByRatio(distances[i], intensities[i]));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(QUERIES)
+    public void getIntensity(Blackhole blackhole) {
+        for (int i = 0; i < QUERIES; i++) {
+            blackhole.consume(IntensityTable.getIntensity(magnitudes[i], distances[i]));
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package globalquake.benchmarks;
+
+import gqserver.api.Packet;
+import gqserver.api.data.cluster.ClusterData;
+import gqserver.api.data.earthquake.HypocenterData;
+import gqserver.api.data.earthquake.advanced.*;
+import gqserver.api.data.station.StationIntensityData;
+import gqserver.api.packets.data.DataRecordPacket;
+import gqserver.api.packets.earthquake.HypocenterDataPacket;
+import gqserver.api.packets.station.StationsIntensityPacket;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Packets that the server sends most often, written and read through fresh object streams
+ * the same way a newly connected client receives them
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PacketSerializationBenchmark {
+
+    @Param({"hypocenter", "intensities", "dataRecord"})
+    public String packetType;
+
+    private Packet packet;
+    private byte[] serialized;
+
+    @Setup
+    public void setup() throws IOException {
+        Random random = new Random(0);
+        packet = switch (packetType) {
+            case "hypocenter" -> createHypocenterPacket(random);
+            case "intensities" -> createIntensitiesPacket(random, 5000);
+            case "dataRecord" -> createDataRecordPacket(random);
+            default -> throw new IllegalArgumentException("Unknown packet type %s".formatted(packetType));
+        };
+        serialized = write(packet);
+    }
+
+    private static Packet createHypocenterPacket(Random random) {
+        UUID uuid = new UUID(random.nextLong(), random.nextLong());
+        HypocenterData data = new HypocenterData(uuid, 3, 35.2f, 139.1f, 10.0f, 1700000000000L, 6.5f,
+                1700000030000L, "Near East Coast of Honshu, Japan");
+
+        List<PolygonConfidenceIntervalData> polygons = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            List<Float> lengths = new ArrayList<>();
+            for (int j = 0; j < 36; j++) {
+                lengths.add(random.nextFloat() * 100.0f);
+            }
+            polygons.add(new PolygonConfidenceIntervalData(36, 0, lengths));
+        }
+
+        AdvancedHypocenterData advanced = new AdvancedHypocenterData(
+                new HypocenterQualityData(1.2f, 5.0f, 4.0f, 6.0f, 48, 92.0f),
+                new DepthConfidenceIntervalData(5.0f, 20.0f),
+                new LocationConfidenceIntervalData(polygons),
+                new StationCountData(60, 52, 48, 45),
+                List.of(1.0f, 2.5f, 4.5f, 6.0f, 6.5f));
+
+        return new HypocenterDataPacket(data, advanced, new ClusterData(uuid, 35.0, 139.0, 2));
+    }
+
+    private static Packet createIntensitiesPacket(Random random, int stations) {
+        List<StationIntensityData> intensities = new ArrayList<>(stations);
+        for (int i = 0; i < stations; i++) {
+            intensities.add(new StationIntensityData(i, random.nextFloat() * 1000.0f, random.nextInt(20) == 0));
+        }
+        return new StationsIntensityPacket(new UUID(random.nextLong(), random.nextLong()), 1700000000000L, intensities);
+    }
+
+    private static Packet createDataRecordPacket(Random random) {
+        byte[] data = new byte[512];
+        random.nextBytes(data);
+        return new DataRecordPacket(42, data);
+    }
+
+    private static byte[] write(Packet packet) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(packet);
+        }
+        return bytes.toByteArray();
+    }
+
+    @Benchmark
+    public byte[] serialize() throws IOException {
+        return write(packet);
+    }
+
+    @Benchmark
+    public Object deserialize() throws IOException, ClassNotFoundException {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(serialized))) {
+            return in.readObject();
+        }
+    }
+}
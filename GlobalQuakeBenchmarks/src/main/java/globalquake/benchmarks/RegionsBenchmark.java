@@ -0,0 +1,61 @@
+package globalquake.benchmarks;
+
+import globalquake.core.regions.Regions;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RegionsBenchmark {
+
+    private static final int QUERIES = 64;
+
+    private final double[] lats = new double[QUERIES];
+    private final double[] lons = new double[QUERIES];
+
+    private int index;
+
+    @Setup
+    public void setup() throws Exception {
+        BenchmarkSupport.prepare();
+        Regions.init();
+
+        Random random = new Random(0);
+        for (int i = 0; i < QUERIES; i++) {
+            lats[i] = Math.toDegrees(Math.asin(2 * random.nextDouble() - 1));
+            lons[i] = random.nextDouble() * 360.0 - 180.0;
+        }
+    }
+
+    private int next() {
+        index = (index + 1) % QUERIES;
+        return index;
+    }
+
+    @Benchmark
+    public boolean isOcean() {
+        int i = next();
+        return Regions.isOcean(lats[i], lons[i], false);
+    }
+
+    @Benchmark
+    public boolean isOceanUHD() {
+        int i = next();
+        return Regions.isOcean(lats[i], lons[i], true);
+    }
+
+    /**
+     * Points in the ocean fall back to the search of the closest coast, which is the slow path
+     */
+    @Benchmark
+    public String getRegion() {
+        int i = next();
+        return Regions.getRegion(lats[i], lons[i]);
+    }
+}
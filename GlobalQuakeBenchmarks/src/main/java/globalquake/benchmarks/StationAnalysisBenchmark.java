@@ -0,0 +1,89 @@
+package globalquake.benchmarks;
+
+import edu.sc.seis.seisFile.mseed.Btime;
+import edu.sc.seis.seisFile.mseed.DataRecord;
+import globalquake.core.analysis.Analysis;
+import globalquake.core.seedlink.MiniSeedRecords;
+import globalquake.core.station.GlobalStation;
+import gqserver.api.packets.station.InputType;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Station analysis fed with one sample at a time and with whole miniSEED records, the scores are per sample
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class StationAnalysisBenchmark {
+
+    private static final double SAMPLE_RATE = 100.0;
+    private static final int BLOCK = 1000;
+
+    private BenchmarkSupport.BenchmarkGlobalQuake globalQuake;
+
+    private Analysis analysis;
+    private int[] waveform;
+    private int position;
+    private long time;
+
+    private List<DataRecord> records;
+    private int samplesPerRecord;
+    private int recordIndex;
+
+    @Setup
+    public void setup() throws Exception {
+        globalQuake = BenchmarkSupport.prepareInstance();
+
+        waveform = BenchmarkSupport.createWaveform((int) (SAMPLE_RATE * 600), SAMPLE_RATE, 0);
+        records = MiniSeedRecords.create("XX", "BENCH", "HHZ", "", 0, SAMPLE_RATE, waveform);
+        samplesPerRecord = records.get(0).getHeader().getNumSamples();
+
+        GlobalStation station = new GlobalStation("XX", "BENCH", "HHZ", "", 0, 0, 0, 0, null, -1, InputType.UNKNOWN);
+        analysis = station.getAnalysis();
+        analysis.setSampleRate(SAMPLE_RATE);
+
+        // get through the initialisation, so that the steady state is measured
+        time = globalQuake.currentTimeMillis();
+        for (int i = 0; i < SAMPLE_RATE * 120; i++) {
+            nextSample();
+        }
+    }
+
+    private void nextSample() {
+        analysis.nextSample(waveform[position], time, time);
+        position = (position + 1) % waveform.length;
+        time += (long) (1000 / SAMPLE_RATE);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BLOCK)
+    public void nextSamples() {
+        globalQuake.setTime(time);
+        for (int i = 0; i < BLOCK; i++) {
+            nextSample();
+        }
+    }
+
+    /**
+     * Includes the Steim2 decompression, the records are moved forward in time as the benchmark goes
+     */
+    @Benchmark
+    public long analyseRecord() {
+        DataRecord record = records.get(recordIndex);
+        recordIndex = (recordIndex + 1) % records.size();
+
+        record.getHeader().setStartBtime(new Btime(Instant.ofEpochMilli(time)));
+        time += (long) (samplesPerRecord * 1000 / SAMPLE_RATE);
+        globalQuake.setTime(time);
+
+        analysis.analyse(record);
+        return analysis.getNumRecords();
+    }
+}
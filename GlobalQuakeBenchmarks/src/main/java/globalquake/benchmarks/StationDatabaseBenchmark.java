@@ -0,0 +1,102 @@
+package globalquake.benchmarks;
+
+import globalquake.core.database.*;
+import gqserver.api.packets.station.InputType;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class StationDatabaseBenchmark {
+
+    private static final int SOURCES = 4;
+    private static final int STATIONS_PER_NETWORK = 50;
+    private static final int QUERIES = 1024;
+
+    @Param({"100", "400"})
+    public int networks;
+
+    private StationDatabase database;
+    private File folder;
+
+    private final String[] networkCodes = new String[QUERIES];
+    private final String[] stationCodes = new String[QUERIES];
+
+    @Setup
+    public void setup() throws IOException {
+        Random random = new Random(0);
+        database = new StationDatabase();
+        for (int s = 0; s < SOURCES; s++) {
+            database.getStationSources().add(new StationSource("Source %d".formatted(s), "https://example.com/%d/".formatted(s)));
+        }
+
+        for (int n = 0; n < networks; n++) {
+            Network network = new Network("N%d".formatted(n), "Network %d".formatted(n));
+            StationSource source = database.getStationSources().get(n % SOURCES);
+            for (int s = 0; s < STATIONS_PER_NETWORK; s++) {
+                double lat = random.nextDouble() * 180.0 - 90.0;
+                double lon = random.nextDouble() * 360.0 - 180.0;
+                Station station = new Station(network, "S%d".formatted(s), "Site %d".formatted(s), lat, lon, 100);
+                for (String code : new String[]{"BHZ", "HHZ", "EHZ"}) {
+                    Channel channel = new Channel(code, "00", 40, lat, lon, 100, source, 1E9, InputType.VELOCITY);
+                    database.acceptChannel(network, station, channel);
+                }
+            }
+        }
+
+        for (int i = 0; i < QUERIES; i++) {
+            networkCodes[i] = "N%d".formatted(random.nextInt(networks));
+            stationCodes[i] = "S%d".formatted(random.nextInt(STATIONS_PER_NETWORK));
+        }
+
+        folder = Files.createTempDirectory("gq-database-benchmark").toFile();
+        database.markAllModified();
+        StationDatabaseIO.save(database, folder);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(folder.toPath())) {
+            files.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+
+    @Benchmark
+    public void saveAll() throws IOException {
+        database.markAllModified();
+        StationDatabaseIO.save(database, folder);
+    }
+
+    @Benchmark
+    public void saveOneSource() throws IOException {
+        database.markModified(database.getStationSources().get(0));
+        StationDatabaseIO.save(database, folder);
+    }
+
+    @Benchmark
+    public StationDatabase load() throws IOException {
+        return StationDatabaseIO.load(folder);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(QUERIES)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public void getChannel(Blackhole blackhole) {
+        for (int i = 0; i < QUERIES; i++) {
+            blackhole.consume(database.getChannel(networkCodes[i], stationCodes[i], "HHZ", "00"));
+        }
+    }
+}
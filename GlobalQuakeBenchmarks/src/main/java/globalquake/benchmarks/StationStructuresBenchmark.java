@@ -0,0 +1,113 @@
+package globalquake.benchmarks;
+
+import globalquake.core.analysis.Event;
+import globalquake.core.station.AbstractStation;
+import globalquake.core.station.GlobalStation;
+import globalquake.core.station.StationIntervalHistory;
+import globalquake.core.station.StationSpatialIndex;
+import globalquake.core.station.StationState;
+import globalquake.utils.SlidingWindowMax;
+import gqserver.api.packets.station.InputType;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lookups done for every station on every pass of the cluster and hypocenter analysis
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class StationStructuresBenchmark {
+
+    private static final int STATIONS = 20000;
+    private static final int EVENTS = 200;
+    private static final int INTERVALS = 2000;
+    private static final int QUERIES = 1024;
+
+    private StationSpatialIndex spatialIndex;
+    private AbstractStation eventStation;
+    private final StationIntervalHistory intervals = new StationIntervalHistory();
+    private final SlidingWindowMax slidingMax = new SlidingWindowMax(60, 600);
+
+    private final double[] lats = new double[QUERIES];
+    private final double[] lons = new double[QUERIES];
+    private final long[] times = new long[QUERIES];
+    private final double[] values = new double[QUERIES];
+
+    @Setup
+    public void setup() throws IOException {
+        BenchmarkSupport.prepareInstance();
+        Random random = new Random(0);
+
+        List<AbstractStation> stations = new ArrayList<>(STATIONS);
+        for (int i = 0; i < STATIONS; i++) {
+            double lat = Math.toDegrees(Math.asin(2 * random.nextDouble() - 1));
+            double lon = random.nextDouble() * 360.0 - 180.0;
+            stations.add(new GlobalStation("XX", "S%d".formatted(i), "HHZ", "00", lat, lon, 0, i, null, 1E9, InputType.VELOCITY));
+        }
+        spatialIndex = new StationSpatialIndex(stations, UUID.randomUUID());
+
+        // events of a busy station, one every 30 seconds, each lasting 20 seconds
+        eventStation = stations.get(0);
+        for (int i = 0; i < EVENTS; i++) {
+            Event event = new Event(eventStation.getAnalysis());
+            event.setpWave(i * 30_000L);
+            event.end(i * 30_000L + 20_000L);
+            eventStation.getAnalysis().addDetectedEvent(event);
+        }
+
+        for (int i = 0; i < INTERVALS; i++) {
+            intervals.add(i * 10_000L, i * 10_000L + 9_000L, i % 7 == 0 ? StationState.INACTIVE : StationState.ACTIVE);
+        }
+
+        for (int i = 0; i < QUERIES; i++) {
+            lats[i] = Math.toDegrees(Math.asin(2 * random.nextDouble() - 1));
+            lons[i] = random.nextDouble() * 360.0 - 180.0;
+            times[i] = (long) (random.nextDouble() * EVENTS * 30_000L);
+            values[i] = random.nextDouble() * 1000.0;
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(QUERIES)
+    public void stationsWithin(Blackhole blackhole) {
+        for (int i = 0; i < QUERIES; i++) {
+            blackhole.consume(spatialIndex.getStationsWithin(lats[i], lons[i], 200));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(QUERIES)
+    public void eventAt(Blackhole blackhole) {
+        for (int i = 0; i < QUERIES; i++) {
+            blackhole.consume(eventStation.getEventAt(times[i], 1000));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(QUERIES)
+    public void stateAt(Blackhole blackhole) {
+        for (int i = 0; i < QUERIES; i++) {
+            blackhole.consume(intervals.getStateAt(times[i] * INTERVALS / (EVENTS * 3)));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(QUERIES)
+    public void slidingMaxAdd(Blackhole blackhole) {
+        for (int i = 0; i < QUERIES; i++) {
+            slidingMax.add(values[i]);
+            blackhole.consume(slidingMax.getMax(1));
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package globalquake.benchmarks;
+
+import globalquake.core.geo.taup.TauPTravelTimeCalculator;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TravelTimeBenchmark {
+
+    private static final int QUERIES = 1024;
+
+    private final double[] depths = new double[QUERIES];
+    private final double[] angles = new double[QUERIES];
+    private final double[] times = new double[QUERIES];
+
+    @Setup
+    public void setup() throws Exception {
+        BenchmarkSupport.prepare();
+        TauPTravelTimeCalculator.init();
+
+        Random random = new Random(0);
+        for (int i = 0; i < QUERIES; i++) {
+            depths[i] = random.nextDouble() * 700.0;
+            angles[i] = random.nextDouble() * 100.0;
+            times[i] = random.nextDouble() * 800.0;
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(QUERIES)
+    public void pWaveTravelTime(Blackhole blackhole) {
+        for (int i = 0; i < QUERIES; i++) {
+            blackhole.consume(TauPTravelTimeCalculator.getPWaveTravelTime(depths[i], angles[i]));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(QUERIES)
+    public void pWaveTravelTimeFast(Blackhole blackhole) {
+        for (int i = 0; i < QUERIES; i++) {
+            blackhole.consume(TauPTravelTimeCalculator.getPWaveTravelTimeFast(depths[i], angles[i]));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(QUERIES)
+    public void sWaveTravelTime(Blackhole blackhole) {
+        for (int i = 0; i < QUERIES; i++) {
+            blackhole.consume(TauPTravelTimeCalculator.getSWaveTravelTime(depths[i], angles[i]));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(QUERIES)
+    public void pWaveTravelAngle(Blackhole blackhole) {
+        for (int i = 0; i < QUERIES; i++) {
+            blackhole.consume(TauPTravelTimeCalculator.getPWaveTravelAngle(depths[i], times[i]));
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package globalquake.benchmarks;
+
+import globalquake.core.analysis.WaveformBuffer;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Logging of the analysed samples and extraction of the event windows, five minutes of 100 Hz data as in the default settings
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class WaveformBufferBenchmark {
+
+    private static final double SAMPLE_RATE = 100.0;
+    private static final int SECONDS = 300;
+
+    @Param({"true", "false"})
+    public boolean compressRawValues;
+
+    private WaveformBuffer buffer;
+    private int[] waveform;
+    private long time;
+    private int position;
+
+    @Setup
+    public void setup() {
+        WaveformBuffer.compressRawValues = compressRawValues;
+        buffer = new WaveformBuffer(SAMPLE_RATE, SECONDS, false);
+        waveform = BenchmarkSupport.createWaveform((int) (SAMPLE_RATE * SECONDS), SAMPLE_RATE, 0);
+
+        time = 0;
+        for (int i = 0; i < waveform.length; i++) {
+            log();
+        }
+    }
+
+    private void log() {
+        int value = waveform[position];
+        buffer.log(time, value, value * 0.5f, 1.0f, 1.1f, 1.0f, 2.0f, false);
+        position = (position + 1) % waveform.length;
+        time += (long) (1000 / SAMPLE_RATE);
+    }
+
+    @Benchmark
+    public void log1() {
+        log();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public WaveformBuffer extract180Seconds() {
+        return buffer.extract(time - 180_000, time);
+    }
+
+    @Benchmark
+    public int getClosestIndex() {
+        return buffer.getClosestIndex(time - 100_000);
+    }
+}
@@ -0,0 +1,100 @@
+package globalquake.benchmarks;
+
+import globalquake.core.analysis.WaveformBuffer;
+
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.ref.Reference;
+import java.util.Locale;
+
+/**
+ * Memory taken by the waveform buffers of a large network, with the samples on the heap or in direct memory
+ * and with the raw values stored as 16-bit differences or as plain 32-bit values. Every buffer is filled
+ * with a full store time of synthetic samples, so the buffers that had to switch to 32-bit values are counted too.
+ * <p>
+ * Usage: {@code [stations] [sample rate] [seconds]}, by default 20000 stations at 20 sps and the default 5 minute store time.
+ * The heap and the direct memory limit both have to hold the largest variant, e.g. {@code -Xmx4g -XX:MaxDirectMemorySize=4g}.
+ */
+public class WaveformBufferFootprint {
+
+    private static final double MB = 1024.0 * 1024.0;
+
+    public static void main(String[] args) throws InterruptedException {
+        int stations = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+        double sampleRate = args.length > 1 ? Double.parseDouble(args[1]) : 20;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 300;
+
+        int[] waveform = BenchmarkSupport.createWaveform((int) Math.ceil(sampleRate * seconds), sampleRate, 0);
+
+        System.out.printf(Locale.ROOT, "%d stations, %.0f sps, %d s%n", stations, sampleRate, seconds);
+        System.out.printf(Locale.ROOT, "%-8s %-6s %10s %10s %10s %12s %8s %8s%n",
+                "storage", "raw", "heap MB", "direct MB", "total MB", "per station", "32-bit", "fill s");
+        for (boolean direct : new boolean[]{true, false}) {
+            for (boolean compressed : new boolean[]{true, false}) {
+                measure(stations, sampleRate, seconds, waveform, direct, compressed);
+            }
+        }
+    }
+
+    private static void measure(int stations, double sampleRate, int seconds, int[] waveform,
+                                boolean direct, boolean compressed) throws InterruptedException {
+        WaveformBuffer.directMemory = direct;
+        WaveformBuffer.compressRawValues = compressed;
+
+        settle();
+        long heapBefore = usedHeap();
+        long directBefore = usedDirect();
+
+        long start = System.nanoTime();
+        WaveformBuffer[] buffers = new WaveformBuffer[stations];
+        long step = (long) (1000 / sampleRate);
+        int uncompressed = 0;
+        for (int i = 0; i < stations; i++) {
+            WaveformBuffer buffer = new WaveformBuffer(sampleRate, seconds, false);
+            // every station starts somewhere else in the waveform
+            int offset = (int) ((i * 7919L) % waveform.length);
+            for (int j = 0; j < waveform.length; j++) {
+                int value = waveform[(offset + j) % waveform.length];
+                buffer.log(j * step, value, value * 0.5f, 1.0f, 1.1f, 1.0f, 2.0f, false);
+            }
+
+            if (!buffer.isRawCompressed()) {
+                uncompressed++;
+            }
+            buffers[i] = buffer;
+        }
+        double fillSeconds = (System.nanoTime() - start) / 1E9;
+
+        settle();
+        long heap = usedHeap() - heapBefore;
+        long directUsed = usedDirect() - directBefore;
+        Reference.reachabilityFence(buffers);
+
+        System.out.printf(Locale.ROOT, "%-8s %-6s %10.1f %10.1f %10.1f %9.1f kB %8d %8.1f%n",
+                direct ? "direct" : "heap", compressed ? "16-bit" : "32-bit", heap / MB, directUsed / MB,
+                (heap + directUsed) / MB, (heap + directUsed) / 1024.0 / stations, uncompressed, fillSeconds);
+    }
+
+    /**
+     * Collects the garbage and gives the cleaner time to release the direct buffers of the previous variant
+     */
+    private static void settle() throws InterruptedException {
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            Thread.sleep(200);
+        }
+    }
+
+    private static long usedHeap() {
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    private static long usedDirect() {
+        for (BufferPoolMXBean pool : ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class)) {
+            if (pool.getName().equals("direct")) {
+                return pool.getMemoryUsed();
+            }
+        }
+        return 0;
+    }
+}
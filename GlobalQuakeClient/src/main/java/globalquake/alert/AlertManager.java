@@ -7,13 +7,16 @@ import globalquake.core.Settings;
 import globalquake.core.alert.Warnable;
 import globalquake.core.earthquake.data.Earthquake;
 import globalquake.core.events.GlobalQuakeEventListener;
-import globalquake.core.events.specific.ClusterCreateEvent;
 import globalquake.core.events.specific.QuakeCreateEvent;
 import globalquake.core.events.specific.QuakeUpdateEvent;
 import globalquake.events.specific.AlertIssuedEvent;
 import globalquake.client.GlobalQuakeLocal;
 import globalquake.utils.GeoUtils;
 
+/**
+ * Issues an alert when an earthquake first meets the alert conditions. Only the earthquake of each create or update
+ * event is evaluated, the other earthquakes did not change.
+ */
 public class AlertManager {
     public static final int STORE_TIME_MINUTES = 2 * 60;
     private final Map<Warnable, Warning> warnings;
@@ -24,39 +27,24 @@ public class AlertManager {
         GlobalQuake.instance.getEventHandler().registerEventListener(new GlobalQuakeEventListener() {
             @Override
             public void onQuakeCreate(QuakeCreateEvent event) {
-                tick();
-            }
-
-            @Override
-            public void onClusterCreate(ClusterCreateEvent event) {
-                tick();
+                evaluate(event.earthquake());
             }
 
             @Override
             public void onQuakeUpdate(QuakeUpdateEvent event) {
-                tick();
+                evaluate(event.earthquake());
             }
         });
     }
 
-    public synchronized void tick() {
-        GlobalQuake.instance.getEarthquakeAnalysis().getEarthquakes().forEach(earthquake -> warnings.putIfAbsent(earthquake, new Warning(GlobalQuake.instance.currentTimeMillis())));
-
-        for (Iterator<Map.Entry<Warnable, Warning>> iterator = warnings.entrySet().iterator(); iterator.hasNext(); ) {
-            var kv = iterator.next();
-            Warnable warnable = kv.getKey();
-            Warning warning = kv.getValue();
+    public synchronized void evaluate(Warnable warnable) {
+        long now = GlobalQuake.instance.currentTimeMillis();
+        warnings.values().removeIf(warning -> now - warning.createdAt > 1000 * 60 * STORE_TIME_MINUTES);
 
-            long age = GlobalQuake.instance.currentTimeMillis() - warning.createdAt;
-            if (age > 1000 * 60 * STORE_TIME_MINUTES) {
-                iterator.remove();
-                continue;
-            }
-
-            if (meetsConditions(warnable) && !warning.metConditions) {
-                warning.metConditions = true;
-                conditionsSatisfied(warnable, warning);
-            }
+        Warning warning = warnings.computeIfAbsent(warnable, ignored -> new Warning(now));
+        if (!warning.metConditions && meetsConditions(warnable)) {
+            warning.metConditions = true;
+            conditionsSatisfied(warnable, warning);
         }
     }
 
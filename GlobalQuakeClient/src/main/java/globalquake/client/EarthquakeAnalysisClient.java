@@ -113,6 +113,7 @@ public class EarthquakeAnalysisClient extends EarthquakeAnalysis {
         } else if (existingQuake.getRevisionID() < data.revisionID()) {
             existingQuake.update(newQuake);
             newQuake.getCluster().revisionID = data.revisionID();
+            getEarthquakes().update(existingQuake);
             GlobalQuake.instance.getEventHandler().fireEvent(new QuakeUpdateEvent(existingQuake, null));
         }
     }
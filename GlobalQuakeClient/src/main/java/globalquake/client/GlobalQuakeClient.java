@@ -84,6 +84,12 @@ public class GlobalQuakeClient extends GlobalQuakeLocal {
         ((ClusterAnalysisClient) getClusterAnalysis()).processPacket(socket, packet);
     }
 
+    @Override
+    public void destroy() {
+        super.destroy();
+        ((GlobalStationManagerClient) getStationManager()).getIngest().destroy();
+    }
+
     @Override
     public GlobalQuakeLocal createFrame() {
         try {
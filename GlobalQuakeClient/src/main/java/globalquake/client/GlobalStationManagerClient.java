@@ -1,10 +1,9 @@
 package globalquake.client;
 
-import edu.sc.seis.seisFile.mseed.DataRecord;
-import edu.sc.seis.seisFile.mseed.SeedFormatException;
 import globalquake.client.data.ClientStation;
 import globalquake.core.database.StationDatabaseManager;
 import globalquake.core.station.AbstractStation;
+import globalquake.core.station.DataRecordIngest;
 import globalquake.core.station.GlobalStationManager;
 import globalquake.events.specific.StationCreateEvent;
 import gqserver.api.Packet;
@@ -26,6 +25,8 @@ public class GlobalStationManagerClient extends GlobalStationManager {
 
     private final Map<Integer, ClientStation> stationsIdMap = new ConcurrentHashMap<>();
 
+    private final DataRecordIngest ingest = new DataRecordIngest();
+
     public GlobalStationManagerClient() {
         stations = new CopyOnWriteArrayList<>();
     }
@@ -52,13 +53,8 @@ public class GlobalStationManagerClient extends GlobalStationManager {
             return;
         }
 
-        try {
-            DataRecord dataRecord = (DataRecord) DataRecord.read(dataRecordPacket.data());
-            station.getAnalysis().analyse(dataRecord);
-            station.getAnalysis().second(GlobalQuakeLocal.instance.currentTimeMillis());
-        } catch (IOException | SeedFormatException e) {
-            Logger.error(e);
-        }
+        // decoding and analysis would hold up the earthquake packets behind the waveforms
+        ingest.submit(station, dataRecordPacket.data());
     }
 
     private void processStationsIntensityPacket(ClientSocket socket, StationsIntensityPacket stationsIntensityPacket) {
@@ -99,6 +95,10 @@ public class GlobalStationManagerClient extends GlobalStationManager {
         getStations().addAll(list);
     }
 
+    public DataRecordIngest getIngest() {
+        return ingest;
+    }
+
     private void resetIndexing(ClientSocket socket, UUID uuid) {
         if (super.indexing != null) {
             Logger.info("Station indexing has changed, probably because the server has been restarted");
@@ -112,5 +112,6 @@ public class GlobalStationManagerClient extends GlobalStationManager {
         super.indexing = uuid;
         stations.clear();
         stationsIdMap.clear();
+        ingest.clear();
     }
 }
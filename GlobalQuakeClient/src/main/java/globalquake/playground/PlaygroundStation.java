@@ -1,33 +1,28 @@
 package globalquake.playground;
 
+import globalquake.core.GlobalQuake;
 import globalquake.core.analysis.Event;
 import globalquake.core.station.AbstractStation;
+import globalquake.core.synthetic.SyntheticChannel;
+import globalquake.core.synthetic.SyntheticWaveformEngine;
 import gqserver.api.packets.station.InputType;
 
 public class PlaygroundStation extends AbstractStation {
 
     public static final double SAMPLE_RATE = 50;
-    public long lastSampleTime = -1;
-    private final StationWaveformGenerator generator;
+    private volatile SyntheticChannel channel;
     public static final double DEFAULT_SENSITIVITY = 7E10;
 
     public PlaygroundStation(String networkCode, String stationCode, String channelName, String locationCode, double lat, double lon, double alt, int id, double sensitivity) {
         super(networkCode, stationCode, channelName, locationCode, lat, lon, alt, id, null,
                 sensitivity);
         getAnalysis().setSampleRate(SAMPLE_RATE);
-        this.generator = new StationWaveformGenerator(this, id);
     }
 
     public PlaygroundStation(String stationCode, double lat, double lon, double alt, int id, double sensitivity) {
         this("", stationCode, "", "", lat, lon, alt, id, sensitivity);
     }
 
-    @Override
-    public void second(long time) {
-        super.second(time);
-        generator.second();
-    }
-
     @Override
     public InputType getInputType() {
         return InputType.VELOCITY;
@@ -35,7 +30,8 @@ public class PlaygroundStation extends AbstractStation {
 
     @Override
     public boolean hasData() {
-        return lastSampleTime != -1;
+        SyntheticChannel channel = this.channel;
+        return channel != null && channel.getNextSampleTime() != -1;
     }
 
     @Override
@@ -43,8 +39,21 @@ public class PlaygroundStation extends AbstractStation {
         return hasData();
     }
 
-    public int getNoise(long time) {
-        return generator.getValue(time);
+    /**
+     * @return the synthetic channel that feeds the analysis of this station, created on the first call
+     */
+    public SyntheticChannel getChannel(SyntheticWaveformEngine engine) {
+        if (channel == null) {
+            channel = engine.createChannel(getLatitude(), getLongitude(), getId(), this::nextSamples);
+        }
+        return channel;
+    }
+
+    private void nextSamples(int[] samples, int count, long startTime) {
+        long currentTime = GlobalQuake.instance.currentTimeMillis();
+        for (int i = 0; i < count; i++) {
+            getAnalysis().nextSample(samples[i], startTime + (long) (i * (1000.0 / SAMPLE_RATE)), currentTime);
+        }
     }
 
     @Override
@@ -52,8 +61,4 @@ public class PlaygroundStation extends AbstractStation {
         Event event = getAnalysis() == null ? null : getAnalysis().getLatestEvent();
         return event != null && event.isValid() && !event.hasEnded();
     }
-
-    public long getDelay() {
-        return generator.getDelay();
-    }
 }
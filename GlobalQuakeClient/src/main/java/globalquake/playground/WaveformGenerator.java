@@ -1,45 +1,48 @@
 package globalquake.playground;
 
 import globalquake.core.GlobalQuake;
+import globalquake.core.earthquake.data.Earthquake;
 import globalquake.core.station.AbstractStation;
+import globalquake.core.synthetic.SyntheticChannel;
+import globalquake.core.synthetic.SyntheticQuake;
+import globalquake.core.synthetic.SyntheticWaveformEngine;
 import org.tinylog.Logger;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 
 public class WaveformGenerator {
+
+    // data generated for new stations, so that their analysis does not start from nothing
+    private static final long BACKFILL = 2 * 60 * 1000;
+
     private final GlobalQuakePlayground globalQuakePlayground;
+    private final SyntheticWaveformEngine engine;
 
     public WaveformGenerator(GlobalQuakePlayground globalQuakePlayground) {
         this.globalQuakePlayground = globalQuakePlayground;
+        this.engine = new SyntheticWaveformEngine(PlaygroundStation.SAMPLE_RATE, 0, Runtime.getRuntime().availableProcessors());
         Executors.newSingleThreadScheduledExecutor().scheduleAtFixedRate(this::updateWaveforms, 0, 250, TimeUnit.MILLISECONDS);
     }
 
     private void updateWaveforms() {
         try {
-            globalQuakePlayground.getStationManager().getStations().parallelStream().forEach(WaveformGenerator::generateWaveform);
+            List<SyntheticQuake> quakes = new ArrayList<>();
+            for (Earthquake earthquake : globalQuakePlayground.getPlaygroundEarthquakes()) {
+                quakes.add(new SyntheticQuake(earthquake.getLat(), earthquake.getLon(), earthquake.getDepth(), earthquake.getOrigin(), earthquake.getMag()));
+            }
+            engine.setQuakes(quakes);
+
+            List<SyntheticChannel> channels = new ArrayList<>();
+            for (AbstractStation station : globalQuakePlayground.getStationManager().getStations()) {
+                channels.add(((PlaygroundStation) station).getChannel(engine));
+            }
+
+            engine.generate(channels, GlobalQuake.instance.currentTimeMillis(), BACKFILL);
         } catch (Exception e) {
             Logger.error(e);
         }
     }
-
-    private static void generateWaveform(AbstractStation station) {
-        PlaygroundStation playgroundStation = (PlaygroundStation) station;
-        long lastLog = playgroundStation.lastSampleTime;
-        long now = GlobalQuake.instance.currentTimeMillis() - playgroundStation.getDelay();
-
-        if (lastLog < 0) {
-            lastLog = now - 2 * 60 * 1000;
-        }
-
-
-        while (lastLog < now) {
-            station.getAnalysis().nextSample(
-                    playgroundStation.getNoise(lastLog),
-                    lastLog,
-                    GlobalQuake.instance.currentTimeMillis());
-            lastLog += (long) (1000.0 / station.getAnalysis().getSampleRate());
-        }
-        playgroundStation.lastSampleTime = lastLog;
-    }
 }
@@ -1,5 +1,7 @@
 package globalquake.sounds;
 
+import java.util.concurrent.ScheduledFuture;
+
 public class SoundsInfo {
 
     public int maxLevel = -1;
@@ -11,4 +13,19 @@ public class SoundsInfo {
 
     public final long createdAt = System.currentTimeMillis();
 
+    // hypocenter and home location the values below were computed for
+    public double lat = Double.NaN;
+    public double lon;
+    public double depth;
+    public double mag;
+    public long origin;
+    public double homeLat;
+    public double homeLon;
+
+    public double pga;
+    public double pgaHome;
+    public long sArrival;
+
+    public ScheduledFuture<?> countdown;
+
 }
@@ -6,8 +6,7 @@ import globalquake.core.Settings;
 import globalquake.core.earthquake.data.Cluster;
 import globalquake.core.earthquake.data.Earthquake;
 import globalquake.core.events.GlobalQuakeEventListener;
-import globalquake.core.events.specific.QuakeCreateEvent;
-import globalquake.core.events.specific.QuakeUpdateEvent;
+import globalquake.core.events.specific.*;
 import globalquake.core.geo.taup.TauPTravelTimeCalculator;
 import globalquake.core.intensity.IntensityScales;
 import globalquake.utils.GeoUtils;
@@ -19,22 +18,41 @@ import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 
+/**
+ * Plays the sounds of clusters and earthquakes. A cluster is evaluated when an event says that it or its earthquake
+ * changed, the home intensity and the S wave arrival are computed once per hypocenter. The S wave countdown is driven
+ * by timers that fire exactly when the next second of the countdown is due.
+ * All the evaluation runs on the single sound thread, so the sound infos are not shared between threads.
+ */
 public class SoundsService {
 
+    private static final long INFO_TIMEOUT = 1000 * 60 * 100;
+    private static final int COUNTDOWN_SECONDS = 10;
+
     private final Map<Cluster, SoundsInfo> clusterSoundsInfo = new HashMap<>();
     private final ScheduledExecutorService soundCheckService;
 
     public SoundsService() {
         soundCheckService = Executors.newSingleThreadScheduledExecutor();
-        soundCheckService.scheduleAtFixedRate(this::checkSounds, 0, 200, TimeUnit.MILLISECONDS);
 
         GlobalQuake.instance.getEventHandler().registerEventListener(new GlobalQuakeEventListener() {
+            @Override
+            public void onClusterCreate(ClusterCreateEvent event) {
+                checkSounds(event.cluster());
+            }
+
+            @Override
+            public void onClusterLevelup(ClusterLevelUpEvent event) {
+                checkSounds(event.cluster());
+            }
+
             @Override
             public void onQuakeCreate(QuakeCreateEvent event) {
                 if (SoundsService.this.canPing(event.earthquake())) {
                     Sounds.playSound(Sounds.found);
                     event.earthquake().foundPlayed = true;
                 }
+                checkSounds(event.earthquake().getCluster());
             }
 
             @Override
@@ -47,32 +65,55 @@ public class SoundsService {
                         Sounds.playSound(Sounds.update);
                     }
                 }
+                checkSounds(event.earthquake().getCluster());
+            }
+
+            @Override
+            public void onQuakeRemove(QuakeRemoveEvent event) {
+                stopCountdown(event.earthquake().getCluster());
+            }
+
+            @Override
+            public void onQuakeArchive(QuakeArchiveEvent event) {
+                if (event.earthquake() != null) {
+                    stopCountdown(event.earthquake().getCluster());
+                }
             }
         });
     }
 
+    private void checkSounds(Cluster cluster) {
+        if (cluster == null) {
+            return;
+        }
 
-    private void checkSounds() {
-        try {
-            if (GlobalQuake.instance.getClusterAnalysis() == null || GlobalQuake.instance.getEarthquakeAnalysis() == null) {
-                return;
-            }
+        soundCheckService.execute(() -> {
+            try {
+                clusterSoundsInfo.entrySet().removeIf(kv -> {
+                    boolean old = System.currentTimeMillis() - kv.getValue().createdAt > INFO_TIMEOUT;
+                    if (old) {
+                        cancelCountdown(kv.getValue());
+                    }
+                    return old;
+                });
 
-            for (Cluster cluster : GlobalQuake.instance.getClusterAnalysis().getClusters()) {
                 determineSounds(cluster);
+            } catch (Exception e) {
+                Logger.error(e);
             }
+        });
+    }
 
-            for (Earthquake earthquake : GlobalQuake.instance.getEarthquakeAnalysis().getEarthquakes()) {
-                determineSounds(earthquake.getCluster());
+    private void stopCountdown(Cluster cluster) {
+        soundCheckService.execute(() -> {
+            SoundsInfo info = clusterSoundsInfo.get(cluster);
+            if (info != null) {
+                cancelCountdown(info);
             }
-
-            clusterSoundsInfo.entrySet().removeIf(kv -> System.currentTimeMillis() - kv.getValue().createdAt > 1000 * 60 * 100);
-        } catch (Exception e) {
-            Logger.error(e);
-        }
+        });
     }
 
-    public void determineSounds(Cluster cluster) {
+    private void determineSounds(Cluster cluster) {
         SoundsInfo info = clusterSoundsInfo.get(cluster);
 
         if (info == null) {
@@ -107,9 +148,10 @@ public class SoundsService {
                 Sounds.playSound(Sounds.intensify);
                 info.meets = true;
             }
-            double pga = GeoUtils.getMaxPGA(quake.getLat(), quake.getLon(), quake.getDepth(), quake.getMag());
-            if (info.maxPGA < pga) {
-                info.maxPGA = pga;
+            updateHypocenter(quake, info);
+
+            if (info.maxPGA < info.pga) {
+                info.maxPGA = info.pga;
                 double threshold_eew = IntensityScales.INTENSITY_SCALES[Settings.eewScale].getLevels().get(Settings.eewLevelIndex).getPga();
                 if (info.maxPGA >= threshold_eew && !info.warningPlayed && level >= Settings.eewClusterLevel) {
                     Sounds.playSound(Sounds.eew_warning);
@@ -117,10 +159,7 @@ public class SoundsService {
                 }
             }
 
-            double distGEO = GeoUtils.geologicalDistance(quake.getLat(), quake.getLon(), -quake.getDepth(),
-                    Settings.homeLat, Settings.homeLon, 0.0);
-            double distGCD = GeoUtils.greatCircleDistance(quake.getLat(), quake.getLon(), Settings.homeLat, Settings.homeLon);
-            double pgaHome = GeoUtils.pgaFunction(quake.getMag(), distGEO, quake.getDepth());
+            double pgaHome = info.pgaHome;
 
             if (pgaHome > info.maxPGAHome) {
                 double threshold_felt = IntensityScales.INTENSITY_SCALES[Settings.shakingLevelScale].getLevels().get(Settings.shakingLevelIndex).getPga();
@@ -138,17 +177,76 @@ public class SoundsService {
             boolean shakingExpected = info.maxPGAHome >= IntensityScales.INTENSITY_SCALES[Settings.shakingLevelScale].getLevels().get(Settings.shakingLevelIndex).getPga();
 
             if (shakingExpected) {
-                double sTravel = (long) (TauPTravelTimeCalculator.getSWaveTravelTime(quake.getDepth(),
-                        TauPTravelTimeCalculator.toAngle(distGCD)));
-                double age = (GlobalQuake.instance.currentTimeMillis() - quake.getOrigin()) / 1000.0;
-                int secondsS = (int) Math.max(0, Math.ceil(sTravel - age));
-
-                if (secondsS < info.lastCountdown && secondsS <= 10) {
-                    info.lastCountdown = secondsS;
-                    // little workaround
-                    Sounds.playSound(secondsS % 2 == 0 ? Sounds.countdown2 : Sounds.countdown);
+                countdown(cluster, info);
+            }
+        }
+    }
+
+    /**
+     * Computes the values that depend only on the hypocenter and the home location, if any of them changed
+     */
+    private void updateHypocenter(Earthquake quake, SoundsInfo info) {
+        if (quake.getLat() == info.lat && quake.getLon() == info.lon && quake.getDepth() == info.depth
+                && quake.getMag() == info.mag && quake.getOrigin() == info.origin
+                && Settings.homeLat == info.homeLat && Settings.homeLon == info.homeLon) {
+            return;
+        }
+
+        info.lat = quake.getLat();
+        info.lon = quake.getLon();
+        info.depth = quake.getDepth();
+        info.mag = quake.getMag();
+        info.origin = quake.getOrigin();
+        info.homeLat = Settings.homeLat;
+        info.homeLon = Settings.homeLon;
+
+        info.pga = GeoUtils.getMaxPGA(info.lat, info.lon, info.depth, info.mag);
+
+        double distGEO = GeoUtils.geologicalDistance(info.lat, info.lon, -info.depth, info.homeLat, info.homeLon, 0.0);
+        double distGCD = GeoUtils.greatCircleDistance(info.lat, info.lon, info.homeLat, info.homeLon);
+        info.pgaHome = GeoUtils.pgaFunction(info.mag, distGEO, info.depth);
+
+        long sTravel = (long) TauPTravelTimeCalculator.getSWaveTravelTime(info.depth, TauPTravelTimeCalculator.toAngle(distGCD));
+        info.sArrival = info.origin + sTravel * 1000;
+    }
+
+    /**
+     * Plays the countdown sound if the next second is due and schedules the following one
+     */
+    private void countdown(Cluster cluster, SoundsInfo info) {
+        cancelCountdown(info);
+
+        long now = GlobalQuake.instance.currentTimeMillis();
+        int secondsS = (int) Math.max(0, Math.ceil((info.sArrival - now) / 1000.0));
+
+        if (secondsS < info.lastCountdown && secondsS <= COUNTDOWN_SECONDS) {
+            info.lastCountdown = secondsS;
+            // little workaround
+            Sounds.playSound(secondsS % 2 == 0 ? Sounds.countdown2 : Sounds.countdown);
+        }
+
+        if (secondsS <= 0) {
+            return;
+        }
+
+        // the moment when the remaining whole seconds drop to the next value that is played
+        int next = Math.min(secondsS - 1, COUNTDOWN_SECONDS);
+        long delay = info.sArrival - next * 1000L - now;
+        info.countdown = soundCheckService.schedule(() -> {
+            try {
+                if (clusterSoundsInfo.get(cluster) == info) {
+                    countdown(cluster, info);
                 }
+            } catch (Exception e) {
+                Logger.error(e);
             }
+        }, Math.max(0, delay), TimeUnit.MILLISECONDS);
+    }
+
+    private void cancelCountdown(SoundsInfo info) {
+        if (info.countdown != null) {
+            info.countdown.cancel(false);
+            info.countdown = null;
         }
     }
 
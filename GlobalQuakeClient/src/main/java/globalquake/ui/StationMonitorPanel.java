@@ -1,10 +1,8 @@
 package globalquake.ui;
 
 import java.awt.*;
-import java.awt.geom.Line2D;
-import java.awt.geom.Rectangle2D;
 import java.awt.image.BufferedImage;
-import java.util.ArrayList;
+import java.util.Arrays;
 
 import javax.swing.JPanel;
 
@@ -18,13 +16,48 @@ import globalquake.utils.GeoUtils;
 import globalquake.core.geo.taup.TauPTravelTimeCalculator;
 import globalquake.core.Settings;
 
+/**
+ * Raw, filtered and ratio plots of one station. The plots are kept in two persistent images, the update thread draws
+ * into the back one and swaps it with the front one that is painted. An update shifts the previous plots by the elapsed
+ * pixel columns and draws only the columns that received new samples, each column as a bar from the minimum
+ * to the maximum of its samples, see {@link WaveformColumns}. All columns are redrawn only when the scale or the size
+ * changes. The grid, picks and expected arrivals are cheap and drawn around the plots when painting.
+ */
 public class StationMonitorPanel extends JPanel {
 
     private static final double HEIGHT_1 = 0.33;
 
     private static final double HEIGHT_2 = 0.66;
-    private BufferedImage image;
-    private AbstractStation station;
+
+    private static final int MIN_RAW = 0;
+    private static final int MAX_RAW = 1;
+    private static final int MIN_FILTERED = 2;
+    private static final int MAX_FILTERED = 3;
+    private static final int MAX_RATIO = 4;
+
+    private static final Stroke dashed = new BasicStroke(1, BasicStroke.CAP_BUTT, BasicStroke.JOIN_BEVEL, 0,
+            new float[]{3}, 0);
+    private static final Stroke thin = new BasicStroke(1f);
+    private static final Stroke thick = new BasicStroke(2f);
+    private static final Font font = new Font("Calibri", Font.BOLD, 14);
+    private static final Color pWindowColor = new Color(0, 0, 255, 80);
+    private static final Color sWindowColor = new Color(255, 0, 0, 80);
+
+    private volatile AbstractStation station;
+    private volatile boolean stationChanged = false;
+
+    // used only by updateImage
+    private WaveformColumns columns;
+    private final double[] scale = new double[5];
+    private final double[] lastScale = new double[5];
+    private BufferedImage back;
+    private Graphics2D backGraphics;
+
+    private final Object frontLock = new Object();
+    private BufferedImage front;
+    private Graphics2D frontGraphics;
+    private long frontColumn;
+    private double frontMillisPerColumn;
 
     public StationMonitorPanel(AbstractStation station) {
         this.station = station;
@@ -34,159 +67,243 @@ public class StationMonitorPanel extends JPanel {
         updateImage();
     }
 
-    private static final Stroke dashed = new BasicStroke(1, BasicStroke.CAP_BUTT, BasicStroke.JOIN_BEVEL, 0,
-            new float[]{3}, 0);
-
-    public void updateImage() {
+    public synchronized void updateImage() {
         int w = getWidth();
         int h = getHeight();
-        BufferedImage img = new BufferedImage(w, h, BufferedImage.TYPE_3BYTE_BGR);
-        Graphics2D g = img.createGraphics();
-        g.setColor(Color.white);
-        g.fillRect(0, 0, w, h);
+        if (w <= 0 || h <= 0) {
+            return;
+        }
 
-        g.setColor(Color.black);
-        g.setFont(new Font("Calibri", Font.BOLD, 14));
-        g.drawString("Raw Data", 4, 14);
-        g.drawString("Band Pass %sHz - %sHz".formatted(BetterAnalysis.minFreqDefault, BetterAnalysis.maxFreqDefault), 4, (int) (h * HEIGHT_1 + 14));
-        g.drawString("Averages Ratio", 4, (int) (h * HEIGHT_2 + 14));
+        boolean redraw = stationChanged;
+        stationChanged = false;
 
-        long upperMinute = (long) (Math.ceil(getTime() / (1000 * 60.0) + 1) * (1000L * 60L));
-        for (int deltaSec = 0; deltaSec <= 60 * Settings.logsStoreTimeMinutes + 80; deltaSec += 10) {
-            long time = upperMinute - deltaSec * 1000L;
-            boolean fullMinute = time % 60000 == 0;
-            double x = getX(time);
-            g.setColor(!fullMinute ? Color.lightGray : Color.gray);
-            g.setStroke(!fullMinute ? dashed : new BasicStroke(2f));
-            g.draw(new Line2D.Double(x, 0, x, getHeight()));
+        double millisPerColumn = Settings.logsStoreTimeMinutes * 60 * 1000.0 / w;
+        if (columns == null || columns.getMillisPerColumn() != millisPerColumn) {
+            columns = new WaveformColumns(w, millisPerColumn);
+            redraw = true;
         }
 
-        java.util.List<Log> logs = getLogs();
-
-        if (logs.size() > 1) {
-            double maxValue = -Double.MAX_VALUE;
-            double minValue = Double.MAX_VALUE;
-            double maxFilteredValue = -Double.MAX_VALUE;
-            double minFilteredValue = Double.MAX_VALUE;
-            double maxRatio = 0;
-            for (Log l : logs) {
-                int v = l.rawValue();
-                if (v > maxValue) {
-                    maxValue = v;
-                }
-                if (v < minValue) {
-                    minValue = v;
-                }
+        if (back == null || back.getWidth() != w || back.getHeight() != h) {
+            if (backGraphics != null) {
+                backGraphics.dispose();
+            }
+            back = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
+            backGraphics = back.createGraphics();
+        }
 
-                double fv = l.filteredV();
-                if (fv > maxFilteredValue) {
-                    maxFilteredValue = fv;
-                }
-                if (fv < minFilteredValue) {
-                    minFilteredValue = fv;
-                }
+        long endColumn = columns.getColumn(getTime());
+        long startColumn = endColumn - w + 1;
+        long firstChanged = readNewSamples();
 
-                double ratio = l.ratio();
-                double medRatio = l.mediumRatio();
-                double specRatio = l.specialRatio();
-                if (ratio > maxRatio) {
-                    maxRatio = ratio;
-                }
-                if (medRatio > maxRatio) {
-                    maxRatio = medRatio;
-                }
-                if (specRatio > maxRatio) {
-                    maxRatio = specRatio;
+        computeScale(startColumn, endColumn);
+        if (!Arrays.equals(scale, lastScale)) {
+            System.arraycopy(scale, 0, lastScale, 0, scale.length);
+            redraw = true;
+        }
+
+        // the front image is only read here and on the EDT, so it can be copied without the lock
+        Graphics2D g = backGraphics;
+        long fromColumn = startColumn;
+        long shift = endColumn - frontColumn;
+        if (!redraw && front != null && front.getWidth() == w && front.getHeight() == h && shift >= 0 && shift < w) {
+            g.setComposite(AlphaComposite.Src);
+            g.drawImage(front, (int) -shift, 0, null);
+            fromColumn = Math.max(startColumn, Math.min(firstChanged, frontColumn + 1));
+        }
+
+        int fromX = (int) (fromColumn - startColumn);
+        g.setComposite(AlphaComposite.Clear);
+        g.fillRect(fromX, 0, w - fromX, h);
+        g.setComposite(AlphaComposite.SrcOver);
+
+        if (!Double.isNaN(scale[MAX_RATIO])) {
+            for (long column = fromColumn; column <= endColumn; column++) {
+                if (columns.hasData(column)) {
+                    drawColumn(g, (int) (column - startColumn), column, h);
                 }
             }
+        }
 
-            maxValue += 10.0;
-            minValue -= 10.0;
+        synchronized (frontLock) {
+            BufferedImage drawn = back;
+            back = front;
+            front = drawn;
 
-            double fix1 = (maxValue - minValue) * 0.25 * 0.5;
-            maxValue += fix1;
-            minValue -= fix1;
+            backGraphics = frontGraphics;
+            frontGraphics = g;
 
-            double fix2 = (maxFilteredValue - minFilteredValue) * 0.25 * 0.5;
-            maxFilteredValue += fix2;
-            minFilteredValue -= fix2;
+            frontColumn = endColumn;
+            frontMillisPerColumn = millisPerColumn;
+        }
+    }
 
+    private long readNewSamples() {
+        AbstractStation station = this.station;
+        WaveformBuffer waveformBuffer = station.getAnalysis().getWaveformBuffer();
+        if (waveformBuffer == null) {
+            return columns.update(null, 0);
+        }
 
-            for (int i = 0; i < logs.size() - 1; i++) {
-                Log a = logs.get(i);
-                Log b = logs.get(i + 1);
+        waveformBuffer.getReadLock().lock();
+        try {
+            return columns.update(waveformBuffer, station.getAnalysis().getSampleRate());
+        } finally {
+            waveformBuffer.getReadLock().unlock();
+        }
+    }
 
-                boolean gap = (a.time() - b.time()) > (1000.0 / station.getAnalysis().getSampleRate()) * 2;
-                if (gap) {
-                    continue;
-                }
+    /**
+     * Same ranges as the plots always had, but from the column extremes instead of all the samples
+     */
+    private void computeScale(long startColumn, long endColumn) {
+        double maxValue = -Double.MAX_VALUE;
+        double minValue = Double.MAX_VALUE;
+        double maxFilteredValue = -Double.MAX_VALUE;
+        double minFilteredValue = Double.MAX_VALUE;
+        double maxRatio = 0;
+        boolean empty = true;
+
+        for (long column = startColumn; column <= endColumn; column++) {
+            if (!columns.hasData(column)) {
+                continue;
+            }
 
-                double x1 = getX(a.time());
-                double x2 = getX(b.time());
+            empty = false;
+            maxValue = Math.max(maxValue, columns.getMax(column, WaveformColumns.RAW));
+            minValue = Math.min(minValue, columns.getMin(column, WaveformColumns.RAW));
+            maxFilteredValue = Math.max(maxFilteredValue, columns.getMax(column, WaveformColumns.FILTERED));
+            minFilteredValue = Math.min(minFilteredValue, columns.getMin(column, WaveformColumns.FILTERED));
+            maxRatio = Math.max(maxRatio, columns.getMax(column, WaveformColumns.RATIO));
+            maxRatio = Math.max(maxRatio, columns.getMax(column, WaveformColumns.MEDIUM_RATIO));
+            maxRatio = Math.max(maxRatio, columns.getMax(column, WaveformColumns.SPECIAL_RATIO));
+        }
 
-                double y1 = 0 + (getHeight() * HEIGHT_1) * (maxValue - a.rawValue()) / (maxValue - minValue);
-                double y2 = 0 + (getHeight() * HEIGHT_1) * (maxValue - b.rawValue()) / (maxValue - minValue);
+        if (empty) {
+            Arrays.fill(scale, Double.NaN);
+            return;
+        }
 
-                double y3 = getHeight() * HEIGHT_1 + (getHeight() * HEIGHT_1) * (maxFilteredValue - a.filteredV())
-                        / (maxFilteredValue - minFilteredValue);
-                double y4 = getHeight() * HEIGHT_1 + (getHeight() * HEIGHT_1) * (maxFilteredValue - b.filteredV())
-                        / (maxFilteredValue - minFilteredValue);
+        maxValue += 10.0;
+        minValue -= 10.0;
 
-                double y11 = getHeight() * HEIGHT_2 + (getHeight() * (1 - HEIGHT_2)) * (maxRatio - a.ratio()) / (maxRatio);
-                double y12 = getHeight() * HEIGHT_2 + (getHeight() * (1 - HEIGHT_2)) * (maxRatio - b.ratio()) / (maxRatio);
+        double fix1 = (maxValue - minValue) * 0.25 * 0.5;
+        maxValue += fix1;
+        minValue -= fix1;
 
-                double y13 = getHeight() * HEIGHT_2 + (getHeight() * (1 - HEIGHT_2)) * (maxRatio - a.mediumRatio()) / (maxRatio);
-                double y14 = getHeight() * HEIGHT_2 + (getHeight() * (1 - HEIGHT_2)) * (maxRatio - b.mediumRatio()) / (maxRatio);
+        double fix2 = (maxFilteredValue - minFilteredValue) * 0.25 * 0.5;
+        maxFilteredValue += fix2;
+        minFilteredValue -= fix2;
 
-                double y13c = getHeight() * HEIGHT_2 + (getHeight() * (1 - HEIGHT_2)) * (maxRatio - a.specialRatio()) / (maxRatio);
-                double y14c = getHeight() * HEIGHT_2 + (getHeight() * (1 - HEIGHT_2)) * (maxRatio - b.specialRatio()) / (maxRatio);
+        scale[MIN_RAW] = minValue;
+        scale[MAX_RAW] = maxValue;
+        scale[MIN_FILTERED] = minFilteredValue;
+        scale[MAX_FILTERED] = maxFilteredValue;
+        scale[MAX_RATIO] = maxRatio;
+    }
 
-                double yA = getHeight() * HEIGHT_2 + (getHeight() * (1 - HEIGHT_2)) * (maxRatio - 1.0) / (maxRatio);
+    private void drawColumn(Graphics2D g, int x, long column, int h) {
+        double minValue = scale[MIN_RAW];
+        double maxValue = scale[MAX_RAW];
+        double minFilteredValue = scale[MIN_FILTERED];
+        double maxFilteredValue = scale[MAX_FILTERED];
+        double maxRatio = scale[MAX_RATIO];
+
+        double rawHeight = h * HEIGHT_1;
+        drawRange(g, Color.blue, x, 0,
+                rawHeight * (maxValue - columns.getMax(column, WaveformColumns.RAW)) / (maxValue - minValue),
+                rawHeight * (maxValue - columns.getMin(column, WaveformColumns.RAW)) / (maxValue - minValue));
+
+        drawRange(g, Color.orange, x, 0,
+                rawHeight + rawHeight * (maxFilteredValue - columns.getMax(column, WaveformColumns.FILTERED)) / (maxFilteredValue - minFilteredValue),
+                rawHeight + rawHeight * (maxFilteredValue - columns.getMin(column, WaveformColumns.FILTERED)) / (maxFilteredValue - minFilteredValue));
+
+        drawRange(g, Color.blue, x, 1, getRatioY(h, maxRatio, columns.getMax(column, WaveformColumns.MEDIUM_RATIO)),
+                getRatioY(h, maxRatio, columns.getMin(column, WaveformColumns.MEDIUM_RATIO)));
+        drawRange(g, Color.red, x, 1, getRatioY(h, maxRatio, columns.getMax(column, WaveformColumns.SPECIAL_RATIO)),
+                getRatioY(h, maxRatio, columns.getMin(column, WaveformColumns.SPECIAL_RATIO)));
+        drawRange(g, Color.black, x, 0, getRatioY(h, maxRatio, columns.getMax(column, WaveformColumns.RATIO)),
+                getRatioY(h, maxRatio, columns.getMin(column, WaveformColumns.RATIO)));
+
+        double yA = getRatioY(h, maxRatio, 1.0);
+        drawRange(g, Color.red, x, 0, yA, yA);
+
+        for (double d : Event.RECALCULATE_P_WAVE_THRESHOLDS) {
+            double _y = getRatioY(h, maxRatio, d);
+            if (_y > h * HEIGHT_2) {
+                drawRange(g, Color.magenta, x, 0, _y, _y);
+            }
+        }
+    }
 
-                g.setColor(Color.blue);
-                g.setStroke(new BasicStroke(1f));
-                g.draw(new Line2D.Double(x1, y1, x2, y2));
+    private static double getRatioY(int h, double maxRatio, double ratio) {
+        return h * HEIGHT_2 + (h * (1 - HEIGHT_2)) * (maxRatio - ratio) / maxRatio;
+    }
 
-                g.setColor(Color.orange);
-                g.setStroke(new BasicStroke(1f));
-                g.draw(new Line2D.Double(x1, y3, x2, y4));
+    /**
+     * Vertical bar of one column, widened by the given number of pixels up and down for the thick lines
+     */
+    private static void drawRange(Graphics2D g, Color color, int x, int widen, double y1, double y2) {
+        if (Double.isNaN(y1) || Double.isNaN(y2)) {
+            return;
+        }
+        int top = (int) Math.min(y1, y2) - widen;
+        int bottom = (int) Math.max(y1, y2) + widen;
+        g.setColor(color);
+        g.fillRect(x, top, 1, bottom - top + 1);
+    }
 
-                g.setColor(Color.blue);
-                g.setStroke(new BasicStroke(2f));
-                g.draw(new Line2D.Double(x1, y13, x2, y14));
+    private long getTime() {
+        return GlobalQuake.instance != null ? GlobalQuake.instance.currentTimeMillis() : System.currentTimeMillis();
+    }
 
-                g.setColor(Color.red);
-                g.setStroke(new BasicStroke(2f));
-                g.draw(new Line2D.Double(x1, y13c, x2, y14c));
+    @Override
+    public void paint(Graphics gr) {
+        super.paint(gr);
+        Graphics2D g = (Graphics2D) gr;
+        int w = getWidth();
+        int h = getHeight();
 
-                g.setColor(Color.black);
-                g.setStroke(new BasicStroke(1f));
-                g.draw(new Line2D.Double(x1, y11, x2, y12));
+        g.setColor(Color.white);
+        g.fillRect(0, 0, w, h);
 
-                g.setColor(Color.red);
-                g.setStroke(new BasicStroke(1f));
-                g.draw(new Line2D.Double(x1, yA, x2, yA));
+        g.setColor(Color.black);
+        g.setFont(font);
+        g.drawString("Raw Data", 4, 14);
+        g.drawString("Band Pass %sHz - %sHz".formatted(BetterAnalysis.minFreqDefault, BetterAnalysis.maxFreqDefault), 4, (int) (h * HEIGHT_1 + 14));
+        g.drawString("Averages Ratio", 4, (int) (h * HEIGHT_2 + 14));
 
-                for (double d : Event.RECALCULATE_P_WAVE_THRESHOLDS) {
-                    double _y = getHeight() * HEIGHT_2 + (getHeight() * (1 - HEIGHT_2)) * (maxRatio - d) / (maxRatio);
-                    if (_y > getHeight() * HEIGHT_2) {
-                        g.setColor(Color.magenta);
-                        g.setStroke(new BasicStroke(1f));
-                        g.draw(new Line2D.Double(x1, _y, x2, _y));
-                    }
-                }
+        long endColumn;
+        double millisPerColumn;
+        synchronized (frontLock) {
+            if (front == null) {
+                return;
+            }
 
+            endColumn = frontColumn;
+            millisPerColumn = frontMillisPerColumn;
+
+            long upperMinute = (long) (Math.ceil(getTime() / (1000 * 60.0) + 1) * (1000L * 60L));
+            for (int deltaSec = 0; deltaSec <= 60 * Settings.logsStoreTimeMinutes + 80; deltaSec += 10) {
+                long time = upperMinute - deltaSec * 1000L;
+                boolean fullMinute = time % 60000 == 0;
+                int x = getX(time, w, endColumn, millisPerColumn);
+                g.setColor(!fullMinute ? Color.lightGray : Color.gray);
+                g.setStroke(!fullMinute ? dashed : thick);
+                g.drawLine(x, 0, x, h);
             }
+
+            g.drawImage(front, 0, 0, null);
         }
 
+        AbstractStation station = this.station;
+        g.setStroke(thick);
         for (Event e : station.getAnalysis().getDetectedEvents()) {
             if (!e.isValid()) {
                 continue;
             }
-            double x = getX(e.getpWave());
+            int x = getX(e.getpWave(), w, endColumn, millisPerColumn);
             g.setColor(e.isSWave() ? Color.red : Color.blue);
-            g.setStroke(new BasicStroke(2f));
-            g.draw(new Line2D.Double(x, 0, x, getHeight()));
+            g.drawLine(x, 0, x, h);
         }
 
         if (GlobalQuake.instance != null) {
@@ -199,77 +316,45 @@ public class StationMonitorPanel extends JPanel {
                 long arrivalS = (long) (earthquake.getOrigin() + 1000 * (TauPTravelTimeCalculator.getSWaveTravelTime(earthquake.getDepth(),
                         TauPTravelTimeCalculator.toAngle(distGC)) + EarthquakeAnalysis.getElevationCorrection(station.getAlt())));
 
-                double xP = getX(arrivalP);
-                double xS = getX(arrivalS);
+                int xP = getX(arrivalP, w, endColumn, millisPerColumn);
+                int xS = getX(arrivalS, w, endColumn, millisPerColumn);
 
                 g.setColor(Color.magenta);
                 g.setStroke(dashed);
-                g.draw(new Line2D.Double(xP, 0, xP, getHeight()));
-                g.draw(new Line2D.Double(xS, 0, xS, getHeight()));
+                g.drawLine(xP, 0, xP, h);
+                g.drawLine(xS, 0, xS, h);
 
-                double x1 = getX((long) (arrivalP - Settings.pWaveInaccuracyThreshold));
-                double x2 = getX((long) (arrivalP + Settings.pWaveInaccuracyThreshold));
-                double x3 = getX((long) (arrivalS - Settings.pWaveInaccuracyThreshold));
-                double x4 = getX((long) (arrivalS + Settings.pWaveInaccuracyThreshold));
+                int x1 = getX((long) (arrivalP - Settings.pWaveInaccuracyThreshold), w, endColumn, millisPerColumn);
+                int x2 = getX((long) (arrivalP + Settings.pWaveInaccuracyThreshold), w, endColumn, millisPerColumn);
+                int x3 = getX((long) (arrivalS - Settings.pWaveInaccuracyThreshold), w, endColumn, millisPerColumn);
+                int x4 = getX((long) (arrivalS + Settings.pWaveInaccuracyThreshold), w, endColumn, millisPerColumn);
 
-                g.setColor(new Color(0, 0, 255, 80));
-                g.fill(new Rectangle2D.Double(x1, 0, x2 - x1, h));
+                g.setColor(pWindowColor);
+                g.fillRect(x1, 0, x2 - x1, h);
 
-                g.setColor(new Color(255, 0, 0, 80));
-                g.fill(new Rectangle2D.Double(x3, 0, x4 - x3, h));
+                g.setColor(sWindowColor);
+                g.fillRect(x3, 0, x4 - x3, h);
             }
         }
 
         g.setColor(Color.black);
-        g.setStroke(new BasicStroke(2f));
-        g.draw(new Rectangle2D.Double(0, 0, w - 1, h - 1));
-        g.draw(new Rectangle2D.Double(0, 0, w - 1, (h - 1) * HEIGHT_1));
-        g.draw(new Rectangle2D.Double(0, h * HEIGHT_1, w - 1, (h - 1) * HEIGHT_1));
-        g.draw(new Rectangle2D.Double(0, h * HEIGHT_2, w - 1, (h - 1) * (1 - HEIGHT_2)));
-
-        g.dispose();
-
-        this.image = img;
-    }
-
-    private java.util.List<Log> getLogs() {
-        java.util.List<Log> logs = new ArrayList<>();
-
-        WaveformBuffer waveformBuffer = station.getAnalysis().getWaveformBuffer();
-
-        if (waveformBuffer != null) {
-            try {
-                waveformBuffer.getReadLock().lock();
-                if (!station.getAnalysis().getWaveformBuffer().isEmpty()) {
-                    int index = station.getAnalysis().getWaveformBuffer().getOldestDataSlot();
-                    while (index != station.getAnalysis().getWaveformBuffer().getNewestDataSlot()) {
-                        logs.add(station.getAnalysis().getWaveformBuffer().toLog(index));
-                        index = (index + 1) % station.getAnalysis().getWaveformBuffer().getSize();
-                    }
-                }
-            } finally {
-                waveformBuffer.getReadLock().unlock();
-            }
-        }
-        return logs;
+        g.setStroke(thick);
+        g.drawRect(0, 0, w - 1, h - 1);
+        g.drawRect(0, 0, w - 1, (int) ((h - 1) * HEIGHT_1));
+        g.drawRect(0, (int) (h * HEIGHT_1), w - 1, (int) ((h - 1) * HEIGHT_1));
+        g.drawRect(0, (int) (h * HEIGHT_2), w - 1, (int) ((h - 1) * (1 - HEIGHT_2)));
+        g.setStroke(thin);
     }
 
-    private long getTime() {
-        return GlobalQuake.instance != null ? GlobalQuake.instance.currentTimeMillis() : System.currentTimeMillis();
-    }
-
-    private double getX(long time) {
-        return getWidth() * (1 - (getTime() - time) / (Settings.logsStoreTimeMinutes * 60 * 1000.0));
-    }
-
-    @Override
-    public void paint(Graphics gr) {
-        super.paint(gr);
-        Graphics2D g = (Graphics2D) gr;
-        g.drawImage(image, 0, 0, null);
+    /**
+     * @return x of the time in the plots that end with the given column
+     */
+    private static int getX(long time, int w, long endColumn, double millisPerColumn) {
+        return (int) (w - 1 - (endColumn - time / millisPerColumn));
     }
 
     public void setStation(AbstractStation station) {
         this.station = station;
+        stationChanged = true;
     }
 }
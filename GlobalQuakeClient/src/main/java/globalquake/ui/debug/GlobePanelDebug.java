@@ -141,7 +141,7 @@ public class GlobePanelDebug extends GQFrame {
 
         });
 
-        list = new EarthquakeListPanel(this, archivedQuakes);
+        list = new EarthquakeListPanel(this, archivedQuakes, () -> 0);
         panel.setPreferredSize(new Dimension(600, 600));
         list.setPreferredSize(new Dimension(300, 600));
 
@@ -1,6 +1,11 @@
 package globalquake.ui.globalquake;
 
+import globalquake.core.GlobalQuake;
+import globalquake.core.archive.ArchiveListView;
+import globalquake.core.archive.EarthquakeArchive;
 import globalquake.core.archive.ArchivedQuake;
+import globalquake.core.events.GlobalQuakeEventListener;
+import globalquake.core.events.specific.QuakeArchiveEvent;
 import globalquake.core.earthquake.quality.QualityClass;
 import globalquake.core.intensity.IntensityScales;
 import globalquake.core.intensity.Level;
@@ -19,8 +24,12 @@ import java.text.DecimalFormatSymbols;
 import java.time.Instant;
 import java.util.List;
 import java.util.Locale;
-import java.util.stream.Collectors;
+import java.util.function.IntSupplier;
 
+/**
+ * Archive list, the filtered quakes are kept by {@link ArchiveListView} and only the rows in the visible
+ * part of the list are painted, so scrolling and painting do not slow down as the archive grows.
+ */
 public class EarthquakeListPanel extends JPanel {
     private double scroll = 0;
     protected int mouseY = -999;
@@ -28,20 +37,40 @@ public class EarthquakeListPanel extends JPanel {
     public static final DecimalFormat f1d = new DecimalFormat("0.0", new DecimalFormatSymbols(Locale.ENGLISH));
     private static final int cell_height = 50;
 
+    private static final Font MAG_FONT = new Font("Calibri", Font.BOLD, 20);
+    private static final Font SUFFIX_FONT = new Font("Arial", Font.PLAIN, 20);
+    private static final Font LEVEL_FONT = new Font("Calibri", Font.PLAIN, 26);
+    private static final Font SMALL_FONT = new Font("Calibri", Font.BOLD, 12);
+    private static final Font DATE_FONT = new Font("Calibri", Font.PLAIN, 16);
+    private static final Font QUALITY_FONT = new Font("Calibri", Font.BOLD, 14);
+    private static final Color HOVER_COLOR = new Color(0, 0, 0, 60);
+    private static final Color WRONG_COLOR = new Color(200, 0, 0);
+    private static final Color NO_LEVEL_COLOR = new Color(140, 140, 140);
+
     private static Rectangle2D.Double goUpRectangle;
 
-    private final List<ArchivedQuake> archivedQuakes;
+    private final ArchiveListView archiveView;
     private boolean isMouseInGoUpRect;
 
     private List<ArchivedQuake> getFiltered() {
-        if (archivedQuakes == null) {
-            return null;
-        }
-        return archivedQuakes.stream().filter(ArchivedQuake::shouldBeDisplayed).collect(Collectors.toList());
+        long now = GlobalQuake.instance == null ? System.currentTimeMillis() : GlobalQuake.instance.currentTimeMillis();
+        return archiveView.getDisplayed(ArchivedQuake.getOldestDisplayedOrigin(now));
     }
 
-    public EarthquakeListPanel(Frame parent, List<ArchivedQuake> archivedQuakes) {
-        this.archivedQuakes = archivedQuakes;
+    /**
+     * @param archiveModifications see {@link EarthquakeArchive#getModifications()}
+     */
+    public EarthquakeListPanel(Frame parent, List<ArchivedQuake> archivedQuakes, IntSupplier archiveModifications) {
+        this.archiveView = new ArchiveListView(archivedQuakes, archiveModifications);
+        if (GlobalQuake.instance != null && GlobalQuake.instance.getEventHandler() != null) {
+            GlobalQuake.instance.getEventHandler().registerEventListener(new GlobalQuakeEventListener() {
+                @Override
+                public void onQuakeArchive(QuakeArchiveEvent event) {
+                    archiveView.onArchived(event.archivedQuake());
+                }
+            });
+        }
+
         setBackground(Color.gray);
         setForeground(Color.gray);
 
@@ -49,9 +78,6 @@ public class EarthquakeListPanel extends JPanel {
 
         addMouseWheelListener(e -> {
             List<ArchivedQuake> filtered = getFiltered();
-            if (filtered == null) {
-                return;
-            }
             boolean down = e.getWheelRotation() < 0;
             scroll += e.getPreciseWheelRotation() * 30.0;
 
@@ -71,7 +97,7 @@ public class EarthquakeListPanel extends JPanel {
                 int y = e.getY();
                 int i = (int) ((y + scroll) / cell_height);
                 List<ArchivedQuake> filtered = getFiltered();
-                if (filtered == null || i < 0 || i >= filtered.size()) {
+                if (i < 0 || i >= filtered.size()) {
                     return;
                 }
 
@@ -120,101 +146,21 @@ public class EarthquakeListPanel extends JPanel {
         goUpRectangle = new Rectangle2D.Double(getWidth() / 2.0 - 30, 0, 60, 26);
         Graphics2D g = (Graphics2D) gr;
         g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_OFF);
-        int i = 0;
-        if (getFiltered() != null) {
-            for (ArchivedQuake quake : getFiltered()) {
-                int y = (int) (i * cell_height - scroll);
-                if (y > getHeight()) {
-                    break;
-                }
-                if (y < -cell_height) {
-                    i++;
-                    continue;
-                }
-                Color col;
-                Level level = IntensityScales.getIntensityScale().getLevel(quake.getMaxPGA());
-                if (level != null) {
-                    col = level.getColor();
-
-
-                    col = new Color(
-                            (int) (col.getRed() * IntensityScales.getIntensityScale().getDarkeningFactor()),
-                            (int) (col.getGreen() * IntensityScales.getIntensityScale().getDarkeningFactor()),
-                            (int) (col.getBlue() * IntensityScales.getIntensityScale().getDarkeningFactor()));
-                } else {
-                    col = new Color(140, 140, 140);
-                }
-
-                Rectangle2D.Double rect = new Rectangle2D.Double(0, y, getWidth(), cell_height);
-
-                g.setColor(col);
-                g.fill(rect);
-                g.setColor(Color.LIGHT_GRAY);
-                g.setStroke(new BasicStroke(0.5f));
-                g.draw(rect);
-
-                if (!isMouseInGoUpRect && (int) ((mouseY + scroll) / cell_height) == i) {
-                    g.setColor(new Color(0, 0, 0, 60));
-                    g.fill(rect);
-                }
-
-                String str = "M" + f1d.format(quake.getMag());
-                g.setFont(new Font("Calibri", Font.BOLD, 20));
-                g.setColor(Color.WHITE);
-                g.drawString(str, getWidth() - g.getFontMetrics().stringWidth(str) - 3, y + 44);
-
-                if (level != null) {
-                    str = level.getName();
-                } else {
-                    str = "-";
-                }
-
-                if (level != null) {
-                    g.setColor(Color.white);
-                    g.setFont(new Font("Arial", Font.PLAIN, 20));
-                    g.drawString(level.getSuffix(), 32, y + 21);
-
-                }
+        List<ArchivedQuake> filtered = getFiltered();
+        int hovered = isMouseInGoUpRect ? -1 : (int) ((mouseY + scroll) / cell_height);
 
-                g.setFont(new Font("Calibri", Font.PLAIN, 26));
-                g.setColor(Color.white);
-                g.drawString(str, 27 - g.getFontMetrics().stringWidth(str) / 2, y + 30);
-
-                str = Settings.getSelectedDistanceUnit().format(quake.getDepth(), 0);
-                g.setFont(new Font("Calibri", Font.BOLD, 12));
-                g.setColor(Color.white);
-                g.drawString(str, (int) (25 - g.getFontMetrics().stringWidth(str) * 0.5), y + 46);
-
-                str = quake.getRegion();
-                g.setFont(new Font("Calibri", Font.BOLD, 12));
-                g.setColor(Color.white);
-                g.drawString(str, 52, y + 18);
-
-                str = Settings.formatDateTime(Instant.ofEpochMilli(quake.getOrigin()));
-                g.setFont(new Font("Calibri", Font.PLAIN, 16));
-                g.setColor(Color.white);
-                g.drawString(str, 52, y + 42);
-
-                QualityClass quality = quake.getQualityClass();
-                g.setFont(new Font("Calibri", Font.BOLD, 14));
-                GlobalQuakePanel.drawAccuracyBox(g, true, "", getWidth() + 4, y + 17, quality.toString(), quality.getColor());
-
-                g.setFont(new Font("Calibri", Font.PLAIN, 16));
-                if (quake.isWrong()) {
-                    g.setColor(new Color(200, 0, 0));
-                    g.setStroke(new BasicStroke(2f));
-                    int r = 5;
-                    g.drawLine(r, y + r, getWidth() - r, y + cell_height - r);
-                    g.drawLine(r, y + cell_height - r, getWidth() - r, y + r);
-                }
-
-                i++;
+        for (int i = Math.max(0, (int) (scroll / cell_height)); i < filtered.size(); i++) {
+            int y = (int) (i * cell_height - scroll);
+            if (y > getHeight()) {
+                break;
             }
+
+            paintQuake(g, filtered.get(i), y, i == hovered);
         }
 
         g.setStroke(new BasicStroke(1f));
 
-        if (i == 0) {
+        if (filtered.isEmpty()) {
             g.setFont(new Font("Calibri", Font.BOLD, 16));
             g.setColor(Color.white);
             String str = "No earthquakes archived";
@@ -237,4 +183,67 @@ public class EarthquakeListPanel extends JPanel {
         }
     }
 
+    private void paintQuake(Graphics2D g, ArchivedQuake quake, int y, boolean hovered) {
+        Color col;
+        Level level = IntensityScales.getIntensityScale().getLevel(quake.getMaxPGA());
+        if (level != null) {
+            col = level.getColor();
+            double darkening = IntensityScales.getIntensityScale().getDarkeningFactor();
+            col = new Color((int) (col.getRed() * darkening), (int) (col.getGreen() * darkening), (int) (col.getBlue() * darkening));
+        } else {
+            col = NO_LEVEL_COLOR;
+        }
+
+        Rectangle2D.Double rect = new Rectangle2D.Double(0, y, getWidth(), cell_height);
+
+        g.setColor(col);
+        g.fill(rect);
+        g.setColor(Color.LIGHT_GRAY);
+        g.setStroke(new BasicStroke(0.5f));
+        g.draw(rect);
+
+        if (hovered) {
+            g.setColor(HOVER_COLOR);
+            g.fill(rect);
+        }
+
+        String str = "M" + f1d.format(quake.getMag());
+        g.setFont(MAG_FONT);
+        g.setColor(Color.WHITE);
+        g.drawString(str, getWidth() - g.getFontMetrics().stringWidth(str) - 3, y + 44);
+
+        if (level != null) {
+            str = level.getName();
+            g.setFont(SUFFIX_FONT);
+            g.drawString(level.getSuffix(), 32, y + 21);
+        } else {
+            str = "-";
+        }
+
+        g.setFont(LEVEL_FONT);
+        g.drawString(str, 27 - g.getFontMetrics().stringWidth(str) / 2, y + 30);
+
+        str = Settings.getSelectedDistanceUnit().format(quake.getDepth(), 0);
+        g.setFont(SMALL_FONT);
+        g.drawString(str, (int) (25 - g.getFontMetrics().stringWidth(str) * 0.5), y + 46);
+
+        g.drawString(quake.getRegion(), 52, y + 18);
+
+        str = Settings.formatDateTime(Instant.ofEpochMilli(quake.getOrigin()));
+        g.setFont(DATE_FONT);
+        g.drawString(str, 52, y + 42);
+
+        QualityClass quality = quake.getQualityClass();
+        g.setFont(QUALITY_FONT);
+        GlobalQuakePanel.drawAccuracyBox(g, true, "", getWidth() + 4, y + 17, quality.toString(), quality.getColor());
+
+        if (quake.isWrong()) {
+            g.setColor(WRONG_COLOR);
+            g.setStroke(new BasicStroke(2f));
+            int r = 5;
+            g.drawLine(r, y + r, getWidth() - r, y + cell_height - r);
+            g.drawLine(r, y + cell_height - r, getWidth() - r, y + r);
+        }
+    }
+
 }
@@ -64,7 +64,8 @@ public class GlobalQuakeFrame extends GQFrame {
             }
         });
 
-        list = new EarthquakeListPanel(this, GlobalQuake.instance.getArchive().getArchivedQuakes());
+        list = new EarthquakeListPanel(this, GlobalQuake.instance.getArchive().getArchivedQuakes(),
+                GlobalQuake.instance.getArchive()::getModifications);
         panel.setPreferredSize(new Dimension(600, 600));
         list.setPreferredSize(new Dimension(300, 600));
 
@@ -15,11 +15,14 @@ import java.awt.*;
 import java.time.Instant;
 import java.util.Collection;
 import java.util.List;
+import java.util.Set;
 
 public class FeatureArchivedEarthquake extends RenderFeature<ArchivedQuake> {
 
     private final List<ArchivedQuake> earthquakes;
 
+    private Set<RenderEntity<ArchivedQuake>> nearMouse = Set.of();
+
     public FeatureArchivedEarthquake(List<ArchivedQuake> earthquakes) {
         super(1);
         this.earthquakes = earthquakes;
@@ -80,6 +83,12 @@ public class FeatureArchivedEarthquake extends RenderFeature<ArchivedQuake> {
         }
     }
 
+    @Override
+    public void renderAll(GlobeRenderer renderer, Graphics2D graphics, RenderProperties properties) {
+        nearMouse = properties.scroll < 1 ? findNearMouse(renderer, 10.0, properties) : Set.of();
+        super.renderAll(renderer, graphics, properties);
+    }
+
     @Override
     public void render(GlobeRenderer renderer, Graphics2D graphics, RenderEntity<ArchivedQuake> entity, RenderProperties renderProperties) {
         boolean displayed = !entity.getOriginal().isWrong();
@@ -96,9 +105,7 @@ public class FeatureArchivedEarthquake extends RenderFeature<ArchivedQuake> {
         graphics.draw(entity.getRenderElement(0).getShape());
         graphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_OFF);
 
-        boolean mouseNearby = renderer.isMouseNearby(getCenterCoords(entity), 10.0, true, renderProperties);
-
-        if (mouseNearby && renderProperties.scroll < 1) {
+        if (nearMouse.contains(entity)) {
             var point3D = GlobeRenderer.createVec3D(getCenterCoords(entity));
             var centerPonint = renderer.projectPoint(point3D, renderProperties);
             drawDetails(graphics, centerPonint, entity.getOriginal());
@@ -7,20 +7,21 @@ import globalquake.core.earthquake.data.Cluster;
 import globalquake.core.station.AbstractStation;
 import globalquake.ui.globe.GlobeRenderer;
 import globalquake.ui.globe.Point2D;
-import globalquake.ui.globe.Polygon3D;
 import globalquake.ui.globe.RenderProperties;
-import globalquake.ui.globe.feature.RenderElement;
 import globalquake.ui.globe.feature.RenderEntity;
 import globalquake.ui.globe.feature.RenderFeature;
 import globalquake.core.Settings;
 import globalquake.ui.settings.StationsShape;
 import globalquake.ui.stationselect.FeatureSelectableStation;
 import globalquake.utils.Scale;
+import globalquake.utils.monitorable.Monitorable;
 import gqserver.api.packets.station.InputType;
-import org.apache.commons.math3.geometry.euclidean.threed.Vector3D;
 
 import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 
 public class FeatureGlobalStation extends RenderFeature<AbstractStation> {
 
@@ -29,8 +30,15 @@ public class FeatureGlobalStation extends RenderFeature<AbstractStation> {
     public static final double RATIO_YELLOW = 2000.0;
     public static final double RATIO_RED = 20000.0;
 
+    private final StationPointLayer pointLayer = new StationPointLayer();
+    private final StationSpriteAtlas spriteAtlas = new StationSpriteAtlas();
+
+    private int lastElementsState = Integer.MIN_VALUE;
+    private int lastSettingsChanges = -1;
+    private RenderProperties lastRenderProperties;
+
     public FeatureGlobalStation(Collection<AbstractStation> globalStations) {
-        super(2);
+        super(0);
         this.globalStations = globalStations;
     }
 
@@ -41,60 +49,7 @@ public class FeatureGlobalStation extends RenderFeature<AbstractStation> {
 
     @Override
     public void createPolygon(GlobeRenderer renderer, RenderEntity<AbstractStation> entity, RenderProperties renderProperties) {
-        RenderElement elementStationCircle = entity.getRenderElement(0);
-        RenderElement elementStationSquare = entity.getRenderElement(1);
-        if (elementStationCircle.getPolygon() == null) {
-            elementStationCircle.setPolygon(new Polygon3D());
-        }
-        if (elementStationSquare.getPolygon() == null) {
-            elementStationSquare.setPolygon(new Polygon3D());
-        }
-
-        double size = Math.min(36, renderer.pxToDeg(7.0, renderProperties)) * Settings.stationsSizeMul;
-
-        if(Math.abs(size - entity.getOriginal()._lastRenderSize) < 0.1){
-            return;
-        }
-
-        entity.getOriginal()._lastRenderSize = size;
-
-        InputType inputType = entity.getOriginal().getInputType();
-
-        StationsShape shape = StationsShape.values()[Settings.stationsShapeIndex];
-
-        if(shape == StationsShape.CIRCLE){
-            inputType = InputType.UNKNOWN;
-        } else if(shape == StationsShape.TRIANGLE){
-            inputType = InputType.VELOCITY;
-        }
-
-        switch (inputType){
-            case UNKNOWN ->
-                    renderer.createCircle(elementStationCircle.getPolygon(),
-                            entity.getOriginal().getLatitude(),
-                            entity.getOriginal().getLongitude(),
-                            size, 0, 30);
-            case VELOCITY ->
-                    renderer.createTriangle(elementStationCircle.getPolygon(),
-                            entity.getOriginal().getLatitude(),
-                            entity.getOriginal().getLongitude(),
-                            size * 1.41, 0, 0);
-            case ACCELERATION ->
-                    renderer.createTriangle(elementStationCircle.getPolygon(),
-                            entity.getOriginal().getLatitude(),
-                            entity.getOriginal().getLongitude(),
-                            size * 1.41, 0, 180);
-            case DISPLACEMENT ->
-                    renderer.createSquare(elementStationCircle.getPolygon(),
-                            entity.getOriginal().getLatitude(),
-                            entity.getOriginal().getLongitude(),
-                            size * 1.41, 0);
-        }
-
-        renderer.createSquare(elementStationSquare.getPolygon(),
-                entity.getOriginal().getLatitude(),
-                entity.getOriginal().getLongitude(),
-                size * 2.0, 0);
+        // stations are drawn as sprites by the point layer, see renderAll
     }
 
     @Override
@@ -104,29 +59,25 @@ public class FeatureGlobalStation extends RenderFeature<AbstractStation> {
 
     @Override
     public boolean needsCreatePolygon(RenderEntity<AbstractStation> entity, boolean propertiesChanged) {
-        return propertiesChanged;
+        return false;
     }
 
     @Override
     public boolean needsProject(RenderEntity<AbstractStation> entity, boolean propertiesChanged) {
-        return propertiesChanged;
+        return false;
     }
 
     @Override
     public void project(GlobeRenderer renderer, RenderEntity<AbstractStation> entity, RenderProperties renderProperties) {
-        RenderElement elementStationCircle = entity.getRenderElement(0);
-        elementStationCircle.getShape().reset();
-        elementStationCircle.shouldDraw = renderer.project3D(elementStationCircle.getShape(), elementStationCircle.getPolygon(), true, renderProperties);
-
-        RenderElement elementStationSquare = entity.getRenderElement(1);
-        elementStationSquare.getShape().reset();
-        elementStationSquare.shouldDraw = renderer.project3D(elementStationSquare.getShape(), elementStationSquare.getPolygon(), true, renderProperties);
+        // stations are projected all at once by the point layer, see renderAll
     }
 
     @Override
     public boolean isEntityVisible(RenderEntity<?> entity) {
-        AbstractStation station = (AbstractStation) entity.getOriginal();
+        return isStationVisible((AbstractStation) entity.getOriginal());
+    }
 
+    private static boolean isStationVisible(AbstractStation station) {
         if(Settings.hideDeadStations && !station.hasDisplayableData()){
             return false;
         }
@@ -134,61 +85,110 @@ public class FeatureGlobalStation extends RenderFeature<AbstractStation> {
         return !station.disabled;
     }
 
+    private int getElementsState() {
+        return globalStations instanceof Monitorable monitorable ? monitorable.getMonitorState() : globalStations.size();
+    }
+
+    private void updatePointLayer(GlobeRenderer renderer, RenderProperties renderProperties) {
+        int elementsState = getElementsState();
+        boolean stationsChanged = elementsState != lastElementsState;
+        if (stationsChanged) {
+            pointLayer.setStations(globalStations);
+            lastElementsState = elementsState;
+        }
+
+        if (stationsChanged || renderProperties != lastRenderProperties || Settings.changes != lastSettingsChanges) {
+            pointLayer.project(renderer, renderProperties);
+            lastRenderProperties = renderProperties;
+            lastSettingsChanges = Settings.changes;
+        }
+    }
+
+    private static InputType getDisplayedShape(AbstractStation station) {
+        StationsShape shape = StationsShape.values()[Settings.stationsShapeIndex];
+
+        if(shape == StationsShape.CIRCLE){
+            return InputType.UNKNOWN;
+        } else if(shape == StationsShape.TRIANGLE){
+            return InputType.VELOCITY;
+        }
+
+        return station.getInputType();
+    }
+
     @Override
-    public void render(GlobeRenderer renderer, Graphics2D graphics, RenderEntity<AbstractStation> entity, RenderProperties renderProperties) {
-        RenderElement elementStationCircle = entity.getRenderElement(0);
+    public void renderAll(GlobeRenderer renderer, Graphics2D graphics, RenderProperties renderProperties) {
+        updatePointLayer(renderer, renderProperties);
 
+        double radius = Math.min(36 * renderProperties.getRenderPrecomputedValues().oneDegPx, 7.0) * Settings.stationsSizeMul;
+        int spriteRadius = (int) Math.round(radius);
+        int spriteSize = StationSpriteAtlas.getSpriteSize(Math.max(1, spriteRadius));
 
-        if(!elementStationCircle.shouldDraw){
-            return;
+        int hovered = -1;
+        if (renderer.getLastMouse() != null && renderer.hasMouseMovedRecently() && renderProperties.scroll < 1) {
+            hovered = pointLayer.findNearest(renderer.getLastMouse().x, renderer.getLastMouse().y, Math.max(radius, 1.0));
         }
 
-        RenderElement elementStationSquare = entity.getRenderElement(1);
+        boolean blink = (System.currentTimeMillis() / 500) % 2 == 0;
+        boolean labels = renderProperties.scroll < Settings.stationIntensityVisibilityZoomLevel;
+
+        graphics.setFont(new Font("Calibri", Font.PLAIN, 13));
+
+        for (int i = 0; i < pointLayer.getVisibleCount(); i++) {
+            int index = pointLayer.getVisibleIndex(i);
+            AbstractStation station = pointLayer.getStation(index);
+            if (!isStationVisible(station)) {
+                continue;
+            }
+
+            float x = pointLayer.getScreenX(index);
+            float y = pointLayer.getScreenY(index);
 
-        graphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
-                Settings.antialiasing ? RenderingHints.VALUE_ANTIALIAS_ON : RenderingHints.VALUE_ANTIALIAS_OFF);
-        graphics.setColor(getDisplayColor(entity.getOriginal()));
-        graphics.fill(elementStationCircle.getShape());
+            BufferedImage sprite = spriteAtlas.getSprite(getDisplayedShape(station), spriteRadius, getDisplayColor(station), Settings.antialiasing);
+            graphics.drawImage(sprite, (int) (x - spriteSize / 2.0), (int) (y - spriteSize / 2.0), null);
 
-        boolean mouseNearby = renderer.getLastMouse() != null && renderer.hasMouseMovedRecently() && elementStationCircle.getShape().contains(renderer.getLastMouse());
+            renderOverlay(graphics, station, x, y, radius, index == hovered, blink, labels);
+        }
 
-        if (mouseNearby && renderProperties.scroll < 1) {
+        if (hovered != -1) {
+            AbstractStation station = pointLayer.getStation(hovered);
+            graphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
+                    Settings.antialiasing ? RenderingHints.VALUE_ANTIALIAS_ON : RenderingHints.VALUE_ANTIALIAS_OFF);
             graphics.setColor(Color.yellow);
             graphics.setStroke(new BasicStroke(2f));
-            graphics.draw(elementStationCircle.getShape());
+            graphics.draw(StationSpriteAtlas.createShape(getDisplayedShape(station),
+                    pointLayer.getScreenX(hovered), pointLayer.getScreenY(hovered), radius));
+            graphics.setStroke(new BasicStroke(1f));
         }
+    }
 
-        graphics.setStroke(new BasicStroke(1f));
+    @Override
+    public void render(GlobeRenderer renderer, Graphics2D graphics, RenderEntity<AbstractStation> entity, RenderProperties renderProperties) {
+        // not used, renderAll draws all the stations at once
+    }
 
-        graphics.setFont(new Font("Calibri", Font.PLAIN, 13));
+    private void renderOverlay(Graphics2D graphics, AbstractStation station, float x, float y, double radius,
+                               boolean mouseNearby, boolean blink, boolean labels) {
+        // outer square has the same size as the original square of radius 2x the station size
+        int half = (int) Math.round(radius * 1.41);
 
-        Vector3D point3D = null;
-        Point2D centerPoint = null;
         if(Settings.displayClusters){
-            for(Event event2 : entity.getOriginal().getAnalysis().getDetectedEvents()){
+            for(Event event2 : station.getAnalysis().getDetectedEvents()){
                 Cluster cluster = event2.assignedCluster;
                 if(cluster != null){
                     Color c = !event2.isValid() ? Color.gray : cluster.color;
 
-                    if(point3D == null) {
-                        point3D = GlobeRenderer.createVec3D(getCenterCoords(entity));
-                        centerPoint = renderer.projectPoint(point3D, renderProperties);
-                    }
-
-                    int _y = (int) centerPoint.y + 4;
-                    _y += 16;
-
                     graphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_OFF);
 
                     graphics.setColor(c);
-                    graphics.draw(elementStationSquare.getShape());
-                    graphics.drawString("Cluster #"+cluster.id, (int) centerPoint.x + 12, _y);
+                    graphics.drawRect((int) x - half, (int) y - half, half * 2, half * 2);
+                    graphics.drawString("Cluster #"+cluster.id, (int) x + 12, (int) y + 20);
                 }
             }
-        } else if (entity.getOriginal().isInEventMode() && ((System.currentTimeMillis() / 500) % 2 == 0)) {
+        } else if (blink && station.isInEventMode()) {
             Color c = Color.green;
 
-            double maxRatio = entity.getOriginal().getMaxRatio60S();
+            double maxRatio = station.getMaxRatio60S();
 
             if (maxRatio >= RATIO_YELLOW) {
                 c = Color.yellow;
@@ -200,29 +200,21 @@ public class FeatureGlobalStation extends RenderFeature<AbstractStation> {
 
             graphics.setColor(c);
             graphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING, Settings.antialiasing ? RenderingHints.VALUE_ANTIALIAS_ON : RenderingHints.VALUE_ANTIALIAS_OFF);
-            graphics.draw(elementStationSquare.getShape());
+            graphics.drawRect((int) x - half, (int) y - half, half * 2, half * 2);
         }
 
-
-        graphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_OFF);
-        drawDetails(mouseNearby, renderProperties.scroll, centerPoint, graphics, entity.getOriginal(), renderer, entity, renderProperties);
+        if (mouseNearby || labels) {
+            graphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_OFF);
+            drawDetails(mouseNearby, labels, (int) x, (int) y, graphics, station);
+        }
     }
 
-    private void drawDetails(boolean mouseNearby, double scroll, Point2D centerPoint, Graphics2D g, AbstractStation station, GlobeRenderer renderer,
-                             RenderEntity<AbstractStation> entity, RenderProperties renderProperties) {
+    private void drawDetails(boolean mouseNearby, boolean labels, int x, int y, Graphics2D g, AbstractStation station) {
         int _y = (int) (7 + 6 * Settings.stationsSizeMul);
-        if (mouseNearby && scroll < 1) {
+        if (mouseNearby) {
             g.setColor(Color.white);
             String str = station.toString();
 
-            if(centerPoint == null) {
-                var point3D = GlobeRenderer.createVec3D(getCenterCoords(entity));
-                centerPoint = renderer.projectPoint(point3D, renderProperties);
-            }
-
-            int x = (int) centerPoint.x;
-            int y = (int) centerPoint.y;
-
             g.drawString(str, x - g.getFontMetrics().stringWidth(str) / 2, y - _y);
             str = station.getSeedlinkNetwork() == null ? "" : station.getSeedlinkNetwork().getName();
             g.drawString(str, x - g.getFontMetrics().stringWidth(str) / 2, y - _y - 15);
@@ -241,34 +233,25 @@ public class FeatureGlobalStation extends RenderFeature<AbstractStation> {
                 }
             }
         }
-        if (scroll < Settings.stationIntensityVisibilityZoomLevel || (mouseNearby && scroll < 1)) {
-            g.setColor(Color.white);
+        if (labels || mouseNearby) {
             String str = !station.hasDisplayableData() ? "-.-" : "%.1f".formatted(station.getMaxRatio60S());
-            g.setFont(new Font("Calibri", Font.PLAIN, 13));
             g.setColor(station.getAnalysis().getStatus() == AnalysisStatus.EVENT ? Color.green : Color.LIGHT_GRAY);
-            if(centerPoint == null) {
-                var point3D = GlobeRenderer.createVec3D(getCenterCoords(entity));
-                centerPoint = renderer.projectPoint(point3D, renderProperties);
-            }
-
-            int x = (int) centerPoint.x;
-            int y = (int) centerPoint.y;
             g.drawString(str, x - g.getFontMetrics().stringWidth(str) / 2, y + _y + 9);
         }
     }
 
-    private Color getDisplayColor(AbstractStation station) {
+    private int getDisplayColor(AbstractStation station) {
         if(station.disabled){
-            return Color.DARK_GRAY;
+            return Color.DARK_GRAY.getRGB();
         }
         if (!station.hasData()) {
-            return Color.gray;
+            return Color.gray.getRGB();
         }
 
         if ((GlobalQuakeClient.instance == null && station.getAnalysis().getStatus() == AnalysisStatus.INIT) || !station.hasDisplayableData()) {
-            return Color.lightGray;
+            return Color.lightGray.getRGB();
         } else {
-            return Scale.getColorRatio(station.getMaxRatio60S());
+            return Scale.getRGBRatio(station.getMaxRatio60S());
         }
 
     }
@@ -277,4 +260,16 @@ public class FeatureGlobalStation extends RenderFeature<AbstractStation> {
     public Point2D getCenterCoords(RenderEntity<?> entity) {
         return new Point2D(((AbstractStation) (entity.getOriginal())).getLatitude(), ((AbstractStation) (entity.getOriginal())).getLongitude());
     }
+
+    @Override
+    public void collectNearby(GlobeRenderer renderer, double x, double y, double radius,
+                              RenderProperties renderProperties, List<RenderEntity<?>> result) {
+        List<AbstractStation> nearby = new ArrayList<>();
+        pointLayer.findAllNear(x, y, radius, nearby);
+        for (AbstractStation station : nearby) {
+            if (isStationVisible(station)) {
+                result.add(new RenderEntity<>(station, 0));
+            }
+        }
+    }
 }
@@ -0,0 +1,101 @@
+package globalquake.ui.globalquake.feature;
+
+import globalquake.core.station.AbstractStation;
+import globalquake.ui.globe.GlobeRenderer;
+import globalquake.ui.globe.RenderProperties;
+import globalquake.ui.globe.ScreenSpaceGrid;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Station positions kept as flat arrays of unit vectors, so that the whole station set can be
+ * culled and projected in one pass without allocating any per-station geometry.
+ * Not thread safe, meant to be used from the rendering thread only.
+ */
+public class StationPointLayer {
+
+    private static final double SCREEN_MARGIN = 32.0;
+    private static final int GRID_CELL_SIZE = 16;
+
+    private AbstractStation[] stations = new AbstractStation[0];
+
+    private float[] unitX = new float[0];
+    private float[] unitY = new float[0];
+    private float[] unitZ = new float[0];
+
+    private float[] screenX = new float[0];
+    private float[] screenY = new float[0];
+
+    private int[] visible = new int[0];
+    private int visibleCount = 0;
+
+    private final ScreenSpaceGrid grid = new ScreenSpaceGrid(GRID_CELL_SIZE);
+
+    public void setStations(Collection<AbstractStation> collection) {
+        AbstractStation[] array = collection.toArray(new AbstractStation[0]);
+        int count = array.length;
+
+        if (unitX.length < count) {
+            unitX = new float[count];
+            unitY = new float[count];
+            unitZ = new float[count];
+            screenX = new float[count];
+            screenY = new float[count];
+            visible = new int[count];
+        }
+
+        for (int i = 0; i < count; i++) {
+            double lat = Math.toRadians(array[i].getLatitude());
+            double lon = Math.toRadians(array[i].getLongitude());
+            double cosLat = Math.cos(lat);
+            unitX[i] = (float) (-Math.sin(lon) * cosLat);
+            unitY[i] = (float) Math.sin(lat);
+            unitZ[i] = (float) (-Math.cos(lon) * cosLat);
+        }
+
+        stations = array;
+        visibleCount = 0;
+    }
+
+    public void project(GlobeRenderer renderer, RenderProperties renderProperties) {
+        visibleCount = renderer.projectSurfacePoints(unitX, unitY, unitZ, stations.length,
+                screenX, screenY, visible, SCREEN_MARGIN, renderProperties);
+        grid.build(screenX, screenY, visible, visibleCount, renderProperties.width, renderProperties.height);
+    }
+
+    public int getVisibleCount() {
+        return visibleCount;
+    }
+
+    /**
+     * @param i position in the list of visible stations, from 0 to {@link #getVisibleCount()}
+     * @return index of the station usable in the other getters
+     */
+    public int getVisibleIndex(int i) {
+        return visible[i];
+    }
+
+    public AbstractStation getStation(int index) {
+        return stations[index];
+    }
+
+    public float getScreenX(int index) {
+        return screenX[index];
+    }
+
+    public float getScreenY(int index) {
+        return screenY[index];
+    }
+
+    /**
+     * @return index of the closest visible station within radius pixels or -1
+     */
+    public int findNearest(double x, double y, double radius) {
+        return grid.findNearest(x, y, radius);
+    }
+
+    public void findAllNear(double x, double y, double radius, List<AbstractStation> result) {
+        grid.forEachNear(x, y, radius, index -> result.add(stations[index]));
+    }
+}
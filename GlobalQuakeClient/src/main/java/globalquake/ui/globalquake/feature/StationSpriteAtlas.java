@@ -0,0 +1,88 @@
+package globalquake.ui.globalquake.feature;
+
+import gqserver.api.packets.station.InputType;
+
+import java.awt.*;
+import java.awt.geom.Ellipse2D;
+import java.awt.geom.Path2D;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Cache of pre-rendered station symbols, keyed by shape, size and color, so that each
+ * station can be drawn with a single image blit instead of filling a projected polygon
+ */
+public class StationSpriteAtlas {
+
+    private static final int MAX_RADIUS = 48;
+    private static final int MAX_SPRITES = 4096;
+
+    private final Map<Long, BufferedImage> sprites = new ConcurrentHashMap<>();
+
+    public BufferedImage getSprite(InputType shape, int radius, int rgb, boolean antialiasing) {
+        int r = Math.max(1, Math.min(MAX_RADIUS, radius));
+        long key = (rgb & 0xFFFFFFL) | ((long) r << 24) | ((long) shape.ordinal() << 32) | (antialiasing ? 1L << 40 : 0L);
+
+        BufferedImage sprite = sprites.get(key);
+        if (sprite == null) {
+            if (sprites.size() >= MAX_SPRITES) {
+                sprites.clear();
+            }
+            sprite = createSprite(shape, r, new Color(rgb), antialiasing);
+            sprites.put(key, sprite);
+        }
+
+        return sprite;
+    }
+
+    private static BufferedImage createSprite(InputType shape, int radius, Color color, boolean antialiasing) {
+        int size = getSpriteSize(radius);
+        BufferedImage image = new BufferedImage(size, size, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = image.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
+                antialiasing ? RenderingHints.VALUE_ANTIALIAS_ON : RenderingHints.VALUE_ANTIALIAS_OFF);
+        g.setColor(color);
+        g.fill(createShape(shape, size / 2.0, size / 2.0, radius));
+        g.dispose();
+        return image;
+    }
+
+    /**
+     * Triangles are inscribed in a circle 1.41x larger than the radius, hence the extra space
+     */
+    public static int getSpriteSize(int radius) {
+        return (int) Math.ceil(radius * 1.5) * 2 + 2;
+    }
+
+    /**
+     * Same symbols that used to be created on the globe surface by
+     * {@link globalquake.ui.globe.GlobeRenderer#createNGon}, but directly in screen space
+     */
+    public static Shape createShape(InputType shape, double x, double y, double radius) {
+        return switch (shape) {
+            case UNKNOWN -> new Ellipse2D.Double(x - radius, y - radius, radius * 2, radius * 2);
+            case VELOCITY -> createTriangle(x, y, radius * 1.41, 0);
+            case ACCELERATION -> createTriangle(x, y, radius * 1.41, 180);
+            case DISPLACEMENT -> new Rectangle2D.Double(x - radius, y - radius, radius * 2, radius * 2);
+        };
+    }
+
+    private static Shape createTriangle(double x, double y, double radius, double angleOffset) {
+        Path2D.Double path = new Path2D.Double();
+        for (int i = 0; i < 3; i++) {
+            double angle = Math.toRadians(angleOffset + i * 120);
+            double px = x + Math.sin(angle) * radius;
+            double py = y - Math.cos(angle) * radius;
+            if (i == 0) {
+                path.moveTo(px, py);
+            } else {
+                path.lineTo(px, py);
+            }
+        }
+        path.closePath();
+        return path;
+    }
+
+}
@@ -1,9 +1,18 @@
 package globalquake.core;
 
+import globalquake.core.metrics.LatencyHistogram;
+import globalquake.core.metrics.Metrics;
 import globalquake.core.station.AbstractStation;
 import globalquake.utils.NamedThreadFactory;
 import org.tinylog.Logger;
 
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
@@ -11,6 +20,18 @@ import java.util.concurrent.TimeUnit;
 @SuppressWarnings("unused")
 public class GlobalQuakeRuntime {
 
+    private static final long ANALYSIS_MIN_INTERVAL = 20;
+
+    private static final LatencyHistogram ANALYSIS_TIME = Metrics.histogram("gq_station_analysis_seconds",
+            "Time of one pass of the station analysis over the stations that received data");
+    private static final LatencyHistogram SECOND_TIME = Metrics.histogram("gq_second_loop_seconds",
+            "Time of one pass of the 1-second loop");
+    private static final LatencyHistogram QUAKES_TIME = Metrics.histogram("gq_hypocenter_loop_seconds",
+            "Time of one pass of the cluster and hypocenter analysis");
+
+    // the runtime whose threads are running, stations and analyses report their changes to it
+    private static volatile GlobalQuakeRuntime running;
+
     private long lastSecond;
     private long lastAnalysis;
     private long lastGC;
@@ -20,6 +41,11 @@ public class GlobalQuakeRuntime {
     private ScheduledExecutorService exec1Sec;
     private ScheduledExecutorService execQuake;
 
+    private final Set<AbstractStation> pendingStations = ConcurrentHashMap.newKeySet();
+
+    private volatile PipelineTrigger analysisTrigger;
+    private volatile PipelineTrigger quakeTrigger;
+
     public void runThreads() {
         execAnalysis = Executors
                 .newSingleThreadScheduledExecutor(new NamedThreadFactory("Station Analysis Thread"));
@@ -28,46 +54,154 @@ public class GlobalQuakeRuntime {
         execQuake = Executors
                 .newSingleThreadScheduledExecutor(new NamedThreadFactory("Hypocenter Location Thread"));
 
-        execAnalysis.scheduleAtFixedRate(() -> {
+        // stations are analysed only after they receive new data
+        analysisTrigger = new PipelineTrigger(execAnalysis, () -> {
             try {
                 long a = System.currentTimeMillis();
-                GlobalQuake.instance.getStationManager().getStations().parallelStream().forEach(AbstractStation::analyse);
+                long start = System.nanoTime();
+                List<AbstractStation> stations = new ArrayList<>();
+                for (Iterator<AbstractStation> iterator = pendingStations.iterator(); iterator.hasNext(); ) {
+                    stations.add(iterator.next());
+                    iterator.remove();
+                }
+
+                stations.parallelStream().forEach(AbstractStation::analyse);
                 lastAnalysis = System.currentTimeMillis() - a;
+                ANALYSIS_TIME.recordSince(start);
             } catch (Exception e) {
                 Logger.error("Exception occurred in station analysis");
                 GlobalQuake.getErrorHandler().handleException(e);
             }
-        }, 0, 100, TimeUnit.MILLISECONDS);
+        }, ANALYSIS_MIN_INTERVAL, 0);
 
         exec1Sec.scheduleAtFixedRate(() -> {
             try {
                 long a = System.currentTimeMillis();
+                long start = System.nanoTime();
                 GlobalQuake.instance.getStationManager().getStations().parallelStream().forEach(
                         station -> station.second(GlobalQuake.instance.currentTimeMillis()));
                 if (GlobalQuake.instance.getEarthquakeAnalysis() != null) {
                     GlobalQuake.instance.getEarthquakeAnalysis().second();
                 }
                 lastSecond = System.currentTimeMillis() - a;
+                SECOND_TIME.recordSince(start);
             } catch (Exception e) {
                 Logger.error("Exception occurred in 1-second loop");
                 GlobalQuake.getErrorHandler().handleException(e);
             }
         }, 0, 1, TimeUnit.SECONDS);
 
-        execQuake.scheduleAtFixedRate(() -> {
+        // clusters and hypocenters are updated when station events change, the idle runs take care of the ageing
+        quakeTrigger = new PipelineTrigger(execQuake, () -> {
             try {
                 long a = System.currentTimeMillis();
+                long start = System.nanoTime();
                 GlobalQuake.instance.getClusterAnalysis().run();
                 GlobalQuake.instance.getEarthquakeAnalysis().run();
                 lastQuakesT = System.currentTimeMillis() - a;
+                QUAKES_TIME.recordSince(start);
             } catch (Exception e) {
                 Logger.error("Exception occurred in hypocenter location loop");
                 GlobalQuake.getErrorHandler().handleException(e);
             }
-        }, 0, HypocsSettings.getOrDefaultInt("hypocsLoopTime", 300), TimeUnit.MILLISECONDS);
+        }, getQuakeMinInterval(), getQuakeIdleInterval());
+
+        analysisTrigger.start();
+        quakeTrigger.start();
+        registerMetrics();
+        running = this;
+    }
+
+    /**
+     * @return minimal time between two runs of the hypocenter stage in ms. It uses the existing hypocsLoopTime setting,
+     * which was the fixed period of the loop before it was driven by changes
+     */
+    public static int getQuakeMinInterval() {
+        return HypocsSettings.getOrDefaultInt("hypocsLoopTime", 300);
+    }
+
+    /**
+     * @return time in ms after which the hypocenter stage runs even without any change, for the ageing of clusters and quakes
+     */
+    public static int getQuakeIdleInterval() {
+        return HypocsSettings.getOrDefaultInt("hypocsIdleLoopTime", 1000);
+    }
+
+    /**
+     * @return durations of the runs of the stages since the start of the process, in the order in which they run
+     */
+    public static Map<String, LatencyHistogram> getStageTimes() {
+        Map<String, LatencyHistogram> result = new LinkedHashMap<>();
+        result.put("analysis", ANALYSIS_TIME);
+        result.put("second", SECOND_TIME);
+        result.put("quake", QUAKES_TIME);
+        return result;
+    }
+
+    private void registerMetrics() {
+        Metrics.gauge("gq_station_analysis_pending", "Stations waiting for the station analysis", pendingStations::size);
+        Metrics.gauge("gq_clusters", "Current number of clusters",
+                () -> GlobalQuake.instance.getClusterAnalysis().getClusters().size());
+        Metrics.gauge("gq_earthquakes", "Current number of earthquakes",
+                () -> GlobalQuake.instance.getEarthquakeAnalysis().getEarthquakes().size());
+
+        for (var entry : Map.of("analysis", analysisTrigger, "quake", quakeTrigger).entrySet()) {
+            PipelineTrigger trigger = entry.getValue();
+            Metrics.counter("gq_pipeline_signals_total", "Signals received by a pipeline stage", trigger::getSignals, "stage", entry.getKey());
+            Metrics.counter("gq_pipeline_runs_total", "Runs of a pipeline stage", trigger::getRuns, "stage", entry.getKey());
+        }
+    }
+
+    /**
+     * Queues the station for analysis, called when it receives new data
+     */
+    public void stationDataReceived(AbstractStation station) {
+        PipelineTrigger trigger = analysisTrigger;
+        if (trigger == null) {
+            return;
+        }
+
+        pendingStations.add(station);
+        trigger.signal();
+    }
+
+    /**
+     * Schedules the cluster and hypocenter update, called when a station event starts, changes or ends
+     */
+    public void stationEventsChanged() {
+        PipelineTrigger trigger = quakeTrigger;
+        if (trigger != null) {
+            trigger.signal();
+        }
+    }
+
+    public static void notifyStationDataReceived(AbstractStation station) {
+        GlobalQuakeRuntime runtime = running;
+        if (runtime != null) {
+            runtime.stationDataReceived(station);
+        }
+    }
+
+    public static void notifyStationEventsChanged() {
+        GlobalQuakeRuntime runtime = running;
+        if (runtime != null) {
+            runtime.stationEventsChanged();
+        }
+    }
+
+    public PipelineTrigger getAnalysisTrigger() {
+        return analysisTrigger;
+    }
+
+    public PipelineTrigger getQuakeTrigger() {
+        return quakeTrigger;
     }
 
     public void stop() {
+        if (running == this) {
+            running = null;
+        }
+
         GlobalQuake.instance.stopService(execQuake);
         GlobalQuake.instance.stopService(execAnalysis);
         GlobalQuake.instance.stopService(exec1Sec);
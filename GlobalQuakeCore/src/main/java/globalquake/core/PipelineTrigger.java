@@ -0,0 +1,98 @@
+package globalquake.core;
+
+import org.tinylog.Logger;
+
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs a stage of the processing pipeline on its executor whenever its inputs change.
+ * Signals that arrive while the stage is waiting or running are coalesced into a single run,
+ * consecutive runs start at least minInterval ms apart and if nothing is signalled the stage still runs
+ * every maxInterval ms, because some of the work depends only on the passing time.
+ */
+public class PipelineTrigger {
+
+    private final ScheduledExecutorService executor;
+    private final Runnable task;
+    private final long minInterval;
+    private final long maxInterval;
+
+    private final AtomicBoolean pending = new AtomicBoolean(false);
+    private final AtomicBoolean scheduled = new AtomicBoolean(false);
+
+    private volatile long lastRun = 0;
+    private final AtomicLong signals = new AtomicLong();
+    private final AtomicLong runs = new AtomicLong();
+
+    /**
+     * @param minInterval minimal time between the starts of two runs in ms
+     * @param maxInterval longest time without a run in ms, 0 to run only when signalled
+     */
+    public PipelineTrigger(ScheduledExecutorService executor, Runnable task, long minInterval, long maxInterval) {
+        this.executor = executor;
+        this.task = task;
+        this.minInterval = minInterval;
+        this.maxInterval = maxInterval;
+    }
+
+    public void start() {
+        if (maxInterval > 0) {
+            executor.scheduleAtFixedRate(() -> {
+                if (System.currentTimeMillis() - lastRun >= maxInterval) {
+                    signal();
+                }
+            }, 0, maxInterval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Tells the stage that its inputs changed, can be called from any thread
+     */
+    public void signal() {
+        signals.incrementAndGet();
+        pending.set(true);
+        schedule();
+    }
+
+    private void schedule() {
+        if (!scheduled.compareAndSet(false, true)) {
+            return;
+        }
+
+        long delay = Math.max(0, lastRun + minInterval - System.currentTimeMillis());
+        try {
+            executor.schedule(this::run, delay, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            scheduled.set(false);
+            if (!executor.isShutdown()) {
+                Logger.error(e);
+            }
+        }
+    }
+
+    private void run() {
+        pending.set(false);
+        lastRun = System.currentTimeMillis();
+        try {
+            task.run();
+        } finally {
+            runs.incrementAndGet();
+            scheduled.set(false);
+            if (pending.get()) {
+                schedule();
+            }
+        }
+    }
+
+    public long getSignals() {
+        return signals.get();
+    }
+
+    public long getRuns() {
+        return runs.get();
+    }
+}
@@ -60,6 +60,7 @@ public final class Settings {
     public static Integer intensityScaleIndex;
 
     public static Boolean reportsEnabled = false;
+    public static Integer reportsCompressionLevel;
     public static Boolean enableSound = true;
     public static Boolean oldEventsTimeFilterEnabled;
     public static Double oldEventsTimeFilter;
@@ -102,6 +103,7 @@ public final class Settings {
     public static Boolean cinemaModeReenable;
 
     public static Integer logsStoreTimeMinutes;
+    public static Integer seedlinkMaxStationsPerConnection;
     public static Integer maxEvents;
     public static final int maxEventsDefault = 60;
     public static Boolean displayCoreWaves;
@@ -162,6 +164,8 @@ public final class Settings {
     @SuppressWarnings("unused")
     public static Boolean autoStartFDSNWSEventServer;
     @SuppressWarnings("unused")
+    public static Boolean FDSNWSEventMetricsEnabled;
+    @SuppressWarnings("unused")
     public static Double shakemapQualityOffset;
     @SuppressWarnings("unused")
     public static Boolean discordBotEnabled;
@@ -245,6 +249,7 @@ public final class Settings {
         loadProperty("FDSNWSEventIP", "localhost"); //As a default, localhost is used for security.
         loadProperty("FDSNWSEventPort", "8080");
         loadProperty("autoStartFDSNWSEventServer", "false");
+        loadProperty("FDSNWSEventMetricsEnabled", "false"); // the /metrics endpoint exposes internals, so it is opt-in
 
         loadProperty("shakingLevelScale", "0",
                 o -> validateInt(0, IntensityScales.INTENSITY_SCALES.length - 1, (Integer) o));
@@ -282,6 +287,7 @@ public final class Settings {
         loadProperty("maxEvents", String.valueOf(maxEventsDefault));
 
         loadProperty("logsStoreTimeMinutes", "5", o -> validateInt(1, 60, (Integer) o));
+        loadProperty("seedlinkMaxStationsPerConnection", "0", o -> validateInt(0, 100000, (Integer) o));
 
         loadProperty("cinemaModeOnStartup", "true");
         loadProperty("cinemaModeReenable", "true");
@@ -297,6 +303,7 @@ public final class Settings {
         loadProperty("alertGlobalMag", "6.0", o -> validateDouble(0, 10, (Double) o));
 
         loadProperty("reportsEnabled", "false");
+        loadProperty("reportsCompressionLevel", "1", o -> validateInt(0, 9, (Integer) o));
         loadProperty("displayClusterRoots", "false");
         loadProperty("hideClustersWithQuake", "false");
         loadProperty("displayClusters", "false");
@@ -1,19 +1,26 @@
 package globalquake.core.analysis;
 
 import globalquake.core.GlobalQuake;
+import globalquake.core.GlobalQuakeRuntime;
 import globalquake.core.Settings;
 import globalquake.core.station.AbstractStation;
 import edu.sc.seis.seisFile.mseed.DataRecord;
 import org.tinylog.Logger;
 
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
 import java.util.List;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
 
 public abstract class Analysis {
     private long lastRecord;
     private final AbstractStation station;
     private double sampleRate;
     private final List<Event> detectedEvents;
+    private final AtomicLong eventsVersion = new AtomicLong();
+    private volatile EventIndex eventIndex;
     public long numRecords;
     public long latestLogTime;
     public double _maxRatio;
@@ -71,19 +78,26 @@ public abstract class Analysis {
                 return;
             }
 
-            int i = 0;
-
-            for (int v : data) {
-                long time = startTime + (long) (i * (1000.0 / dataRecord.getSampleRate()));
-                nextSample(v, time, GlobalQuake.instance.currentTimeMillis());
-                i++;
-            }
+            nextSamples(data, startTime, dataRecord.getSampleRate());
         } catch (Exception e) {
             Logger.trace(e);
             Logger.warn("There was a problem with data processing on station %s: %s".formatted(getStation().getStationCode(), e.getMessage()));
         }
     }
 
+    /**
+     * Processes all samples of one data record
+     */
+    protected void nextSamples(int[] data, long startTime, double recordSampleRate) {
+        int i = 0;
+
+        for (int v : data) {
+            long time = startTime + (long) (i * (1000.0 / recordSampleRate));
+            nextSample(v, time, GlobalQuake.instance.currentTimeMillis());
+            i++;
+        }
+    }
+
     public abstract void nextSample(int v, long time, long currentTime);
 
     @SuppressWarnings("SameReturnValue")
@@ -108,6 +122,44 @@ public abstract class Analysis {
         return detectedEvents;
     }
 
+    public void addDetectedEvent(Event event) {
+        detectedEvents.add(0, event);
+        eventsChanged();
+    }
+
+    public void removeDetectedEvents(Collection<Event> events) {
+        // called every second by most stations with nothing to remove
+        if (detectedEvents.removeAll(events)) {
+            eventsChanged();
+        }
+    }
+
+    /**
+     * Has to be called whenever an event is added or removed or its P wave time changes
+     */
+    public void eventsChanged() {
+        eventsVersion.incrementAndGet();
+        GlobalQuakeRuntime.notifyStationEventsChanged();
+    }
+
+    private record EventIndex(long version, Event[] events) {
+    }
+
+    /**
+     * @return detected events sorted by the P wave time, the index is rebuilt only when the events change
+     */
+    public Event[] getEventsByPWave() {
+        EventIndex index = eventIndex;
+        long version = eventsVersion.get();
+        if (index == null || index.version() != version) {
+            Event[] events = detectedEvents.toArray(new Event[0]);
+            Arrays.sort(events, Comparator.comparingLong(Event::getpWave));
+            eventIndex = index = new EventIndex(version, events);
+        }
+
+        return index.events();
+    }
+
     public Event getLatestEvent() {
         var maybeEvent = detectedEvents.stream().findFirst();
         return maybeEvent.orElse(null);
@@ -1,5 +1,6 @@
 package globalquake.core.analysis;
 
+import globalquake.core.GlobalQuakeRuntime;
 import globalquake.core.Settings;
 import globalquake.core.station.AbstractStation;
 import globalquake.core.station.StationState;
@@ -38,6 +39,13 @@ public class BetterAnalysis extends Analysis {
 
     private double initialOffset;
 
+    private FilterBank filterBank;
+
+    // whole data record filtered in advance, used until the record ends or the analysis is reset
+    private double[] blockInput = new double[0];
+    private double[][] blockOutput = new double[BANDS_MIN_FREQ.length][0];
+    private int blockIndex = -1;
+
     private WaveformTransformator waveformDefault;
 
     private WaveformTransformator waveformLowFreq;
@@ -52,6 +60,9 @@ public class BetterAnalysis extends Analysis {
     public static final double minFreqUltraLow = 0.01;
     public static final double maxFreqUltraLow = 5.0;
 
+    private static final double[] BANDS_MIN_FREQ = {minFreqDefault, minFreqLow, minFreqUltraLow};
+    private static final double[] BANDS_MAX_FREQ = {maxFreqDefault, maxFreqLow, maxFreqUltraLow};
+
 
     public BetterAnalysis(AbstractStation station) {
         super(station);
@@ -83,9 +94,7 @@ public class BetterAnalysis extends Analysis {
                 if (initProgress >= INIT_OFFSET_CALCULATION * 0.001 * getSampleRate() * 0.25) {
                     double _initialOffset = initialOffsetSum / initialOffsetCnt;
 
-                    waveformDefault.accept(v - _initialOffset);
-                    waveformLowFreq.accept(v - _initialOffset);
-                    waveformUltraLowFreq.accept(v - _initialOffset);
+                    filter(v - _initialOffset);
 
                     double filteredV = waveformDefault.getCurrentValue();
                     initialRatioSum += Math.abs(filteredV);
@@ -94,9 +103,7 @@ public class BetterAnalysis extends Analysis {
                 }
             } else if (initProgress <= (INIT_AVERAGE_RATIO + INIT_OFFSET_CALCULATION) * 0.001 * getSampleRate()) {
                 double _initialOffset = initialOffsetSum / initialOffsetCnt;
-                waveformDefault.accept(v - _initialOffset);
-                waveformLowFreq.accept(v - _initialOffset);
-                waveformUltraLowFreq.accept(v - _initialOffset);
+                filter(v - _initialOffset);
 
                 double filteredV = waveformDefault.getCurrentValue();
                 longAverage -= (longAverage - Math.abs(filteredV)) / (getSampleRate() * 6.0);
@@ -116,9 +123,7 @@ public class BetterAnalysis extends Analysis {
             return;
         }
 
-        waveformDefault.accept(v - initialOffset);
-        waveformLowFreq.accept(v - initialOffset);
-        waveformUltraLowFreq.accept(v - initialOffset);
+        filter(v - initialOffset);
 
         double filteredV = waveformDefault.getCurrentValue();
 
@@ -146,7 +151,7 @@ public class BetterAnalysis extends Analysis {
                 if (!buffer.isEmpty()) {
                     setStatus(AnalysisStatus.EVENT);
                     Event event = new Event(this, time, buffer, !getStation().isSensitivityValid());
-                    getDetectedEvents().add(0, event);
+                    addDetectedEvent(event);
                 }
             }
         }
@@ -217,6 +222,54 @@ public class BetterAnalysis extends Analysis {
         getStation().reportState(StationState.ACTIVE, time);
     }
 
+    private void filter(double value) {
+        if (blockIndex != -1) {
+            waveformDefault.accept(blockOutput[0][blockIndex]);
+            waveformLowFreq.accept(blockOutput[1][blockIndex]);
+            waveformUltraLowFreq.accept(blockOutput[2][blockIndex]);
+            blockIndex++;
+            return;
+        }
+
+        filterBank.accept(value);
+        waveformDefault.accept(filterBank.getOutput(0));
+        waveformLowFreq.accept(filterBank.getOutput(1));
+        waveformUltraLowFreq.accept(filterBank.getOutput(2));
+    }
+
+    @Override
+    protected synchronized void nextSamples(int[] data, long startTime, double recordSampleRate) {
+        // after the initialisation every sample is filtered with the same offset until the next reset,
+        // so the whole record can go through the filters at once
+        if (filterBank != null && getStatus() != AnalysisStatus.INIT && data.length > 1) {
+            if (blockInput.length < data.length) {
+                blockInput = new double[data.length];
+                blockOutput = new double[BANDS_MIN_FREQ.length][data.length];
+            }
+
+            for (int i = 0; i < data.length; i++) {
+                blockInput[i] = data[i] - initialOffset;
+            }
+
+            filterBank.process(blockInput, 0, data.length, blockOutput);
+            blockIndex = 0;
+        }
+
+        byte statusBefore = getStatus();
+        Event eventBefore = statusBefore == AnalysisStatus.EVENT ? getLatestEvent() : null;
+        long revisionBefore = eventBefore == null ? 0 : eventBefore.getClusterRevision();
+        try {
+            super.nextSamples(data, startTime, recordSampleRate);
+        } finally {
+            blockIndex = -1;
+        }
+
+        // most records only extend the ongoing event, the clusters are updated only if the record changed what they see
+        if (eventBefore != null && (getStatus() != statusBefore || eventBefore.getClusterRevision() != revisionBefore)) {
+            GlobalQuakeRuntime.notifyStationEventsChanged();
+        }
+    }
+
     @Override
     public void analyse(DataRecord dr) {
         if (getStatus() != AnalysisStatus.INIT) {
@@ -244,10 +297,13 @@ public class BetterAnalysis extends Analysis {
         latestLogTime = 0;
 
         if (waveformDefault == null) {
-            waveformDefault = new WaveformTransformator(minFreqDefault, maxFreqDefault, getStation().getSensitivity(), getSampleRate(), getStation().getInputType());
-            waveformLowFreq = new WaveformTransformator(minFreqLow, maxFreqLow, getStation().getSensitivity(), getSampleRate(), getStation().getInputType());
-            waveformUltraLowFreq = new WaveformTransformator(minFreqUltraLow, maxFreqUltraLow, getStation().getSensitivity(), getSampleRate(), getStation().getInputType());
+            filterBank = new FilterBank(getSampleRate(), BANDS_MIN_FREQ, BANDS_MAX_FREQ);
+            waveformDefault = new WaveformTransformator(getStation().getSensitivity(), getSampleRate(), getStation().getInputType());
+            waveformLowFreq = new WaveformTransformator(getStation().getSensitivity(), getSampleRate(), getStation().getInputType());
+            waveformUltraLowFreq = new WaveformTransformator(getStation().getSensitivity(), getSampleRate(), getStation().getInputType());
         }
+        filterBank.reset();
+        blockIndex = -1;
         waveformDefault.reset();
         waveformLowFreq.reset();
         waveformUltraLowFreq.reset();
@@ -276,7 +332,7 @@ public class BetterAnalysis extends Analysis {
             }
         }
 
-        getDetectedEvents().removeAll(toBeRemoved);
+        removeDetectedEvents(toBeRemoved);
     }
 
 
@@ -33,6 +33,9 @@ public class Event implements Serializable {
 
     public double maxRatio;
 
+    // max ratios counted by Cluster when it computes its level
+    private static final double[] CLUSTER_RATIO_THRESHOLDS = {64, 1000, 10000, 50000};
+
     private boolean valid;
 
     public Cluster assignedCluster;
@@ -92,10 +95,15 @@ public class Event implements Serializable {
     }
 
     public void setpWave(long pWave) {
-        if (this.pWave != pWave) {
+        boolean changed = this.pWave != pWave;
+        if (changed) {
             this.updatesCount++;
         }
         this.pWave = pWave;
+        // the P wave is recalculated periodically, mostly to the same value, which is not a change for the clusters
+        if (changed && getAnalysis() != null) {
+            getAnalysis().eventsChanged();
+        }
         checkValidity();
     }
 
@@ -298,6 +306,21 @@ public class Event implements Serializable {
         return updatesCount;
     }
 
+    /**
+     * @return value that changes only when the event changes in a way the cluster analysis can see: its update count,
+     * validity, or the max ratio crossing one of the thresholds of the cluster levels
+     */
+    public long getClusterRevision() {
+        int ratioLevel = 0;
+        for (double threshold : CLUSTER_RATIO_THRESHOLDS) {
+            if (maxRatio >= threshold) {
+                ratioLevel++;
+            }
+        }
+
+        return (long) updatesCount << 4 | (long) ratioLevel << 1 | (valid ? 1 : 0);
+    }
+
     private WaveformBuffer getWaveformBuffer() {
         return waveformBuffer;
     }
@@ -0,0 +1,217 @@
+package globalquake.core.analysis;
+
+import uk.me.berndporr.iirj.Biquad;
+import uk.me.berndporr.iirj.Butterworth;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Several Butterworth band-pass filters applied to the same input.
+ * The biquad coefficients are designed by iirj once per sample rate and band and shared by all stations,
+ * the filtering itself runs over primitive arrays in transposed direct form II.
+ */
+public class FilterBank {
+
+    public static final int ORDER = 3;
+
+    private static final Map<BandDesign, double[]> coefficientsCache = new ConcurrentHashMap<>();
+
+    private record BandDesign(double sampleRate, double minFreq, double maxFreq) {
+    }
+
+    private final int bands;
+
+    // index of the first stage of each band, the last entry is the total number of stages
+    private final int[] bandStart;
+
+    private final double[] b0;
+    private final double[] b1;
+    private final double[] b2;
+    private final double[] a1;
+    private final double[] a2;
+
+    private final double[] s1;
+    private final double[] s2;
+
+    private final double[] outputs;
+
+    /**
+     * @param minFreqs lower edges of the pass bands in Hz
+     * @param maxFreqs upper edges of the pass bands in Hz
+     */
+    public FilterBank(double sampleRate, double[] minFreqs, double[] maxFreqs) {
+        if (minFreqs.length != maxFreqs.length) {
+            throw new IllegalArgumentException("Got %d lower and %d upper frequencies".formatted(minFreqs.length, maxFreqs.length));
+        }
+
+        bands = minFreqs.length;
+        bandStart = new int[bands + 1];
+
+        double[][] designs = new double[bands][];
+        for (int band = 0; band < bands; band++) {
+            designs[band] = getCoefficients(sampleRate, minFreqs[band], maxFreqs[band]);
+            bandStart[band + 1] = bandStart[band] + designs[band].length / 5;
+        }
+
+        int stages = bandStart[bands];
+        b0 = new double[stages];
+        b1 = new double[stages];
+        b2 = new double[stages];
+        a1 = new double[stages];
+        a2 = new double[stages];
+        s1 = new double[stages];
+        s2 = new double[stages];
+        outputs = new double[bands];
+
+        for (int band = 0; band < bands; band++) {
+            double[] design = designs[band];
+            for (int i = 0; i < design.length / 5; i++) {
+                int stage = bandStart[band] + i;
+                b0[stage] = design[i * 5];
+                b1[stage] = design[i * 5 + 1];
+                b2[stage] = design[i * 5 + 2];
+                a1[stage] = design[i * 5 + 3];
+                a2[stage] = design[i * 5 + 4];
+            }
+        }
+    }
+
+    /**
+     * @return normalized coefficients b0, b1, b2, a1, a2 of each biquad of the band
+     */
+    private static double[] getCoefficients(double sampleRate, double minFreq, double maxFreq) {
+        return coefficientsCache.computeIfAbsent(new BandDesign(sampleRate, minFreq, maxFreq), design -> {
+            Butterworth butterworth = new Butterworth();
+            butterworth.bandPass(ORDER, sampleRate, (minFreq + maxFreq) * 0.5, (maxFreq - minFreq));
+
+            double[] result = new double[butterworth.getNumBiquads() * 5];
+            for (int i = 0; i < butterworth.getNumBiquads(); i++) {
+                Biquad biquad = butterworth.getBiquad(i);
+                double a0 = biquad.getA0();
+                result[i * 5] = biquad.getB0() / a0;
+                result[i * 5 + 1] = biquad.getB1() / a0;
+                result[i * 5 + 2] = biquad.getB2() / a0;
+                result[i * 5 + 3] = biquad.getA1() / a0;
+                result[i * 5 + 4] = biquad.getA2() / a0;
+            }
+
+            return result;
+        });
+    }
+
+    /**
+     * Filters one sample by all the bands, the results are available through {@link #getOutput(int)}
+     */
+    public void accept(double in) {
+        for (int band = 0; band < bands; band++) {
+            double value = in;
+            for (int stage = bandStart[band]; stage < bandStart[band + 1]; stage++) {
+                double out = b0[stage] * value + s1[stage];
+                s1[stage] = b1[stage] * value - a1[stage] * out + s2[stage];
+                s2[stage] = b2[stage] * value - a2[stage] * out;
+                value = out;
+            }
+            outputs[band] = value;
+        }
+    }
+
+    /**
+     * Filters a block of samples by all the bands
+     *
+     * @param out one array per band, the filtered samples are written to the same positions as in the input
+     */
+    public void process(double[] in, int offset, int length, double[][] out) {
+        if (length <= 0) {
+            return;
+        }
+
+        for (int band = 0; band < bands; band++) {
+            if (bandStart[band + 1] - bandStart[band] == ORDER) {
+                processBand(in, offset, length, out[band], bandStart[band]);
+            } else {
+                processStages(in, offset, length, out[band], bandStart[band], bandStart[band + 1]);
+            }
+
+            outputs[band] = out[band][offset + length - 1];
+        }
+    }
+
+    /**
+     * Band-pass of order 3 is a chain of three biquads, they are run together so that the state stays in registers
+     */
+    private void processBand(double[] in, int offset, int length, double[] out, int stage) {
+        double b00 = b0[stage], b10 = b1[stage], b20 = b2[stage], a10 = a1[stage], a20 = a2[stage];
+        double b01 = b0[stage + 1], b11 = b1[stage + 1], b21 = b2[stage + 1], a11 = a1[stage + 1], a21 = a2[stage + 1];
+        double b02 = b0[stage + 2], b12 = b1[stage + 2], b22 = b2[stage + 2], a12 = a1[stage + 2], a22 = a2[stage + 2];
+
+        double s10 = s1[stage], s20 = s2[stage];
+        double s11 = s1[stage + 1], s21 = s2[stage + 1];
+        double s12 = s1[stage + 2], s22 = s2[stage + 2];
+
+        for (int i = offset; i < offset + length; i++) {
+            double x = in[i];
+
+            double y0 = b00 * x + s10;
+            s10 = b10 * x - a10 * y0 + s20;
+            s20 = b20 * x - a20 * y0;
+
+            double y1 = b01 * y0 + s11;
+            s11 = b11 * y0 - a11 * y1 + s21;
+            s21 = b21 * y0 - a21 * y1;
+
+            double y2 = b02 * y1 + s12;
+            s12 = b12 * y1 - a12 * y2 + s22;
+            s22 = b22 * y1 - a22 * y2;
+
+            out[i] = y2;
+        }
+
+        s1[stage] = s10;
+        s2[stage] = s20;
+        s1[stage + 1] = s11;
+        s2[stage + 1] = s21;
+        s1[stage + 2] = s12;
+        s2[stage + 2] = s22;
+    }
+
+    private void processStages(double[] in, int offset, int length, double[] out, int firstStage, int endStage) {
+        System.arraycopy(in, offset, out, offset, length);
+
+        for (int stage = firstStage; stage < endStage; stage++) {
+            double _b0 = b0[stage];
+            double _b1 = b1[stage];
+            double _b2 = b2[stage];
+            double _a1 = a1[stage];
+            double _a2 = a2[stage];
+            double _s1 = s1[stage];
+            double _s2 = s2[stage];
+
+            for (int i = offset; i < offset + length; i++) {
+                double x = out[i];
+                double y = _b0 * x + _s1;
+                _s1 = _b1 * x - _a1 * y + _s2;
+                _s2 = _b2 * x - _a2 * y;
+                out[i] = y;
+            }
+
+            s1[stage] = _s1;
+            s2[stage] = _s2;
+        }
+    }
+
+    public double getOutput(int band) {
+        return outputs[band];
+    }
+
+    public int getBands() {
+        return bands;
+    }
+
+    public void reset() {
+        Arrays.fill(s1, 0.0);
+        Arrays.fill(s2, 0.0);
+        Arrays.fill(outputs, 0.0);
+    }
+}
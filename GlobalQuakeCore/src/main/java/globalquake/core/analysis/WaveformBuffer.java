@@ -1,9 +1,18 @@
 package globalquake.core.analysis;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
+/**
+ * Ring buffer of the analysed samples of one station. The samples are kept off-heap in direct buffers,
+ * one record (time + computed values) per slot. Short-lived copies made by {@link #extract} use heap buffers instead,
+ * so that their memory is reclaimed by a regular collection and not only when the direct memory runs out.
+ * Raw values are stored separately, by default as 16-bit differences from the first value of each block
+ * of {@link #RAW_BLOCK} slots, and the whole raw store switches to plain 32-bit values as soon as a value does not fit.
+ */
 public class WaveformBuffer {
     public static final int COMPUTED_COUNT_CLIENT = 4;
     public static final int COMPUTED_COUNT_SERVER = 3;
@@ -12,35 +21,57 @@ public class WaveformBuffer {
     public static final int SPECIAL_RATIO = 2;
     public static final int FILTERED_VALUE = 3;
     private static final int TIME_REF_LIMIT = 2_000_000_000;
+
+    public static final int RAW_BLOCK = 64;
+
+    public static boolean compressRawValues = true;
+
+    // heap storage only for comparison, see the footprint measurement in the benchmarks
+    public static boolean directMemory = true;
+
     private final double sps;
     private final Lock readLock;
     private final Lock writeLock;
     private final boolean server;
+    private final boolean direct;
+    private final int stride;
     private int size;
     private long lastLog;
-    private int[] rawValues;
-    private int[] times;
-    private float[][] computed;
+
+    private ByteBuffer records;
+
+    private ByteBuffer rawValues;
+    private boolean rawCompressed;
+    private int[] rawBlockBases;
 
     private int nextFreeSlot;
     private int oldestDataSlot;
     private long timeReference = Long.MIN_VALUE;
 
+    // sequence numbers of the oldest stored sample and of the next sample, used to validate views
+    private long firstSequence;
+    private long nextSequence;
+
     public WaveformBuffer(double sps, int seconds, boolean server) {
+        this(server, sps, (int) Math.ceil(seconds * sps), directMemory);
+    }
+
+    private WaveformBuffer(boolean server, double sps, int size, boolean direct) {
         this.server = server;
+        this.direct = direct;
         this.sps = sps;
-        this.size = (int) Math.ceil(seconds * sps);
+        this.size = size;
 
         if (size <= 0) {
             throw new IllegalArgumentException("Wavefor buffer size must be positive!");
         }
 
+        this.stride = (1 + getComputedCount()) * Integer.BYTES;
+        this.records = allocate(size * stride);
         if (!isServer()) {
-            rawValues = new int[size];
+            allocateRaw(size, compressRawValues);
         }
 
-        times = new int[size];
-        computed = new float[getComputedCount()][size];
         this.lastLog = Long.MIN_VALUE;
         this.nextFreeSlot = 0;
         this.oldestDataSlot = 0;
@@ -50,6 +81,21 @@ public class WaveformBuffer {
         this.writeLock = readWriteLock.writeLock();
     }
 
+    private ByteBuffer allocate(int bytes) {
+        return (direct ? ByteBuffer.allocateDirect(bytes) : ByteBuffer.allocate(bytes)).order(ByteOrder.nativeOrder());
+    }
+
+    private void allocateRaw(int size, boolean compressed) {
+        rawCompressed = compressed;
+        if (compressed) {
+            rawValues = allocate(size * Short.BYTES);
+            rawBlockBases = new int[(size + RAW_BLOCK - 1) / RAW_BLOCK];
+        } else {
+            rawValues = allocate(size * Integer.BYTES);
+            rawBlockBases = null;
+        }
+    }
+
     private void log(long time, int rawValue, float filteredV, float ratio, float mediumRatio, float specialRatio, boolean expand) {
         if (time <= lastLog) {
             return;
@@ -59,8 +105,8 @@ public class WaveformBuffer {
         }
 
         if (!isServer()) {
-            rawValues[nextFreeSlot] = rawValue;
-            computed[FILTERED_VALUE][nextFreeSlot] = filteredV;
+            storeRaw(nextFreeSlot, rawValue);
+            setComputed(FILTERED_VALUE, nextFreeSlot, filteredV);
         }
 
         if (timeReference == Long.MIN_VALUE) {
@@ -74,19 +120,114 @@ public class WaveformBuffer {
             deltaT = (int) (time - timeReference);
         }
 
-        times[nextFreeSlot] = deltaT;
+        records.putInt(nextFreeSlot * stride, deltaT);
 
-        computed[RATIO][nextFreeSlot] = ratio;
-        computed[MEDIUM_RATIO][nextFreeSlot] = mediumRatio;
-        computed[SPECIAL_RATIO][nextFreeSlot] = specialRatio;
+        setComputed(RATIO, nextFreeSlot, ratio);
+        setComputed(MEDIUM_RATIO, nextFreeSlot, mediumRatio);
+        setComputed(SPECIAL_RATIO, nextFreeSlot, specialRatio);
 
         if (nextFreeSlot == oldestDataSlot && !isEmpty()) {
             oldestDataSlot = (oldestDataSlot + 1) % size;
+            firstSequence++;
         }
         nextFreeSlot = (nextFreeSlot + 1) % size;
+        nextSequence++;
         lastLog = time;
     }
 
+    private void setComputed(int type, int index, float value) {
+        records.putFloat(index * stride + (1 + type) * Float.BYTES, value);
+    }
+
+    private void storeRaw(int slot, int value) {
+        if (!rawCompressed) {
+            rawValues.putInt(slot * Integer.BYTES, value);
+            return;
+        }
+
+        int block = slot / RAW_BLOCK;
+        if (slot % RAW_BLOCK == 0) {
+            // the block starts again, older samples that are still stored in it are moved to the new base
+            int oldBase = rawBlockBases[block];
+            int end = Math.min(size, (block + 1) * RAW_BLOCK);
+            for (int other = slot + 1; other < end; other++) {
+                if (isStored(other)) {
+                    long delta = (long) oldBase + rawValues.getShort(other * Short.BYTES) - value;
+                    if (delta < Short.MIN_VALUE || delta > Short.MAX_VALUE) {
+                        decompressRaw();
+                        storeRaw(slot, value);
+                        return;
+                    }
+                }
+            }
+
+            for (int other = slot + 1; other < end; other++) {
+                if (isStored(other)) {
+                    rawValues.putShort(other * Short.BYTES, (short) (oldBase + rawValues.getShort(other * Short.BYTES) - value));
+                }
+            }
+
+            rawBlockBases[block] = value;
+        }
+
+        long delta = (long) value - rawBlockBases[block];
+        if (delta < Short.MIN_VALUE || delta > Short.MAX_VALUE) {
+            decompressRaw();
+            storeRaw(slot, value);
+            return;
+        }
+
+        rawValues.putShort(slot * Short.BYTES, (short) delta);
+    }
+
+    private boolean isStored(int slot) {
+        long count = getStoredCount();
+        if (count == 0) {
+            return false;
+        }
+        return (slot - oldestDataSlot + size) % size < count;
+    }
+
+    private void decompressRaw() {
+        int[] values = new int[size];
+        for (int slot = 0; slot < size; slot++) {
+            values[slot] = getRaw(slot);
+        }
+
+        allocateRaw(size, false);
+        for (int slot = 0; slot < size; slot++) {
+            rawValues.putInt(slot * Integer.BYTES, values[slot]);
+        }
+    }
+
+    /**
+     * Stores raw values of consecutive slots into freshly allocated raw storage
+     */
+    private void encodeRaw(int[] values, int count, int firstSlot) {
+        if (rawCompressed) {
+            for (int i = 0; i < count; i++) {
+                int slot = firstSlot + i;
+                int block = slot / RAW_BLOCK;
+                if (i == 0 || slot % RAW_BLOCK == 0) {
+                    rawBlockBases[block] = values[i];
+                }
+
+                long delta = (long) values[i] - rawBlockBases[block];
+                if (delta < Short.MIN_VALUE || delta > Short.MAX_VALUE) {
+                    allocateRaw(size, false);
+                    encodeRaw(values, count, firstSlot);
+                    return;
+                }
+
+                rawValues.putShort(slot * Short.BYTES, (short) delta);
+            }
+        } else {
+            for (int i = 0; i < count; i++) {
+                rawValues.putInt((firstSlot + i) * Integer.BYTES, values[i]);
+            }
+        }
+    }
+
     private void changeReference() {
         if (isEmpty()) {
             return;
@@ -94,8 +235,8 @@ public class WaveformBuffer {
         long oldestTime = getTime(getOldestDataSlot());
 
         int index = getOldestDataSlot();
-        while (index != getNextSlot()) {
-            times[index] = (int) (getTime(index) - oldestTime);
+        for (long i = 0; i < getStoredCount(); i++) {
+            records.putInt(index * stride, (int) (getTime(index) - oldestTime));
             index = (index + 1) % size;
         }
 
@@ -113,41 +254,40 @@ public class WaveformBuffer {
     }
 
     private void _resize(int new_size) {
-        boolean server = isServer();
-        int[] new_times = new int[new_size];
-        int[] new_rawValues = server ? null : new int[new_size];
-        float[][] new_computed = new float[getComputedCount()][new_size];
-
-        int i2 = 0;
-        for (int step = 0; step < Math.min(size, new_size); step++) {
-            i2 -= 1;
-            if (i2 < 0) {
-                i2 = new_size - 1;
-            }
-
-            nextFreeSlot -= 1;
-            if (nextFreeSlot < 0) {
-                nextFreeSlot = size - 1;
-            }
+        int count = (int) Math.min(getStoredCount(), new_size);
+        int firstSlot = new_size - count;
 
-            new_times[i2] = times[nextFreeSlot];
+        // the newest samples are kept
+        int first = (getNewestDataSlot() - count + 1 + size) % size;
+        ByteBuffer newRecords = allocate(new_size * stride);
+        copyRecords(records, first, size, newRecords, firstSlot, count);
 
-            if (!server) {
-                new_rawValues[i2] = rawValues[nextFreeSlot];
-            }
-
-            for (int i = 0; i < getComputedCount(); i++) {
-                new_computed[i][i2] = computed[i][nextFreeSlot];
+        int[] raws = null;
+        if (!isServer()) {
+            raws = new int[count];
+            for (int i = 0; i < count; i++) {
+                raws[i] = getRaw((first + i) % size);
             }
         }
 
-        this.rawValues = new_rawValues;
-        this.computed = new_computed;
-        this.times = new_times;
+        this.records = newRecords;
+        this.size = new_size;
+        if (raws != null) {
+            allocateRaw(new_size, compressRawValues);
+            encodeRaw(raws, count, firstSlot);
+        }
 
-        this.oldestDataSlot = i2;
+        this.oldestDataSlot = firstSlot % new_size;
         this.nextFreeSlot = 0;
-        this.size = new_size;
+        this.firstSequence = nextSequence - count;
+    }
+
+    private void copyRecords(ByteBuffer source, int first, int sourceSize, ByteBuffer target, int targetSlot, int count) {
+        int firstPart = Math.min(count, sourceSize - first);
+        target.put(targetSlot * stride, source, first * stride, firstPart * stride);
+        if (count > firstPart) {
+            target.put((targetSlot + firstPart) * stride, source, 0, (count - firstPart) * stride);
+        }
     }
 
     private int getComputedCount() {
@@ -162,6 +302,10 @@ public class WaveformBuffer {
         return lastLog == Long.MIN_VALUE;
     }
 
+    private long getStoredCount() {
+        return nextSequence - firstSequence;
+    }
+
     public int getNextSlot() {
         return nextFreeSlot;
     }
@@ -171,15 +315,18 @@ public class WaveformBuffer {
     }
 
     public long getTime(int index) {
-        return timeReference + times[index];
+        return timeReference + records.getInt(index * stride);
     }
 
     public int getRaw(int index) {
-        return rawValues[index];
+        if (rawCompressed) {
+            return rawBlockBases[index / RAW_BLOCK] + rawValues.getShort(index * Short.BYTES);
+        }
+        return rawValues.getInt(index * Integer.BYTES);
     }
 
     public float getComputed(int type, int index) {
-        return computed[type][index];
+        return records.getFloat(index * stride + (1 + type) * Float.BYTES);
     }
 
     public double getMediumRatio(int index) {
@@ -202,11 +349,11 @@ public class WaveformBuffer {
         }
         return new Log(
                 getTime(index),
-                isServer() ? 0 : rawValues[index],
-                isServer() ? 0 : computed[FILTERED_VALUE][index],
-                computed[RATIO][index],
-                computed[MEDIUM_RATIO][index],
-                computed[SPECIAL_RATIO][index]);
+                getRaw(index),
+                getComputed(FILTERED_VALUE, index),
+                getComputed(RATIO, index),
+                getComputed(MEDIUM_RATIO, index),
+                getComputed(SPECIAL_RATIO, index));
     }
 
     public Lock getReadLock() {
@@ -222,6 +369,17 @@ public class WaveformBuffer {
         return res >= 0 ? res : size - 1;
     }
 
+    /**
+     * @return number of bytes of the sample storage, off-heap unless {@link #directMemory} was turned off
+     */
+    public long getAllocatedBytes() {
+        return records.capacity() + (rawValues == null ? 0 : rawValues.capacity());
+    }
+
+    public boolean isRawCompressed() {
+        return rawCompressed;
+    }
+
     public WaveformBuffer extract(long start, long end) {
         int seconds = (int) Math.ceil((end - start) / 1000.0);
         if (seconds <= 0) {
@@ -231,30 +389,39 @@ public class WaveformBuffer {
         // additional space
         seconds = (int) (seconds * 1.4);
 
-        WaveformBuffer result = new WaveformBuffer(sps, seconds, server);
-
         if (isEmpty()) {
-            return result;
+            return new WaveformBuffer(server, sps, (int) Math.ceil(seconds * sps), false);
         }
 
-        int closest = getClosestIndex(start);
-        long time = getTime(closest);
-
-        while (closest != getNextSlot() && time <= end) {
-            result.log(
-                    time,
-                    isServer() ? 0 : getRaw(closest),
-                    isServer() ? 0 : getComputed(FILTERED_VALUE, closest),
-                    getComputed(RATIO, closest),
-                    getComputed(MEDIUM_RATIO, closest),
-                    getComputed(SPECIAL_RATIO, closest),
-                    true);
+        View view = view(start, end);
+        int count = view.size();
+        // grows the same way as if the samples were logged one by one with expand
+        int resultSize = (int) Math.ceil(seconds * sps);
+        while (resultSize < count) {
+            resultSize *= 2;
+        }
 
-            closest = (closest + 1) % size;
+        WaveformBuffer result = new WaveformBuffer(server, sps, resultSize, false);
+        if (count == 0) {
+            return result;
+        }
 
-            time = getTime(closest);
+        int first = view.slot(0);
+        copyRecords(records, first, size, result.records, 0, count);
+        if (!isServer()) {
+            int[] raws = new int[count];
+            for (int i = 0; i < count; i++) {
+                raws[i] = getRaw((first + i) % size);
+            }
+            result.encodeRaw(raws, count, 0);
         }
 
+        result.timeReference = timeReference;
+        result.lastLog = view.getTime(count - 1);
+        result.nextSequence = count;
+        result.nextFreeSlot = count % result.size;
+        result.oldestDataSlot = 0;
+
         return result;
     }
 
@@ -280,6 +447,33 @@ public class WaveformBuffer {
         return high % size;
     }
 
+    /**
+     * @return read-only view of all the stored samples
+     */
+    public View view() {
+        return new View(firstSequence, (int) getStoredCount());
+    }
+
+    /**
+     * @return read-only view of the samples from the one closest to start up to end, same range as {@link #extract}
+     */
+    public View view(long start, long end) {
+        if (isEmpty()) {
+            return new View(nextSequence, 0);
+        }
+
+        int closest = getClosestIndex(start);
+        long first = firstSequence + (closest - oldestDataSlot + size) % size;
+        int count = 0;
+        int index = closest;
+        while (first + count < nextSequence && getTime(index) <= end) {
+            count++;
+            index = (index + 1) % size;
+        }
+
+        return new View(first, count);
+    }
+
     public boolean isServer() {
         return server;
     }
@@ -290,4 +484,66 @@ public class WaveformBuffer {
             _resize(_size);
         }
     }
+
+    /**
+     * Range of samples that reads directly from the buffer without copying. The buffer read lock has to be held
+     * while reading and the view becomes invalid once its samples are overwritten or removed by a resize.
+     */
+    public class View {
+
+        private final long firstSequence;
+        private final int count;
+
+        private View(long firstSequence, int count) {
+            this.firstSequence = firstSequence;
+            this.count = count;
+        }
+
+        public int size() {
+            return count;
+        }
+
+        public boolean isValid() {
+            return firstSequence >= WaveformBuffer.this.firstSequence && firstSequence + count <= nextSequence;
+        }
+
+        /**
+         * @return slot of the i-th sample in the underlying buffer
+         */
+        public int slot(int i) {
+            long sequence = firstSequence + i;
+            if (i < 0 || i >= count || sequence < WaveformBuffer.this.firstSequence || sequence >= nextSequence) {
+                throw new IllegalStateException("Sample %d is no longer stored in the waveform buffer!".formatted(i));
+            }
+            return (int) ((oldestDataSlot + (sequence - WaveformBuffer.this.firstSequence)) % size);
+        }
+
+        public long getTime(int i) {
+            return WaveformBuffer.this.getTime(slot(i));
+        }
+
+        public int getRaw(int i) {
+            return WaveformBuffer.this.getRaw(slot(i));
+        }
+
+        public float getComputed(int type, int i) {
+            return WaveformBuffer.this.getComputed(type, slot(i));
+        }
+
+        public double getRatio(int i) {
+            return getComputed(RATIO, i);
+        }
+
+        public double getMediumRatio(int i) {
+            return getComputed(MEDIUM_RATIO, i);
+        }
+
+        public double getSpecialRatio(int i) {
+            return getComputed(SPECIAL_RATIO, i);
+        }
+
+        public Log toLog(int i) {
+            return WaveformBuffer.this.toLog(slot(i));
+        }
+    }
 }
@@ -0,0 +1,140 @@
+package globalquake.core.analysis;
+
+import java.util.Arrays;
+
+/**
+ * Samples of one station reduced to the minimum and maximum of every plotted value in every pixel column.
+ * The columns are a ring indexed by the absolute column number, time / millis per column, so they stay valid while
+ * the plot scrolls and only the samples that arrived since the last call are read from the waveform buffer.
+ * A column covers the segments that end in it, including the one from the last sample of the previous column,
+ * so that the plotted line stays continuous. Segments across a gap are left out.
+ * Used by the station monitor, which draws one vertical line per column.
+ */
+public final class WaveformColumns {
+
+    public static final int RAW = 0;
+    public static final int FILTERED = 1;
+    public static final int RATIO = 2;
+    public static final int MEDIUM_RATIO = 3;
+    public static final int SPECIAL_RATIO = 4;
+    public static final int VALUES = 5;
+
+    private final int capacity;
+    private final double millisPerColumn;
+
+    private final long[] columnIds;
+    private final float[] min;
+    private final float[] max;
+
+    private WaveformBuffer source;
+    private long lastTime = Long.MIN_VALUE;
+    private final float[] lastValues = new float[VALUES];
+
+    public WaveformColumns(int capacity, double millisPerColumn) {
+        this.capacity = capacity;
+        this.millisPerColumn = millisPerColumn;
+        columnIds = new long[capacity];
+        min = new float[capacity * VALUES];
+        max = new float[capacity * VALUES];
+        clear();
+    }
+
+    private void clear() {
+        Arrays.fill(columnIds, Long.MIN_VALUE);
+        lastTime = Long.MIN_VALUE;
+    }
+
+    public double getMillisPerColumn() {
+        return millisPerColumn;
+    }
+
+    public long getColumn(long time) {
+        return (long) Math.floor(time / millisPerColumn);
+    }
+
+    /**
+     * Reads the samples that are newer than the last call. The caller must hold the read lock of the buffer.
+     *
+     * @return first column that changed, or Long.MAX_VALUE if there were no new samples
+     */
+    public long update(WaveformBuffer buffer, double sampleRate) {
+        if (buffer != source) {
+            source = buffer;
+            clear();
+        }
+
+        if (buffer == null || buffer.isEmpty()) {
+            return Long.MAX_VALUE;
+        }
+
+        WaveformBuffer.View view = lastTime == Long.MIN_VALUE ? buffer.view() : buffer.view(lastTime, Long.MAX_VALUE);
+        double gap = (1000.0 / sampleRate) * 2;
+        long firstChanged = Long.MAX_VALUE;
+
+        for (int i = 0; i < view.size(); i++) {
+            long time = view.getTime(i);
+            if (time <= lastTime) {
+                continue;
+            }
+
+            long column = getColumn(time);
+            int slot = (int) Math.floorMod(column, capacity);
+            if (columnIds[slot] != column) {
+                columnIds[slot] = column;
+                Arrays.fill(min, slot * VALUES, (slot + 1) * VALUES, Float.NaN);
+                Arrays.fill(max, slot * VALUES, (slot + 1) * VALUES, Float.NaN);
+            }
+
+            // the segment from the previous sample is drawn in this column
+            boolean connected = lastTime != Long.MIN_VALUE && time - lastTime <= gap;
+            if (connected) {
+                include(slot, lastValues);
+            }
+
+            lastValues[RAW] = view.getRaw(i);
+            lastValues[FILTERED] = view.getComputed(WaveformBuffer.FILTERED_VALUE, i);
+            lastValues[RATIO] = view.getComputed(WaveformBuffer.RATIO, i);
+            lastValues[MEDIUM_RATIO] = view.getComputed(WaveformBuffer.MEDIUM_RATIO, i);
+            lastValues[SPECIAL_RATIO] = view.getComputed(WaveformBuffer.SPECIAL_RATIO, i);
+
+            if (connected) {
+                include(slot, lastValues);
+                firstChanged = Math.min(firstChanged, column);
+            }
+
+            lastTime = time;
+        }
+
+        return firstChanged;
+    }
+
+    private void include(int slot, float[] values) {
+        for (int value = 0; value < VALUES; value++) {
+            int index = slot * VALUES + value;
+            float v = values[value];
+            if (Float.isNaN(min[index])) {
+                min[index] = v;
+                max[index] = v;
+            } else {
+                min[index] = Math.min(min[index], v);
+                max[index] = Math.max(max[index], v);
+            }
+        }
+    }
+
+    /**
+     * @return true if the column has at least one line segment to draw
+     */
+    public boolean hasData(long column) {
+        int slot = (int) Math.floorMod(column, capacity);
+        return columnIds[slot] == column && !Float.isNaN(min[slot * VALUES]);
+    }
+
+    public float getMin(long column, int value) {
+        return min[(int) Math.floorMod(column, capacity) * VALUES + value];
+    }
+
+    public float getMax(long column, int value) {
+        return max[(int) Math.floorMod(column, capacity) * VALUES + value];
+    }
+}
@@ -2,12 +2,13 @@ package globalquake.core.analysis;
 
 import gqserver.api.packets.station.InputType;
 import org.tinylog.Logger;
-import uk.me.berndporr.iirj.Butterworth;
 
+/**
+ * Converts the output of one {@link FilterBank} band to velocity
+ */
 public class WaveformTransformator {
 
     public static final double DEFAULT_SENSITIVITY = 1E9;
-    private final Butterworth filter;
     private final double sensitivity;
     private final double sampleRate;
     private final InputType inputType;
@@ -17,7 +18,7 @@ public class WaveformTransformator {
 
     private double valueDerived;
 
-    public WaveformTransformator(double minFreq, double maxFreq, double sensitivity, double sampleRate, InputType inputType) {
+    public WaveformTransformator(double sensitivity, double sampleRate, InputType inputType) {
         if (sensitivity <= 0) {
             Logger.warn("Defaulting sensitivity from %.1f to %.1f!".formatted(sensitivity, DEFAULT_SENSITIVITY));
             sensitivity = DEFAULT_SENSITIVITY;
@@ -25,13 +26,14 @@ public class WaveformTransformator {
         this.inputType = inputType;
         this.sensitivity = sensitivity;
         this.sampleRate = sampleRate;
-        filter = new Butterworth();
-        filter.bandPass(3, sampleRate, (minFreq + maxFreq) * 0.5, (maxFreq - minFreq));
     }
 
-    public void accept(double in) {
+    /**
+     * @param filtered next sample that was already filtered by the band
+     */
+    public void accept(double filtered) {
         lastValue = currentValue;
-        currentValue = filter.filter(in);
+        currentValue = filtered;
 
         valueIntegrated += currentValue / sampleRate;
         valueIntegrated *= 0.999;
@@ -57,7 +59,6 @@ public class WaveformTransformator {
     }
 
     public void reset() {
-        filter.reset();
         lastValue = 0.0;
         currentValue = 0.0;
         valueIntegrated = 0.0;
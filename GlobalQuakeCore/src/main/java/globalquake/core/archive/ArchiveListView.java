@@ -0,0 +1,197 @@
+package globalquake.core.archive;
+
+import globalquake.core.Settings;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.IntSupplier;
+import java.util.function.Predicate;
+
+/**
+ * Archived quakes that pass the display filters, newest first.
+ * The quality and magnitude filters are evaluated for the whole archive only when the settings change, quakes archived
+ * in the meantime are inserted one by one from {@link #onArchived(ArchivedQuake)}. The time filter is a binary search
+ * for the oldest displayed origin time.
+ * <p>
+ * Every insert and every drop of the archive counts as one modification, see {@link EarthquakeArchive#getModifications()}.
+ * The view keeps a copy of the whole archive in the same order, so the oldest quakes the archive drops when it is full
+ * are removed from its end. If the modifications do not add up to the announced inserts and those drops, for example
+ * because a quake was archived without an event, or the oldest remaining quakes differ, the view is rebuilt.
+ * Only {@link #onArchived(ArchivedQuake)} may be called from other threads than the one reading the view.
+ */
+public class ArchiveListView {
+
+    private static final Comparator<ArchivedQuake> NEWEST_FIRST = Comparator.comparingLong(ArchivedQuake::getOrigin).reversed();
+
+    private final List<ArchivedQuake> source;
+    private final IntSupplier modifications;
+    private final Predicate<ArchivedQuake> filter;
+    private final IntSupplier settingsRevision;
+    private final List<ArchivedQuake> all = new ArrayList<>();
+    private final List<ArchivedQuake> filtered = new ArrayList<>();
+    private final Queue<ArchivedQuake> pending = new ConcurrentLinkedQueue<>();
+
+    private boolean valid = false;
+    private int settingsChanges;
+    private int seenModifications;
+
+    /**
+     * @param modifications number of inserts and drops of the source so far
+     */
+    public ArchiveListView(List<ArchivedQuake> source, IntSupplier modifications) {
+        this(source, modifications, ArchivedQuake::matchesQualityAndMagnitudeFilter, () -> Settings.changes);
+    }
+
+    ArchiveListView(List<ArchivedQuake> source, IntSupplier modifications, Predicate<ArchivedQuake> filter, IntSupplier settingsRevision) {
+        this.source = source;
+        this.modifications = modifications;
+        this.filter = filter;
+        this.settingsRevision = settingsRevision;
+    }
+
+    /**
+     * Notifies the view that the quake was added to the archive
+     */
+    public void onArchived(ArchivedQuake archivedQuake) {
+        pending.add(archivedQuake);
+    }
+
+    /**
+     * @param oldestOrigin origin time of the oldest displayed quake, see {@link ArchivedQuake#getOldestDisplayedOrigin(long)}
+     * @return the displayed quakes, newest first. The list is valid until the next call
+     */
+    public List<ArchivedQuake> getDisplayed(long oldestOrigin) {
+        if (source == null) {
+            return List.of();
+        }
+
+        sync();
+        return Collections.unmodifiableList(filtered.subList(0, countNotOlderThan(oldestOrigin)));
+    }
+
+    private void sync() {
+        if (!valid || settingsRevision.getAsInt() != settingsChanges) {
+            rebuild();
+            return;
+        }
+
+        // read before the events and the size, a modification in between then shows up as a mismatch
+        int current = modifications.getAsInt();
+        if (current == seenModifications && pending.isEmpty()) {
+            return;
+        }
+
+        int expected = seenModifications;
+        ArchivedQuake archivedQuake;
+        while ((archivedQuake = pending.poll()) != null) {
+            if (insert(archivedQuake)) {
+                expected++;
+            }
+        }
+
+        int drops = all.size() - source.size();
+        if (drops < 0 || expected + drops != current) {
+            rebuild();
+            return;
+        }
+
+        for (int i = 0; i < drops; i++) {
+            ArchivedQuake dropped = all.remove(all.size() - 1);
+            if (!filtered.isEmpty() && filtered.get(filtered.size() - 1) == dropped) {
+                filtered.remove(filtered.size() - 1);
+            }
+        }
+
+        // something else than the oldest quakes was removed
+        if (drops > 0 && !all.isEmpty() && all.get(all.size() - 1) != getOldest()) {
+            rebuild();
+            return;
+        }
+
+        seenModifications = current;
+    }
+
+    private ArchivedQuake getOldest() {
+        try {
+            return source.get(source.size() - 1);
+        } catch (IndexOutOfBoundsException e) {
+            // modified concurrently
+            return null;
+        }
+    }
+
+    private void rebuild() {
+        pending.clear();
+        settingsChanges = settingsRevision.getAsInt();
+        seenModifications = modifications.getAsInt();
+
+        // one consistent copy, the archive can be modified concurrently
+        ArchivedQuake[] copy = source.toArray(new ArchivedQuake[0]);
+
+        all.clear();
+        filtered.clear();
+        Collections.addAll(all, copy);
+        all.sort(NEWEST_FIRST);
+        for (ArchivedQuake archivedQuake : all) {
+            if (filter.test(archivedQuake)) {
+                filtered.add(archivedQuake);
+            }
+        }
+
+        valid = true;
+    }
+
+    /**
+     * Inserts the quake in front of the quakes with the same origin time, where the archive puts it
+     *
+     * @return false if the view already contains the quake, because it was rebuilt before the event arrived
+     */
+    private boolean insert(ArchivedQuake archivedQuake) {
+        long origin = archivedQuake.getOrigin();
+        int index = countNewerThan(all, origin);
+        for (int i = index; i < all.size() && all.get(i).getOrigin() == origin; i++) {
+            if (all.get(i) == archivedQuake) {
+                return false;
+            }
+        }
+
+        all.add(index, archivedQuake);
+        if (filter.test(archivedQuake)) {
+            filtered.add(countNewerThan(filtered, origin), archivedQuake);
+        }
+        return true;
+    }
+
+    private static int countNewerThan(List<ArchivedQuake> quakes, long origin) {
+        int low = 0;
+        int high = quakes.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (quakes.get(mid).getOrigin() > origin) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+
+        return low;
+    }
+
+    /**
+     * @return number of filtered quakes with origin time not older than the given one
+     */
+    private int countNotOlderThan(long origin) {
+        int low = 0;
+        int high = filtered.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (filtered.get(mid).getOrigin() >= origin) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+
+        return low;
+    }
+}
@@ -184,15 +184,29 @@ public class ArchivedQuake implements Serializable, Comparable<ArchivedQuake>, R
     }
 
     public boolean shouldBeDisplayed() {
+        return matchesQualityAndMagnitudeFilter() && getOrigin() >= getOldestDisplayedOrigin(GlobalQuake.instance.currentTimeMillis());
+    }
+
+    /**
+     * The filters that do not depend on the current time, their result changes only with the settings
+     */
+    public boolean matchesQualityAndMagnitudeFilter() {
         if (qualityClass.ordinal() > Settings.qualityFilter) {
             return false;
         }
 
-        if (Settings.oldEventsMagnitudeFilterEnabled && getMag() < Settings.oldEventsMagnitudeFilter) {
-            return false;
+        return !Settings.oldEventsMagnitudeFilterEnabled || getMag() >= Settings.oldEventsMagnitudeFilter;
+    }
+
+    /**
+     * @return origin time of the oldest event that passes the time filter
+     */
+    public static long getOldestDisplayedOrigin(long currentTime) {
+        if (!Settings.oldEventsTimeFilterEnabled) {
+            return Long.MIN_VALUE;
         }
 
-        return !Settings.oldEventsTimeFilterEnabled || !((GlobalQuake.instance.currentTimeMillis() - getOrigin()) > 1000 * 60 * 60L * Settings.oldEventsTimeFilter);
+        return currentTime - (long) (1000 * 60 * 60L * Settings.oldEventsTimeFilter);
     }
 
     public long getFinalUpdateMillis() {
@@ -5,6 +5,7 @@ import globalquake.core.Settings;
 import globalquake.core.earthquake.data.Earthquake;
 import globalquake.core.events.specific.QuakeArchiveEvent;
 import globalquake.core.report.EarthquakeReporter;
+import globalquake.core.report.ReportPipeline;
 import globalquake.utils.monitorable.MonitorableCopyOnWriteArrayList;
 import org.tinylog.Logger;
 
@@ -13,17 +14,24 @@ import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class EarthquakeArchive {
 
     public static final File ARCHIVE_FILE = new File(GlobalQuake.mainFolder, "volume/archive.dat");
     public static final File TEMP_ARCHIVE_FILE = new File(GlobalQuake.mainFolder, "volume/temp_archive.dat");
+    private static final int REPORT_THREADS = 2;
+    private static final int MAX_PENDING_REPORTS = 32;
+
     private final ExecutorService executor;
+    private final ReportPipeline reportPipeline = new ReportPipeline(REPORT_THREADS, MAX_PENDING_REPORTS);
 
     private List<ArchivedQuake> archivedQuakes = new MonitorableCopyOnWriteArrayList<>();
 
     private final Map<UUID, ArchivedQuake> uuidArchivedQuakeMap = new ConcurrentHashMap<>();
 
+    private final AtomicInteger modifications = new AtomicInteger();
+
     public EarthquakeArchive() {
         executor = Executors.newSingleThreadExecutor();
     }
@@ -91,13 +99,11 @@ public class EarthquakeArchive {
     }
 
     private void reportQuake(Earthquake earthquake, ArchivedQuake archivedQuake) {
-        executor.submit(() -> {
-            try {
-                EarthquakeReporter.report(earthquake, archivedQuake);
-            } catch (Exception e) {
-                Logger.error(e);
-            }
-        });
+        // the picks are written right away, only the rendering can be dropped when the pipeline is full
+        File folder = EarthquakeReporter.savePicks(earthquake, archivedQuake);
+        if (folder != null) {
+            reportPipeline.submit(earthquake.getUuid(), () -> EarthquakeReporter.render(earthquake, archivedQuake, folder));
+        }
     }
 
     public void archiveQuake(Earthquake earthquake) {
@@ -117,6 +123,7 @@ public class EarthquakeArchive {
         archivedQuakes.add(0, archivedQuake);
         uuidArchivedQuakeMap.put(archivedQuake.getUuid(), archivedQuake);
         archivedQuakes.sort(Comparator.comparing(archivedQuake1 -> -archivedQuake1.getOrigin()));
+        modifications.incrementAndGet();
 
         if (GlobalQuake.instance != null && earthquake != null) {
             GlobalQuake.instance.getEventHandler().fireEvent(new QuakeArchiveEvent(earthquake, archivedQuake));
@@ -126,6 +133,7 @@ public class EarthquakeArchive {
             ArchivedQuake toRemove = archivedQuakes.get(archivedQuakes.size() - 1);
             archivedQuakes.remove(toRemove);
             uuidArchivedQuakeMap.remove(toRemove.getUuid());
+            modifications.incrementAndGet();
         }
 
         if (archivedQuakes.size() != uuidArchivedQuakeMap.size()) {
@@ -133,12 +141,20 @@ public class EarthquakeArchive {
         }
     }
 
+    /**
+     * @return number of quakes inserted into and dropped from the archive so far, see {@link ArchiveListView}
+     */
+    public int getModifications() {
+        return modifications.get();
+    }
+
     public ArchivedQuake getArchivedQuakeByUUID(UUID uuid) {
         return uuidArchivedQuakeMap.get(uuid);
     }
 
     public void destroy() {
         GlobalQuake.instance.stopService(executor);
+        reportPipeline.shutdown();
     }
 
 }
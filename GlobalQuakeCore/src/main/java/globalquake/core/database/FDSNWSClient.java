@@ -0,0 +1,406 @@
+package globalquake.core.database;
+
+import globalquake.core.exception.FdnwsDownloadException;
+import globalquake.utils.NamedThreadFactory;
+import org.tinylog.Logger;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+import javax.net.ssl.HttpsURLConnection;
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.io.*;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Downloads stations from FDSNWS station services. Requests that are too large (HTTP 413) are split by longitude
+ * and the slices are downloaded in parallel, bounded by the number of concurrent requests across all sources.
+ * When a cache folder is given, responses with an ETag or Last-Modified header are kept there and requested
+ * conditionally the next time, and the longitude ranges that had to be split are remembered.
+ */
+public class FDSNWSClient {
+
+    private static final DateTimeFormatter format1 = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss").withZone(ZoneId.systemDefault());
+    private static final double MIN_SLICE_WIDTH = 0.1;
+
+    private final File cacheFolder;
+    private final int timeoutSeconds;
+    private final Semaphore requestPermits;
+    // slices wait for their halves, so the pool cannot be bounded, idle threads end after a minute
+    private final ExecutorService sliceService = Executors.newCachedThreadPool(new NamedThreadFactory("FDSNWS Slice Thread", true));
+
+    /**
+     * @param cacheFolder folder for the cached responses, or null to disable caching
+     */
+    public FDSNWSClient(File cacheFolder, int maxConcurrentRequests, int timeoutSeconds) {
+        this.cacheFolder = cacheFolder;
+        this.timeoutSeconds = timeoutSeconds;
+        this.requestPermits = new Semaphore(maxConcurrentRequests);
+    }
+
+    public List<Network> download(StationSource stationSource, String addons, FDSNWSDownloadStats stats) throws Exception {
+        List<String> supportedAttributes;
+        requestPermits.acquire();
+        try {
+            supportedAttributes = downloadWadl(stationSource);
+        } finally {
+            requestPermits.release();
+        }
+
+        StringBuilder addonsResult = new StringBuilder();
+        List<String> addonsSplit = List.of(addons.split("&"));
+        for (String str : addonsSplit) {
+            if (str.isEmpty()) {
+                continue;
+            }
+            if (supportedAttributes.contains(str.split("=")[0])) {
+                addonsResult.append("&");
+                addonsResult.append(str);
+            } else {
+                Logger.warn("Addon not supported: %s".formatted(str.split("=")[0]));
+            }
+        }
+
+        Query query = new Query(stationSource, supportedAttributes.contains("endafter") && addons.isEmpty(), addonsResult.toString());
+        return downloadRange(query, -180, 180, stats);
+    }
+
+    private List<String> downloadWadl(StationSource stationSource) throws Exception {
+        URL url = new URL("%sapplication.wadl".formatted(stationSource.getUrl()));
+
+        HttpURLConnection con = openConnection(url);
+        try (InputStream inp = con.getInputStream()) {
+            Document doc = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(inp);
+            doc.getDocumentElement().normalize();
+
+            List<String> paramNames = new ArrayList<>();
+            NodeList paramNodes = doc.getElementsByTagName("param");
+            for (int i = 0; i < paramNodes.getLength(); i++) {
+                Node paramNode = paramNodes.item(i);
+                if (paramNode.getNodeType() == Node.ELEMENT_NODE) {
+                    Element paramElement = (Element) paramNode;
+                    String paramName = paramElement.getAttribute("name");
+                    paramNames.add(paramName);
+                }
+            }
+
+            return paramNames;
+        } finally {
+            con.disconnect();
+        }
+    }
+
+    private HttpURLConnection openConnection(URL url) throws IOException {
+        HttpURLConnection con = (HttpURLConnection) url.openConnection();
+        if (con instanceof HttpsURLConnection httpsURLConnection) {
+            httpsURLConnection.setHostnameVerifier((hostname, session) -> true);
+        }
+
+        con.setConnectTimeout(timeoutSeconds * 1000);
+        con.setReadTimeout(timeoutSeconds * 1000);
+        return con;
+    }
+
+    private List<Network> downloadRange(Query query, double minLon, double maxLon, FDSNWSDownloadStats stats) throws Exception {
+        CacheEntry cacheEntry = cacheFolder == null ? null : new CacheEntry(query.cacheKey(minLon, maxLon));
+        List<Network> result = new ArrayList<>();
+
+        boolean split = cacheEntry != null && cacheEntry.isSplit();
+        if (!split) {
+            requestPermits.acquire();
+            try {
+                split = !downloadSlice(query, minLon, maxLon, cacheEntry, result, stats);
+            } finally {
+                requestPermits.release();
+            }
+        }
+
+        if (!split) {
+            return result;
+        }
+
+        Logger.debug("413! Splitting...");
+        query.stationSource().getStatus().setString("Splitting...");
+        stats.addSplit();
+        if (cacheEntry != null) {
+            cacheEntry.markSplit();
+        }
+
+        if (maxLon - minLon < MIN_SLICE_WIDTH) {
+            return result;
+        }
+
+        double midLon = (minLon + maxLon) / 2.0;
+        Future<List<Network>> left = sliceService.submit(() -> downloadRange(query, minLon, midLon, stats));
+        List<Network> right;
+        try {
+            right = downloadRange(query, midLon, maxLon, stats);
+        } catch (Exception e) {
+            left.cancel(true);
+            throw e;
+        }
+
+        try {
+            merge(result, left.get(), query.stationSource());
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Exception cause) {
+                throw cause;
+            }
+            throw e;
+        }
+
+        merge(result, right, query.stationSource());
+        return result;
+    }
+
+    /**
+     * @return false if the request was too large and has to be split
+     */
+    private boolean downloadSlice(Query query, double minLon, double maxLon, CacheEntry cacheEntry,
+                                  List<Network> result, FDSNWSDownloadStats stats) throws Exception {
+        URL url = query.createURL(minLon, maxLon);
+        Logger.info("Connecting to " + url);
+
+        HttpURLConnection con = openConnection(url);
+        if (cacheEntry != null && cacheEntry.hasBody()) {
+            if (cacheEntry.getETag() != null) {
+                con.setRequestProperty("If-None-Match", cacheEntry.getETag());
+            }
+            if (cacheEntry.getLastModified() != null) {
+                con.setRequestProperty("If-Modified-Since", cacheEntry.getLastModified());
+            }
+        }
+
+        stats.addRequest();
+        try {
+            int response = con.getResponseCode();
+            if (response == 413) {
+                return false;
+            }
+
+            if (response == HttpURLConnection.HTTP_NOT_MODIFIED && cacheEntry != null && cacheEntry.hasBody()) {
+                stats.addNotModified();
+                try (InputStream in = new BufferedInputStream(new FileInputStream(cacheEntry.getBodyFile()))) {
+                    stats.addChannels(StationXMLParser.parse(in, query.stationSource(), result));
+                }
+                return true;
+            }
+
+            if (response / 100 != 2) {
+                throw new FdnwsDownloadException("HTTP Status %d!".formatted(response));
+            }
+
+            String eTag = con.getHeaderField("ETag");
+            String lastModified = con.getHeaderField("Last-Modified");
+
+            final CountInputStream in = new CountInputStream(con.getInputStream());
+            final long[] counted = {0};
+            in.setEvent(() -> {
+                stats.addBytes(in.getCount() - counted[0]);
+                counted[0] = in.getCount();
+                query.stationSource().getStatus().setString("Downloading %dkB".formatted(stats.getBytes() / 1024));
+            });
+
+            if (cacheEntry == null || (eTag == null && lastModified == null)) {
+                try (InputStream inp = new BufferedInputStream(in)) {
+                    stats.addChannels(StationXMLParser.parse(inp, query.stationSource(), result));
+                }
+                return true;
+            }
+
+            File temp = cacheEntry.getTempFile();
+            try (InputStream inp = new BufferedInputStream(new TeeInputStream(in, new BufferedOutputStream(new FileOutputStream(temp))))) {
+                stats.addChannels(StationXMLParser.parse(inp, query.stationSource(), result));
+                // store the whole body, not only the part that the parser needed
+                inp.transferTo(OutputStream.nullOutputStream());
+            } catch (Exception e) {
+                Files.deleteIfExists(temp.toPath());
+                throw e;
+            }
+            cacheEntry.store(temp, eTag, lastModified);
+            return true;
+        } finally {
+            con.disconnect();
+        }
+    }
+
+    private static void merge(List<Network> result, List<Network> part, StationSource stationSource) {
+        for (Network network : part) {
+            Network resultNetwork = getOrCreateNetwork(result, network.getNetworkCode(), network.getDescription());
+            for (Station station : network.getStations()) {
+                Station resultStation = StationDatabase.getOrCreateStation(resultNetwork, station.getStationCode(), station.getStationSite(),
+                        station.getLatitude(), station.getLongitude(), station.getAlt());
+                for (Channel channel : station.getChannels()) {
+                    StationDatabase.getOrCreateChannel(resultStation, channel.getCode(), channel.getLocationCode(),
+                            channel.getLatitude(), channel.getLongitude(), channel.getElevation(), channel.getSampleRate(),
+                            stationSource, channel.getSensitivity(), channel.getInputType());
+                }
+            }
+        }
+    }
+
+    /**
+     * Works on the plain list of a download, the networks of a {@link StationDatabase} are only changed through its
+     * indexed methods
+     */
+    private static Network getOrCreateNetwork(List<Network> networks, String networkCode, String networkDescription) {
+        Network network = StationDatabase.getNetwork(networks, networkCode);
+        if (network == null) {
+            network = new Network(networkCode, networkDescription);
+            networks.add(network);
+        }
+        return network;
+    }
+
+    private record Query(StationSource stationSource, boolean endAfter, String addons) {
+
+        URL createURL(double minLon, double maxLon) throws IOException {
+            if (endAfter) {
+                return new URL("%squery?minlongitude=%s&maxlongitude=%s&level=channel&endafter=%s&format=xml&channel=??Z%s".formatted(stationSource.getUrl(), minLon, maxLon, format1.format(Instant.now()), addons));
+            } else {
+                return new URL("%squery?minlongitude=%s&maxlongitude=%s&level=channel&format=xml&channel=??Z%s".formatted(stationSource.getUrl(), minLon, maxLon, addons));
+            }
+        }
+
+        /**
+         * The endafter parameter changes with every request so it is not part of the key
+         */
+        String cacheKey(double minLon, double maxLon) {
+            String key = "%s|%s|%s|%s".formatted(stationSource.getUrl(), minLon, maxLon, addons);
+            return UUID.nameUUIDFromBytes(key.getBytes(StandardCharsets.UTF_8)).toString();
+        }
+    }
+
+    private class CacheEntry {
+
+        private final File bodyFile;
+        private final File metaFile;
+        private final Properties meta = new Properties();
+
+        CacheEntry(String key) {
+            bodyFile = new File(cacheFolder, key + ".xml");
+            metaFile = new File(cacheFolder, key + ".properties");
+            if (metaFile.exists()) {
+                try (InputStream in = new FileInputStream(metaFile)) {
+                    meta.load(in);
+                } catch (IOException e) {
+                    Logger.warn("Unable to read FDSNWS cache entry %s: %s".formatted(metaFile.getName(), e.getMessage()));
+                }
+            }
+        }
+
+        boolean isSplit() {
+            return Boolean.parseBoolean(meta.getProperty("split"));
+        }
+
+        boolean hasBody() {
+            return bodyFile.exists() && (getETag() != null || getLastModified() != null);
+        }
+
+        String getETag() {
+            return meta.getProperty("etag");
+        }
+
+        String getLastModified() {
+            return meta.getProperty("lastModified");
+        }
+
+        File getBodyFile() {
+            return bodyFile;
+        }
+
+        File getTempFile() throws IOException {
+            if (!cacheFolder.exists() && !cacheFolder.mkdirs()) {
+                throw new IOException("Unable to create directory %s".formatted(cacheFolder.getAbsolutePath()));
+            }
+            return new File(cacheFolder, bodyFile.getName() + "." + Thread.currentThread().getId() + ".tmp");
+        }
+
+        void markSplit() {
+            meta.clear();
+            meta.setProperty("split", "true");
+            saveMeta();
+            try {
+                Files.deleteIfExists(bodyFile.toPath());
+            } catch (IOException e) {
+                Logger.warn(e);
+            }
+        }
+
+        void store(File temp, String eTag, String lastModified) throws IOException {
+            Files.move(temp.toPath(), bodyFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            meta.clear();
+            if (eTag != null) {
+                meta.setProperty("etag", eTag);
+            }
+            if (lastModified != null) {
+                meta.setProperty("lastModified", lastModified);
+            }
+            saveMeta();
+        }
+
+        private void saveMeta() {
+            if (!cacheFolder.exists() && !cacheFolder.mkdirs()) {
+                Logger.warn("Unable to create directory %s".formatted(cacheFolder.getAbsolutePath()));
+                return;
+            }
+
+            try (OutputStream out = new FileOutputStream(metaFile)) {
+                meta.store(out, null);
+            } catch (IOException e) {
+                Logger.warn("Unable to write FDSNWS cache entry %s: %s".formatted(metaFile.getName(), e.getMessage()));
+            }
+        }
+    }
+
+    /**
+     * Copies everything that is read into the output, which is closed together with the stream
+     */
+    private static final class TeeInputStream extends FilterInputStream {
+
+        private final OutputStream out;
+
+        TeeInputStream(InputStream in, OutputStream out) {
+            super(in);
+            this.out = out;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int c = super.read();
+            if (c >= 0) {
+                out.write(c);
+            }
+            return c;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int count = super.read(b, off, len);
+            if (count > 0) {
+                out.write(b, off, count);
+            }
+            return count;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                super.close();
+            } finally {
+                out.close();
+            }
+        }
+    }
+
+}
@@ -0,0 +1,71 @@
+package globalquake.core.database;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Progress of downloading one station source, shared by all the longitude slices that are downloaded in parallel
+ */
+public class FDSNWSDownloadStats {
+
+    private final long start = System.currentTimeMillis();
+
+    private final AtomicLong bytes = new AtomicLong();
+    private final AtomicInteger requests = new AtomicInteger();
+    private final AtomicInteger notModified = new AtomicInteger();
+    private final AtomicInteger splits = new AtomicInteger();
+    private final AtomicInteger channels = new AtomicInteger();
+
+    void addBytes(long count) {
+        bytes.addAndGet(count);
+    }
+
+    void addRequest() {
+        requests.incrementAndGet();
+    }
+
+    void addNotModified() {
+        notModified.incrementAndGet();
+    }
+
+    void addSplit() {
+        splits.incrementAndGet();
+    }
+
+    void addChannels(int count) {
+        channels.addAndGet(count);
+    }
+
+    public long getBytes() {
+        return bytes.get();
+    }
+
+    public int getRequests() {
+        return requests.get();
+    }
+
+    /**
+     * @return number of responses that were not downloaded again because the server reported no change
+     */
+    public int getNotModified() {
+        return notModified.get();
+    }
+
+    public int getSplits() {
+        return splits.get();
+    }
+
+    public int getChannels() {
+        return channels.get();
+    }
+
+    public long getElapsedMillis() {
+        return System.currentTimeMillis() - start;
+    }
+
+    @Override
+    public String toString() {
+        return "%d channels, %d requests (%d not modified, %d splits), %dkB in %d ms".formatted(
+                getChannels(), getRequests(), getNotModified(), getSplits(), getBytes() / 1024, getElapsedMillis());
+    }
+}
@@ -3,6 +3,7 @@ package globalquake.core.database;
 import java.io.Serial;
 import java.io.Serializable;
 import java.util.*;
+import java.util.function.Predicate;
 
 public class Network implements Serializable {
 
@@ -13,6 +14,8 @@ public class Network implements Serializable {
     private final String description;
     private final List<Station> stations;
 
+    private transient volatile Map<String, Station> stationIndex;
+
     public Network(String networkCode, String description) {
         this.networkCode = networkCode;
         this.description = description;
@@ -27,8 +30,53 @@ public class Network implements Serializable {
         return description;
     }
 
+    /**
+     * @return unmodifiable view of the stations, use {@link #addStation(Station)} and {@link #removeStationsIf(Predicate)}
+     * to keep the lookup index in sync
+     */
     public List<Station> getStations() {
-        return stations;
+        return Collections.unmodifiableList(stations);
+    }
+
+    public void addStation(Station station) {
+        stations.add(station);
+        Map<String, Station> index = stationIndex;
+        if (index != null) {
+            index.putIfAbsent(stationKey(station.getStationCode()), station);
+        }
+    }
+
+    /**
+     * @return true if any station was removed
+     */
+    public boolean removeStationsIf(Predicate<Station> filter) {
+        if (!stations.removeIf(filter)) {
+            return false;
+        }
+
+        // the index maps a code to the first station with it, a removed one might have a duplicate further in the list
+        stationIndex = null;
+        return true;
+    }
+
+    /**
+     * Case-insensitive lookup by station code through a hash index, with duplicate codes the first station wins
+     */
+    public Station findStation(String stationCode) {
+        Map<String, Station> index = stationIndex;
+        if (index == null) {
+            index = new HashMap<>();
+            for (Station station : stations) {
+                index.putIfAbsent(stationKey(station.getStationCode()), station);
+            }
+            stationIndex = index;
+        }
+
+        return index.get(stationKey(stationCode));
+    }
+
+    private static String stationKey(String stationCode) {
+        return stationCode.toUpperCase(Locale.ROOT);
     }
 
     @Override
@@ -99,12 +99,12 @@ public class SeedlinkCommunicator {
         locationCode = locationCode.trim();
         stationDatabase.getDatabaseWriteLock().lock();
         try {
-            Station station = StationDatabase.getStation(stationDatabase.getNetworks(), networkCode, stationCode);
+            Station station = stationDatabase.getStation(networkCode, stationCode);
             if (station == null) {
                 return; // :(
             }
 
-            Channel channel = StationDatabase.getChannel(stationDatabase.getNetworks(), networkCode, stationCode, channelName, locationCode);
+            Channel channel = StationDatabase.getChannel(station, channelName, locationCode);
 
             if (channel == null) {
                 channel = findChannelButDontUseLocationCode(station, channelName);
@@ -112,6 +112,7 @@ public class SeedlinkCommunicator {
                 if (channel != null) {
                     var any = channel.getStationSources().stream().findAny();
                     Channel newChannel = StationDatabase.getOrCreateChannel(station, channelName, locationCode, channel.getLatitude(), channel.getLongitude(), channel.getElevation(), channel.getSampleRate(), any.orElse(null), -1, InputType.UNKNOWN);
+                    stationDatabase.markModified(any.orElse(null));
                     Logger.warn("Did not find exact match for [%s %s %s `%s`], assuming the location code is `%s`".formatted(networkCode, stationCode, channelName, locationCode, channel.getLocationCode()));
                     channel = newChannel;
                 }
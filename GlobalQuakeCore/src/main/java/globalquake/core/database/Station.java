@@ -4,9 +4,8 @@ import globalquake.utils.GeoUtils;
 
 import java.io.Serial;
 import java.io.Serializable;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Objects;
+import java.util.*;
+import java.util.function.Predicate;
 
 public class Station implements Serializable {
 
@@ -25,6 +24,8 @@ public class Station implements Serializable {
     private final Network network;
     private Channel selectedChannel = null;
 
+    private transient volatile Map<String, Channel> channelIndex;
+
     public Station(Network network, String stationCode, String stationSite, double lat, double lon, double alt) {
         this.lat = lat;
         this.lon = lon;
@@ -39,8 +40,53 @@ public class Station implements Serializable {
         return network;
     }
 
+    /**
+     * @return unmodifiable view of the channels, use {@link #addChannel(Channel)} and {@link #removeChannelsIf(Predicate)}
+     * to keep the lookup index in sync
+     */
     public List<Channel> getChannels() {
-        return channels;
+        return Collections.unmodifiableList(channels);
+    }
+
+    public void addChannel(Channel channel) {
+        channels.add(channel);
+        Map<String, Channel> index = channelIndex;
+        if (index != null) {
+            index.putIfAbsent(channelKey(channel.getCode(), channel.getLocationCode()), channel);
+        }
+    }
+
+    /**
+     * @return true if any channel was removed
+     */
+    public boolean removeChannelsIf(Predicate<Channel> filter) {
+        if (!channels.removeIf(filter)) {
+            return false;
+        }
+
+        // the index maps a key to the first channel with it, a removed one might have a duplicate further in the list
+        channelIndex = null;
+        return true;
+    }
+
+    /**
+     * Case-insensitive lookup by channel and location code through a hash index, with duplicates the first channel wins
+     */
+    public Channel findChannel(String channelCode, String locationCode) {
+        Map<String, Channel> index = channelIndex;
+        if (index == null) {
+            index = new HashMap<>();
+            for (Channel channel : channels) {
+                index.putIfAbsent(channelKey(channel.getCode(), channel.getLocationCode()), channel);
+            }
+            channelIndex = index;
+        }
+
+        return index.get(channelKey(channelCode, locationCode));
+    }
+
+    private static String channelKey(String channelCode, String locationCode) {
+        return channelCode.toUpperCase(Locale.ROOT) + ' ' + locationCode.toUpperCase(Locale.ROOT);
     }
 
     public String getStationSite() {
@@ -11,9 +11,9 @@ import java.io.Serializable;
 import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.*;
 import java.util.concurrent.locks.Lock;
+import java.util.function.Predicate;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
@@ -36,6 +36,10 @@ public class StationDatabase implements Serializable {
     private transient Lock databaseReadLock = databaseLock.readLock();
     private transient Lock databaseWriteLock = databaseLock.writeLock();
 
+    private transient volatile Map<String, Network> networkIndex;
+
+    private transient Set<StationSource> modifiedSources = Collections.synchronizedSet(new HashSet<>());
+
 
     @Serial
     private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
@@ -44,6 +48,7 @@ public class StationDatabase implements Serializable {
         databaseLock = new ReentrantReadWriteLock();
         databaseReadLock = databaseLock.readLock();
         databaseWriteLock = databaseLock.writeLock();
+        modifiedSources = Collections.synchronizedSet(new HashSet<>());
 
         convert();
     }
@@ -52,6 +57,7 @@ public class StationDatabase implements Serializable {
         if (version < VERSION) {
             Logger.warn("Database updated!");
             networks.clear();
+            networkIndex = null;
             stationSources.forEach(stationSource -> stationSource.setLastUpdate(LocalDateTime.ofInstant(Instant.ofEpochMilli(0), ZoneId.systemDefault())));
             GlobalQuake.errorHandler.info("Your station database was upgraded to newer version. You need to select stations again.");
         }
@@ -151,8 +157,12 @@ public class StationDatabase implements Serializable {
         //seedlinkNetworks.add(new SeedlinkNetwork("Red Sìsmica de Puerto Rico", "161.35.236.45", 18000));
     }
 
+    /**
+     * @return unmodifiable view of the networks, use {@link #addNetwork(Network)} and {@link #removeNetworksIf(Predicate)}
+     * to keep the lookup index in sync
+     */
     public List<Network> getNetworks() {
-        return networks;
+        return Collections.unmodifiableList(networks);
     }
 
     public List<SeedlinkNetwork> getSeedlinkNetworks() {
@@ -171,13 +181,85 @@ public class StationDatabase implements Serializable {
         return databaseWriteLock;
     }
 
-    public static Channel getChannel(Station station, String channelCode, String locationCode) {
-        for (Channel channel : station.getChannels()) {
-            if (channel.getCode().equalsIgnoreCase(channelCode) && channel.getLocationCode().equalsIgnoreCase(locationCode)) {
-                return channel;
+    /**
+     * Case-insensitive lookup of a network in this database through a hash index, with duplicate codes the first network wins
+     */
+    public Network getNetwork(String networkCode) {
+        Map<String, Network> index = networkIndex;
+        if (index == null) {
+            index = new HashMap<>();
+            for (Network network : networks) {
+                index.putIfAbsent(networkKey(network.getNetworkCode()), network);
             }
+            networkIndex = index;
         }
-        return null;
+
+        return index.get(networkKey(networkCode));
+    }
+
+    private static String networkKey(String networkCode) {
+        return networkCode.toUpperCase(Locale.ROOT);
+    }
+
+    public void addNetwork(Network network) {
+        networks.add(network);
+        Map<String, Network> index = networkIndex;
+        if (index != null) {
+            index.putIfAbsent(networkKey(network.getNetworkCode()), network);
+        }
+    }
+
+    public Network getOrCreateNetwork(String networkCode, String networkDescription) {
+        Network network = getNetwork(networkCode);
+        if (network == null) {
+            network = new Network(networkCode, networkDescription);
+            addNetwork(network);
+        }
+        return network;
+    }
+
+    /**
+     * @return true if any network was removed
+     */
+    public boolean removeNetworksIf(Predicate<Network> filter) {
+        if (!networks.removeIf(filter)) {
+            return false;
+        }
+
+        // the index maps a code to the first network with it, a removed one might have a duplicate further in the list
+        networkIndex = null;
+        return true;
+    }
+
+    public Station getStation(String networkCode, String stationCode) {
+        Network network = getNetwork(networkCode);
+        return network == null ? null : network.findStation(stationCode);
+    }
+
+    public Channel getChannel(String networkCode, String stationCode, String channelName, String locationCode) {
+        Station station = getStation(networkCode, stationCode);
+        return station == null ? null : getChannel(station, channelName, locationCode);
+    }
+
+    /**
+     * Marks the part of the stored database belonging to the given source as changed,
+     * so that the next save rewrites it. Null marks channels without any source.
+     */
+    public void markModified(StationSource stationSource) {
+        modifiedSources.add(stationSource);
+    }
+
+    public void markAllModified() {
+        modifiedSources.addAll(stationSources);
+        modifiedSources.add(null);
+    }
+
+    public Set<StationSource> getModifiedSources() {
+        return modifiedSources;
+    }
+
+    public static Channel getChannel(Station station, String channelCode, String locationCode) {
+        return station.findChannel(channelCode, locationCode);
     }
 
     @SuppressWarnings("UnusedReturnValue")
@@ -193,7 +275,7 @@ public class StationDatabase implements Serializable {
         }
 
         channel = new Channel(channelCode, locationCode, sampleRate, lat, lon, alt, stationSource, sensitivity, inputType);
-        station.getChannels().add(channel);
+        station.addChannel(channel);
 
         return channel;
     }
@@ -217,12 +299,7 @@ public class StationDatabase implements Serializable {
     }
 
     private static Station findStation(Network network, String stationCode) {
-        for (Station station : network.getStations()) {
-            if (station.getStationCode().equalsIgnoreCase(stationCode)) {
-                return station;
-            }
-        }
-        return null;
+        return network.findStation(stationCode);
     }
 
 
@@ -234,7 +311,7 @@ public class StationDatabase implements Serializable {
 
         station = new Station(network, stationCode, stationSite, lat, lon, alt);
 
-        network.getStations().add(station);
+        network.addStation(station);
 
         return station;
     }
@@ -245,7 +322,7 @@ public class StationDatabase implements Serializable {
             return station;
         }
 
-        network.getStations().add(stationNew);
+        network.addStation(stationNew);
 
         return stationNew;
     }
@@ -260,39 +337,21 @@ public class StationDatabase implements Serializable {
         return null;
     }
 
-    public static Network getOrCreateNetwork(List<Network> networks, String networkCode, String networkDescription) {
-        Network resultNetwork = getNetwork(networks, networkCode);
-        if (resultNetwork != null) {
-            return resultNetwork;
-        }
-
-        resultNetwork = new Network(networkCode, networkDescription);
-        networks.add(resultNetwork);
-
-        return resultNetwork;
-    }
-
-    public static Network getOrInsertNetwork(List<Network> networks, Network network) {
-        Network resultNetwork = getNetwork(networks, network.getNetworkCode());
-        if (resultNetwork != null) {
-            return resultNetwork;
-        }
-
-        networks.add(network);
-
-        return network;
-    }
-
 
     @SuppressWarnings("UnusedReturnValue")
     public Channel acceptChannel(Network network, Station station, Channel channel) {
-        Network networkFound = getOrInsertNetwork(networks, network);
+        Network networkFound = getNetwork(network.getNetworkCode());
+        if (networkFound == null) {
+            addNetwork(network);
+            networkFound = network;
+        }
+        channel.getStationSources().forEach(this::markModified);
         Station stationFound = getOrInsertStation(networkFound, station);
         Channel channelFound = getChannel(stationFound, channel.getCode(), channel.getLocationCode());
         if (channelFound != null) {
             channelFound.merge(channel);
         } else {
-            stationFound.getChannels().add(channel);
+            stationFound.addChannel(channel);
         }
 
         return channel;
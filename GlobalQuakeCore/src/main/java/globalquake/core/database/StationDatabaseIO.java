@@ -0,0 +1,421 @@
+package globalquake.core.database;
+
+import gqserver.api.packets.station.InputType;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Binary storage of the {@link StationDatabase}. The folder contains a small manifest with station sources,
+ * seedlink networks and selected channels, and one columnar segment file per station source holding the
+ * networks, stations and channels that came from it. Only segments of sources that were modified since
+ * the last save are rewritten.
+ */
+public class StationDatabaseIO {
+
+    private static final int MANIFEST_MAGIC = 0x4751444D; // GQDM
+    private static final int SEGMENT_MAGIC = 0x47514453; // GQDS
+    private static final int FORMAT_VERSION = 1;
+
+    private static final String MANIFEST_FILE = "database.gqdb";
+    private static final String SEGMENTS_FOLDER = "segments";
+    private static final String SEGMENT_EXTENSION = ".seg";
+    private static final String UNSOURCED_SEGMENT = "unsourced";
+
+    public static File getManifestFile(File folder) {
+        return new File(folder, MANIFEST_FILE);
+    }
+
+    public static boolean exists(File folder) {
+        return getManifestFile(folder).exists();
+    }
+
+    public static StationDatabase load(File folder) throws IOException {
+        StationDatabase database = new StationDatabase();
+        Map<StationSource, String> segmentNames = new HashMap<>();
+        List<String[]> selections = new ArrayList<>();
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(getManifestFile(folder))))) {
+            if (in.readInt() != MANIFEST_MAGIC || in.readInt() != FORMAT_VERSION) {
+                throw new IOException("Unsupported station database format!");
+            }
+
+            int sourceCount = in.readInt();
+            for (int i = 0; i < sourceCount; i++) {
+                StationSource stationSource = new StationSource(in.readUTF(), in.readUTF());
+                String lastUpdate = in.readUTF();
+                stationSource.setLastUpdate(lastUpdate.isEmpty() ? null : LocalDateTime.parse(lastUpdate));
+                segmentNames.put(stationSource, in.readUTF());
+                database.getStationSources().add(stationSource);
+            }
+
+            int seedlinkCount = in.readInt();
+            for (int i = 0; i < seedlinkCount; i++) {
+                database.getSeedlinkNetworks().add(new SeedlinkNetwork(in.readUTF(), in.readUTF(), in.readInt(), in.readInt()));
+            }
+
+            int selectionCount = in.readInt();
+            for (int i = 0; i < selectionCount; i++) {
+                selections.add(new String[]{in.readUTF(), in.readUTF(), in.readUTF(), in.readUTF()});
+            }
+        }
+
+        File segments = new File(folder, SEGMENTS_FOLDER);
+        readSegment(database, null, new File(segments, UNSOURCED_SEGMENT + SEGMENT_EXTENSION));
+
+        // the most recently updated source is applied last, same as when the channels were merged originally
+        List<StationSource> sources = new ArrayList<>(database.getStationSources());
+        sources.sort(Comparator.comparing(StationSource::getLastUpdate, Comparator.nullsFirst(Comparator.naturalOrder())));
+        for (StationSource stationSource : sources) {
+            readSegment(database, stationSource, new File(segments, segmentNames.get(stationSource) + SEGMENT_EXTENSION));
+        }
+
+        for (String[] selection : selections) {
+            Station station = database.getStation(selection[0], selection[1]);
+            if (station != null) {
+                station.setSelectedChannel(station.findChannel(selection[2], selection[3]));
+            }
+        }
+
+        database.getModifiedSources().clear();
+        return database;
+    }
+
+    /**
+     * Writes the manifest and the segments of all modified sources, must be called while holding the database read lock
+     */
+    public static void save(StationDatabase database, File folder) throws IOException {
+        File segments = new File(folder, SEGMENTS_FOLDER);
+        if (!segments.exists() && !segments.mkdirs()) {
+            throw new IOException("Unable to create directory %s".formatted(segments.getAbsolutePath()));
+        }
+
+        Map<StationSource, String> segmentNames = createSegmentNames(database);
+        Set<String> usedFiles = new HashSet<>();
+
+        for (var entry : segmentNames.entrySet()) {
+            File file = new File(segments, entry.getValue() + SEGMENT_EXTENSION);
+            usedFiles.add(file.getName());
+            if (!file.exists() || database.getModifiedSources().contains(entry.getKey())) {
+                writeAtomically(file, out -> writeSegment(out, database, entry.getKey()));
+            }
+        }
+
+        writeAtomically(getManifestFile(folder), out -> writeManifest(out, database, segmentNames));
+
+        File[] files = segments.listFiles((dir, name) -> name.endsWith(SEGMENT_EXTENSION) && !usedFiles.contains(name));
+        if (files != null) {
+            for (File file : files) {
+                Files.deleteIfExists(file.toPath());
+            }
+        }
+
+        database.getModifiedSources().clear();
+    }
+
+    private static Map<StationSource, String> createSegmentNames(StationDatabase database) {
+        Map<StationSource, String> segmentNames = new LinkedHashMap<>();
+        Set<String> used = new HashSet<>();
+        segmentNames.put(null, UNSOURCED_SEGMENT);
+        used.add(UNSOURCED_SEGMENT);
+
+        for (int i = 0; i < database.getStationSources().size(); i++) {
+            StationSource stationSource = database.getStationSources().get(i);
+            String name = "%08x".formatted(stationSource.hashCode());
+            if (!used.add(name)) {
+                // extremely unlikely, the name then depends on the order so the segment is always rewritten
+                name = name + "-" + i;
+                used.add(name);
+                database.markModified(stationSource);
+            }
+            segmentNames.put(stationSource, name);
+        }
+
+        return segmentNames;
+    }
+
+    private static void writeManifest(DataOutputStream out, StationDatabase database, Map<StationSource, String> segmentNames) throws IOException {
+        out.writeInt(MANIFEST_MAGIC);
+        out.writeInt(FORMAT_VERSION);
+
+        out.writeInt(database.getStationSources().size());
+        for (StationSource stationSource : database.getStationSources()) {
+            out.writeUTF(stationSource.getName());
+            out.writeUTF(stationSource.getUrl());
+            out.writeUTF(stationSource.getLastUpdate() == null ? "" : stationSource.getLastUpdate().toString());
+            out.writeUTF(segmentNames.get(stationSource));
+        }
+
+        out.writeInt(database.getSeedlinkNetworks().size());
+        for (SeedlinkNetwork seedlinkNetwork : database.getSeedlinkNetworks()) {
+            out.writeUTF(seedlinkNetwork.getName());
+            out.writeUTF(seedlinkNetwork.getHost());
+            out.writeInt(seedlinkNetwork.getPort());
+            out.writeInt(seedlinkNetwork.getTimeout());
+        }
+
+        List<Station> selected = new ArrayList<>();
+        for (Network network : database.getNetworks()) {
+            for (Station station : network.getStations()) {
+                if (station.getSelectedChannel() != null) {
+                    selected.add(station);
+                }
+            }
+        }
+
+        out.writeInt(selected.size());
+        for (Station station : selected) {
+            out.writeUTF(station.getNetwork().getNetworkCode());
+            out.writeUTF(station.getStationCode());
+            out.writeUTF(station.getSelectedChannel().getCode());
+            out.writeUTF(station.getSelectedChannel().getLocationCode());
+        }
+    }
+
+    private static void writeSegment(DataOutputStream out, StationDatabase database, StationSource stationSource) throws IOException {
+        List<Network> networks = new ArrayList<>();
+        List<Integer> stationCounts = new ArrayList<>();
+        List<Station> stations = new ArrayList<>();
+        List<Integer> channelCounts = new ArrayList<>();
+        List<Channel> channels = new ArrayList<>();
+
+        for (Network network : database.getNetworks()) {
+            int stationCount = 0;
+            for (Station station : network.getStations()) {
+                int channelCount = 0;
+                for (Channel channel : station.getChannels()) {
+                    if (channel.getStationSources().contains(stationSource)) {
+                        channels.add(channel);
+                        channelCount++;
+                    }
+                }
+                if (channelCount > 0) {
+                    stations.add(station);
+                    channelCounts.add(channelCount);
+                    stationCount++;
+                }
+            }
+            if (stationCount > 0) {
+                networks.add(network);
+                stationCounts.add(stationCount);
+            }
+        }
+
+        StringTable strings = new StringTable();
+        int[] networkCodes = new int[networks.size()];
+        int[] networkDescriptions = new int[networks.size()];
+        for (int i = 0; i < networks.size(); i++) {
+            networkCodes[i] = strings.index(networks.get(i).getNetworkCode());
+            networkDescriptions[i] = strings.index(networks.get(i).getDescription());
+        }
+
+        int[] stationCodes = new int[stations.size()];
+        int[] stationSites = new int[stations.size()];
+        for (int i = 0; i < stations.size(); i++) {
+            stationCodes[i] = strings.index(stations.get(i).getStationCode());
+            stationSites[i] = strings.index(stations.get(i).getStationSite());
+        }
+
+        int[] channelCodes = new int[channels.size()];
+        int[] locationCodes = new int[channels.size()];
+        for (int i = 0; i < channels.size(); i++) {
+            channelCodes[i] = strings.index(channels.get(i).getCode());
+            locationCodes[i] = strings.index(channels.get(i).getLocationCode());
+        }
+
+        out.writeInt(SEGMENT_MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        strings.write(out);
+
+        out.writeInt(networks.size());
+        writeInts(out, networkCodes);
+        writeInts(out, networkDescriptions);
+        for (int count : stationCounts) {
+            out.writeInt(count);
+        }
+
+        out.writeInt(stations.size());
+        writeInts(out, stationCodes);
+        writeInts(out, stationSites);
+        for (Station station : stations) {
+            out.writeDouble(station.getLatitude());
+        }
+        for (Station station : stations) {
+            out.writeDouble(station.getLongitude());
+        }
+        for (Station station : stations) {
+            out.writeDouble(station.getAlt());
+        }
+        for (int count : channelCounts) {
+            out.writeInt(count);
+        }
+
+        out.writeInt(channels.size());
+        writeInts(out, channelCodes);
+        writeInts(out, locationCodes);
+        for (Channel channel : channels) {
+            out.writeByte((channel.getInputType() == null ? InputType.UNKNOWN : channel.getInputType()).ordinal());
+        }
+        for (Channel channel : channels) {
+            out.writeDouble(channel.getSensitivity());
+        }
+        for (Channel channel : channels) {
+            out.writeDouble(channel.getSampleRate());
+        }
+        for (Channel channel : channels) {
+            out.writeDouble(channel.getLatitude());
+        }
+        for (Channel channel : channels) {
+            out.writeDouble(channel.getLongitude());
+        }
+        for (Channel channel : channels) {
+            out.writeDouble(channel.getElevation());
+        }
+    }
+
+    private static void readSegment(StationDatabase database, StationSource stationSource, File file) throws IOException {
+        if (!file.exists()) {
+            return;
+        }
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != SEGMENT_MAGIC || in.readInt() != FORMAT_VERSION) {
+                throw new IOException("Unsupported station database segment format: %s".formatted(file.getName()));
+            }
+
+            String[] strings = StringTable.read(in);
+
+            int networkCount = in.readInt();
+            int[] networkCodes = readInts(in, networkCount);
+            int[] networkDescriptions = readInts(in, networkCount);
+            int[] stationCounts = readInts(in, networkCount);
+
+            int stationCount = in.readInt();
+            int[] stationCodes = readInts(in, stationCount);
+            int[] stationSites = readInts(in, stationCount);
+            double[] stationLats = readDoubles(in, stationCount);
+            double[] stationLons = readDoubles(in, stationCount);
+            double[] stationAlts = readDoubles(in, stationCount);
+            int[] channelCounts = readInts(in, stationCount);
+
+            int channelCount = in.readInt();
+            int[] channelCodes = readInts(in, channelCount);
+            int[] locationCodes = readInts(in, channelCount);
+            byte[] inputTypes = new byte[channelCount];
+            in.readFully(inputTypes);
+            double[] sensitivities = readDoubles(in, channelCount);
+            double[] sampleRates = readDoubles(in, channelCount);
+            double[] channelLats = readDoubles(in, channelCount);
+            double[] channelLons = readDoubles(in, channelCount);
+            double[] channelAlts = readDoubles(in, channelCount);
+
+            InputType[] inputTypeValues = InputType.values();
+            int stationIndex = 0;
+            int channelIndex = 0;
+            for (int n = 0; n < networkCount; n++) {
+                Network network = database.getNetwork(strings[networkCodes[n]]);
+                if (network == null) {
+                    network = new Network(strings[networkCodes[n]], get(strings, networkDescriptions[n]));
+                    database.addNetwork(network);
+                }
+
+                for (int s = 0; s < stationCounts[n]; s++, stationIndex++) {
+                    Station station = network.findStation(strings[stationCodes[stationIndex]]);
+                    if (station == null) {
+                        station = new Station(network, strings[stationCodes[stationIndex]], get(strings, stationSites[stationIndex]),
+                                stationLats[stationIndex], stationLons[stationIndex], stationAlts[stationIndex]);
+                        network.addStation(station);
+                    }
+
+                    for (int c = 0; c < channelCounts[stationIndex]; c++, channelIndex++) {
+                        Channel channel = new Channel(strings[channelCodes[channelIndex]], strings[locationCodes[channelIndex]],
+                                sampleRates[channelIndex], channelLats[channelIndex], channelLons[channelIndex], channelAlts[channelIndex],
+                                stationSource, sensitivities[channelIndex], inputTypeValues[inputTypes[channelIndex]]);
+                        Channel existing = station.findChannel(channel.getCode(), channel.getLocationCode());
+                        if (existing != null) {
+                            existing.merge(channel);
+                        } else {
+                            station.addChannel(channel);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private static String get(String[] strings, int index) {
+        return index == -1 ? null : strings[index];
+    }
+
+    private interface Writer {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    private static void writeAtomically(File file, Writer writer) throws IOException {
+        File temp = new File(file.getParentFile(), file.getName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+            writer.write(out);
+        }
+        Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private static void writeInts(DataOutputStream out, int[] values) throws IOException {
+        for (int value : values) {
+            out.writeInt(value);
+        }
+    }
+
+    private static int[] readInts(DataInputStream in, int count) throws IOException {
+        int[] result = new int[count];
+        for (int i = 0; i < count; i++) {
+            result[i] = in.readInt();
+        }
+        return result;
+    }
+
+    private static double[] readDoubles(DataInputStream in, int count) throws IOException {
+        double[] result = new double[count];
+        for (int i = 0; i < count; i++) {
+            result[i] = in.readDouble();
+        }
+        return result;
+    }
+
+    /**
+     * Interns the codes, most of them repeat many times in one segment
+     */
+    private static final class StringTable {
+
+        private final Map<String, Integer> indices = new HashMap<>();
+        private final List<String> strings = new ArrayList<>();
+
+        int index(String str) {
+            if (str == null) {
+                return -1;
+            }
+            return indices.computeIfAbsent(str, s -> {
+                strings.add(s);
+                return strings.size() - 1;
+            });
+        }
+
+        void write(DataOutputStream out) throws IOException {
+            out.writeInt(strings.size());
+            for (String str : strings) {
+                out.writeUTF(str);
+            }
+        }
+
+        static String[] read(DataInputStream in) throws IOException {
+            String[] result = new String[in.readInt()];
+            for (int i = 0; i < result.length; i++) {
+                result[i] = in.readUTF();
+            }
+            return result;
+        }
+    }
+
+}
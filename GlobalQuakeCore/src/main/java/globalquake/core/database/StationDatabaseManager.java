@@ -8,13 +8,13 @@ import org.tinylog.Logger;
 import java.io.*;
 import java.net.SocketTimeoutException;
 import java.time.LocalDateTime;
-import java.util.Iterator;
 import java.util.List;
 import java.util.concurrent.*;
 
 public class StationDatabaseManager {
 
     private static final int ATTEMPTS = 3;
+    private static final int PARALLEL_UPDATES = 4;
     private StationDatabase stationDatabase;
 
     private final List<Runnable> updateListeners = new CopyOnWriteArrayList<>();
@@ -30,20 +30,31 @@ public class StationDatabaseManager {
     }
 
     public void load() throws FatalIOException {
-        File file = getDatabaseFile();
-        if (!file.getParentFile().exists()) {
-            if (!file.getParentFile().mkdirs()) {
+        File folder = getStationsFolder();
+        if (!folder.exists()) {
+            if (!folder.mkdirs()) {
                 throw new FatalIOException("Unable to create database file directory!", null);
             }
         }
 
-        if (file.exists()) {
+        long start = System.currentTimeMillis();
+        if (StationDatabaseIO.exists(folder)) {
             try {
-                ObjectInputStream in = new ObjectInputStream(new FileInputStream(file));
+                stationDatabase = StationDatabaseIO.load(folder);
+                Logger.info("Database load successfull in %d ms".formatted(System.currentTimeMillis() - start));
+            } catch (IOException | RuntimeException e) {
+                GlobalQuake.getErrorHandler().handleException(
+                        new FatalIOException("Unable to load station database, it probably got corrupted!", e));
+            }
+        } else if (getDatabaseFile().exists()) {
+            try {
+                ObjectInputStream in = new ObjectInputStream(new FileInputStream(getDatabaseFile()));
                 stationDatabase = (StationDatabase) in.readObject();
                 in.close();
 
-                Logger.info("Database load successfull");
+                Logger.info("Legacy database load successfull in %d ms, converting to the new format".formatted(System.currentTimeMillis() - start));
+                stationDatabase.markAllModified();
+                save();
             } catch (ClassNotFoundException | IOException e) {
                 GlobalQuake.getErrorHandler().handleException(
                         new FatalIOException("Unable to load station database, it probably got corrupted!", e));
@@ -58,9 +69,9 @@ public class StationDatabaseManager {
     }
 
     public void save() throws FatalIOException {
-        File file = getDatabaseFile();
-        if (!file.getParentFile().exists()) {
-            if (!file.getParentFile().mkdirs()) {
+        File folder = getStationsFolder();
+        if (!folder.exists()) {
+            if (!folder.mkdirs()) {
                 throw new FatalIOException("Unable to create database file directory!", null);
             }
         }
@@ -71,9 +82,7 @@ public class StationDatabaseManager {
 
         stationDatabase.getDatabaseReadLock().lock();
         try {
-            ObjectOutputStream out = new ObjectOutputStream(new FileOutputStream(file));
-            out.writeObject(stationDatabase);
-            out.close();
+            StationDatabaseIO.save(stationDatabase, folder);
             Logger.info("Station database saved sucessfully");
         } catch (IOException e) {
             throw new FatalIOException("Unable to save station database!", e);
@@ -113,7 +122,8 @@ public class StationDatabaseManager {
                 stationSource.getStatus().setString("Queued...");
                 stationSource.getStatus().setValue(0);
             });
-            toBeUpdated.parallelStream().forEach(stationSource -> {
+            ExecutorService updateService = Executors.newFixedThreadPool(Math.max(1, Math.min(PARALLEL_UPDATES, toBeUpdated.size())));
+            List<Callable<Void>> tasks = toBeUpdated.stream().map(stationSource -> (Callable<Void>) () -> {
                 try {
                     synchronized (statusSync) {
                         stationSource.getStatus().setString("Updating...");
@@ -152,7 +162,16 @@ public class StationDatabaseManager {
                 } finally {
                     fireUpdateEvent();
                 }
-            });
+                return null;
+            }).toList();
+
+            try {
+                updateService.invokeAll(tasks);
+            } catch (InterruptedException e) {
+                Logger.error(e);
+            } finally {
+                updateService.shutdown();
+            }
 
             this.updating = false;
             fireStatusChangeEvent();
@@ -177,11 +196,14 @@ public class StationDatabaseManager {
         }
     }
 
+    /**
+     * @return the legacy serialized database, only read once to migrate it into {@link StationDatabaseIO}
+     */
     public static File getDatabaseFile() {
         return new File(getStationsFolder(), "database.dat");
     }
 
-    private static File getStationsFolder() {
+    public static File getStationsFolder() {
         return new File(GlobalQuake.mainFolder, "/stationDatabase/");
     }
 
@@ -272,32 +294,26 @@ public class StationDatabaseManager {
     }
 
     public void removeAllStationSources(List<StationSource> toBeRemoved) {
-        for (Iterator<Network> networkIterator = getStationDatabase().getNetworks().iterator(); networkIterator.hasNext(); ) {
-            Network network = networkIterator.next();
-            for (Iterator<Station> stationIterator = network.getStations().iterator(); stationIterator.hasNext(); ) {
-                Station station = stationIterator.next();
-                for (Iterator<Channel> channelIterator = station.getChannels().iterator(); channelIterator.hasNext(); ) {
-                    Channel channel = channelIterator.next();
+        for (Network network : getStationDatabase().getNetworks()) {
+            for (Station station : network.getStations()) {
+                for (Channel channel : station.getChannels()) {
                     toBeRemoved.forEach(channel.getStationSources()::remove);
                     channel.getStationSources().removeIf(source -> !getStationDatabase().getStationSources().contains(source));
-                    if (channel.getStationSources().isEmpty()) {
-                        channelIterator.remove();
-                    }
                 }
-                if (station.getChannels().isEmpty()) {
-                    stationIterator.remove();
-                } else if (station.getSelectedChannel() != null) {
+                station.removeChannelsIf(channel -> channel.getStationSources().isEmpty());
+                if (!station.getChannels().isEmpty() && station.getSelectedChannel() != null) {
                     if (!station.getChannels().contains(station.getSelectedChannel())) {
                         station.selectBestAvailableChannel();
                     }
                 }
             }
-            if (network.getStations().isEmpty()) {
-                networkIterator.remove();
-            }
+            network.removeStationsIf(station -> station.getChannels().isEmpty());
         }
 
+        getStationDatabase().removeNetworksIf(network -> network.getStations().isEmpty());
         getStationDatabase().getStationSources().removeAll(toBeRemoved);
+        // channels without any source are removed as well
+        getStationDatabase().markModified(null);
 
         fireUpdateEvent();
     }
@@ -0,0 +1,335 @@
+package globalquake.core.database;
+
+import gqserver.api.packets.station.InputType;
+import org.tinylog.Logger;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.math.BigDecimal;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.*;
+
+/**
+ * Streaming reader of FDSNWS StationXML responses. Channels are added to the networks list as soon as
+ * their element is closed, so the document is never held in memory as a whole.
+ */
+public class StationXMLParser {
+
+    public static final List<Character> SUPPORTED_BANDS = List.of('E', 'S', 'H', 'B', 'C', 'A');
+    public static final List<Character> SUPPORTED_INSTRUMENTS = List.of('H', 'L', 'G', 'M', 'N', 'C');
+
+    private static final XMLInputFactory inputFactory;
+
+    private static final Set<String> unknownUnits = Collections.synchronizedSet(new HashSet<>());
+
+    private static final Map<String, InputType> unitTypeMap = new HashMap<>();
+    private static final Map<String, Double> unitMultiplierMap = new HashMap<>();
+
+    static {
+        inputFactory = XMLInputFactory.newInstance();
+        inputFactory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, false);
+        inputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        inputFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+
+        // Unit to InputType mapping
+        unitTypeMap.put("m", InputType.DISPLACEMENT);
+        unitTypeMap.put("nm", InputType.DISPLACEMENT);
+        unitTypeMap.put("mm", InputType.DISPLACEMENT);
+
+        unitTypeMap.put("m/s", InputType.VELOCITY);
+        unitTypeMap.put("nm/s", InputType.VELOCITY);
+        unitTypeMap.put("mm/s", InputType.VELOCITY);
+
+        unitTypeMap.put("1m/s**2", InputType.ACCELERATION);
+        unitTypeMap.put("m/s**2", InputType.ACCELERATION);
+        unitTypeMap.put("nm/s**2", InputType.ACCELERATION);
+        unitTypeMap.put("mm/s**2", InputType.ACCELERATION);
+
+        // Unit to Multiplier mapping
+        unitMultiplierMap.put("nm", 1E9);
+        unitMultiplierMap.put("nm/s", 1E9);
+        unitMultiplierMap.put("nm/s**2", 1E9);
+
+        unitMultiplierMap.put("mm", 1E3);
+        unitMultiplierMap.put("mm/s", 1E3);
+        unitMultiplierMap.put("mm/s**2", 1E3);
+
+        // other unidentified units: [volts, , m/s/s, counts, nt, none.specified, g, count, m/m, none, radians, rad/s, 1m/s**2, rad/sec, t, v, volt, r/s, kpa]
+    }
+
+    private final StationSource stationSource;
+    private final List<Network> result;
+    private final Map<String, Network> networkIndex = new HashMap<>();
+
+    private final Deque<String> elements = new ArrayDeque<>();
+    private final StringBuilder text = new StringBuilder();
+    private final StringBuilder siteText = new StringBuilder();
+    private int channelCount = 0;
+
+    private String networkCode;
+    private String networkDescription;
+
+    private String stationCode;
+    private double stationLat;
+    private double stationLon;
+    private double stationAlt;
+
+    private String channelCode;
+    private String locationCode;
+    private String startDate;
+    private String endDate;
+    private double lat;
+    private double lon;
+    private double alt;
+    private double sampleRate;
+    private String sensitivityValue;
+    private String inputUnits;
+
+    private StationXMLParser(StationSource stationSource, List<Network> result) {
+        this.stationSource = stationSource;
+        this.result = result;
+        for (Network network : result) {
+            networkIndex.put(network.getNetworkCode(), network);
+        }
+    }
+
+    /**
+     * Parses the document and adds all supported channels to the result
+     *
+     * @return number of channels added
+     */
+    public static int parse(InputStream inputStream, StationSource stationSource, List<Network> result) throws IOException, XMLStreamException {
+        PushbackInputStream in = new PushbackInputStream(inputStream) {
+            @Override
+            public void close() {
+                // the stream is closed by the caller, who may still want to read the rest of it
+            }
+        };
+        int first = in.read();
+
+        // some FDSNWS providers send empty document if no stations found by given parameters
+        if (first == -1) {
+            return 0;
+        }
+
+        in.unread(first);
+
+        StationXMLParser parser = new StationXMLParser(stationSource, result);
+        XMLStreamReader reader = inputFactory.createXMLStreamReader(in);
+        try {
+            parser.read(reader);
+        } finally {
+            reader.close();
+        }
+
+        return parser.channelCount;
+    }
+
+    private void read(XMLStreamReader reader) throws XMLStreamException {
+        while (reader.hasNext()) {
+            switch (reader.next()) {
+                case XMLStreamConstants.START_ELEMENT -> startElement(reader);
+                case XMLStreamConstants.CHARACTERS, XMLStreamConstants.CDATA -> {
+                    text.append(reader.getText());
+                    if (elements.contains("Site")) {
+                        siteText.append(reader.getText());
+                    }
+                }
+                case XMLStreamConstants.END_ELEMENT -> endElement();
+            }
+        }
+    }
+
+    private void startElement(XMLStreamReader reader) {
+        String name = reader.getLocalName();
+        text.setLength(0);
+
+        switch (name) {
+            case "Network" -> {
+                networkCode = reader.getAttributeValue(null, "code");
+                networkDescription = "";
+            }
+            case "Station" -> {
+                stationCode = reader.getAttributeValue(null, "code");
+                stationLat = Double.NaN;
+                stationLon = Double.NaN;
+                stationAlt = Double.NaN;
+                siteText.setLength(0);
+            }
+            case "Channel" -> {
+                channelCode = reader.getAttributeValue(null, "code");
+                locationCode = reader.getAttributeValue(null, "locationCode");
+                startDate = reader.getAttributeValue(null, "startDate");
+                endDate = reader.getAttributeValue(null, "endDate");
+                lat = Double.NaN;
+                lon = Double.NaN;
+                alt = Double.NaN;
+                sampleRate = -1;
+                sensitivityValue = null;
+                inputUnits = null;
+            }
+        }
+
+        elements.push(name);
+    }
+
+    private void endElement() {
+        String name = elements.pop();
+        String parent = elements.peek();
+        String value = text.toString().trim();
+
+        if ("Network".equals(parent)) {
+            if (name.equals("Description")) {
+                networkDescription = value;
+            }
+        } else if ("Station".equals(parent)) {
+            switch (name) {
+                case "Latitude" -> stationLat = Double.parseDouble(value);
+                case "Longitude" -> stationLon = Double.parseDouble(value);
+                case "Elevation" -> stationAlt = Double.parseDouble(value);
+            }
+        } else if ("Channel".equals(parent)) {
+            switch (name) {
+                case "Latitude" -> lat = Double.parseDouble(value);
+                case "Longitude" -> lon = Double.parseDouble(value);
+                case "Elevation" -> alt = Double.parseDouble(value);
+                case "SampleRate" -> sampleRate = Double.parseDouble(value);
+            }
+        } else if ("InstrumentSensitivity".equals(parent) && name.equals("Value")) {
+            sensitivityValue = value;
+        } else if ("InputUnits".equals(parent) && name.equals("Name") && elements.contains("InstrumentSensitivity")) {
+            inputUnits = value;
+        }
+
+        if (name.equals("Channel")) {
+            channelFinished();
+        }
+
+        text.setLength(0);
+    }
+
+    private void channelFinished() {
+        if (networkCode == null) {
+            Logger.debug("ERR: no network code wtf.");
+            return;
+        }
+
+        if (stationCode == null || channelCode == null || locationCode == null) {
+            return;
+        }
+
+        if (!isWithinDateRange(startDate, endDate)) {
+            return;
+        }
+
+        // Necessary values: lat lon alt, Other can fail
+        if (Double.isNaN(lat) || Double.isNaN(lon) || Double.isNaN(alt)) {
+            Logger.debug("Channel without location: %s %s %s".formatted(networkCode, stationCode, channelCode));
+            return;
+        }
+
+        double sensitivity = -1;
+        InputType inputType = InputType.UNKNOWN;
+        if (sensitivityValue != null) {
+            sensitivity = new BigDecimal(sensitivityValue).doubleValue();
+        }
+
+        if (sensitivityValue != null && inputUnits != null) {
+            sensitivity *= getInputUnitsMultiplier(inputUnits);
+            inputType = getInputType(inputUnits);
+        } else {
+            Logger.debug(
+                    "No Sensitivity!!!! " + stationCode + " " + networkCode + " " + channelCode + " @ " + stationSource.getUrl());
+        }
+
+        if (!isSupported(channelCode)) {
+            return;
+        }
+
+        Network network = networkIndex.computeIfAbsent(networkCode, code -> {
+            Network newNetwork = new Network(code, networkDescription);
+            result.add(newNetwork);
+            return newNetwork;
+        });
+
+        Station station = StationDatabase.getOrCreateStation(network, stationCode, siteText.toString().trim(),
+                Double.isNaN(stationLat) ? lat : stationLat,
+                Double.isNaN(stationLon) ? lon : stationLon,
+                Double.isNaN(stationAlt) ? alt : stationAlt);
+        StationDatabase.getOrCreateChannel(station, channelCode, locationCode, lat, lon, alt, sampleRate, stationSource, sensitivity, inputType);
+        channelCount++;
+    }
+
+    private static boolean isWithinDateRange(String startDateStr, String endDateStr) {
+        // Try parsing with 'Z' and without 'Z'
+        SimpleDateFormat dateFormatWithZ = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'");
+        SimpleDateFormat dateFormatWithoutZ = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss");
+
+        try {
+            Date startDate = startDateStr != null ?
+                    parseDate(startDateStr, dateFormatWithZ, dateFormatWithoutZ) : null;
+            Date currentDate = new Date();
+
+            if (endDateStr != null) {
+                Date endDate = parseDate(endDateStr, dateFormatWithZ, dateFormatWithoutZ);
+                // Check if the current date is within the start and end dates
+                return (startDate == null || currentDate.after(startDate)) && currentDate.before(endDate);
+            } else {
+                // If there is no end date, check if the current date is after the start date
+                return (startDate == null || currentDate.after(startDate));
+            }
+        } catch (ParseException e) {
+            Logger.error(e);
+            return false;
+        }
+    }
+
+    private static Date parseDate(String dateString, SimpleDateFormat... dateFormats) throws ParseException {
+        for (SimpleDateFormat dateFormat : dateFormats) {
+            try {
+                return dateFormat.parse(dateString);
+            } catch (ParseException ignored) {
+                // Try the next format if the current one fails
+            }
+        }
+        // If none of the formats match, throw an exception
+        throw new ParseException("Unparseable date: " + dateString, 0);
+    }
+
+    private static InputType getInputType(String inputUnits) {
+        InputType inputType = unitTypeMap.getOrDefault(inputUnits.toLowerCase(), InputType.UNKNOWN);
+
+        if (inputType == InputType.UNKNOWN) {
+            unknownUnits.add(inputUnits.toLowerCase());
+            Logger.debug("Unknown input units: %s".formatted(Arrays.toString(unknownUnits.toArray())));
+        }
+
+        return inputType;
+    }
+
+    private static double getInputUnitsMultiplier(String inputUnits) {
+        return unitMultiplierMap.getOrDefault(inputUnits.toLowerCase(), 1.0);
+    }
+
+    public static boolean isSupported(String channel) {
+        if (channel.length() < 2) {
+            return false;
+        }
+
+        char band = channel.charAt(0);
+        char instrument = channel.charAt(1);
+
+        if (!(SUPPORTED_BANDS.contains(band))) {
+            return false;
+        }
+
+        return SUPPORTED_INSTRUMENTS.contains(instrument);
+    }
+
+}
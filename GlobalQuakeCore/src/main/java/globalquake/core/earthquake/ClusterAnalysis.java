@@ -8,12 +8,14 @@ import globalquake.core.events.specific.ClusterLevelUpEvent;
 import globalquake.core.events.specific.QuakeRemoveEvent;
 import globalquake.core.geo.taup.TauPTravelTimeCalculator;
 import globalquake.core.intensity.IntensityTable;
+import globalquake.core.metrics.LatencyHistogram;
+import globalquake.core.metrics.Metrics;
 import globalquake.core.station.AbstractStation;
 import globalquake.core.earthquake.data.*;
 import globalquake.core.analysis.Event;
 import globalquake.core.station.NearbyStationDistanceInfo;
 import globalquake.utils.GeoUtils;
-import globalquake.utils.monitorable.MonitorableConcurrentLinkedQueue;
+import globalquake.utils.monitorable.MonitorableRegistry;
 import org.tinylog.Logger;
 
 import java.util.*;
@@ -29,16 +31,19 @@ public class ClusterAnalysis {
     private final Lock clustersReadLock = clustersLock.readLock();
     private final Lock clustersWriteLock = clustersLock.writeLock();
 
-    protected final Collection<Cluster> clusters;
+    protected final MonitorableRegistry<Cluster> clusters;
     private final Collection<Earthquake> earthquakes;
     private final Collection<AbstractStation> stations;
 
     private static final double MERGE_THRESHOLD = 0.54;
 
+    private static final LatencyHistogram RUN_TIME = Metrics.histogram("gq_cluster_analysis_seconds",
+            "Time of one pass of the cluster analysis");
+
     public ClusterAnalysis(List<Earthquake> earthquakes, Collection<AbstractStation> stations) {
         this.earthquakes = earthquakes;
         this.stations = stations;
-        clusters = new MonitorableConcurrentLinkedQueue<>();
+        clusters = new MonitorableRegistry<>(Cluster::getUuid);
     }
 
     public ClusterAnalysis() {
@@ -50,6 +55,7 @@ public class ClusterAnalysis {
     }
 
     public void run() {
+        long start = System.nanoTime();
         clustersWriteLock.lock();
         try {
             clearSWaves();
@@ -62,6 +68,7 @@ public class ClusterAnalysis {
             updateClusters();
         } finally {
             clustersWriteLock.unlock();
+            RUN_TIME.recordSince(start);
         }
     }
 
@@ -551,7 +558,7 @@ public class ClusterAnalysis {
         return cluster;
     }
 
-    public Collection<Cluster> getClusters() {
+    public MonitorableRegistry<Cluster> getClusters() {
         return clusters;
     }
 
@@ -6,18 +6,20 @@ import globalquake.core.Settings;
 import globalquake.core.analysis.BetterAnalysis;
 import globalquake.core.analysis.Event;
 import globalquake.core.earthquake.data.*;
-import globalquake.core.earthquake.interval.DepthConfidenceInterval;
+import globalquake.core.earthquake.interval.ConfidenceIntervalCalculator;
 import globalquake.core.earthquake.interval.PolygonConfidenceInterval;
 import globalquake.core.events.specific.QuakeCreateEvent;
 import globalquake.core.events.specific.QuakeRemoveEvent;
 import globalquake.core.events.specific.QuakeUpdateEvent;
 import globalquake.core.geo.taup.TauPTravelTimeCalculator;
 import globalquake.core.intensity.IntensityTable;
+import globalquake.core.metrics.LatencyHistogram;
+import globalquake.core.metrics.Metrics;
 import globalquake.core.station.AbstractStation;
 import globalquake.core.station.StationState;
 import globalquake.utils.GeoUtils;
 import globalquake.utils.Point2DGQ;
-import globalquake.utils.monitorable.MonitorableCopyOnWriteArrayList;
+import globalquake.utils.monitorable.MonitorableRegistry;
 import gqserver.api.packets.station.InputType;
 import org.tinylog.Logger;
 
@@ -49,25 +51,32 @@ public class EarthquakeAnalysis {
     public static final int OBVIOUS_CORRECT_MIN_TOTAL = 8;
 
     public static boolean DEPTH_FIX_ALLOWED = true;
+
+    private static final LatencyHistogram CLUSTER_TIME = Metrics.histogram("gq_earthquake_cluster_seconds",
+            "Time spent on one cluster in the hypocenter loop, including the clusters that were skipped");
+    private static final LatencyHistogram SEARCH_TIME = Metrics.histogram("gq_hypocenter_search_seconds",
+            "Time of one complete hypocenter search including the confidence intervals");
+    private static final LatencyHistogram GQHYPOCS_TIME = Metrics.histogram("gq_gqhypocs_solve_seconds",
+            "Time of one hypocenter search on the GPU");
     @SuppressWarnings("FieldCanBeLocal")
     private final boolean HONEST_DEPTH = false;
 
-    private final List<Earthquake> earthquakes;
+    private final MonitorableRegistry<Earthquake> earthquakes;
 
     private ClusterAnalysis clusterAnalysis;
 
     public boolean testing = false;
 
     public EarthquakeAnalysis() {
-        earthquakes = new MonitorableCopyOnWriteArrayList<>();
+        earthquakes = new MonitorableRegistry<>(Earthquake::getUuid);
     }
 
-    public EarthquakeAnalysis(ClusterAnalysis clusterAnalysis, List<Earthquake> earthquakes) {
+    public EarthquakeAnalysis(ClusterAnalysis clusterAnalysis, MonitorableRegistry<Earthquake> earthquakes) {
         this.clusterAnalysis = clusterAnalysis;
         this.earthquakes = earthquakes;
     }
 
-    public List<Earthquake> getEarthquakes() {
+    public MonitorableRegistry<Earthquake> getEarthquakes() {
         return earthquakes;
     }
 
@@ -81,7 +90,11 @@ public class EarthquakeAnalysis {
         }
         clusterAnalysis.getClustersReadLock().lock();
         try {
-            clusterAnalysis.getClusters().parallelStream().forEach(cluster -> processCluster(cluster, createListOfPickedEvents(cluster), true));
+            clusterAnalysis.getClusters().parallelStream().forEach(cluster -> {
+                long start = System.nanoTime();
+                processCluster(cluster, createListOfPickedEvents(cluster), true);
+                CLUSTER_TIME.recordSince(start);
+            });
         } finally {
             clusterAnalysis.getClustersReadLock().unlock();
         }
@@ -143,7 +156,9 @@ public class EarthquakeAnalysis {
         // Selects picked events in a way that they are spaced away as much as possible
         findGoodEvents(pickedEvents, selectedEvents);
 
+        long start = System.nanoTime();
         findHypocenter(selectedEvents, cluster, finderSettings);
+        SEARCH_TIME.recordSince(start);
     }
 
     public static HypocenterFinderSettings createSettings(boolean useCUDA) {
@@ -222,7 +237,9 @@ public class EarthquakeAnalysis {
         }
 
         if (GQHypocs.isCudaLoaded() && finderSettings.useCUDA()) {
+            long start = System.nanoTime();
             var result = GQHypocs.findHypocenter(selectedEvents, cluster, 0, finderSettings);
+            GQHYPOCS_TIME.recordSince(start);
 
             if (result != null) {
                 return result;
@@ -368,104 +385,10 @@ public class EarthquakeAnalysis {
         return result;
     }
 
-    private DepthConfidenceInterval calculateDepthConfidenceInterval(List<PickedEvent> selectedEvents, PreliminaryHypocenter bestHypocenter, HypocenterFinderSettings finderSettings) {
-        double upperBound = bestHypocenter.depth;
-        double lowerBound = bestHypocenter.depth;
-
-        PreliminaryHypocenter hypocenterA = new PreliminaryHypocenter();
-        HypocenterFinderThreadData threadData = new HypocenterFinderThreadData(selectedEvents.size());
-        List<ExactPickedEvent> pickedEvents = createListOfExactPickedEvents(selectedEvents);
-        calculateDistances(pickedEvents, bestHypocenter.lat, bestHypocenter.lon);
-
-        for (double depth = 0; depth < TauPTravelTimeCalculator.MAX_DEPTH; depth += 1.0 / getUniversalResolutionMultiplier(finderSettings)) {
-            analyseHypocenter(hypocenterA, bestHypocenter.lat, bestHypocenter.lon, depth, pickedEvents, finderSettings, threadData);
-            if (calculateHeuristic(hypocenterA) > calculateHeuristic(bestHypocenter) / CONFIDENCE_LEVEL && depth < bestHypocenter.depth && depth < upperBound) {
-                upperBound = depth;
-            }
-
-            if (calculateHeuristic(hypocenterA) > calculateHeuristic(bestHypocenter) / CONFIDENCE_LEVEL && depth > bestHypocenter.depth) {
-                lowerBound = depth;
-            }
-        }
-
-        return new DepthConfidenceInterval(upperBound, lowerBound);
-    }
-
-    private static final int CONFIDENCE_POLYGON_EDGES = 64;
-    private static final double CONFIDENCE_POLYGON_OFFSET = 0;
-    private static final double CONFIDENCE_POLYGON_STEP = 10;
-    private static final double CONFIDENCE_POLYGON_MIN_STEP = 0.25;
-    private static final double CONFIDENCE_POLYGON_MAX_DIST = 5000;
-
-    private static final double CONFIDENCE_LEVEL = 1.2;
-
     public Earthquake getEarthquake(UUID uuid) {
-        for (Earthquake earthquake : getEarthquakes()) {
-            if (earthquake.getUuid().equals(uuid)) {
-                return earthquake;
-            }
-        }
-
-        return null;
-    }
-
-    record PolygonConfidenceResult(double dist, long minOrigin, long maxOrigin) {
+        return getEarthquakes().get(uuid);
     }
 
-    private PolygonConfidenceInterval calculatePolygonConfidenceInterval(List<PickedEvent> selectedEvents,
-                                                                         PreliminaryHypocenter bestHypocenter, HypocenterFinderSettings finderSettings, double confidenceThreshold) {
-        List<Integer> integerList = IntStream.range(0, CONFIDENCE_POLYGON_EDGES).boxed().toList();
-        List<PolygonConfidenceResult> results = (Settings.parallelHypocenterLocations ? integerList.parallelStream() : integerList.stream()).map(ray -> {
-            double ang = CONFIDENCE_POLYGON_OFFSET + (ray / (double) CONFIDENCE_POLYGON_EDGES) * 360.0;
-            double dist = CONFIDENCE_POLYGON_STEP;
-            double step = CONFIDENCE_POLYGON_STEP;
-
-            long minOrigin = Long.MAX_VALUE;
-            long maxOrigin = Long.MIN_VALUE;
-
-            List<ExactPickedEvent> pickedEvents = createListOfExactPickedEvents(selectedEvents);
-            HypocenterFinderThreadData threadData = new HypocenterFinderThreadData(pickedEvents.size());
-            while (step > CONFIDENCE_POLYGON_MIN_STEP && dist < CONFIDENCE_POLYGON_MAX_DIST) {
-                double[] latLon = GeoUtils.moveOnGlobe(bestHypocenter.lat, bestHypocenter.lon, dist, ang);
-                double lat = latLon[0];
-                double lon = latLon[1];
-
-                // reset
-                threadData.bestHypocenter.err = Double.MAX_VALUE;
-                threadData.bestHypocenter.correctStations = 0;
-
-                calculateDistances(pickedEvents, lat, lon);
-                getBestAtDepth(200, TauPTravelTimeCalculator.MAX_DEPTH, finderSettings, 0, lat, lon, pickedEvents, threadData, true);
-
-                double h1 = calculateHeuristic(threadData.bestHypocenter);
-                double h2 = calculateHeuristic(bestHypocenter);
-                boolean stillValid = h1 > h2 / confidenceThreshold;
-                if (stillValid) {
-                    dist += step;
-                    if (threadData.bestHypocenter.origin > maxOrigin) {
-                        maxOrigin = threadData.bestHypocenter.origin;
-                    }
-                    if (threadData.bestHypocenter.origin < minOrigin) {
-                        minOrigin = threadData.bestHypocenter.origin;
-                    }
-                } else {
-                    step /= 2.0;
-                    dist -= step;
-                }
-            }
-
-            return new PolygonConfidenceResult(dist, minOrigin, maxOrigin);
-        }).toList();
-
-        List<Double> lengths = results.stream().map(polygonConfidenceResult -> polygonConfidenceResult.dist).toList();
-
-        long minOrigin = results.stream().map(polygonConfidenceResult -> polygonConfidenceResult.minOrigin).min(Long::compareTo).orElse(0L);
-        long maxOrigin = results.stream().map(polygonConfidenceResult -> polygonConfidenceResult.maxOrigin).max(Long::compareTo).orElse(0L);
-
-        return new PolygonConfidenceInterval(CONFIDENCE_POLYGON_EDGES, CONFIDENCE_POLYGON_OFFSET, lengths, minOrigin, maxOrigin);
-    }
-
-
     // calculate correct stations and err
     private void postProcess(List<PickedEvent> selectedEvents, PreliminaryHypocenter bestHypocenterPrelim, HypocenterFinderSettings finderSettings) {
         List<ExactPickedEvent> pickedEvents = createListOfExactPickedEvents(selectedEvents);
@@ -480,9 +403,11 @@ public class EarthquakeAnalysis {
 
     private void postProcess(List<PickedEvent> selectedEvents, List<PickedEvent> correctSelectedEvents, Cluster cluster, PreliminaryHypocenter bestHypocenterPrelim, HypocenterFinderSettings finderSettings, long startTime) {
         postProcess(correctSelectedEvents, bestHypocenterPrelim, finderSettings);
+        ConfidenceIntervalCalculator confidenceIntervalCalculator = new ConfidenceIntervalCalculator(correctSelectedEvents,
+                bestHypocenterPrelim, finderSettings, 1.0 / getUniversalResolutionMultiplier(finderSettings));
         Hypocenter bestHypocenter = bestHypocenterPrelim.finish(
-                calculateDepthConfidenceInterval(correctSelectedEvents, bestHypocenterPrelim, finderSettings),
-                calculatePolygonConfidenceIntervals(correctSelectedEvents, bestHypocenterPrelim, finderSettings));
+                confidenceIntervalCalculator.calculateDepthConfidenceInterval(),
+                calculatePolygonConfidenceIntervals(correctSelectedEvents, confidenceIntervalCalculator));
 
         if (bestHypocenter.correctEvents == 0 || bestHypocenter.totalErr == Double.MAX_VALUE) {
             Logger.tag("Hypocs").debug("Absurd!");
@@ -595,6 +520,7 @@ public class EarthquakeAnalysis {
             cluster.revisionID += 1;
 
             cluster.getPreviousHypocenter().magnitudeUpdate(bestHypocenter);
+            getEarthquakes().update(cluster.getEarthquake());
 
             if (GlobalQuake.instance != null) {
                 GlobalQuake.instance.getEventHandler().fireEvent(new QuakeUpdateEvent(cluster.getEarthquake(), cluster.getPreviousHypocenter()));
@@ -619,6 +545,7 @@ public class EarthquakeAnalysis {
             cluster.setEarthquake(newEarthquake);
         } else {
             cluster.getEarthquake().update();
+            getEarthquakes().update(cluster.getEarthquake());
 
             if (GlobalQuake.instance != null) {
                 GlobalQuake.instance.getEventHandler().fireEvent(new QuakeUpdateEvent(cluster.getEarthquake(), cluster.getPreviousHypocenter()));
@@ -677,17 +604,11 @@ public class EarthquakeAnalysis {
         Logger.tag("Hypocs").debug("Origin time recalculated");
     }
 
-    private List<PolygonConfidenceInterval> calculatePolygonConfidenceIntervals(List<PickedEvent> selectedEvents, PreliminaryHypocenter bestHypocenterPrelim, HypocenterFinderSettings finderSettings) {
-        List<PolygonConfidenceInterval> result = new ArrayList<>();
-
+    private List<PolygonConfidenceInterval> calculatePolygonConfidenceIntervals(List<PickedEvent> selectedEvents, ConfidenceIntervalCalculator confidenceIntervalCalculator) {
         double mul = 80.0 / (selectedEvents.size() * selectedEvents.size() + 8.0) + 0.9;
 
-        result.add(calculatePolygonConfidenceInterval(selectedEvents, bestHypocenterPrelim, finderSettings, 3.0 * mul));
-        result.add(calculatePolygonConfidenceInterval(selectedEvents, bestHypocenterPrelim, finderSettings, 2.0 * mul));
-        result.add(calculatePolygonConfidenceInterval(selectedEvents, bestHypocenterPrelim, finderSettings, 1.5 * mul));
-        result.add(calculatePolygonConfidenceInterval(selectedEvents, bestHypocenterPrelim, finderSettings, 1.25 * mul));
-
-        return result;
+        // all four polygons share the rays, so they are calculated together
+        return confidenceIntervalCalculator.calculatePolygonConfidenceIntervals(3.0 * mul, 2.0 * mul, 1.5 * mul, 1.25 * mul);
     }
 
     private void calculateActualCorrectEvents(List<PickedEvent> selectedEvents, Hypocenter bestHypocenter) {
@@ -710,13 +631,8 @@ public class EarthquakeAnalysis {
         int total = 0;
         int wrong = 0;
 
-        for (AbstractStation station : GlobalQuake.instance.getStationManager().getStations()) {
+        for (AbstractStation station : GlobalQuake.instance.getStationManager().getStationsWithin(bestHypocenter.lat, bestHypocenter.lon, OBVIOUS_CORRECT_MAX_DISTANCE)) {
             double distGC = GeoUtils.greatCircleDistance(bestHypocenter.lat, bestHypocenter.lon, station.getLatitude(), station.getLongitude());
-
-            if (distGC > OBVIOUS_CORRECT_MAX_DISTANCE) {
-                continue;
-            }
-
             double angle = TauPTravelTimeCalculator.toAngle(distGC);
 
             double rawTravelP = TauPTravelTimeCalculator.getPWaveTravelTime(bestHypocenter.depth, angle);
@@ -2,7 +2,10 @@ package globalquake.core.earthquake;
 
 import globalquake.core.GlobalQuake;
 import globalquake.core.earthquake.data.HypocenterFinderSettings;
+import globalquake.core.earthquake.data.HypocenterFinderThreadData;
 import globalquake.core.earthquake.data.PickedEvent;
+import globalquake.core.earthquake.data.PreliminaryHypocenter;
+import globalquake.core.earthquake.interval.ConfidenceIntervalCalculator;
 import globalquake.core.geo.taup.TauPTravelTimeCalculator;
 import globalquake.jni.GQNativeFunctions;
 import globalquake.utils.GeoUtils;
@@ -32,6 +35,8 @@ public class GQHypocenterSearchBenchmark {
 
         System.out.printf("Average: %.2f%n", sum / 5.0);
 
+        runConfidenceTest();
+
         // CPU
         GQHypocenterSearchBenchmark.plotTimeVsPoints(false);
         GQHypocenterSearchBenchmark.plotTimeVsStations(false);
@@ -66,6 +71,44 @@ public class GQHypocenterSearchBenchmark {
         return pps;
     }
 
+    private static void runConfidenceTest() {
+        int st_c = 30;
+        List<PickedEvent> events = new ArrayList<>();
+        for (int i = 0; i < st_c; i++) {
+            double[] latLon = GeoUtils.moveOnGlobe(0, 0, 50 + r.nextDouble() * 800.0, r.nextDouble() * 360.0);
+            double distGC = GeoUtils.greatCircleDistance(0, 0, latLon[0], latLon[1]);
+            double travel = TauPTravelTimeCalculator.getPWaveTravelTime(10.0, TauPTravelTimeCalculator.toAngle(distGC));
+            events.add(new PickedEvent((long) (travel * 1000) + r.nextLong(400), latLon[0], latLon[1], 0, 100));
+        }
+
+        List<EarthquakeAnalysis.ExactPickedEvent> exactPickedEvents = EarthquakeAnalysis.createListOfExactPickedEvents(events);
+        EarthquakeAnalysis.calculateDistances(exactPickedEvents, 0, 0);
+        PreliminaryHypocenter hypocenter = new PreliminaryHypocenter();
+        EarthquakeAnalysis.analyseHypocenter(hypocenter, 0, 0, 10.0, exactPickedEvents, FINDER_SETTINGS, new HypocenterFinderThreadData(st_c));
+
+        double[] thresholds = {3.0, 2.0, 1.5, 1.25};
+
+        for (int i = 0; i < 3; i++) {
+            long a = System.currentTimeMillis();
+            for (double threshold : thresholds) {
+                ConfidenceIntervalCalculator calculator = new ConfidenceIntervalCalculator(events, hypocenter, FINDER_SETTINGS, 1.0, 1);
+                calculator.calculatePolygonConfidenceIntervals(threshold);
+                if (threshold == thresholds[0]) {
+                    calculator.calculateDepthConfidenceInterval();
+                }
+            }
+            long separate = System.currentTimeMillis() - a;
+
+            a = System.currentTimeMillis();
+            ConfidenceIntervalCalculator calculator = new ConfidenceIntervalCalculator(events, hypocenter, FINDER_SETTINGS, 1.0);
+            calculator.calculatePolygonConfidenceIntervals(thresholds);
+            calculator.calculateDepthConfidenceInterval();
+            long shared = System.currentTimeMillis() - a;
+
+            System.out.printf("Confidence intervals with %d stations: %dms separately, %dms with shared rays and coarse depth scan%n", st_c, separate, shared);
+        }
+    }
+
     private static void plotTimeVsPoints(boolean gpu) throws IOException {
         int[] stations_cases = new int[]{4, 8, 16, 32, 64};
         BufferedWriter writer = new BufferedWriter(new FileWriter("./speed_test_points%s.csv".formatted(gpu ? "_GPU" : "_CPU")));
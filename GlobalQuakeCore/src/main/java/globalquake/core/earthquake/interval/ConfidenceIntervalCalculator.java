@@ -0,0 +1,260 @@
+package globalquake.core.earthquake.interval;
+
+import globalquake.core.Settings;
+import globalquake.core.earthquake.EarthquakeAnalysis;
+import globalquake.core.earthquake.data.HypocenterFinderSettings;
+import globalquake.core.earthquake.data.HypocenterFinderThreadData;
+import globalquake.core.earthquake.data.PickedEvent;
+import globalquake.core.earthquake.data.PreliminaryHypocenter;
+import globalquake.core.geo.taup.TauPTravelTimeCalculator;
+import globalquake.utils.GeoUtils;
+
+import java.util.*;
+import java.util.stream.IntStream;
+
+/**
+ * Calculates the confidence intervals of a single hypocenter.
+ * Each polygon ray is marched only once for all the thresholds: the best heuristic found at every visited
+ * point is remembered in the profile of the ray and the step-halving walks of the other thresholds reuse it.
+ * The depth interval is scanned on a coarse grid first and refined only where the result changes.
+ */
+public class ConfidenceIntervalCalculator {
+
+    public static final int POLYGON_EDGES = 64;
+    public static final double POLYGON_OFFSET = 0;
+    private static final double POLYGON_STEP = 10;
+    private static final double POLYGON_MIN_STEP = 0.25;
+    private static final double POLYGON_MAX_DIST = 5000;
+
+    public static final double DEPTH_CONFIDENCE_LEVEL = 1.2;
+
+    /**
+     * Number of depth steps between two points of the coarse depth scan
+     */
+    public static final int DEPTH_COARSE_STEPS = 8;
+
+    private final List<PickedEvent> selectedEvents;
+    private final PreliminaryHypocenter bestHypocenter;
+    private final HypocenterFinderSettings finderSettings;
+    private final double depthStep;
+    private final int depthCoarseSteps;
+    private final double bestHeuristic;
+
+    public ConfidenceIntervalCalculator(List<PickedEvent> selectedEvents, PreliminaryHypocenter bestHypocenter,
+                                        HypocenterFinderSettings finderSettings, double depthStep) {
+        this(selectedEvents, bestHypocenter, finderSettings, depthStep, DEPTH_COARSE_STEPS);
+    }
+
+    /**
+     * @param depthStep        resolution of the depth interval in km
+     * @param depthCoarseSteps how many depth steps are skipped by the coarse scan, 1 scans every step
+     */
+    public ConfidenceIntervalCalculator(List<PickedEvent> selectedEvents, PreliminaryHypocenter bestHypocenter,
+                                        HypocenterFinderSettings finderSettings, double depthStep, int depthCoarseSteps) {
+        if (depthCoarseSteps < 1) {
+            throw new IllegalArgumentException("Coarse depth steps must be at least 1, got %d".formatted(depthCoarseSteps));
+        }
+        this.selectedEvents = selectedEvents;
+        this.bestHypocenter = bestHypocenter;
+        this.finderSettings = finderSettings;
+        this.depthStep = depthStep;
+        this.depthCoarseSteps = depthCoarseSteps;
+        this.bestHeuristic = EarthquakeAnalysis.calculateHeuristic(bestHypocenter);
+    }
+
+    public DepthConfidenceInterval calculateDepthConfidenceInterval() {
+        DepthProfile profile = new DepthProfile();
+        int count = profile.depths.length;
+
+        // the checkpoints always include both neighbours of the best depth, so that a refined
+        // segment never spans across it
+        TreeSet<Integer> checkpoints = new TreeSet<>();
+        for (int i = 0; i < count; i += depthCoarseSteps) {
+            checkpoints.add(i);
+        }
+        checkpoints.add(count - 1);
+        int firstBelow = 0;
+        while (firstBelow < count && profile.depths[firstBelow] <= bestHypocenter.depth) {
+            firstBelow++;
+        }
+        if (firstBelow > 0) {
+            checkpoints.add(firstBelow - 1);
+        }
+        if (firstBelow < count) {
+            checkpoints.add(firstBelow);
+        }
+
+        double upperBound = bestHypocenter.depth;
+        double lowerBound = bestHypocenter.depth;
+
+        int previous = -1;
+        for (int checkpoint : checkpoints) {
+            if (profile.depths[checkpoint] >= bestHypocenter.depth) {
+                break;
+            }
+            if (profile.isValid(checkpoint)) {
+                int found = checkpoint;
+                for (int i = previous + 1; i < checkpoint; i++) {
+                    if (profile.isValid(i)) {
+                        found = i;
+                        break;
+                    }
+                }
+                upperBound = profile.depths[found];
+                break;
+            }
+            previous = checkpoint;
+        }
+
+        int next = count;
+        for (int checkpoint : checkpoints.descendingSet()) {
+            if (profile.depths[checkpoint] <= bestHypocenter.depth) {
+                break;
+            }
+            if (profile.isValid(checkpoint)) {
+                int found = checkpoint;
+                for (int i = next - 1; i > checkpoint; i--) {
+                    if (profile.isValid(i)) {
+                        found = i;
+                        break;
+                    }
+                }
+                lowerBound = profile.depths[found];
+                break;
+            }
+            next = checkpoint;
+        }
+
+        return new DepthConfidenceInterval(upperBound, lowerBound);
+    }
+
+    /**
+     * @param thresholds confidence thresholds, one polygon is calculated for each of them
+     * @return polygons in the same order as the thresholds
+     */
+    public List<PolygonConfidenceInterval> calculatePolygonConfidenceIntervals(double... thresholds) {
+        List<Integer> integerList = IntStream.range(0, POLYGON_EDGES).boxed().toList();
+        List<RayResult[]> rays = (Settings.parallelHypocenterLocations ? integerList.parallelStream() : integerList.stream())
+                .map(ray -> new RayProfile(ray).march(thresholds)).toList();
+
+        List<PolygonConfidenceInterval> result = new ArrayList<>(thresholds.length);
+        for (int i = 0; i < thresholds.length; i++) {
+            List<Double> lengths = new ArrayList<>(POLYGON_EDGES);
+            long minOrigin = Long.MAX_VALUE;
+            long maxOrigin = Long.MIN_VALUE;
+            for (RayResult[] ray : rays) {
+                lengths.add(ray[i].dist());
+                minOrigin = Math.min(minOrigin, ray[i].minOrigin());
+                maxOrigin = Math.max(maxOrigin, ray[i].maxOrigin());
+            }
+
+            result.add(new PolygonConfidenceInterval(POLYGON_EDGES, POLYGON_OFFSET, lengths,
+                    rays.isEmpty() ? 0L : minOrigin, rays.isEmpty() ? 0L : maxOrigin));
+        }
+
+        return result;
+    }
+
+    private record RayResult(double dist, long minOrigin, long maxOrigin) {
+    }
+
+    private record Sample(double heuristic, long origin) {
+    }
+
+    /**
+     * Best hypocenters found along one ray, keyed by the distance from the best hypocenter.
+     * All the distances visited by the walks are exact binary fractions of the initial step, so they can be used as keys.
+     */
+    private class RayProfile {
+
+        private final double angle;
+        private final Map<Double, Sample> samples = new HashMap<>();
+        private final List<EarthquakeAnalysis.ExactPickedEvent> pickedEvents = EarthquakeAnalysis.createListOfExactPickedEvents(selectedEvents);
+        private final HypocenterFinderThreadData threadData = new HypocenterFinderThreadData(pickedEvents.size());
+
+        RayProfile(int ray) {
+            this.angle = POLYGON_OFFSET + (ray / (double) POLYGON_EDGES) * 360.0;
+        }
+
+        RayResult[] march(double[] thresholds) {
+            RayResult[] result = new RayResult[thresholds.length];
+            for (int i = 0; i < thresholds.length; i++) {
+                result[i] = walk(thresholds[i]);
+            }
+            return result;
+        }
+
+        private RayResult walk(double threshold) {
+            double dist = POLYGON_STEP;
+            double step = POLYGON_STEP;
+
+            long minOrigin = Long.MAX_VALUE;
+            long maxOrigin = Long.MIN_VALUE;
+
+            while (step > POLYGON_MIN_STEP && dist < POLYGON_MAX_DIST) {
+                Sample sample = samples.computeIfAbsent(dist, this::evaluate);
+                if (sample.heuristic() > bestHeuristic / threshold) {
+                    dist += step;
+                    maxOrigin = Math.max(maxOrigin, sample.origin());
+                    minOrigin = Math.min(minOrigin, sample.origin());
+                } else {
+                    step /= 2.0;
+                    dist -= step;
+                }
+            }
+
+            return new RayResult(dist, minOrigin, maxOrigin);
+        }
+
+        private Sample evaluate(double dist) {
+            double[] latLon = GeoUtils.moveOnGlobe(bestHypocenter.lat, bestHypocenter.lon, dist, angle);
+            double lat = latLon[0];
+            double lon = latLon[1];
+
+            // reset
+            threadData.bestHypocenter.err = Double.MAX_VALUE;
+            threadData.bestHypocenter.correctStations = 0;
+
+            EarthquakeAnalysis.calculateDistances(pickedEvents, lat, lon);
+            EarthquakeAnalysis.getBestAtDepth(200, TauPTravelTimeCalculator.MAX_DEPTH, finderSettings, 0, lat, lon, pickedEvents, threadData, true);
+
+            return new Sample(EarthquakeAnalysis.calculateHeuristic(threadData.bestHypocenter), threadData.bestHypocenter.origin);
+        }
+    }
+
+    /**
+     * Heuristic along the vertical line below the best hypocenter, evaluated lazily
+     */
+    private class DepthProfile {
+
+        private final double[] depths;
+        private final double[] heuristics;
+        private final List<EarthquakeAnalysis.ExactPickedEvent> pickedEvents = EarthquakeAnalysis.createListOfExactPickedEvents(selectedEvents);
+        private final HypocenterFinderThreadData threadData = new HypocenterFinderThreadData(pickedEvents.size());
+        private final PreliminaryHypocenter hypocenter = new PreliminaryHypocenter();
+
+        DepthProfile() {
+            // same accumulation as a plain scan would do, so the reported depths do not drift
+            List<Double> list = new ArrayList<>();
+            for (double depth = 0; depth < TauPTravelTimeCalculator.MAX_DEPTH; depth += depthStep) {
+                list.add(depth);
+            }
+
+            depths = list.stream().mapToDouble(Double::doubleValue).toArray();
+            heuristics = new double[depths.length];
+            Arrays.fill(heuristics, Double.NaN);
+
+            EarthquakeAnalysis.calculateDistances(pickedEvents, bestHypocenter.lat, bestHypocenter.lon);
+        }
+
+        boolean isValid(int index) {
+            if (Double.isNaN(heuristics[index])) {
+                EarthquakeAnalysis.analyseHypocenter(hypocenter, bestHypocenter.lat, bestHypocenter.lon, depths[index],
+                        pickedEvents, finderSettings, threadData);
+                heuristics[index] = EarthquakeAnalysis.calculateHeuristic(hypocenter);
+            }
+
+            return heuristics[index] > bestHeuristic / DEPTH_CONFIDENCE_LEVEL;
+        }
+    }
+}
@@ -3,12 +3,15 @@ package globalquake.core.events;
 import globalquake.core.GlobalQuake;
 import globalquake.core.events.specific.GlobalQuakeEvent;
 import globalquake.core.events.specific.SeedlinkEvent;
+import globalquake.core.metrics.Metrics;
 import org.tinylog.Logger;
 
 import java.util.Queue;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class GlobalQuakeEventHandler {
 
@@ -17,10 +20,16 @@ public class GlobalQuakeEventHandler {
     private ExecutorService defaultExecutor;
     private ExecutorService seedlinkExecutor;
 
+    // events waiting for their executor
+    private final AtomicInteger defaultQueued = new AtomicInteger();
+    private final AtomicInteger seedlinkQueued = new AtomicInteger();
+
     public GlobalQuakeEventHandler runHandler() {
         eventListeners = new ConcurrentLinkedQueue<>();
         defaultExecutor = Executors.newSingleThreadExecutor();
         seedlinkExecutor = Executors.newSingleThreadExecutor();
+        Metrics.gauge("gq_event_queue_size", "Events waiting to be passed to the listeners", defaultQueued::get, "executor", "default");
+        Metrics.gauge("gq_event_queue_size", "Events waiting to be passed to the listeners", seedlinkQueued::get, "executor", "seedlink");
         return this;
     }
 
@@ -35,18 +44,26 @@ public class GlobalQuakeEventHandler {
     }
 
     public void fireEvent(GlobalQuakeEvent event) {
-        getExecutorFor(event).submit(() -> {
-            if (event.shouldLog()) {
-                Logger.tag("Event").trace("Event fired: %s".formatted(event.toString()));
-            }
-            for (GlobalQuakeEventListener eventListener : eventListeners) {
-                try {
-                    event.run(eventListener);
-                } catch (Exception e) {
-                    Logger.error(e);
+        AtomicInteger queued = event instanceof SeedlinkEvent ? seedlinkQueued : defaultQueued;
+        queued.incrementAndGet();
+        try {
+            getExecutorFor(event).submit(() -> {
+                queued.decrementAndGet();
+                if (event.shouldLog()) {
+                    Logger.tag("Event").trace("Event fired: %s".formatted(event.toString()));
+                }
+                for (GlobalQuakeEventListener eventListener : eventListeners) {
+                    try {
+                        event.run(eventListener);
+                    } catch (Exception e) {
+                        Logger.error(e);
+                    }
                 }
-            }
-        });
+            });
+        } catch (RejectedExecutionException e) {
+            queued.decrementAndGet();
+            throw e;
+        }
     }
 
     private ExecutorService getExecutorFor(GlobalQuakeEvent event) {
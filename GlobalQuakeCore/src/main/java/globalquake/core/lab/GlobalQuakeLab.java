@@ -4,7 +4,6 @@ import globalquake.core.GlobalQuake;
 import globalquake.core.HypocsSettings;
 import globalquake.core.Settings;
 import globalquake.core.archive.ArchivedEvent;
-import globalquake.core.archive.ArchivedQuake;
 import globalquake.core.earthquake.EarthquakeAnalysis;
 import globalquake.core.earthquake.data.*;
 import globalquake.core.geo.taup.TauPTravelTimeCalculator;
@@ -14,9 +13,9 @@ import org.tinylog.Logger;
 
 import java.io.*;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
 
 import static globalquake.core.earthquake.EarthquakeAnalysis.calculateDistances;
 import static globalquake.core.earthquake.EarthquakeAnalysis.createListOfExactPickedEvents;
@@ -28,6 +27,14 @@ public class GlobalQuakeLab {
     private static final File archivedFolder = new File("/home/xspanger/Desktop/GlobalQuake/training/");
     //private static final File archivedFolder = new File(mainFolder,"./training/events/events/M3.51_east_of_the_North_Island_of_New_Zealand_2024_03_13_12_59_04/");
 
+    /**
+     * Usage:
+     * <pre>
+     * convert &lt;reports folder&gt; &lt;picks file&gt;            merges the picks of all the reports into one pick archive
+     * run &lt;picks file|reports folder&gt; &lt;results.csv&gt; [threads]   reprocesses all the quakes, resumes an existing results file
+     * inspect [reports folder]                          writes the depth and residual curves next to every report
+     * </pre>
+     */
     public static void main(String[] args) throws Exception {
         TauPTravelTimeCalculator.init();
         EarthquakeAnalysis.DEPTH_FIX_ALLOWED = false;
@@ -37,78 +44,129 @@ public class GlobalQuakeLab {
         Settings.pWaveInaccuracyThreshold = 3000.0;
         Settings.parallelHypocenterLocations = true;
 
-        if (!archivedFolder.exists()) {
-            //noinspection ResultOfMethodCallIgnored
-            archivedFolder.mkdirs();
-            System.out.printf("Created archived quakes folder at %s".formatted(archivedFolder.getAbsolutePath()));
-        }
+        String command = args.length > 0 ? args[0] : "inspect";
+        switch (command) {
+            case "convert" -> {
+                if (args.length < 3) {
+                    usage();
+                    return;
+                }
+                long start = System.currentTimeMillis();
+                int count = PickArchive.convert(new File(args[1]), new File(args[2]));
+                System.out.printf("Converted %d quakes in %.1f s%n", count, (System.currentTimeMillis() - start) / 1000.0);
+            }
+            case "run" -> {
+                if (args.length < 3) {
+                    usage();
+                    return;
+                }
+                int threads = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+                reprocess(new File(args[1]), new File(args[2]), threads);
+            }
+            case "inspect" -> {
+                File folder = args.length > 1 ? new File(args[1]) : archivedFolder;
+                if (!folder.exists()) {
+                    //noinspection ResultOfMethodCallIgnored
+                    folder.mkdirs();
+                    System.out.printf("Created archived quakes folder at %s".formatted(folder.getAbsolutePath()));
+                }
 
-        traverseDirectories(archivedFolder);
+                traverseDirectories(folder);
+            }
+            default -> {
+                usage();
+                return;
+            }
+        }
 
         HypocsSettings.save();
 
         System.exit(0);
     }
 
-    @SuppressWarnings("DataFlowIssue")
-    public static void traverseDirectories(File folder) {
-        if (folder.isDirectory()) {
-            Arrays.asList(folder.listFiles()).parallelStream().forEach(file -> {
-                try {
-                    if (file.isDirectory()) {
-                        System.err.println(file.getAbsolutePath());
-                        traverseDirectories(file); // Recursive call for subdirectory
-                    } else if (file.getName().endsWith(".dat")) {
-                        tryFile(file, folder); // Call tryFile for each file
+    private static void usage() {
+        System.err.println("Usage: convert <reports folder> <picks file>");
+        System.err.println("       run <picks file|reports folder> <results.csv> [threads]");
+        System.err.println("       inspect [reports folder]");
+    }
+
+    /**
+     * Streams the quakes from a pick archive or directly from the reports into the {@link LabProcessor}
+     */
+    public static void reprocess(File input, File resultsFile, int threads) throws IOException, InterruptedException {
+        try (LabProcessor processor = new LabProcessor(resultsFile, threads)) {
+            if (input.isDirectory()) {
+                PickArchive.readReports(input, quake -> {
+                    try {
+                        processor.submit(quake);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new RuntimeException(e);
+                    }
+                });
+            } else {
+                try (PickArchive.Reader reader = new PickArchive.Reader(input)) {
+                    LabQuake quake;
+                    while ((quake = reader.read()) != null) {
+                        processor.submit(quake);
                     }
-                } catch (Exception e) {
-                    Logger.error(e);
                 }
-            });
-        }
-    }
+            }
 
-    private static void tryFile(File file, File folder) throws Exception {
-        if (file.isDirectory()) {
-            return;
+            processor.awaitCompletion();
+            processor.printSummary(System.out);
         }
-        ObjectInputStream in = new ObjectInputStream(new FileInputStream(file));
-        ArchivedQuake archivedQuake = (ArchivedQuake) in.readObject();
-        inspectArchivedQuake(archivedQuake, folder);
     }
 
-    private static void inspectArchivedQuake(ArchivedQuake archivedQuake, File folder) {
-        //System.out.println(archivedQuake);
+    /**
+     * Writes the curves of every quake next to the report it was found in, reads the picks.gqp of current reports
+     * as well as the archivedQuake.dat of older ones
+     */
+    public static void traverseDirectories(File folder) {
+        List<Map.Entry<File, LabQuake>> quakes = new ArrayList<>();
+        PickArchive.readReports(folder, (reportFolder, quake) -> quakes.add(Map.entry(reportFolder, quake)));
+        System.err.printf("Inspecting %d quakes%n", quakes.size());
+
+        quakes.parallelStream().forEach(entry -> {
+            try {
+                inspectQuake(entry.getValue(), entry.getKey());
+            } catch (Exception e) {
+                Logger.error(e);
+            }
+        });
+    }
 
-        depthInspection(archivedQuake, folder);
+    private static void inspectQuake(LabQuake quake, File folder) {
+        depthInspection(quake, folder);
         try {
-            residualsInspection(archivedQuake, folder);
+            residualsInspection(quake, folder);
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
 
-        //runTest(archivedQuake);
+        //runTest(quake);
     }
 
-    private static void residualsInspection(ArchivedQuake archivedQuake, File folder) throws IOException {
-        long origin = archivedQuake.getOrigin();
+    private static void residualsInspection(LabQuake quake, File folder) throws IOException {
+        long origin = quake.origin();
         String filePath = new File(folder, "residuals.csv").getAbsolutePath();
 
-        double depth = archivedQuake.getDepth();
+        double depth = quake.depth();
 
         try (FileWriter writer = new FileWriter(filePath)) {
             writer.write("angle,azimuth,residual\n");
 
-            archivedQuake.getArchivedEvents().sort(Comparator.comparing(archivedEvent -> GeoUtils.greatCircleDistance(archivedEvent.lat(), archivedEvent.lon(), archivedQuake.getLat(), archivedQuake.getLon())));
+            List<ArchivedEvent> events = new ArrayList<>(quake.events());
+            events.sort(Comparator.comparing(archivedEvent -> GeoUtils.greatCircleDistance(archivedEvent.lat(), archivedEvent.lon(), quake.lat(), quake.lon())));
 
-            for (ArchivedEvent archivedEvent : archivedQuake.getArchivedEvents()) {
+            for (ArchivedEvent archivedEvent : events) {
                 long arrival = archivedEvent.pWave();
                 double angle = TauPTravelTimeCalculator.toAngle(
-                        GeoUtils.greatCircleDistance(archivedEvent.lat(), archivedEvent.lon(), archivedQuake.getLat(), archivedQuake.getLon()));
+                        GeoUtils.greatCircleDistance(archivedEvent.lat(), archivedEvent.lon(), quake.lat(), quake.lon()));
                 double travelTime = TauPTravelTimeCalculator.getPWaveTravelTimeFast(depth, angle);
                 long expectedArrival = (origin + (long) (travelTime * 1000L));
                 double residual = (arrival - expectedArrival) / 1000.0;
-                double azimuth = GeoUtils.calculateAngle(archivedEvent.lat(), archivedEvent.lon(), archivedQuake.getLat(), archivedQuake.getLon());
+                double azimuth = GeoUtils.calculateAngle(archivedEvent.lat(), archivedEvent.lon(), quake.lat(), quake.lon());
                 if (Math.abs(residual) < 15.0 && angle < 20)
                     writer.write("%s,%s,%s\n".formatted(angle, azimuth, residual));
                 // System.err.printf("Residual = %.2fs%n", residual);
@@ -116,17 +174,17 @@ public class GlobalQuakeLab {
         }
     }
 
-    private static void depthInspection(ArchivedQuake archivedQuake, File folder) {
+    private static void depthInspection(LabQuake quake, File folder) {
         List<PickedEvent> pickedEvents = new ArrayList<>();
         var cluster = new Cluster();
         cluster.updateCount = 6543541;
 
         List<EarthquakeAnalysisTraining.FakeStation> fakeStations = new ArrayList<>();
-        for (ArchivedEvent archivedEvent : archivedQuake.getArchivedEvents()) {
+        for (ArchivedEvent archivedEvent : quake.events()) {
             fakeStations.add(new EarthquakeAnalysisTraining.FakeStation(archivedEvent.lat(), archivedEvent.lon()));
         }
 
-        for (ArchivedEvent archivedEvent : archivedQuake.getArchivedEvents()) {
+        for (ArchivedEvent archivedEvent : quake.events()) {
             var event = new PickedEvent(archivedEvent.pWave(), archivedEvent.lat(), archivedEvent.lon(), 0, archivedEvent.maxRatio());
             pickedEvents.add(event);
         }
@@ -138,7 +196,7 @@ public class GlobalQuakeLab {
         HypocenterFinderSettings finderSettings = EarthquakeAnalysis.createSettings(false);
 
         List<EarthquakeAnalysis.ExactPickedEvent> exactPickedEvents = createListOfExactPickedEvents(pickedEvents);
-        calculateDistances(exactPickedEvents, archivedQuake.getLat(), archivedQuake.getLon());
+        calculateDistances(exactPickedEvents, quake.lat(), quake.lon());
 
         String filePath = new File(folder, "heuristic.csv").getAbsolutePath();
 
@@ -147,7 +205,7 @@ public class GlobalQuakeLab {
 
             for (double depth = 0.0; depth <= 749.0; depth += 0.25) {
                 // double depth = 50.0;
-                EarthquakeAnalysis.analyseHypocenter(threadData.hypocenterA, archivedQuake.getLat(), archivedQuake.getLon(), depth, exactPickedEvents, finderSettings, threadData);
+                EarthquakeAnalysis.analyseHypocenter(threadData.hypocenterA, quake.lat(), quake.lon(), depth, exactPickedEvents, finderSettings, threadData);
 
                 double heuristics = EarthquakeAnalysis.calculateHeuristic(threadData.hypocenterA);
 
@@ -159,12 +217,12 @@ public class GlobalQuakeLab {
         }
     }
 
-    private static void runTest(ArchivedQuake archivedQuake) {
+    private static void runTest(LabQuake quake) {
         EarthquakeAnalysis earthquakeAnalysis = new EarthquakeAnalysis();
         earthquakeAnalysis.testing = true;
 
         List<EarthquakeAnalysisTraining.FakeStation> fakeStations = new ArrayList<>();
-        for (ArchivedEvent archivedEvent : archivedQuake.getArchivedEvents()) {
+        for (ArchivedEvent archivedEvent : quake.events()) {
             fakeStations.add(new EarthquakeAnalysisTraining.FakeStation(archivedEvent.lat(), archivedEvent.lon()));
         }
 
@@ -172,10 +230,10 @@ public class GlobalQuakeLab {
         var cluster = new Cluster();
         cluster.updateCount = 6543541;
 
-        Hypocenter absolutetyCorrect = new Hypocenter(archivedQuake.getLat(),
-                archivedQuake.getLon(), archivedQuake.getDepth(), archivedQuake.getOrigin(), 0, 0, null, null);
+        Hypocenter absolutetyCorrect = new Hypocenter(quake.lat(),
+                quake.lon(), quake.depth(), quake.origin(), 0, 0, null, null);
 
-        for (ArchivedEvent archivedEvent : archivedQuake.getArchivedEvents()) {
+        for (ArchivedEvent archivedEvent : quake.events()) {
             var event = new PickedEvent(archivedEvent.pWave(), archivedEvent.lat(), archivedEvent.lon(), 0, archivedEvent.maxRatio());
             pickedEvents.add(event);
         }
@@ -0,0 +1,247 @@
+package globalquake.core.lab;
+
+import globalquake.core.archive.ArchivedEvent;
+import globalquake.core.earthquake.EarthquakeAnalysis;
+import globalquake.core.earthquake.data.HypocenterFinderSettings;
+import globalquake.core.earthquake.data.HypocenterFinderThreadData;
+import globalquake.core.earthquake.data.PickedEvent;
+import globalquake.core.geo.taup.TauPTravelTimeCalculator;
+import org.tinylog.Logger;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static globalquake.core.earthquake.EarthquakeAnalysis.calculateDistances;
+import static globalquake.core.earthquake.EarthquakeAnalysis.createListOfExactPickedEvents;
+
+/**
+ * Reprocesses archived earthquakes in parallel and appends one line per quake to a results file.
+ * Quakes run side by side on a work stealing pool and the depth scan of every quake is split into
+ * chunks on the same pool, so a single large quake does not keep the other threads idle.
+ * Only a bounded number of quakes is in flight, so the input can be streamed from any source.
+ * Quakes already present in the results file are skipped, which allows interrupted runs to be resumed.
+ */
+public class LabProcessor implements Closeable {
+
+    public static final double MAX_DEPTH = 749.0;
+    public static final double DEPTH_STEP = 0.25;
+
+    // depths evaluated by one task
+    private static final int CHUNK = 64;
+
+    private static final String HEADER = "uuid,name,mag,stations,depth,best_depth,depth_error,heuristic,residual_rms,runtime_ms";
+
+    private final ForkJoinPool pool;
+    private final Semaphore inFlight;
+    private final int maxInFlight;
+    private final Set<UUID> done;
+    private final Writer results;
+
+    private final AtomicInteger processed = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+    private final AtomicLong runtimeNanos = new AtomicLong();
+    private int skipped = 0;
+    private double depthErrorSum = 0;
+    private final long startNanos = System.nanoTime();
+
+    public LabProcessor(File resultsFile, int threads) throws IOException {
+        pool = new ForkJoinPool(threads);
+        maxInFlight = threads * 2;
+        inFlight = new Semaphore(maxInFlight);
+        done = readDone(resultsFile);
+
+        boolean fresh = !resultsFile.exists() || resultsFile.length() == 0;
+        results = new BufferedWriter(new FileWriter(resultsFile, true));
+        if (fresh) {
+            results.write(HEADER + System.lineSeparator());
+            results.flush();
+        }
+
+        if (!done.isEmpty()) {
+            Logger.info("Resuming, %d quakes were already processed".formatted(done.size()));
+        }
+    }
+
+    private static Set<UUID> readDone(File resultsFile) throws IOException {
+        Set<UUID> result = new HashSet<>();
+        if (!resultsFile.exists()) {
+            return result;
+        }
+
+        for (String line : Files.readAllLines(resultsFile.toPath())) {
+            int comma = line.indexOf(',');
+            if (comma <= 0 || line.startsWith("uuid,")) {
+                continue;
+            }
+            try {
+                result.add(UUID.fromString(line.substring(0, comma)));
+            } catch (IllegalArgumentException e) {
+                Logger.warn("Ignoring malformed line of the results: %s".formatted(line));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Queues the quake for processing, blocks while too many quakes are in flight
+     */
+    public void submit(LabQuake quake) throws InterruptedException {
+        if (done.contains(quake.uuid()) || quake.events().isEmpty()) {
+            skipped++;
+            return;
+        }
+
+        inFlight.acquire();
+        pool.execute(() -> {
+            try {
+                process(quake);
+            } catch (Exception e) {
+                failed.incrementAndGet();
+                Logger.error("Processing of %s failed".formatted(quake.name()));
+                Logger.error(e);
+            } finally {
+                inFlight.release();
+            }
+        });
+    }
+
+    /**
+     * Waits until all the submitted quakes are processed
+     */
+    public void awaitCompletion() throws InterruptedException {
+        inFlight.acquire(maxInFlight);
+        inFlight.release(maxInFlight);
+    }
+
+    private record DepthResult(double depth, double heuristic) {
+    }
+
+    private static final class DepthScan extends RecursiveTask<DepthResult> {
+
+        private final LabQuake quake;
+        private final List<EarthquakeAnalysis.ExactPickedEvent> events;
+        private final HypocenterFinderSettings finderSettings;
+        private final int from;
+        private final int to;
+
+        DepthScan(LabQuake quake, List<EarthquakeAnalysis.ExactPickedEvent> events, HypocenterFinderSettings finderSettings, int from, int to) {
+            this.quake = quake;
+            this.events = events;
+            this.finderSettings = finderSettings;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected DepthResult compute() {
+            if (to - from > CHUNK) {
+                int mid = (from + to) >>> 1;
+                DepthScan left = new DepthScan(quake, events, finderSettings, from, mid);
+                left.fork();
+                DepthResult right = new DepthScan(quake, events, finderSettings, mid, to).compute();
+                return better(left.join(), right);
+            }
+
+            HypocenterFinderThreadData threadData = new HypocenterFinderThreadData(events.size());
+            DepthResult best = null;
+            for (int i = from; i < to; i++) {
+                double depth = i * DEPTH_STEP;
+                EarthquakeAnalysis.analyseHypocenter(threadData.hypocenterA, quake.lat(), quake.lon(), depth, events, finderSettings, threadData);
+                best = better(best, new DepthResult(depth, EarthquakeAnalysis.calculateHeuristic(threadData.hypocenterA)));
+            }
+            return best;
+        }
+
+        private static DepthResult better(DepthResult a, DepthResult b) {
+            if (a == null) {
+                return b;
+            }
+            if (b == null) {
+                return a;
+            }
+            return b.heuristic() > a.heuristic() ? b : a;
+        }
+    }
+
+    private void process(LabQuake quake) throws IOException {
+        long start = System.nanoTime();
+
+        List<PickedEvent> pickedEvents = new ArrayList<>(quake.events().size());
+        for (ArchivedEvent archivedEvent : quake.events()) {
+            pickedEvents.add(new PickedEvent(archivedEvent.pWave(), archivedEvent.lat(), archivedEvent.lon(), 0, archivedEvent.maxRatio()));
+        }
+
+        List<EarthquakeAnalysis.ExactPickedEvent> exactPickedEvents = createListOfExactPickedEvents(pickedEvents);
+        calculateDistances(exactPickedEvents, quake.lat(), quake.lon());
+
+        int depths = (int) (MAX_DEPTH / DEPTH_STEP) + 1;
+        DepthResult best = new DepthScan(quake, exactPickedEvents, EarthquakeAnalysis.createSettings(false), 0, depths).invoke();
+        double residualRms = residualRms(quake, exactPickedEvents);
+
+        long runtime = System.nanoTime() - start;
+        runtimeNanos.addAndGet(runtime);
+        processed.incrementAndGet();
+
+        double depthError = best.depth() - quake.depth();
+        synchronized (results) {
+            depthErrorSum += Math.abs(depthError);
+            results.write(String.format(Locale.ROOT, "%s,%s,%.2f,%d,%.2f,%.2f,%.2f,%s,%.3f,%.1f%n",
+                    quake.uuid(), quake.name().replace(',', '_'), quake.mag(), quake.events().size(), quake.depth(),
+                    best.depth(), depthError, best.heuristic(), residualRms, runtime / 1e6));
+            results.flush();
+        }
+    }
+
+    /**
+     * RMS of the P wave residuals in seconds against the archived hypocenter
+     */
+    private static double residualRms(LabQuake quake, List<EarthquakeAnalysis.ExactPickedEvent> events) {
+        double sum = 0;
+        int count = 0;
+        for (EarthquakeAnalysis.ExactPickedEvent event : events) {
+            double travelTime = TauPTravelTimeCalculator.getPWaveTravelTimeFast(quake.depth(), event.angle);
+            if (travelTime == TauPTravelTimeCalculator.NO_ARRIVAL) {
+                continue;
+            }
+            double residual = (event.pWave() - (quake.origin() + (long) (travelTime * 1000L))) / 1000.0;
+            sum += residual * residual;
+            count++;
+        }
+        return count == 0 ? Double.NaN : Math.sqrt(sum / count);
+    }
+
+    public void printSummary(PrintStream out) {
+        int count = processed.get();
+        double wall = (System.nanoTime() - startNanos) / 1e9;
+        out.printf(Locale.ROOT, "Processed %d quakes in %.1f s using %d threads, %d skipped, %d failed%n",
+                count, wall, pool.getParallelism(), skipped, failed.get());
+        if (count > 0) {
+            synchronized (results) {
+                out.printf(Locale.ROOT, "Mean runtime %.1f ms per quake, %.2f quakes/s, mean depth error %.2f km%n",
+                        runtimeNanos.get() / 1e6 / count, count / wall, depthErrorSum / count);
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        pool.shutdown();
+        try {
+            if (!pool.awaitTermination(1, TimeUnit.MINUTES)) {
+                Logger.warn("Lab pool did not terminate in time");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (results) {
+            results.close();
+        }
+    }
+}
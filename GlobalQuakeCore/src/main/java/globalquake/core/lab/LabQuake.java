@@ -0,0 +1,26 @@
+package globalquake.core.lab;
+
+import globalquake.core.archive.ArchivedEvent;
+import globalquake.core.archive.ArchivedQuake;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Archived earthquake together with its picks, everything the lab needs to reprocess it
+ *
+ * @param name label of the quake in the results, usually the name of its report folder
+ */
+public record LabQuake(UUID uuid, String name, double lat, double lon, double depth, long origin, double mag,
+                       List<ArchivedEvent> events) {
+
+    public static LabQuake of(ArchivedQuake archivedQuake, String name) {
+        // very old reports have no uuid, the name keeps them identifiable when resuming
+        UUID uuid = archivedQuake.getUuid() != null ? archivedQuake.getUuid() :
+                UUID.nameUUIDFromBytes(name.getBytes(StandardCharsets.UTF_8));
+        return new LabQuake(uuid, name, archivedQuake.getLat(), archivedQuake.getLon(),
+                archivedQuake.getDepth(), archivedQuake.getOrigin(), archivedQuake.getMag(),
+                List.copyOf(archivedQuake.getArchivedEvents()));
+    }
+}
@@ -0,0 +1,198 @@
+package globalquake.core.lab;
+
+import globalquake.core.archive.ArchivedEvent;
+import globalquake.core.archive.ArchivedQuake;
+import org.tinylog.Logger;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * Compact binary file with the picks of many archived earthquakes, written and read sequentially.
+ * A file starts with a magic number and a version, then the quakes follow one after another:
+ * <pre>
+ * uuid (2x long), name (UTF), lat, lon, depth (double), origin (long), mag (double), picks (int)
+ * every pick: lat, lon (double), maxRatio (float), P wave time relative to the origin in ms (int)
+ * </pre>
+ * Reading it is an order of magnitude faster than deserializing the archivedQuake.dat of every report.
+ */
+public final class PickArchive {
+
+    private static final int MAGIC = 0x47515049; // GQPI
+    private static final int VERSION = 1;
+
+    private PickArchive() {
+    }
+
+    public static class Writer implements Closeable {
+
+        private final DataOutputStream out;
+
+        public Writer(File file) throws IOException {
+            out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+        }
+
+        /**
+         * @throws IllegalArgumentException if a pick is too far from the origin, nothing is written in that case
+         */
+        public void write(LabQuake quake) throws IOException {
+            for (ArchivedEvent event : quake.events()) {
+                long offset = event.pWave() - quake.origin();
+                if (offset != (int) offset) {
+                    throw new IllegalArgumentException("Pick of %s is %d ms away from the origin".formatted(quake.name(), offset));
+                }
+            }
+
+            out.writeLong(quake.uuid().getMostSignificantBits());
+            out.writeLong(quake.uuid().getLeastSignificantBits());
+            out.writeUTF(quake.name());
+            out.writeDouble(quake.lat());
+            out.writeDouble(quake.lon());
+            out.writeDouble(quake.depth());
+            out.writeLong(quake.origin());
+            out.writeDouble(quake.mag());
+            out.writeInt(quake.events().size());
+            for (ArchivedEvent event : quake.events()) {
+                out.writeDouble(event.lat());
+                out.writeDouble(event.lon());
+                out.writeFloat((float) event.maxRatio());
+                out.writeInt((int) (event.pWave() - quake.origin()));
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
+    }
+
+    public static class Reader implements Closeable {
+
+        private final DataInputStream in;
+
+        public Reader(File file) throws IOException {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+            try {
+                if (in.readInt() != MAGIC) {
+                    throw new IOException("%s is not a pick archive".formatted(file.getName()));
+                }
+                int version = in.readInt();
+                if (version != VERSION) {
+                    throw new IOException("Unsupported pick archive version %d".formatted(version));
+                }
+            } catch (IOException e) {
+                in.close();
+                throw e;
+            }
+        }
+
+        /**
+         * @return the next quake or null at the end of the file
+         */
+        public LabQuake read() throws IOException {
+            long msb;
+            try {
+                msb = in.readLong();
+            } catch (EOFException e) {
+                return null;
+            }
+
+            UUID uuid = new UUID(msb, in.readLong());
+            String name = in.readUTF();
+            double lat = in.readDouble();
+            double lon = in.readDouble();
+            double depth = in.readDouble();
+            long origin = in.readLong();
+            double mag = in.readDouble();
+            int count = in.readInt();
+            List<ArchivedEvent> events = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                double eventLat = in.readDouble();
+                double eventLon = in.readDouble();
+                double maxRatio = in.readFloat();
+                long pWave = origin + in.readInt();
+                events.add(new ArchivedEvent(eventLat, eventLon, maxRatio, pWave));
+            }
+
+            return new LabQuake(uuid, name, lat, lon, depth, origin, mag, events);
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+
+    /**
+     * Walks the report folders and passes every quake found in their pick files or the archivedQuake.dat files
+     * of older reports, in a stable order
+     */
+    public static void readReports(File folder, Consumer<LabQuake> consumer) {
+        readReports(folder, (reportFolder, quake) -> consumer.accept(quake));
+    }
+
+    /**
+     * Same as {@link #readReports(File, Consumer)}, also passes the folder of the report the quake was found in
+     */
+    @SuppressWarnings("DataFlowIssue")
+    public static void readReports(File folder, BiConsumer<File, LabQuake> consumer) {
+        File[] files = folder.listFiles();
+        if (files == null) {
+            return;
+        }
+
+        Arrays.sort(files);
+        for (File file : files) {
+            if (file.isDirectory()) {
+                readReports(file, consumer);
+            } else if (file.getName().endsWith(".dat")) {
+                try (ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+                    ArchivedQuake archivedQuake = (ArchivedQuake) in.readObject();
+                    consumer.accept(folder, LabQuake.of(archivedQuake, folder.getName()));
+                } catch (Exception e) {
+                    Logger.warn("Unable to read %s: %s".formatted(file.getAbsolutePath(), e.getMessage()));
+                }
+            } else if (file.getName().endsWith(".gqp")) {
+                try (Reader reader = new Reader(file)) {
+                    LabQuake quake;
+                    while ((quake = reader.read()) != null) {
+                        consumer.accept(folder, quake);
+                    }
+                } catch (IOException e) {
+                    Logger.warn("Unable to read %s: %s".formatted(file.getAbsolutePath(), e.getMessage()));
+                }
+            }
+        }
+    }
+
+    /**
+     * Converts all the reports under the given folder into a single pick archive
+     *
+     * @return number of converted quakes
+     */
+    public static int convert(File reportsFolder, File output) throws IOException {
+        int[] count = {0};
+        try (Writer writer = new Writer(output)) {
+            readReports(reportsFolder, quake -> {
+                try {
+                    writer.write(quake);
+                    count[0]++;
+                } catch (IllegalArgumentException e) {
+                    Logger.warn(e.getMessage());
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        return count[0];
+    }
+}
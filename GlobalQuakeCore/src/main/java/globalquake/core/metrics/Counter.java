@@ -0,0 +1,26 @@
+package globalquake.core.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Monotonically increasing count, cheap to increment from many threads at once
+ */
+public class Counter {
+
+    private final LongAdder value = new LongAdder();
+
+    public void inc() {
+        value.increment();
+    }
+
+    public void add(long amount) {
+        if (amount < 0) {
+            throw new IllegalArgumentException("Counter cannot decrease, got %d".formatted(amount));
+        }
+        value.add(amount);
+    }
+
+    public long get() {
+        return value.sum();
+    }
+}
@@ -0,0 +1,35 @@
+package globalquake.core.metrics;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * Heap, garbage collection and thread metrics of the running JVM
+ */
+public final class JvmMetrics {
+
+    private JvmMetrics() {
+    }
+
+    public static void register(MetricsRegistry registry) {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        registry.gauge("jvm_memory_heap_used_bytes", "Used heap memory", () -> memory.getHeapMemoryUsage().getUsed());
+        registry.gauge("jvm_memory_heap_committed_bytes", "Heap memory committed by the JVM", () -> memory.getHeapMemoryUsage().getCommitted());
+        registry.gauge("jvm_memory_heap_max_bytes", "Maximum heap memory", () -> memory.getHeapMemoryUsage().getMax());
+        registry.gauge("jvm_memory_nonheap_used_bytes", "Used non-heap memory", () -> memory.getNonHeapMemoryUsage().getUsed());
+
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            registry.counter("jvm_gc_collections_total", "Number of garbage collections",
+                    collector::getCollectionCount, "gc", collector.getName());
+            registry.gauge("jvm_gc_collection_time_seconds", "Total time spent in garbage collection",
+                    () -> collector.getCollectionTime() / 1000.0, "gc", collector.getName());
+        }
+
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        registry.gauge("jvm_threads", "Number of live threads", threads::getThreadCount);
+        registry.gauge("process_cpu_count", "Number of processors available to the JVM", () -> Runtime.getRuntime().availableProcessors());
+        registry.gauge("process_uptime_seconds", "Time since the JVM started", () -> ManagementFactory.getRuntimeMXBean().getUptime() / 1000.0);
+    }
+}
@@ -0,0 +1,120 @@
+package globalquake.core.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histogram of durations in nanoseconds with log-linear buckets: every power of two is split into
+ * {@value #SUB_BUCKETS} buckets, so any recorded value is known with about 6% precision.
+ * Recording is lock-free and does not allocate.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    static final int BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        buckets.incrementAndGet(bucketIndex(value));
+        count.increment();
+        sum.add(value);
+    }
+
+    /**
+     * Records the time that passed since the given {@link System#nanoTime()}
+     */
+    public void recordSince(long startNanos) {
+        record(System.nanoTime() - startNanos);
+    }
+
+    public void record(long duration, TimeUnit unit) {
+        record(unit.toNanos(duration));
+    }
+
+    static int bucketIndex(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    /**
+     * @return the smallest value that falls into the bucket
+     */
+    static long bucketLowerBound(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int exponent = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        long sub = index % SUB_BUCKETS;
+        return (SUB_BUCKETS + sub) << (exponent - SUB_BUCKET_BITS);
+    }
+
+    /**
+     * @return the first value that is already in the next bucket
+     */
+    static long bucketUpperBound(int index) {
+        return index + 1 < BUCKETS ? bucketLowerBound(index + 1) : Long.MAX_VALUE;
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * @return sum of all the recorded values in nanoseconds
+     */
+    public long getSum() {
+        return sum.sum();
+    }
+
+    /**
+     * @return number of recorded values smaller than the given power of two
+     */
+    long getCountBelowPowerOfTwo(int exponent) {
+        long limit = 1L << exponent;
+        long result = 0;
+        for (int i = 0; i < BUCKETS && bucketLowerBound(i) < limit; i++) {
+            result += buckets.get(i);
+        }
+        return result;
+    }
+
+    /**
+     * @param percentile 0 - 100
+     * @return approximate value in nanoseconds below which the given percentage of the recorded values falls, 0 if nothing was recorded
+     */
+    public long getPercentile(double percentile) {
+        long[] snapshot = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = buckets.get(i);
+            total += snapshot[i];
+        }
+
+        if (total == 0) {
+            return 0;
+        }
+
+        long rank = Math.max(1, (long) Math.ceil(total * Math.min(100.0, Math.max(0.0, percentile)) / 100.0));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                // middle of the bucket
+                long lower = bucketLowerBound(i);
+                return lower + (bucketUpperBound(i) - 1 - lower) / 2;
+            }
+        }
+
+        return bucketLowerBound(BUCKETS - 1);
+    }
+}
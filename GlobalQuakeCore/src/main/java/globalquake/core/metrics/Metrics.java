@@ -0,0 +1,40 @@
+package globalquake.core.metrics;
+
+import java.util.function.DoubleSupplier;
+import java.util.function.LongSupplier;
+
+/**
+ * Registry shared by the whole application, see {@link MetricsRegistry}.
+ * Metric names follow the Prometheus conventions: gq_ prefix, base units and _total suffix for counters.
+ */
+public final class Metrics {
+
+    private static final MetricsRegistry REGISTRY = new MetricsRegistry();
+
+    static {
+        JvmMetrics.register(REGISTRY);
+    }
+
+    private Metrics() {
+    }
+
+    public static MetricsRegistry getRegistry() {
+        return REGISTRY;
+    }
+
+    public static Counter counter(String name, String help, String... labels) {
+        return REGISTRY.counter(name, help, labels);
+    }
+
+    public static void counter(String name, String help, LongSupplier supplier, String... labels) {
+        REGISTRY.counter(name, help, supplier, labels);
+    }
+
+    public static void gauge(String name, String help, DoubleSupplier supplier, String... labels) {
+        REGISTRY.gauge(name, help, supplier, labels);
+    }
+
+    public static LatencyHistogram histogram(String name, String help, String... labels) {
+        return REGISTRY.histogram(name, help, labels);
+    }
+}
@@ -0,0 +1,189 @@
+package globalquake.core.metrics;
+
+import org.tinylog.Logger;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.DoubleSupplier;
+import java.util.function.LongSupplier;
+import java.util.regex.Pattern;
+
+/**
+ * Named counters, gauges and latency histograms, optionally distinguished by labels.
+ * Asking for a counter or a histogram that already exists returns the existing one, so they can be looked up
+ * from any number of places. Gauges and function counters read their value only when the metrics are exported,
+ * registering them again replaces the previous supplier.
+ */
+public class MetricsRegistry {
+
+    private static final Pattern NAME_PATTERN = Pattern.compile("[a-zA-Z_:][a-zA-Z0-9_:]*");
+
+    // histograms are exported with buckets at powers of two nanoseconds, from about 1 us to about 69 s, written exactly
+    private static final int HISTOGRAM_MIN_EXPONENT = 10;
+    private static final int HISTOGRAM_MAX_EXPONENT = 36;
+
+    enum Type {
+        COUNTER("counter"), GAUGE("gauge"), HISTOGRAM("histogram");
+
+        private final String name;
+
+        Type(String name) {
+            this.name = name;
+        }
+    }
+
+    private record Family(String name, String help, Type type, ConcurrentMap<String, Object> children) {
+    }
+
+    private final ConcurrentMap<String, Family> families = new ConcurrentHashMap<>();
+
+    /**
+     * @param labels label names and values, alternating
+     */
+    public Counter counter(String name, String help, String... labels) {
+        return (Counter) family(name, help, Type.COUNTER).children().computeIfAbsent(labelsKey(labels), k -> new Counter());
+    }
+
+    /**
+     * Counter whose value is kept elsewhere, for example in the statistics of a connection
+     */
+    public void counter(String name, String help, LongSupplier supplier, String... labels) {
+        family(name, help, Type.COUNTER).children().put(labelsKey(labels), supplier);
+    }
+
+    public void gauge(String name, String help, DoubleSupplier supplier, String... labels) {
+        family(name, help, Type.GAUGE).children().put(labelsKey(labels), supplier);
+    }
+
+    public LatencyHistogram histogram(String name, String help, String... labels) {
+        return (LatencyHistogram) family(name, help, Type.HISTOGRAM).children().computeIfAbsent(labelsKey(labels), k -> new LatencyHistogram());
+    }
+
+    /**
+     * Removes all the metrics of the given name that have exactly the given labels
+     */
+    public void remove(String name, String... labels) {
+        Family family = families.get(name);
+        if (family != null) {
+            family.children().remove(labelsKey(labels));
+        }
+    }
+
+    private Family family(String name, String help, Type type) {
+        Family family = families.computeIfAbsent(name, k -> {
+            if (!NAME_PATTERN.matcher(name).matches()) {
+                throw new IllegalArgumentException("Invalid metric name: %s".formatted(name));
+            }
+            return new Family(name, help, type, new ConcurrentHashMap<>());
+        });
+
+        if (family.type() != type) {
+            throw new IllegalArgumentException("Metric %s is already registered as a %s".formatted(name, family.type().name));
+        }
+
+        return family;
+    }
+
+    private static String labelsKey(String... labels) {
+        if (labels.length % 2 != 0) {
+            throw new IllegalArgumentException("Labels must be given as name and value pairs");
+        }
+
+        StringBuilder result = new StringBuilder();
+        for (int i = 0; i < labels.length; i += 2) {
+            if (!NAME_PATTERN.matcher(labels[i]).matches()) {
+                throw new IllegalArgumentException("Invalid label name: %s".formatted(labels[i]));
+            }
+            if (!result.isEmpty()) {
+                result.append(',');
+            }
+            result.append(labels[i]).append("=\"").append(escape(Objects.toString(labels[i + 1]))).append('"');
+        }
+
+        return result.toString();
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    /**
+     * Writes all the metrics in the Prometheus text exposition format, version 0.0.4
+     */
+    public void writePrometheus(Appendable out) throws IOException {
+        for (Family family : new TreeMap<>(families).values()) {
+            Map<String, Object> children = new TreeMap<>(family.children());
+            if (children.isEmpty()) {
+                continue;
+            }
+
+            out.append("# HELP ").append(family.name()).append(' ').append(family.help().replace("\\", "\\\\").replace("\n", "\\n")).append('\n');
+            out.append("# TYPE ").append(family.name()).append(' ').append(family.type().name).append('\n');
+
+            for (var entry : children.entrySet()) {
+                String labels = entry.getKey();
+                Object metric = entry.getValue();
+                if (metric instanceof Counter counter) {
+                    sample(out, family.name(), labels, counter.get());
+                } else if (metric instanceof LatencyHistogram histogram) {
+                    writeHistogram(out, family.name(), labels, histogram);
+                } else {
+                    writeSupplied(out, family.name(), labels, metric);
+                }
+            }
+        }
+    }
+
+    private static void writeSupplied(Appendable out, String name, String labels, Object supplier) throws IOException {
+        String value;
+        try {
+            value = supplier instanceof LongSupplier longSupplier ? Long.toString(longSupplier.getAsLong())
+                    : format(((DoubleSupplier) supplier).getAsDouble());
+        } catch (RuntimeException e) {
+            // the component that provides the value is not running
+            Logger.trace(e);
+            return;
+        }
+        sample(out, name, labels, value);
+    }
+
+    private static void writeHistogram(Appendable out, String name, String labels, LatencyHistogram histogram) throws IOException {
+        // count first, so that no bucket can exceed it
+        long count = histogram.getCount();
+        long sum = histogram.getSum();
+        String prefix = labels.isEmpty() ? "" : labels + ",";
+        for (int exponent = HISTOGRAM_MIN_EXPONENT; exponent <= HISTOGRAM_MAX_EXPONENT; exponent++) {
+            long below = Math.min(count, histogram.getCountBelowPowerOfTwo(exponent));
+            sample(out, name + "_bucket", prefix + "le=\"" + BigDecimal.valueOf(1L << exponent).movePointLeft(9).toPlainString() + "\"", below);
+        }
+        sample(out, name + "_bucket", prefix + "le=\"+Inf\"", count);
+        sample(out, name + "_sum", labels, format(sum / 1E9));
+        sample(out, name + "_count", labels, count);
+    }
+
+    private static void sample(Appendable out, String name, String labels, Object value) throws IOException {
+        out.append(name);
+        if (!labels.isEmpty()) {
+            out.append('{').append(labels).append('}');
+        }
+        out.append(' ').append(String.valueOf(value)).append('\n');
+    }
+
+    static String format(double value) {
+        if (Double.isNaN(value)) {
+            return "NaN";
+        }
+        if (Double.isInfinite(value)) {
+            return value > 0 ? "+Inf" : "-Inf";
+        }
+        if (value == Math.rint(value) && Math.abs(value) < 1E15) {
+            return Long.toString((long) value);
+        }
+        return Double.toString(value);
+    }
+}
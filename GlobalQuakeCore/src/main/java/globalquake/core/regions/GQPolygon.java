@@ -23,6 +23,12 @@ public class GQPolygon {
         }
     }
 
+    public GQPolygon(float[] lats, float[] lons) {
+        this.size = lats.length;
+        this.lats = lats;
+        this.lons = lons;
+    }
+
     public int getSize() {
         return size;
     }
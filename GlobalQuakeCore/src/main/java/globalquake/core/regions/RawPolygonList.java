@@ -0,0 +1,84 @@
+package globalquake.core.regions;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Raw polygons of a region set. Polygons parsed from GeoJSON are added one by one, the lazy lists of
+ * {@link RegionsGeometryPack} are appended as a whole, so that their polygons are still created only when accessed.
+ * Filled once in {@link Regions#init()} and only read afterwards.
+ */
+public class RawPolygonList extends AbstractList<GQPolygon> {
+
+    private final List<List<GQPolygon>> parts = new ArrayList<>();
+    private final List<Integer> partEnds = new ArrayList<>();
+    private List<GQPolygon> tail;
+    private int size;
+
+    @Override
+    public boolean add(GQPolygon polygon) {
+        if (tail == null) {
+            tail = new ArrayList<>();
+            appendPart(tail);
+        }
+        tail.add(polygon);
+        partEnds.set(partEnds.size() - 1, ++size);
+        modCount++;
+        return true;
+    }
+
+    /**
+     * Appends all elements of the list without accessing them, the list must not change afterwards
+     */
+    public void addLazy(List<GQPolygon> polygons) {
+        if (polygons.isEmpty()) {
+            return;
+        }
+        appendPart(polygons);
+        size += polygons.size();
+        partEnds.set(partEnds.size() - 1, size);
+        tail = null;
+        modCount++;
+    }
+
+    private void appendPart(List<GQPolygon> part) {
+        parts.add(part);
+        partEnds.add(size);
+    }
+
+    @Override
+    public GQPolygon get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index %d out of bounds for length %d".formatted(index, size));
+        }
+
+        int low = 0;
+        int high = parts.size() - 1;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (partEnds.get(mid) <= index) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+
+        int partStart = low == 0 ? 0 : partEnds.get(low - 1);
+        return parts.get(low).get(index - partStart);
+    }
+
+    @Override
+    public void clear() {
+        parts.clear();
+        partEnds.clear();
+        tail = null;
+        size = 0;
+        modCount++;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+}
@@ -1,6 +1,7 @@
 package globalquake.core.regions;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import globalquake.core.GlobalQuake;
 import globalquake.utils.GeoUtils;
 import globalquake.utils.LookupTableIO;
 import org.geojson.*;
@@ -10,6 +11,7 @@ import org.tinylog.Logger;
 import java.awt.geom.Path2D;
 import java.awt.geom.Point2D;
 import java.io.BufferedReader;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
@@ -24,11 +26,11 @@ import java.util.stream.Collectors;
 
 public class Regions {
     public static final String UNKNOWN_REGION = "Unknown Region";
-    public static final List<GQPolygon> raw_polygonsUHD = new ArrayList<>();
-    public static final List<GQPolygon> raw_polygonsHD = new ArrayList<>();
-    public static final List<GQPolygon> raw_polygonsMD = new ArrayList<>();
-    public static final List<GQPolygon> raw_polygonsHDFiltered = new ArrayList<>();
-    public static final List<GQPolygon> raw_polygonsUHDFiltered = new ArrayList<>();
+    public static final RawPolygonList raw_polygonsUHD = new RawPolygonList();
+    public static final RawPolygonList raw_polygonsHD = new RawPolygonList();
+    public static final RawPolygonList raw_polygonsMD = new RawPolygonList();
+    public static final RawPolygonList raw_polygonsHDFiltered = new RawPolygonList();
+    public static final RawPolygonList raw_polygonsUHDFiltered = new RawPolygonList();
 
     public static final List<Region> regionsMD = new ArrayList<>();
     public static final List<Region> regionsHD = new ArrayList<>();
@@ -37,21 +39,26 @@ public class Regions {
     public static final List<Region> regionsUHDFiltered = new ArrayList<>();
 
     public static boolean enabled = true;
+
+    /**
+     * Load the regions from a binary pack in the main folder instead of parsing GeoJSON, the pack is created on first run
+     */
+    public static boolean useGeometryPack = true;
     public static final List<Region> regionsUS = new ArrayList<>();
-    public static final List<GQPolygon> raw_polygonsUS = new ArrayList<>();
+    public static final RawPolygonList raw_polygonsUS = new RawPolygonList();
 
     public static final List<String> NONE = List.of();
-    public static final List<GQPolygon> raw_polygonsAK = new ArrayList<>();
+    public static final RawPolygonList raw_polygonsAK = new RawPolygonList();
     public static final List<Region> regionsAK = new ArrayList<>();
-    public static final List<GQPolygon> raw_polygonsJP = new ArrayList<>();
+    public static final RawPolygonList raw_polygonsJP = new RawPolygonList();
     public static final List<Region> regionsJP = new ArrayList<>();
 
-    public static final List<GQPolygon> raw_polygonsNZ = new ArrayList<>();
+    public static final RawPolygonList raw_polygonsNZ = new RawPolygonList();
     public static final List<Region> regionsNZ = new ArrayList<>();
-    public static final List<GQPolygon> raw_polygonsHW = new ArrayList<>();
+    public static final RawPolygonList raw_polygonsHW = new RawPolygonList();
     public static final List<Region> regionsHW = new ArrayList<>();
 
-    public static final List<GQPolygon> raw_polygonsIT = new ArrayList<>();
+    public static final RawPolygonList raw_polygonsIT = new RawPolygonList();
     public static final List<Region> regionsIT = new ArrayList<>();
 
     private static final List<Region> regionSearchHD = new ArrayList<>();
@@ -59,26 +66,87 @@ public class Regions {
 
 
     public static void init() throws IOException {
-        parseGeoJson("polygons/countriesMD.json", raw_polygonsMD, regionsMD, NONE);
-        parseGeoJson("polygons/countriesHD.json", raw_polygonsHD, regionsHD, NONE);
-        parseGeoJson("polygons/countriesUHD.json", raw_polygonsUHD, regionsUHD, NONE);
-        parseGeoJson("polygons/countriesHD.json", raw_polygonsHDFiltered, regionsHDFiltered, List.of("United States", "New Zealand", "Japan"));
-        parseGeoJson("polygons/countriesUHD.json", raw_polygonsUHDFiltered, regionsUHDFiltered, List.of("United States", "Japan", "New Zealand"));
-        parseGeoJson("polygons_converted/us-albers.geojson", raw_polygonsUS, regionsUS, List.of("Alaska", "Hawaii"));
-        parseGeoJson("polygons_converted/AK-02-alaska-counties.geojson", raw_polygonsAK, regionsAK, NONE);
-        parseGeoJson("polygons_converted/jp-prefectures.geojson", raw_polygonsJP, regionsJP, NONE);
-        parseGeoJson("polygons_converted/new-zealand-districts.geojson", raw_polygonsNZ, regionsNZ, NONE);
-        parseGeoJson("polygons_converted/hawaii-countries.geojson", raw_polygonsHW, regionsHW, NONE);
-        parseGeoJson("polygons_converted/italy_provinces.geojson", raw_polygonsIT, regionsIT, NONE);
-        parseGeoJson("polygons_converted/region_dataset.geojson", null, regionSearchHD, NONE);
+        long start = System.currentTimeMillis();
+
+        List<RegionSet> sets = List.of(
+                new RegionSet("polygons/countriesMD.json", raw_polygonsMD, regionsMD, NONE),
+                new RegionSet("polygons/countriesHD.json", raw_polygonsHD, regionsHD, NONE),
+                new RegionSet("polygons/countriesUHD.json", raw_polygonsUHD, regionsUHD, NONE),
+                new RegionSet("polygons/countriesHD.json", raw_polygonsHDFiltered, regionsHDFiltered, List.of("United States", "New Zealand", "Japan")),
+                new RegionSet("polygons/countriesUHD.json", raw_polygonsUHDFiltered, regionsUHDFiltered, List.of("United States", "Japan", "New Zealand")),
+                new RegionSet("polygons_converted/us-albers.geojson", raw_polygonsUS, regionsUS, List.of("Alaska", "Hawaii")),
+                new RegionSet("polygons_converted/AK-02-alaska-counties.geojson", raw_polygonsAK, regionsAK, NONE),
+                new RegionSet("polygons_converted/jp-prefectures.geojson", raw_polygonsJP, regionsJP, NONE),
+                new RegionSet("polygons_converted/new-zealand-districts.geojson", raw_polygonsNZ, regionsNZ, NONE),
+                new RegionSet("polygons_converted/hawaii-countries.geojson", raw_polygonsHW, regionsHW, NONE),
+                new RegionSet("polygons_converted/italy_provinces.geojson", raw_polygonsIT, regionsIT, NONE),
+                new RegionSet("polygons_converted/region_dataset.geojson", null, regionSearchHD, NONE));
+
+        List<String> keys = new ArrayList<>();
+        for (RegionSet set : sets) {
+            keys.add(set.key());
+        }
+
+        File packFile = getGeometryPackFile();
+        RegionsGeometryPack pack = RegionsGeometryPack.load(packFile, GlobalQuake.version, keys);
+        RegionsGeometryPack.Builder builder = pack == null && packFile != null ? new RegionsGeometryPack.Builder() : null;
+
+        for (int i = 0; i < sets.size(); i++) {
+            RegionSet set = sets.get(i);
+            if (pack != null) {
+                pack.fill(keys.get(i), set.raw(), set.regions());
+            } else {
+                int before = set.regions().size();
+                parseGeoJson(set.path(), set.raw(), set.regions(), set.remove());
+                if (builder != null) {
+                    builder.add(keys.get(i), set.regions().subList(before, set.regions().size()));
+                }
+            }
+        }
 
         for (List<Region> list : List.of(regionsUS, regionsAK, regionsJP, regionsNZ, regionsHW, regionsIT)) {
             regionSearchHD.addAll(list);
         }
 
+        Logger.info("Regions loaded from %s in %d ms".formatted(pack != null ? "geometry pack" : "GeoJSON", System.currentTimeMillis() - start));
+
+        if (builder != null) {
+            try {
+                builder.write(packFile, GlobalQuake.version);
+            } catch (IOException e) {
+                Logger.warn("Unable to write regions geometry pack: %s".formatted(e.getMessage()));
+            }
+        }
+
         //loadLookupTable();
     }
 
+    /**
+     * @return location of the binary geometry pack, or null if it should not be used
+     */
+    private static File getGeometryPackFile() {
+        if (!useGeometryPack || GlobalQuake.mainFolder == null) {
+            return null;
+        }
+        return new File(GlobalQuake.mainFolder, "cache/regions.pack");
+    }
+
+    private record RegionSet(String path, RawPolygonList raw, List<Region> regions, List<String> remove) {
+
+        /**
+         * Identifies the parsed result in the geometry pack, the resource size makes sure that
+         * a changed resource is parsed again even without a version change
+         */
+        public String key() throws IOException {
+            URL resource = ClassLoader.getSystemClassLoader().getResource(path);
+            if (resource == null) {
+                throw new IOException("Unable to load polygons: %s".formatted(path));
+            }
+            long size = resource.openConnection().getContentLengthLong();
+            return "%s|%s|%d".formatted(path, String.join(",", remove), size);
+        }
+    }
+
     @SuppressWarnings("unused")
     private static void loadLookupTable() throws IOException {
         shorelineLookup = LookupTableIO.importLookupTableFromFile();
@@ -0,0 +1,356 @@
+package globalquake.core.regions;
+
+import org.tinylog.Logger;
+
+import java.awt.geom.Path2D;
+import java.awt.geom.Rectangle2D;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Compact binary form of all the region sets loaded by {@link Regions}, written once after the
+ * GeoJSON resources are parsed and memory-mapped on the following starts.
+ * Coordinates are stored as float arrays and Path2D / GQPolygon objects are only created
+ * when a region is actually accessed.
+ */
+public class RegionsGeometryPack {
+
+    private static final int MAGIC = 0x47515250; // GQRP
+    private static final int FORMAT_VERSION = 1;
+
+    private final Map<String, int[]> sets; // key -> region indices
+    private final String[] regionNames;
+    private final int[] regionFirstRing;
+    private final int[] regionRingCount;
+    private final int[] ringOffset;
+    private final int[] ringSize;
+    private final float[] ringBounds;
+    private final FloatBuffer lons;
+    private final FloatBuffer lats;
+
+    private RegionsGeometryPack(Map<String, int[]> sets, String[] regionNames, int[] regionFirstRing, int[] regionRingCount,
+                                int[] ringOffset, int[] ringSize, float[] ringBounds, FloatBuffer lons, FloatBuffer lats) {
+        this.sets = sets;
+        this.regionNames = regionNames;
+        this.regionFirstRing = regionFirstRing;
+        this.regionRingCount = regionRingCount;
+        this.ringOffset = ringOffset;
+        this.ringSize = ringSize;
+        this.ringBounds = ringBounds;
+        this.lons = lons;
+        this.lats = lats;
+    }
+
+    /**
+     * @return the pack or null if the file does not exist, is damaged, was written by a different version
+     * or does not contain all the requested keys
+     */
+    public static RegionsGeometryPack load(File file, String version, Collection<String> requiredKeys) {
+        if (file == null || !file.exists()) {
+            return null;
+        }
+
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION || !version.equals(readString(buffer))) {
+                Logger.info("Regions geometry pack is outdated and will be regenerated");
+                return null;
+            }
+
+            String[] names = new String[buffer.getInt()];
+            for (int i = 0; i < names.length; i++) {
+                names[i] = readString(buffer);
+            }
+
+            int setCount = buffer.getInt();
+            Map<String, int[]> sets = new HashMap<>();
+            for (int i = 0; i < setCount; i++) {
+                String key = readString(buffer);
+                int[] regions = new int[buffer.getInt()];
+                int first = buffer.getInt();
+                for (int j = 0; j < regions.length; j++) {
+                    regions[j] = first + j;
+                }
+                sets.put(key, regions);
+            }
+
+            if (!sets.keySet().containsAll(requiredKeys)) {
+                Logger.info("Regions geometry pack does not contain all region sets and will be regenerated");
+                return null;
+            }
+
+            int regionCount = buffer.getInt();
+            String[] regionNames = new String[regionCount];
+            int[] regionFirstRing = new int[regionCount];
+            int[] regionRingCount = new int[regionCount];
+            for (int i = 0; i < regionCount; i++) {
+                int nameIndex = buffer.getInt();
+                regionNames[i] = nameIndex == -1 ? null : names[nameIndex];
+                regionFirstRing[i] = buffer.getInt();
+                regionRingCount[i] = buffer.getInt();
+            }
+
+            int ringCount = buffer.getInt();
+            int[] ringOffset = new int[ringCount];
+            int[] ringSize = new int[ringCount];
+            float[] ringBounds = new float[ringCount * 4];
+            for (int i = 0; i < ringCount; i++) {
+                ringOffset[i] = buffer.getInt();
+                ringSize[i] = buffer.getInt();
+                for (int j = 0; j < 4; j++) {
+                    ringBounds[i * 4 + j] = buffer.getFloat();
+                }
+            }
+
+            int pointCount = buffer.getInt();
+            int position = buffer.position();
+            FloatBuffer lons = buffer.slice(position, pointCount * Float.BYTES).asFloatBuffer();
+            FloatBuffer lats = buffer.slice(position + pointCount * Float.BYTES, pointCount * Float.BYTES).asFloatBuffer();
+
+            return new RegionsGeometryPack(sets, regionNames, regionFirstRing, regionRingCount, ringOffset, ringSize, ringBounds, lons, lats);
+        } catch (IOException | RuntimeException e) {
+            Logger.warn("Unable to load regions geometry pack: %s".formatted(e.getMessage()));
+            return null;
+        }
+    }
+
+    /**
+     * Adds the regions of the given set to the lists, same as {@link Regions#parseGeoJson} would
+     */
+    public void fill(String key, RawPolygonList raw, List<Region> regions) {
+        for (int region : sets.get(key)) {
+            int firstRing = regionFirstRing[region];
+            int ringCount = regionRingCount[region];
+
+            List<Rectangle2D> bounds = new ArrayList<>(ringCount);
+            for (int ring = firstRing; ring < firstRing + ringCount; ring++) {
+                float minLon = ringBounds[ring * 4];
+                float minLat = ringBounds[ring * 4 + 1];
+                bounds.add(new Rectangle2D.Float(minLon, minLat,
+                        ringBounds[ring * 4 + 2] - minLon, ringBounds[ring * 4 + 3] - minLat));
+            }
+
+            LazyRawList raws = new LazyRawList(firstRing, ringCount);
+            regions.add(new Region(regionNames[region], new LazyPathList(firstRing, ringCount), bounds, raws));
+
+            if (raw != null) {
+                raw.addLazy(raws);
+            }
+        }
+    }
+
+    private GQPolygon createPolygon(int ring) {
+        int size = ringSize[ring];
+        float[] ringLats = new float[size];
+        float[] ringLons = new float[size];
+        lats.get(ringOffset[ring], ringLats);
+        lons.get(ringOffset[ring], ringLons);
+        return new GQPolygon(ringLats, ringLons);
+    }
+
+    private Path2D.Float createPath(int ring) {
+        int offset = ringOffset[ring];
+        int size = ringSize[ring];
+        Path2D.Float path = new Path2D.Float(Path2D.WIND_NON_ZERO, size + 1);
+        for (int i = 0; i < size; i++) {
+            if (i > 0) {
+                path.lineTo(lons.get(offset + i), lats.get(offset + i));
+            } else {
+                path.moveTo(lons.get(offset + i), lats.get(offset + i));
+            }
+        }
+        path.closePath();
+        return path;
+    }
+
+    // regions are looked up from several threads, a ring decoded twice by a race is dropped in favour of the first one
+
+    private class LazyPathList extends AbstractList<Path2D.Float> {
+
+        private final int firstRing;
+        private final AtomicReferenceArray<Path2D.Float> paths;
+
+        LazyPathList(int firstRing, int count) {
+            this.firstRing = firstRing;
+            this.paths = new AtomicReferenceArray<>(count);
+        }
+
+        @Override
+        public Path2D.Float get(int index) {
+            Path2D.Float path = paths.get(index);
+            if (path == null) {
+                path = createPath(firstRing + index);
+                if (!paths.compareAndSet(index, null, path)) {
+                    path = paths.get(index);
+                }
+            }
+            return path;
+        }
+
+        @Override
+        public int size() {
+            return paths.length();
+        }
+    }
+
+    private class LazyRawList extends AbstractList<GQPolygon> {
+
+        private final int firstRing;
+        private final AtomicReferenceArray<GQPolygon> polygons;
+
+        LazyRawList(int firstRing, int count) {
+            this.firstRing = firstRing;
+            this.polygons = new AtomicReferenceArray<>(count);
+        }
+
+        @Override
+        public GQPolygon get(int index) {
+            GQPolygon polygon = polygons.get(index);
+            if (polygon == null) {
+                polygon = createPolygon(firstRing + index);
+                if (!polygons.compareAndSet(index, null, polygon)) {
+                    polygon = polygons.get(index);
+                }
+            }
+            return polygon;
+        }
+
+        @Override
+        public int size() {
+            return polygons.length();
+        }
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeString(DataOutputStream out, String str) throws IOException {
+        byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Collects parsed region sets and writes them into a new pack file
+     */
+    public static class Builder {
+
+        private final Map<String, List<Region>> sets = new LinkedHashMap<>();
+
+        public void add(String key, List<Region> regions) {
+            sets.put(key, new ArrayList<>(regions));
+        }
+
+        public void write(File file, String version) throws IOException {
+            List<String> names = new ArrayList<>();
+            Map<String, Integer> nameIndices = new HashMap<>();
+            List<Region> regions = new ArrayList<>();
+            for (List<Region> list : sets.values()) {
+                for (Region region : list) {
+                    if (region.name() != null && !nameIndices.containsKey(region.name())) {
+                        nameIndices.put(region.name(), names.size());
+                        names.add(region.name());
+                    }
+                    regions.add(region);
+                }
+            }
+
+            File parent = file.getParentFile();
+            if (parent != null && !parent.exists() && !parent.mkdirs()) {
+                throw new IOException("Unable to create directory %s".formatted(parent.getAbsolutePath()));
+            }
+
+            File temp = new File(file.getAbsolutePath() + ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(FORMAT_VERSION);
+                writeString(out, version);
+
+                out.writeInt(names.size());
+                for (String name : names) {
+                    writeString(out, name);
+                }
+
+                out.writeInt(sets.size());
+                int firstRegion = 0;
+                for (var entry : sets.entrySet()) {
+                    writeString(out, entry.getKey());
+                    out.writeInt(entry.getValue().size());
+                    out.writeInt(firstRegion);
+                    firstRegion += entry.getValue().size();
+                }
+
+                out.writeInt(regions.size());
+                int ring = 0;
+                for (Region region : regions) {
+                    out.writeInt(region.name() == null ? -1 : nameIndices.get(region.name()));
+                    out.writeInt(ring);
+                    out.writeInt(region.raws().size());
+                    ring += region.raws().size();
+                }
+
+                out.writeInt(ring);
+                int offset = 0;
+                for (Region region : regions) {
+                    for (GQPolygon polygon : region.raws()) {
+                        out.writeInt(offset);
+                        out.writeInt(polygon.getSize());
+                        writeBounds(out, polygon);
+                        offset += polygon.getSize();
+                    }
+                }
+
+                out.writeInt(offset);
+                for (Region region : regions) {
+                    for (GQPolygon polygon : region.raws()) {
+                        for (int i = 0; i < polygon.getSize(); i++) {
+                            out.writeFloat(polygon.getLons()[i]);
+                        }
+                    }
+                }
+                for (Region region : regions) {
+                    for (GQPolygon polygon : region.raws()) {
+                        for (int i = 0; i < polygon.getSize(); i++) {
+                            out.writeFloat(polygon.getLats()[i]);
+                        }
+                    }
+                }
+            }
+
+            if (file.exists() && !file.delete()) {
+                throw new IOException("Unable to replace %s".formatted(file.getAbsolutePath()));
+            }
+
+            if (!temp.renameTo(file)) {
+                throw new IOException("Unable to rename %s".formatted(temp.getAbsolutePath()));
+            }
+        }
+
+        private static void writeBounds(DataOutputStream out, GQPolygon polygon) throws IOException {
+            float minLon = Float.MAX_VALUE;
+            float minLat = Float.MAX_VALUE;
+            float maxLon = -Float.MAX_VALUE;
+            float maxLat = -Float.MAX_VALUE;
+            for (int i = 0; i < polygon.getSize(); i++) {
+                minLon = Math.min(minLon, polygon.getLons()[i]);
+                minLat = Math.min(minLat, polygon.getLats()[i]);
+                maxLon = Math.max(maxLon, polygon.getLons()[i]);
+                maxLat = Math.max(maxLat, polygon.getLats()[i]);
+            }
+            out.writeFloat(minLon);
+            out.writeFloat(minLat);
+            out.writeFloat(maxLon);
+            out.writeFloat(maxLat);
+        }
+    }
+
+}
@@ -0,0 +1,202 @@
+package globalquake.core.replay;
+
+import edu.sc.seis.seisFile.mseed.DataHeader;
+import edu.sc.seis.seisFile.mseed.DataRecord;
+import edu.sc.seis.seisFile.mseed.SeedFormatException;
+import edu.sc.seis.seisFile.mseed.SeedRecord;
+import org.tinylog.Logger;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * Data records of a set of miniSEED files merged by the time at which they would have been received,
+ * that is the time of their last sample. Each file is read sequentially while only its next record is kept in memory,
+ * so the files are expected to be roughly ordered by time, the way archives and recorders store them.
+ * Only the first record of every file is read up front, a file is opened for the replay once the merged stream
+ * reaches that record and closed as soon as it is exhausted, so an archive of many days keeps only the files
+ * of the current day open.
+ */
+public class MiniSeedReplaySource implements Closeable {
+
+    private static final Set<String> EXTENSIONS = Set.of("mseed", "miniseed", "ms", "seed");
+
+    private record PendingFile(File file, long time) {
+    }
+
+    private final PriorityQueue<FileCursor> cursors = new PriorityQueue<>(Comparator.comparingLong(FileCursor::time));
+    private final PriorityQueue<PendingFile> pending = new PriorityQueue<>(Comparator.comparingLong(PendingFile::time));
+    private final List<DataHeader> firstHeaders = new ArrayList<>();
+
+    private long skippedRecords = 0;
+
+    private class FileCursor {
+        private final File file;
+        private final DataInputStream in;
+        private DataRecord record;
+        private long time;
+
+        FileCursor(File file) throws IOException {
+            this.file = file;
+            this.in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+        }
+
+        /**
+         * @return false if there are no more records in the file
+         */
+        boolean advance() {
+            while (true) {
+                try {
+                    SeedRecord seedRecord = SeedRecord.read(in);
+                    if (seedRecord instanceof DataRecord dataRecord) {
+                        record = dataRecord;
+                        time = dataRecord.getLastSampleBtime().toInstant().toEpochMilli();
+                        return true;
+                    }
+                    skippedRecords++;
+                } catch (EOFException e) {
+                    return false;
+                } catch (SeedFormatException | IOException e) {
+                    Logger.warn("Unable to read %s, skipping the rest of the file: %s".formatted(file.getName(), e.getMessage()));
+                    return false;
+                }
+            }
+        }
+
+        long time() {
+            return time;
+        }
+
+        void close() {
+            try {
+                in.close();
+            } catch (IOException e) {
+                Logger.error(e);
+            }
+        }
+    }
+
+    public MiniSeedReplaySource(Collection<File> files) throws IOException {
+        for (File file : files) {
+            FileCursor cursor = new FileCursor(file);
+            try {
+                if (cursor.advance()) {
+                    firstHeaders.add(cursor.record.getHeader());
+                    pending.add(new PendingFile(file, cursor.time()));
+                }
+            } finally {
+                cursor.close();
+            }
+        }
+
+        // the records skipped now are counted again when the files are opened for the replay
+        skippedRecords = 0;
+    }
+
+    /**
+     * @return all the miniSEED files in the folder and its subfolders, in a stable order
+     */
+    public static List<File> findFiles(File folder) {
+        List<File> result = new ArrayList<>();
+        File[] files = folder.listFiles();
+        if (files == null) {
+            return result;
+        }
+
+        Arrays.sort(files);
+        for (File file : files) {
+            if (file.isDirectory()) {
+                result.addAll(findFiles(file));
+            } else if (isMiniSeed(file)) {
+                result.add(file);
+            }
+        }
+
+        return result;
+    }
+
+    private static boolean isMiniSeed(File file) {
+        String name = file.getName().toLowerCase(Locale.ROOT);
+        int dot = name.lastIndexOf('.');
+        // SDS archives use the day of year as the extension
+        return dot != -1 && (EXTENSIONS.contains(name.substring(dot + 1)) || name.substring(dot + 1).matches("\\d{3}"));
+    }
+
+    /**
+     * @return headers of the first data record of every file that contains any
+     */
+    public List<DataHeader> getFirstHeaders() {
+        return Collections.unmodifiableList(firstHeaders);
+    }
+
+    /**
+     * Opens the files whose first record comes before the next record of the already opened files
+     */
+    private void openDueFiles() {
+        while (!pending.isEmpty() && (cursors.isEmpty() || pending.peek().time() <= cursors.peek().time())) {
+            File file = pending.poll().file();
+            try {
+                FileCursor cursor = new FileCursor(file);
+                if (cursor.advance()) {
+                    cursors.add(cursor);
+                } else {
+                    cursor.close();
+                }
+            } catch (IOException e) {
+                Logger.warn("Unable to open %s: %s".formatted(file.getName(), e.getMessage()));
+            }
+        }
+    }
+
+    public boolean hasNext() {
+        openDueFiles();
+        return !cursors.isEmpty();
+    }
+
+    /**
+     * @return time of the last sample of the next record or Long.MAX_VALUE if there are no more records
+     */
+    public long peekTime() {
+        openDueFiles();
+        FileCursor cursor = cursors.peek();
+        return cursor == null ? Long.MAX_VALUE : cursor.time();
+    }
+
+    public DataRecord next() {
+        openDueFiles();
+        FileCursor cursor = cursors.poll();
+        if (cursor == null) {
+            throw new NoSuchElementException();
+        }
+
+        DataRecord result = cursor.record;
+        if (cursor.advance()) {
+            cursors.add(cursor);
+        } else {
+            cursor.close();
+        }
+
+        return result;
+    }
+
+    /**
+     * @return number of files that are currently open
+     */
+    int getOpenFiles() {
+        return cursors.size();
+    }
+
+    /**
+     * @return number of records that were not data records, for example volume headers
+     */
+    public long getSkippedRecords() {
+        return skippedRecords;
+    }
+
+    @Override
+    public void close() {
+        cursors.forEach(FileCursor::close);
+        cursors.clear();
+        pending.clear();
+    }
+}
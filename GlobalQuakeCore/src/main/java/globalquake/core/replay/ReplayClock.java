@@ -0,0 +1,72 @@
+package globalquake.core.replay;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Virtual time of a replay. The fixed-step replay sets it explicitly, the paced replay lets it run with the wall clock
+ * at a multiple of real time and moves it forward over long gaps in the data.
+ */
+class ReplayClock {
+
+    private record State(long time, long realNanos, double speed) {
+    }
+
+    private final LongSupplier nanoTime;
+
+    private volatile State state = new State(0, 0, 0);
+
+    ReplayClock() {
+        this(System::nanoTime);
+    }
+
+    ReplayClock(LongSupplier nanoTime) {
+        this.nanoTime = nanoTime;
+    }
+
+    /**
+     * Stops the clock at the given time
+     */
+    void set(long time) {
+        state = new State(time, 0, 0);
+    }
+
+    /**
+     * Lets the clock run from the given time
+     *
+     * @param speed multiple of real time
+     */
+    void start(long time, double speed) {
+        if (speed <= 0) {
+            throw new IllegalArgumentException("Speed must be positive");
+        }
+        state = new State(time, nanoTime.getAsLong(), speed);
+    }
+
+    /**
+     * Moves the clock forward by the given number of ms, it keeps running if it was
+     */
+    void skip(long millis) {
+        State current = state;
+        state = new State(current.time() + millis, current.realNanos(), current.speed());
+    }
+
+    long currentTimeMillis() {
+        State current = state;
+        if (current.speed() == 0) {
+            return current.time();
+        }
+        return current.time() + (long) ((nanoTime.getAsLong() - current.realNanos()) / 1E6 * current.speed());
+    }
+
+    /**
+     * @return real time in ms until the clock reaches the given time, 0 if it already did or if the clock is stopped
+     */
+    long realMillisUntil(long time) {
+        State current = state;
+        long remaining = time - currentTimeMillis();
+        if (current.speed() == 0 || remaining <= 0) {
+            return 0;
+        }
+        return (long) Math.ceil(remaining / current.speed());
+    }
+}
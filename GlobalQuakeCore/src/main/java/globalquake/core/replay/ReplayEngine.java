@@ -0,0 +1,345 @@
+package globalquake.core.replay;
+
+import edu.sc.seis.seisFile.mseed.DataHeader;
+import edu.sc.seis.seisFile.mseed.DataRecord;
+import globalquake.core.GlobalQuake;
+import globalquake.core.GlobalQuakeRuntime;
+import globalquake.core.database.StationDatabase;
+import globalquake.core.database.StationDatabaseManager;
+import globalquake.core.earthquake.data.Earthquake;
+import globalquake.core.events.GlobalQuakeEventListener;
+import globalquake.core.events.specific.QuakeCreateEvent;
+import globalquake.core.events.specific.QuakeUpdateEvent;
+import globalquake.core.metrics.LatencyHistogram;
+import globalquake.core.seedlink.SeedlinkStationLookup;
+import globalquake.core.station.AbstractStation;
+import globalquake.core.station.GlobalStation;
+import org.tinylog.Logger;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.*;
+
+/**
+ * Pushes recorded miniSEED data through the whole pipeline - stations, their analysis, clusters and hypocenters -
+ * with a virtual clock.
+ * <p>
+ * A paced replay, at a multiple of real time, starts the threads of {@link GlobalQuakeRuntime} and only feeds
+ * the records to the stations when the clock reaches them, so the stages run exactly as they do live, driven by
+ * their {@link globalquake.core.PipelineTrigger}s. The triggers keep their intervals in real time, so only a replay
+ * at real time reproduces the live delays, faster replays make the hypocenter stage relatively slower.
+ * <p>
+ * A replay {@link #AS_FAST_AS_POSSIBLE} runs the stages in the same order on the calling thread instead,
+ * in fixed steps of virtual time, so that replays of the same data are comparable.
+ */
+public class ReplayEngine {
+
+    public static final double AS_FAST_AS_POSSIBLE = 0;
+
+    private final StationDatabase database;
+    private final List<File> files;
+
+    private double speed = AS_FAST_AS_POSSIBLE;
+    private long step = 100;
+    private long quakeInterval = GlobalQuakeRuntime.getQuakeMinInterval();
+    private long tail = 2 * 60 * 1000;
+
+    private final ReplayClock clock = new ReplayClock();
+    private ReplayGlobalQuake globalQuake;
+    private SeedlinkStationLookup lookup;
+
+    public ReplayEngine(StationDatabase database, List<File> files) {
+        this.database = database;
+        this.files = files;
+    }
+
+    /**
+     * @param speed multiple of real time or {@link #AS_FAST_AS_POSSIBLE}
+     */
+    public ReplayEngine setSpeed(double speed) {
+        if (speed < 0) {
+            throw new IllegalArgumentException("Speed must not be negative");
+        }
+        this.speed = speed;
+        return this;
+    }
+
+    /**
+     * @param step virtual time in ms between two passes of the station analysis of the fixed-step replay,
+     *             in the paced replay the longest real time between two checks for new records
+     */
+    public ReplayEngine setStep(long step) {
+        if (step <= 0) {
+            throw new IllegalArgumentException("Step must be positive");
+        }
+        this.step = step;
+        return this;
+    }
+
+    /**
+     * @param quakeInterval virtual time in ms between two passes of the cluster and hypocenter analysis of the
+     *                      fixed-step replay, the paced replay uses the triggers of the runtime instead
+     */
+    public ReplayEngine setQuakeInterval(long quakeInterval) {
+        this.quakeInterval = quakeInterval;
+        return this;
+    }
+
+    /**
+     * @param tail virtual time in ms the pipeline keeps running after the last record
+     */
+    public ReplayEngine setTail(long tail) {
+        this.tail = tail;
+        return this;
+    }
+
+    /**
+     * Runs the replay, {@link GlobalQuake#prepare} has to be called before
+     */
+    public ReplayReport run() throws IOException {
+        ReplayReport report = new ReplayReport();
+
+        try (MiniSeedReplaySource source = new MiniSeedReplaySource(files)) {
+            ReplayStationManager stationManager = createStations(source.getFirstHeaders());
+            report.stations = stationManager.getStations().size();
+            Logger.info("Replaying %d files with %d stations".formatted(files.size(), report.stations));
+
+            globalQuake = new ReplayGlobalQuake(new StationDatabaseManager(database), stationManager, clock);
+            lookup = new SeedlinkStationLookup(stationManager.getStations());
+
+            if (speed > 0) {
+                replayPaced(source, report);
+            } else {
+                replaySteps(source, report);
+            }
+        } finally {
+            if (globalQuake != null) {
+                globalQuake.getEventHandler().stopHandler();
+            }
+        }
+
+        return report;
+    }
+
+    /**
+     * The stations and their neighbours must be known in advance, they are created from the first record of every file.
+     * That covers archives storing one channel per file, such as SDS, channels that appear only later
+     * in a multiplexed file are counted as unknown records.
+     */
+    private ReplayStationManager createStations(List<DataHeader> headers) {
+        Map<String, Map<String, SortedSet<ReplayStationManager.ChannelCode>>> channels = new TreeMap<>();
+        for (DataHeader header : headers) {
+            channels.computeIfAbsent(header.getNetworkCode().trim(), k -> new TreeMap<>())
+                    .computeIfAbsent(header.getStationIdentifier().trim(), k -> new TreeSet<>())
+                    .add(new ReplayStationManager.ChannelCode(header.getLocationIdentifier().trim(), header.getChannelIdentifier().trim()));
+        }
+
+        ReplayStationManager stationManager = new ReplayStationManager(database);
+        channels.forEach((network, stations) -> stations.forEach((station, codes) -> {
+            if (stationManager.createStation(network, station, codes) == null) {
+                Logger.debug("Station %s %s is not in the database, its data will be skipped".formatted(network, station));
+            }
+        }));
+        stationManager.finishStations();
+        return stationManager;
+    }
+
+    private void replaySteps(MiniSeedReplaySource source, ReplayReport report) {
+        LatencyHistogram feedTime = report.stage("feed");
+        LatencyHistogram analysisTime = report.stage("analysis");
+        LatencyHistogram secondTime = report.stage("second");
+        LatencyHistogram clustersTime = report.stage("clusters");
+        LatencyHistogram hypocentersTime = report.stage("hypocenters");
+
+        Set<AbstractStation> pending = new HashSet<>();
+        Map<UUID, Integer> revisions = new HashMap<>();
+
+        long now = source.peekTime();
+        long lastRecord = now;
+        long nextSecond = now;
+        long nextQuake = now;
+
+        report.virtualStart = now;
+        long cpuStart = getProcessCpuTime();
+        long realStart = System.nanoTime();
+
+        while (source.hasNext() || now < lastRecord + tail) {
+            if (source.hasNext() && source.peekTime() - now > tail && globalQuake.getClusterAnalysis().getClusters().isEmpty()) {
+                // nothing happens during long gaps in the data
+                now = source.peekTime() - step;
+                nextSecond = nextQuake = now;
+            }
+
+            now += step;
+            clock.set(now);
+
+            long start = System.nanoTime();
+            while (source.peekTime() <= now) {
+                GlobalStation station = feed(source.next(), report);
+                if (station != null) {
+                    pending.add(station);
+                }
+                lastRecord = now;
+            }
+            feedTime.recordSince(start);
+
+            if (!pending.isEmpty()) {
+                start = System.nanoTime();
+                pending.parallelStream().forEach(AbstractStation::analyse);
+                pending.clear();
+                analysisTime.recordSince(start);
+            }
+
+            if (now >= nextSecond) {
+                start = System.nanoTime();
+                long time = now;
+                globalQuake.getStationManager().getStations().parallelStream().forEach(station -> station.second(time));
+                globalQuake.getEarthquakeAnalysis().second();
+                secondTime.recordSince(start);
+                nextSecond += 1000;
+            }
+
+            if (now >= nextQuake) {
+                start = System.nanoTime();
+                globalQuake.getClusterAnalysis().run();
+                clustersTime.recordSince(start);
+
+                start = System.nanoTime();
+                globalQuake.getEarthquakeAnalysis().run();
+                hypocentersTime.recordSince(start);
+
+                collectRevisions(now, revisions, report);
+                nextQuake += quakeInterval;
+            }
+        }
+
+        report.virtualEnd = now;
+        report.realNanos = System.nanoTime() - realStart;
+        long cpuEnd = getProcessCpuTime();
+        report.cpuNanos = cpuStart < 0 || cpuEnd < 0 ? -1 : cpuEnd - cpuStart;
+    }
+
+    /**
+     * Feeds the records when the running clock reaches them, the stations pass them on to the runtime threads
+     */
+    private void replayPaced(MiniSeedReplaySource source, ReplayReport report) {
+        LatencyHistogram feedTime = report.stage("feed");
+
+        globalQuake.getEventHandler().registerEventListener(new GlobalQuakeEventListener() {
+            @Override
+            public void onQuakeCreate(QuakeCreateEvent event) {
+                addRevision(event.earthquake(), report);
+            }
+
+            @Override
+            public void onQuakeUpdate(QuakeUpdateEvent event) {
+                addRevision(event.earthquake(), report);
+            }
+        });
+
+        long lastRecord = source.peekTime();
+        report.virtualStart = lastRecord;
+        clock.start(lastRecord, speed);
+
+        GlobalQuakeRuntime runtime = globalQuake.getGlobalQuakeRuntime();
+        long cpuStart = getProcessCpuTime();
+        long realStart = System.nanoTime();
+        runtime.runThreads();
+
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                long now = clock.currentTimeMillis();
+                if (!source.hasNext() && now >= lastRecord + tail) {
+                    break;
+                }
+
+                if (source.hasNext() && source.peekTime() - now > tail && globalQuake.getClusterAnalysis().getClusters().isEmpty()) {
+                    // nothing happens during long gaps in the data
+                    clock.skip(source.peekTime() - now);
+                    now = clock.currentTimeMillis();
+                }
+
+                long start = System.nanoTime();
+                while (source.peekTime() <= now) {
+                    feed(source.next(), report);
+                    lastRecord = now;
+                }
+                feedTime.recordSince(start);
+
+                long next = source.hasNext() ? source.peekTime() : lastRecord + tail;
+                sleep(Math.max(1, Math.min(step, clock.realMillisUntil(next))));
+            }
+        } finally {
+            runtime.stop();
+        }
+
+        report.virtualEnd = clock.currentTimeMillis();
+        report.realNanos = System.nanoTime() - realStart;
+        long cpuEnd = getProcessCpuTime();
+        report.cpuNanos = cpuStart < 0 || cpuEnd < 0 ? -1 : cpuEnd - cpuStart;
+        report.quakeSignals = runtime.getQuakeTrigger().getSignals();
+        report.quakeRuns = runtime.getQuakeTrigger().getRuns();
+        GlobalQuakeRuntime.getStageTimes().forEach(report::addStage);
+    }
+
+    /**
+     * @return the station the record was passed to or null if it is not of any station
+     */
+    private GlobalStation feed(DataRecord record, ReplayReport report) {
+        GlobalStation station = find(record.getHeader());
+        if (station == null) {
+            report.unknownRecords++;
+            return null;
+        }
+
+        station.addRecord(record);
+        report.records++;
+        return station;
+    }
+
+    /**
+     * @return the station if the record is of the channel that was selected for it
+     */
+    private GlobalStation find(DataHeader header) {
+        GlobalStation station = lookup.find(header);
+        if (station == null || !station.getChannelName().equals(header.getChannelIdentifier().trim())
+                || !station.getLocationCode().equals(header.getLocationIdentifier().trim())) {
+            return null;
+        }
+        return station;
+    }
+
+    private void collectRevisions(long now, Map<UUID, Integer> revisions, ReplayReport report) {
+        for (Earthquake earthquake : globalQuake.getEarthquakeAnalysis().getEarthquakes()) {
+            Integer previous = revisions.put(earthquake.getUuid(), earthquake.getRevisionID());
+            if (previous == null || previous != earthquake.getRevisionID()) {
+                report.addRevision(createRevision(now, earthquake));
+            }
+        }
+    }
+
+    private void addRevision(Earthquake earthquake, ReplayReport report) {
+        report.addRevision(createRevision(clock.currentTimeMillis(), earthquake));
+    }
+
+    private static ReplayReport.HypocenterRevision createRevision(long now, Earthquake earthquake) {
+        return new ReplayReport.HypocenterRevision(now, earthquake.getUuid(), earthquake.getRevisionID(),
+                earthquake.getLat(), earthquake.getLon(), earthquake.getDepth(), earthquake.getOrigin(), earthquake.getMag());
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static long getProcessCpuTime() {
+        if (ManagementFactory.getOperatingSystemMXBean() instanceof com.sun.management.OperatingSystemMXBean os) {
+            return os.getProcessCpuTime();
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,37 @@
+package globalquake.core.replay;
+
+import globalquake.core.GlobalQuake;
+import globalquake.core.database.StationDatabaseManager;
+
+/**
+ * Headless instance whose clock is driven by the replay instead of the wall clock
+ */
+class ReplayGlobalQuake extends GlobalQuake {
+
+    private final ReplayClock clock;
+
+    ReplayGlobalQuake(StationDatabaseManager stationDatabaseManager, ReplayStationManager stationManager, ReplayClock clock) {
+        super(stationDatabaseManager, stationManager);
+        this.clock = clock;
+    }
+
+    @Override
+    public long currentTimeMillis() {
+        return clock.currentTimeMillis();
+    }
+
+    @Override
+    public boolean limitedSettings() {
+        return true;
+    }
+
+    @Override
+    public boolean limitedWaveformBuffers() {
+        return false;
+    }
+
+    @Override
+    public boolean isSimulation() {
+        return true;
+    }
+}
@@ -0,0 +1,163 @@
+package globalquake.core.replay;
+
+import globalquake.core.metrics.LatencyHistogram;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.*;
+
+/**
+ * Result of one replay: every hypocenter revision with the virtual time at which it was published
+ * and the timing of the pipeline stages
+ */
+public class ReplayReport {
+
+    public record HypocenterRevision(long time, UUID uuid, int revision, double lat, double lon, double depth,
+                                     long origin, double magnitude) {
+    }
+
+    // revisions of a paced replay are added by the event handler thread
+    private final List<HypocenterRevision> timeline = Collections.synchronizedList(new ArrayList<>());
+    private final Map<String, LatencyHistogram> stages = new LinkedHashMap<>();
+
+    long records;
+    long unknownRecords;
+    int stations;
+    long virtualStart;
+    long virtualEnd;
+    long realNanos;
+    long cpuNanos = -1;
+    long quakeSignals = -1;
+    long quakeRuns = -1;
+
+    LatencyHistogram stage(String name) {
+        return stages.computeIfAbsent(name, k -> new LatencyHistogram());
+    }
+
+    void addStage(String name, LatencyHistogram histogram) {
+        stages.put(name, histogram);
+    }
+
+    void addRevision(HypocenterRevision revision) {
+        timeline.add(revision);
+    }
+
+    public List<HypocenterRevision> getTimeline() {
+        return Collections.unmodifiableList(timeline);
+    }
+
+    /**
+     * @return durations of the pipeline stages in the order in which they run, in nanoseconds of real time.
+     * The stages of a paced replay other than feeding are those of {@link globalquake.core.GlobalQuakeRuntime},
+     * which count all the runs since the start of the process
+     */
+    public Map<String, LatencyHistogram> getStages() {
+        return Collections.unmodifiableMap(stages);
+    }
+
+    public long getRecords() {
+        return records;
+    }
+
+    public long getUnknownRecords() {
+        return unknownRecords;
+    }
+
+    public int getStations() {
+        return stations;
+    }
+
+    public long getVirtualDuration() {
+        return virtualEnd - virtualStart;
+    }
+
+    public long getRealNanos() {
+        return realNanos;
+    }
+
+    /**
+     * @return CPU time of the whole process during the replay in nanoseconds or -1 if it is not available
+     */
+    public long getCpuNanos() {
+        return cpuNanos;
+    }
+
+    /**
+     * @return signals received by the hypocenter stage trigger of a paced replay or -1
+     */
+    public long getQuakeSignals() {
+        return quakeSignals;
+    }
+
+    /**
+     * @return runs of the hypocenter stage of a paced replay or -1
+     */
+    public long getQuakeRuns() {
+        return quakeRuns;
+    }
+
+    /**
+     * @return how many times faster than real time the data were processed
+     */
+    public double getSpeed() {
+        return realNanos == 0 ? 0 : getVirtualDuration() * 1E6 / realNanos;
+    }
+
+    /**
+     * @return time from the origin to the first published hypocenter of each earthquake in ms, using the origin time of its last revision
+     */
+    public Map<UUID, Long> getTimesToFirstHypocenter() {
+        Map<UUID, Long> first = new LinkedHashMap<>();
+        Map<UUID, Long> origins = new HashMap<>();
+        for (HypocenterRevision revision : timeline) {
+            first.putIfAbsent(revision.uuid(), revision.time());
+            origins.put(revision.uuid(), revision.origin());
+        }
+
+        Map<UUID, Long> result = new LinkedHashMap<>();
+        first.forEach((uuid, time) -> result.put(uuid, time - origins.get(uuid)));
+        return result;
+    }
+
+    public void writeTimeline(File file) throws IOException {
+        try (FileWriter writer = new FileWriter(file)) {
+            writer.write("time,uuid,revision,lat,lon,depth,origin,magnitude,delay\n");
+            for (HypocenterRevision revision : timeline) {
+                writer.write(String.format(Locale.ROOT, "%d,%s,%d,%.4f,%.4f,%.1f,%d,%.2f,%.1f\n", revision.time(), revision.uuid(),
+                        revision.revision(), revision.lat(), revision.lon(), revision.depth(), revision.origin(),
+                        revision.magnitude(), (revision.time() - revision.origin()) / 1000.0));
+            }
+        }
+    }
+
+    public void printSummary(PrintStream out) {
+        double hours = getVirtualDuration() / 3_600_000.0;
+        out.printf(Locale.ROOT, "Replayed %d records (%d of unknown channels) of %d stations, %.2f h of data in %.1f s (%.1fx real time)%n",
+                records, unknownRecords, stations, hours, realNanos / 1E9, getSpeed());
+        if (cpuNanos >= 0 && hours > 0) {
+            out.printf(Locale.ROOT, "CPU time %.1f s, %.1f s per hour of data%n", cpuNanos / 1E9, cpuNanos / 1E9 / hours);
+        }
+
+        if (quakeRuns >= 0) {
+            out.printf(Locale.ROOT, "Hypocenter stage: %d signals, %d runs%n", quakeSignals, quakeRuns);
+        }
+
+        out.printf(Locale.ROOT, "%-12s %10s %10s %10s %10s %10s%n", "stage", "runs", "mean ms", "p50 ms", "p99 ms", "total s");
+        stages.forEach((name, histogram) -> out.printf(Locale.ROOT, "%-12s %10d %10.3f %10.3f %10.3f %10.2f%n", name, histogram.getCount(),
+                histogram.getCount() == 0 ? 0 : histogram.getSum() / 1E6 / histogram.getCount(),
+                histogram.getPercentile(50) / 1E6, histogram.getPercentile(99) / 1E6, histogram.getSum() / 1E9));
+
+        Map<UUID, HypocenterRevision> last = new LinkedHashMap<>();
+        Map<UUID, Integer> revisions = new HashMap<>();
+        for (HypocenterRevision revision : timeline) {
+            last.put(revision.uuid(), revision);
+            revisions.merge(revision.uuid(), 1, Integer::sum);
+        }
+
+        Map<UUID, Long> delays = getTimesToFirstHypocenter();
+        last.forEach((uuid, revision) -> out.printf(Locale.ROOT, "M%.1f %.3f %.3f %.1f km, first hypocenter %.1f s after origin, %d revisions%n",
+                revision.magnitude(), revision.lat(), revision.lon(), revision.depth(), delays.get(uuid) / 1000.0, revisions.get(uuid)));
+    }
+}
@@ -0,0 +1,85 @@
+package globalquake.core.replay;
+
+import globalquake.core.database.Channel;
+import globalquake.core.database.FDSNWSDownloader;
+import globalquake.core.database.Station;
+import globalquake.core.database.StationDatabase;
+import globalquake.core.station.GlobalStation;
+import globalquake.core.station.GlobalStationManager;
+
+import java.util.Collection;
+import java.util.UUID;
+
+/**
+ * Stations of the replay, created only for the stations that are present in the replayed data
+ */
+class ReplayStationManager extends GlobalStationManager {
+
+    private final StationDatabase database;
+
+    ReplayStationManager(StationDatabase database) {
+        this.database = database;
+        indexing = UUID.randomUUID();
+    }
+
+    /**
+     * Creates the station with the selected channel if it is present in the data, otherwise with the first vertical
+     * channel of the data that is known to the database
+     *
+     * @param channels location and channel codes present in the data
+     * @return the new station or null if the station or none of its channels are in the database
+     */
+    GlobalStation createStation(String networkCode, String stationCode, Collection<ChannelCode> channels) {
+        database.getDatabaseReadLock().lock();
+        try {
+            Station station = database.getStation(networkCode, stationCode);
+            if (station == null) {
+                return null;
+            }
+
+            Channel selected = station.getSelectedChannel();
+            Channel channel = null;
+            if (selected != null && channels.contains(new ChannelCode(selected.getLocationCode(), selected.getCode()))) {
+                channel = selected;
+            } else {
+                for (ChannelCode code : channels) {
+                    if (code.channel().endsWith("Z")) {
+                        channel = StationDatabase.getChannel(station, code.channel(), code.location());
+                        if (channel != null) {
+                            break;
+                        }
+                    }
+                }
+            }
+
+            if (channel == null) {
+                return null;
+            }
+
+            GlobalStation result = new GlobalStation(networkCode, stationCode, channel.getCode(), channel.getLocationCode(),
+                    channel.getLatitude(), channel.getLongitude(), channel.getElevation(), nextID.getAndIncrement(), null,
+                    channel.getSensitivity() * FDSNWSDownloader.getSensitivityCorrection(networkCode, stationCode),
+                    channel.getInputType());
+            stations.add(result);
+            return result;
+        } finally {
+            database.getDatabaseReadLock().unlock();
+        }
+    }
+
+    /**
+     * Has to be called after all the stations were created
+     */
+    void finishStations() {
+        indexing = UUID.randomUUID();
+        createListOfClosestStations(stations);
+    }
+
+    record ChannelCode(String location, String channel) implements Comparable<ChannelCode> {
+        @Override
+        public int compareTo(ChannelCode o) {
+            int result = location.compareTo(o.location);
+            return result != 0 ? result : channel.compareTo(o.channel);
+        }
+    }
+}
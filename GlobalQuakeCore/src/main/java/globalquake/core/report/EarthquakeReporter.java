@@ -1,8 +1,13 @@
 package globalquake.core.report;
 
 import globalquake.core.GlobalQuake;
+import globalquake.core.Settings;
 import globalquake.core.archive.ArchivedQuake;
 import globalquake.core.events.specific.QuakeReportEvent;
+import globalquake.core.lab.LabQuake;
+import globalquake.core.lab.PickArchive;
+import globalquake.core.metrics.LatencyHistogram;
+import globalquake.core.metrics.Metrics;
 import globalquake.core.regions.GQPolygon;
 import globalquake.core.regions.Regions;
 import globalquake.core.station.AbstractStation;
@@ -13,40 +18,111 @@ import globalquake.utils.Scale;
 import gqserver.api.packets.station.InputType;
 import org.tinylog.Logger;
 
+import javax.imageio.IIOImage;
 import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
 import java.awt.*;
 import java.awt.geom.Ellipse2D;
 import java.awt.geom.Line2D;
 import java.awt.image.BufferedImage;
-import java.io.*;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
 import java.time.Instant;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 public class EarthquakeReporter {
     public static final File ANALYSIS_FOLDER = new File(GlobalQuake.mainFolder, "/volume/events/");
+    public static final String PICKS_FILE = "picks.gqp";
     private static final DateTimeFormatter fileFormat = DateTimeFormatter.ofPattern("yyyy_MM_dd_HH_mm_ss").withZone(ZoneId.systemDefault());
-    private static double centerLat = 49.7;
-    private static double centerLon = 15.65;
-    private static double scroll = 8;
+    private static final double scroll = 2;
     private static final int width = 600;
     private static final int height = 600;
 
+    /**
+     * Size of the cells the map center is snapped to, all earthquakes in one cell share the same base map
+     */
+    private static final double BASE_MAP_CELL = 1.0;
+    private static final int BASE_MAP_CACHE_SIZE = 16;
+
     private static final Color oceanC = new Color(7, 37, 48);
     private static final Color landC = new Color(15, 47, 68);
     private static final Color borderC = new Color(153, 153, 153);
 
-    public static void report(Earthquake earthquake, ArchivedQuake archivedQuake) {
+    private static final LatencyHistogram REPORT_TIME = Metrics.histogram("gq_report_seconds",
+            "Time to render the report of one earthquake");
+    private static final LatencyHistogram PICKS_TIME = stageHistogram("picks");
+    private static final LatencyHistogram MAP_TIME = stageHistogram("map");
+    private static final LatencyHistogram INTENSITIES_TIME = stageHistogram("intensities");
+    private static final LatencyHistogram PNG_TIME = stageHistogram("png");
+    private static final LatencyHistogram EVENT_TIME = stageHistogram("event");
+
+    private static final Map<MapCell, BufferedImage> baseMaps = new LinkedHashMap<>(BASE_MAP_CACHE_SIZE, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<MapCell, BufferedImage> eldest) {
+            return size() > BASE_MAP_CACHE_SIZE;
+        }
+    };
+
+    private record MapCell(long lat, long lon) {
+    }
+
+    private record MapView(double centerLat, double centerLon) {
+
+        private double getX(double lon) {
+            return (lon - centerLon) / (scroll / 100.0) + (width * 0.5);
+        }
+
+        private double getY(double lat) {
+            return (centerLat - lat) / (scroll / (300 - 200 * Math.cos(0.5 * Math.toRadians(centerLat + lat))))
+                    + (height * 0.5);
+        }
+    }
+
+    private static LatencyHistogram stageHistogram(String stage) {
+        return Metrics.histogram("gq_report_stage_seconds", "Time spent in one stage of the report generation",
+                "stage", stage);
+    }
+
+    /**
+     * Creates the report folder and stores the picks in the format of {@link PickArchive}, the lab reads them directly
+     * from the report folders. This is cheap, so it runs for every report, even if the rendering is dropped later.
+     *
+     * @return the report folder or null if it could not be created
+     */
+    public static File savePicks(Earthquake earthquake, ArchivedQuake archivedQuake) {
+        long start = System.nanoTime();
         File folder = new File(ANALYSIS_FOLDER, String.format("M%2.2f_%s_%s", earthquake.getMag(),
                 earthquake.getRegion().replace(' ', '_'), fileFormat.format(Instant.ofEpochMilli(earthquake.getOrigin())) + "/"));
         if (!folder.exists()) {
             if (!folder.mkdirs()) {
                 Logger.error("Unable to create directory for reports! %s".formatted(folder.getAbsolutePath()));
-                return;
+                return null;
             }
         }
 
+        try (PickArchive.Writer writer = new PickArchive.Writer(new File(folder, PICKS_FILE))) {
+            writer.write(LabQuake.of(archivedQuake, folder.getName()));
+        } catch (IOException | IllegalArgumentException e) {
+            Logger.error(e);
+        }
+
+        PICKS_TIME.recordSince(start);
+        return folder;
+    }
+
+    /**
+     * Renders the images of the report into the folder from {@link #savePicks(Earthquake, ArchivedQuake)},
+     * see {@link ReportPipeline} for running it in the background
+     */
+    public static void render(Earthquake earthquake, ArchivedQuake archivedQuake, File folder) {
+        long start = System.nanoTime();
         for (Event e : earthquake.getCluster().getAssignedEvents().values()) {
             AbstractStation station = e.getAnalysis().getStation();
             e.report = new StationReport(station.getNetworkCode(), station.getStationCode(),
@@ -54,30 +130,47 @@ public class EarthquakeReporter {
                     station.getAlt());
         }
 
-        saveArchivedQuake(folder, archivedQuake);
-        BufferedImage map = drawMap(folder, earthquake);
-        BufferedImage intensities = drawIntensities(folder, earthquake);
+        long stage = System.nanoTime();
+        BufferedImage map = drawMap(earthquake);
+        MAP_TIME.recordSince(stage);
+
+        stage = System.nanoTime();
+        BufferedImage intensities = drawIntensities(earthquake);
+        INTENSITIES_TIME.recordSince(stage);
+
+        stage = System.nanoTime();
+        writePNG(map, new File(folder, "map.png"));
+        writePNG(intensities, new File(folder, "intensities.png"));
+        PNG_TIME.recordSince(stage);
+
+        stage = System.nanoTime();
         GlobalQuake.instance.getEventHandler().fireEvent(new QuakeReportEvent(earthquake, archivedQuake, map, intensities));
+        EVENT_TIME.recordSince(stage);
+
+        REPORT_TIME.recordSince(start);
     }
 
-    private static void saveArchivedQuake(File folder, ArchivedQuake archivedQuake) {
-        File file = new File(folder, "archivedQuake.dat");
-        try {
-            ObjectOutputStream out = new ObjectOutputStream(new FileOutputStream(file));
-            out.writeObject(archivedQuake);
-            out.close();
+    /**
+     * Writes the image with the deflate level from {@link Settings#reportsCompressionLevel}. ImageIO uses level 4,
+     * level 1 is about a third faster on the mostly flat report images and the files are only slightly bigger.
+     */
+    private static void writePNG(BufferedImage img, File file) {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("png").next();
+        try (FileOutputStream fileOut = new FileOutputStream(file);
+             ImageOutputStream out = ImageIO.createImageOutputStream(fileOut)) {
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(1.0f - Math.max(0, Math.min(9, Settings.reportsCompressionLevel)) / 9.0f);
+            writer.setOutput(out);
+            writer.write(null, new IIOImage(img, null, null), param);
         } catch (IOException e) {
             Logger.error(e);
+        } finally {
+            writer.dispose();
         }
     }
 
-    private static void calculatePos(Earthquake earthquake) {
-        centerLat = earthquake.getLat();
-        centerLon = earthquake.getLon();
-        scroll = 2;
-    }
-
-    private static BufferedImage drawIntensities(File folder, Earthquake earthquake) {
+    private static BufferedImage drawIntensities(Earthquake earthquake) {
         int w = 800;
         int h = 600;
         BufferedImage img = new BufferedImage(w, h, BufferedImage.TYPE_3BYTE_BGR);
@@ -98,49 +191,21 @@ public class EarthquakeReporter {
         IntensityGraphs.drawGraph(g, w, h, recs, earthquake.getHypocenter().magnitudeType, false);
 
         g.dispose();
-        try {
-            ImageIO.write(img, "PNG", new File(folder, "intensities.png"));
-        } catch (IOException e) {
-            Logger.error(e);
-        }
-
         return img;
     }
 
-    public static BufferedImage drawMap(File folder, Earthquake earthquake) {
-        calculatePos(earthquake);
-        BufferedImage img = new BufferedImage(width, height, BufferedImage.TYPE_3BYTE_BGR);
-        Graphics2D g = img.createGraphics();
-        g.setColor(oceanC);
-        g.fillRect(0, 0, width, height);
+    public static BufferedImage drawMap(Earthquake earthquake) {
+        MapCell cell = new MapCell(Math.round(earthquake.getLat() / BASE_MAP_CELL),
+                Math.round(earthquake.getLon() / BASE_MAP_CELL));
+        MapView view = new MapView(cell.lat() * BASE_MAP_CELL, cell.lon() * BASE_MAP_CELL);
 
-        java.util.List<GQPolygon> pols = scroll < 0.6 ? Regions.raw_polygonsUHD
-                : scroll < 4.8 ? Regions.raw_polygonsHD : Regions.raw_polygonsMD;
-        for (GQPolygon polygon : pols) {
-            java.awt.Polygon awt = new java.awt.Polygon();
-            boolean add = false;
-            for (int i = 0; i < polygon.getSize(); i++) {
-                double lat = polygon.getLats()[i];
-                double lon = polygon.getLons()[i];
-                double x = getX(lon);
-                double y = getY(lat);
-
-                if (!add && isOnScreen(x, y)) {
-                    add = true;
-                }
-                awt.addPoint((int) x, (int) y);
-            }
-            if (add) {
-                g.setColor(landC);
-                g.fill(awt);
-                g.setColor(borderC);
-                g.draw(awt);
-            }
-        }
+        BufferedImage base = getBaseMap(cell, view);
+        BufferedImage img = new BufferedImage(base.getColorModel(), base.copyData(null), false, null);
+        Graphics2D g = img.createGraphics();
 
         {
-            double x = getX(earthquake.getLon());
-            double y = getY(earthquake.getLat());
+            double x = view.getX(earthquake.getLon());
+            double y = view.getY(earthquake.getLat());
             double r = 12;
             Line2D.Double line1 = new Line2D.Double(x - r, y - r, x + r, y + r);
             Line2D.Double line2 = new Line2D.Double(x - r, y + r, x + r, y - r);
@@ -156,8 +221,8 @@ public class EarthquakeReporter {
 
         g.setStroke(new BasicStroke(1f));
         for (Event event : earthquake.getCluster().getAssignedEvents().values()) {
-            double x = getX(event.report.lon());
-            double y = getY(event.report.lat());
+            double x = view.getX(event.report.lon());
+            double y = view.getY(event.report.lat());
             double r = 12;
             g.setColor(Scale.getColorRatio(event.getMaxVelocity(earthquake.getHypocenter().magnitudeType)));
             Ellipse2D.Double ell1 = new Ellipse2D.Double(x - r / 2, y - r / 2, r, r);
@@ -165,38 +230,55 @@ public class EarthquakeReporter {
         }
 
         g.dispose();
-        File file = new File(folder, "map.png");
-        try {
-            ImageIO.write(img, "PNG", file);
-        } catch (IOException e) {
-            Logger.error(e);
-        }
-
         return img;
     }
 
-    private static boolean isOnScreen(double x, double y) {
-        return x >= 0 && y >= 0 && x < width && y < height;
+    /**
+     * @return land and borders around the cell center, shared by all the reports in that cell and never modified
+     */
+    private static synchronized BufferedImage getBaseMap(MapCell cell, MapView view) {
+        BufferedImage base = baseMaps.get(cell);
+        if (base == null) {
+            base = drawBaseMap(view);
+            baseMaps.put(cell, base);
+        }
+        return base;
     }
 
-    private static double getX(double lon) {
-        return (lon - centerLon) / (scroll / 100.0) + (width * 0.5);
-    }
+    private static BufferedImage drawBaseMap(MapView view) {
+        BufferedImage img = new BufferedImage(width, height, BufferedImage.TYPE_3BYTE_BGR);
+        Graphics2D g = img.createGraphics();
+        g.setColor(oceanC);
+        g.fillRect(0, 0, width, height);
 
-    private static double getY(double lat) {
-        return (centerLat - lat) / (scroll / (300 - 200 * Math.cos(0.5 * Math.toRadians(centerLat + lat))))
-                + (height * 0.5);
-    }
+        for (GQPolygon polygon : Regions.raw_polygonsHD) {
+            java.awt.Polygon awt = new java.awt.Polygon();
+            boolean add = false;
+            for (int i = 0; i < polygon.getSize(); i++) {
+                double lat = polygon.getLats()[i];
+                double lon = polygon.getLons()[i];
+                double x = view.getX(lon);
+                double y = view.getY(lat);
 
-    @SuppressWarnings("unused")
-    private static double getLat(double y) {
-        return centerLat - (y - (height * 0.5)) * (scroll / (300 - 200 * Math.cos(Math.toRadians(centerLat))));
+                if (!add && isOnScreen(x, y)) {
+                    add = true;
+                }
+                awt.addPoint((int) x, (int) y);
+            }
+            if (add) {
+                g.setColor(landC);
+                g.fill(awt);
+                g.setColor(borderC);
+                g.draw(awt);
+            }
+        }
 
+        g.dispose();
+        return img;
     }
 
-    @SuppressWarnings("unused")
-    private static double getLon(double x) {
-        return (x - (width * 0.5)) * (scroll / 100.0) + centerLon;
+    private static boolean isOnScreen(double x, double y) {
+        return x >= 0 && y >= 0 && x < width && y < height;
     }
 
 }
@@ -0,0 +1,73 @@
+package globalquake.core.report;
+
+import globalquake.core.metrics.Counter;
+import globalquake.core.metrics.Metrics;
+import globalquake.utils.NamedThreadFactory;
+import org.tinylog.Logger;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.*;
+
+/**
+ * Runs the report rendering on a small pool of worker threads. Reports of the same earthquake that are still waiting
+ * are merged, so that only the latest one is rendered. When too many earthquakes are waiting, new renderings are dropped
+ * instead of piling up during an aftershock swarm, the picks of the report are written before it gets here.
+ */
+public class ReportPipeline {
+
+    private static final Counter COALESCED = Metrics.counter("gq_report_coalesced_total",
+            "Reports replaced by a newer report of the same earthquake before they were rendered");
+    private static final Counter DROPPED = Metrics.counter("gq_report_dropped_total",
+            "Report renderings dropped because too many earthquakes were waiting");
+
+    private final Map<UUID, Runnable> pending = new ConcurrentHashMap<>();
+    private final ThreadPoolExecutor executor;
+
+    public ReportPipeline(int threads, int capacity) {
+        executor = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(capacity), new NamedThreadFactory("Report Thread"));
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Schedules the report of an earthquake, replacing its previous report if that one has not started yet
+     */
+    public void submit(UUID uuid, Runnable report) {
+        if (pending.put(uuid, report) != null) {
+            COALESCED.inc();
+            return;
+        }
+
+        try {
+            executor.execute(() -> run(uuid));
+        } catch (RejectedExecutionException e) {
+            // a newer report may have been merged in the meantime, it has no task either
+            if (pending.remove(uuid) != null) {
+                DROPPED.inc();
+                Logger.warn("Too many pending reports, dropping rendering of %s".formatted(uuid));
+            }
+        }
+    }
+
+    private void run(UUID uuid) {
+        Runnable report = pending.remove(uuid);
+        if (report == null) {
+            return;
+        }
+
+        try {
+            report.run();
+        } catch (Exception e) {
+            Logger.error(e);
+        }
+    }
+
+    public int getPending() {
+        return pending.size();
+    }
+
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,76 @@
+package globalquake.core.seedlink;
+
+import edu.iris.dmc.seedcodec.Steim2;
+import edu.iris.dmc.seedcodec.SteimFrameBlock;
+import edu.sc.seis.seisFile.mseed.Blockette1000;
+import edu.sc.seis.seisFile.mseed.Btime;
+import edu.sc.seis.seisFile.mseed.DataHeader;
+import edu.sc.seis.seisFile.mseed.DataRecord;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Builds Steim2 compressed 512 byte miniSEED records the same way data loggers and seedlink servers send them
+ */
+public final class MiniSeedRecords {
+
+    private static final int RECORD_LENGTH_EXPONENT = 9;
+
+    public static final int RECORD_LENGTH = 1 << RECORD_LENGTH_EXPONENT;
+
+    // 512 byte record without the 64 byte header
+    private static final int FRAMES = 7;
+
+    // data loggers saturate at 24 bits, larger differences could not be compressed by Steim2 anyway
+    public static final int MAX_COUNTS = (1 << 23) - 1;
+
+    private MiniSeedRecords() {
+    }
+
+    /**
+     * @return the sample limited to the range of a 24-bit data logger, see {@link #MAX_COUNTS}
+     */
+    public static int clamp(int counts) {
+        return Math.max(-MAX_COUNTS, Math.min(MAX_COUNTS, counts));
+    }
+
+    /**
+     * @return records holding all the samples, each starting right after the previous one
+     */
+    public static List<DataRecord> create(String network, String station, String channel, String location,
+                                          long startTime, double sampleRate, int[] samples) throws Exception {
+        List<DataRecord> result = new ArrayList<>();
+        int offset = 0;
+        int sequence = 1;
+        while (offset < samples.length) {
+            int[] remaining = Arrays.copyOfRange(samples, offset, samples.length);
+            SteimFrameBlock block = Steim2.encode(remaining, FRAMES);
+
+            long recordStart = startTime + (long) (offset * 1000.0 / sampleRate);
+            DataHeader header = new DataHeader(sequence++, 'D', false);
+            header.setNetworkCode(network);
+            header.setStationIdentifier(station);
+            header.setChannelIdentifier(channel);
+            header.setLocationIdentifier(location);
+            header.setStartBtime(new Btime(Instant.ofEpochMilli(recordStart)));
+            header.setNumSamples((short) block.getNumSamples());
+            header.setSampleRate(sampleRate);
+
+            DataRecord record = new DataRecord(header);
+            Blockette1000 blockette = new Blockette1000();
+            blockette.setEncodingFormat((byte) 11); // Steim2
+            blockette.setWordOrder(Blockette1000.SEED_BIG_ENDIAN);
+            blockette.setDataRecordLength((byte) RECORD_LENGTH_EXPONENT);
+            record.addBlockette(blockette);
+            record.setData(block.getEncodedData());
+
+            result.add(record);
+            offset += block.getNumSamples();
+        }
+
+        return result;
+    }
+}
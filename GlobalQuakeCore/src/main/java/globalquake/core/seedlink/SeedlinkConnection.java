@@ -0,0 +1,430 @@
+package globalquake.core.seedlink;
+
+import edu.sc.seis.seisFile.mseed.DataRecord;
+import edu.sc.seis.seisFile.mseed.SeedFormatException;
+import edu.sc.seis.seisFile.seedlink.SeedlinkException;
+import edu.sc.seis.seisFile.seedlink.SeedlinkPacket;
+import globalquake.core.database.SeedlinkNetwork;
+import globalquake.core.database.SeedlinkStatus;
+import globalquake.core.station.GlobalStation;
+import org.tinylog.Logger;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * One connection to a seedlink server, carrying all or a part of the stations selected from its network.
+ * The connection is a non-blocking state machine driven by the selector thread of {@link SeedlinkNetworksReader},
+ * it runs the same handshake as the seisFile reader (HELLO, then STATION, SELECT and DATA for every station, END)
+ * and then reads the 520 byte seedlink packets.
+ * Keeps the statistics of the connection so that stalled or lagging upstreams can be spotted.
+ */
+public class SeedlinkConnection {
+
+    static final int SEEDLINK_TIMEOUT = 90;
+
+    private static final int MAX_RECONNECT_DELAY = 60 * 5;
+
+    // packets that are already received are passed to the stations together
+    private static final int MAX_BATCH = 64;
+
+    /**
+     * Called from the selector thread
+     */
+    interface Listener {
+
+        void statusChanged(SeedlinkConnection connection);
+
+        /**
+         * @param reconnect false if none of the stations could be selected and there is no point in reconnecting
+         */
+        void disconnected(SeedlinkConnection connection, boolean reconnect);
+    }
+
+    private enum Phase {
+        HELLO, STATION, SELECT, DATA, STREAMING
+    }
+
+    private final SeedlinkNetwork seedlinkNetwork;
+    private final List<GlobalStation> stations;
+    private final String name;
+
+    private volatile SeedlinkStatus status = SeedlinkStatus.DISCONNECTED;
+    private volatile int connectedStations = 0;
+
+    private final AtomicInteger reconnectDelay = new AtomicInteger(SeedlinkNetworksReader.RECONNECT_DELAY);
+
+    private final AtomicLong packets = new AtomicLong();
+    private final AtomicLong unknownPackets = new AtomicLong();
+    private final AtomicLong reconnects = new AtomicLong();
+    private volatile long lastPacketTime = 0;
+    private volatile long lastSampleTime = 0;
+
+    // state of the current connection, only touched by the selector thread
+    private final ByteBuffer input = ByteBuffer.allocate(MAX_BATCH * SeedlinkPacket.PACKET_SIZE);
+    private final List<DataRecord> batch = new ArrayList<>(MAX_BATCH);
+    private SocketChannel channel;
+    private SelectionKey key;
+    private ByteBuffer output;
+    private Phase phase;
+    private int helloLines;
+    private int stationIndex;
+    private int errors;
+    private long lastActivity;
+    private SeedlinkStationLookup lookup;
+    private Listener listener;
+
+    public SeedlinkConnection(SeedlinkNetwork seedlinkNetwork, List<GlobalStation> stations, String name) {
+        this.seedlinkNetwork = seedlinkNetwork;
+        this.stations = stations;
+        this.name = name;
+    }
+
+    /**
+     * Starts connecting, the rest of the work is done in {@link #handle()} once the selector reports the channel ready
+     */
+    void open(Selector selector, InetSocketAddress address, SeedlinkStationLookup lookup, Listener listener) {
+        this.lookup = lookup;
+        this.listener = listener;
+
+        status = SeedlinkStatus.CONNECTING;
+        connectedStations = 0;
+        listener.statusChanged(this);
+
+        input.clear();
+        output = null;
+        phase = Phase.HELLO;
+        helloLines = 0;
+        stationIndex = 0;
+        errors = 0;
+        lastActivity = System.currentTimeMillis();
+
+        try {
+            Logger.info("Connecting to seedlink server \"" + name + "\"");
+            channel = SocketChannel.open();
+            channel.configureBlocking(false);
+            key = channel.register(selector, SelectionKey.OP_CONNECT, this);
+            if (channel.connect(address)) {
+                connected();
+            }
+        } catch (Exception e) {
+            fail(e);
+        }
+    }
+
+    void handle() {
+        try {
+            if (key.isConnectable() && channel.finishConnect()) {
+                connected();
+            }
+            if (key != null && key.isValid() && key.isWritable()) {
+                flush();
+            }
+            if (key != null && key.isValid() && key.isReadable()) {
+                read();
+            }
+        } catch (Exception e) {
+            fail(e);
+        }
+    }
+
+    /**
+     * Resets the connection if the server did not send anything for {@link #SEEDLINK_TIMEOUT} seconds
+     */
+    void checkTimeout(long now) {
+        if (channel != null && now - lastActivity > SEEDLINK_TIMEOUT * 1000L) {
+            fail(new SeedlinkException("Timed out after %d seconds".formatted(SEEDLINK_TIMEOUT)));
+        }
+    }
+
+    private void connected() throws IOException {
+        key.interestOps(SelectionKey.OP_READ);
+        send("HELLO");
+    }
+
+    private void send(String command) throws IOException {
+        output = ByteBuffer.wrap((command + "\r\n").getBytes(StandardCharsets.US_ASCII));
+        flush();
+    }
+
+    private void flush() throws IOException {
+        channel.write(output);
+        if (output.hasRemaining()) {
+            key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+        } else {
+            output = null;
+            key.interestOps(SelectionKey.OP_READ);
+        }
+    }
+
+    private void read() throws IOException, SeedlinkException {
+        int read = channel.read(input);
+        if (read < 0) {
+            throw new IOException("Connection closed by the server");
+        }
+        if (read == 0) {
+            return;
+        }
+
+        lastActivity = System.currentTimeMillis();
+        input.flip();
+
+        String line;
+        while (phase != null && phase != Phase.STREAMING && (line = nextLine()) != null) {
+            handleLine(line.trim());
+        }
+
+        if (phase == Phase.STREAMING) {
+            readPackets();
+        }
+
+        input.compact();
+        if (phase != null && phase != Phase.STREAMING && !input.hasRemaining()) {
+            throw new SeedlinkException("Response of the server is too long");
+        }
+    }
+
+    private String nextLine() {
+        for (int i = input.position(); i < input.limit(); i++) {
+            if (input.get(i) == '\n') {
+                byte[] bytes = new byte[i - input.position()];
+                input.get(bytes);
+                input.get();
+                return new String(bytes, StandardCharsets.US_ASCII);
+            }
+        }
+        return null;
+    }
+
+    private void handleLine(String line) throws IOException, SeedlinkException {
+        switch (phase) {
+            case HELLO -> {
+                if (++helloLines == 2) {
+                    Logger.trace("Seedlink server %s: %s".formatted(name, line));
+                    reconnectDelay.set(SeedlinkNetworksReader.RECONNECT_DELAY); // if connect succeeded then reset the delay
+                    nextStation();
+                }
+            }
+            case STATION -> {
+                if (line.equals("OK")) {
+                    GlobalStation station = stations.get(stationIndex);
+                    phase = Phase.SELECT;
+                    send("SELECT %s%s.D".formatted(station.getLocationCode(), station.getChannelName()));
+                } else {
+                    stationFailed();
+                }
+            }
+            case SELECT -> {
+                if (line.equals("OK")) {
+                    phase = Phase.DATA;
+                    send("DATA");
+                } else {
+                    stationFailed();
+                }
+            }
+            case DATA -> {
+                if (line.equals("OK")) {
+                    connectedStations++;
+                    stationIndex++;
+                    nextStation();
+                } else {
+                    stationFailed();
+                }
+            }
+            default -> throw new IllegalStateException("Unexpected line in phase " + phase);
+        }
+    }
+
+    private void stationFailed() throws IOException, SeedlinkException {
+        GlobalStation station = stations.get(stationIndex);
+        Logger.warn("Unable to connect to %s %s %s %s [%s]!".formatted(station.getStationCode(), station.getNetworkCode(), station.getChannelName(), station.getLocationCode(), name));
+        errors++;
+        if (errors > stations.size() * 0.1) {
+            Logger.warn("Too many errors in seedlink network %s, resetting!".formatted(name));
+            throw new SeedlinkException("Unable to select station %s %s".formatted(station.getNetworkCode(), station.getStationCode()));
+        }
+
+        stationIndex++;
+        nextStation();
+    }
+
+    private void nextStation() throws IOException {
+        if (stationIndex >= stations.size()) {
+            if (connectedStations == 0) {
+                Logger.info("No stations connected to " + name);
+                disconnect(false);
+                return;
+            }
+
+            phase = Phase.STREAMING;
+            send("END");
+            status = SeedlinkStatus.RUNNING;
+            listener.statusChanged(this);
+            return;
+        }
+
+        GlobalStation station = stations.get(stationIndex);
+        Logger.trace("Connecting to %s %s %s %s [%s]".formatted(station.getStationCode(), station.getNetworkCode(), station.getChannelName(), station.getLocationCode(), name));
+        phase = Phase.STATION;
+        send("STATION %s %s".formatted(station.getStationCode(), station.getNetworkCode()));
+    }
+
+    private void readPackets() throws SeedlinkException {
+        while (input.remaining() >= SeedlinkPacket.PACKET_SIZE) {
+            byte[] bytes = new byte[SeedlinkPacket.PACKET_SIZE];
+            input.get(bytes);
+            SeedlinkPacket packet = new SeedlinkPacket(bytes);
+            try {
+                batch.add(packet.getMiniSeed());
+            } catch (SeedFormatException se) {
+                Logger.trace(se);
+            } catch (IOException e) {
+                Logger.error(e);
+            }
+        }
+
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        try {
+            deliver(batch, lookup);
+        } catch (Exception e) {
+            Logger.error(e);
+        }
+        batch.clear();
+    }
+
+    /**
+     * Passes the records to their stations, consecutive records of the same station are added at once
+     */
+    private void deliver(List<DataRecord> batch, SeedlinkStationLookup lookup) {
+        packets.addAndGet(batch.size());
+        lastPacketTime = System.currentTimeMillis();
+
+        GlobalStation current = null;
+        int runStart = 0;
+        for (int i = 0; i < batch.size(); i++) {
+            DataRecord record = batch.get(i);
+            long sampleTime = record.getLastSampleBtime().toInstant().toEpochMilli();
+            if (sampleTime > lastSampleTime) {
+                lastSampleTime = sampleTime;
+            }
+
+            GlobalStation station = lookup.find(record.getHeader());
+            if (station != current) {
+                if (current != null) {
+                    current.addRecords(batch.subList(runStart, i));
+                }
+                current = station;
+                runStart = i;
+            }
+
+            if (station == null) {
+                unknownPackets.incrementAndGet();
+                Logger.trace("Seedlink sent data for %s %s, but that was never selected!".formatted(record.getHeader().getNetworkCode(), record.getHeader().getStationIdentifier()));
+            }
+        }
+
+        if (current != null) {
+            current.addRecords(batch.subList(runStart, batch.size()));
+        }
+    }
+
+    private void fail(Exception e) {
+        Logger.warn("Seedlink reader failed for seedlink `%s`: %s".formatted(name, e.getMessage()));
+        disconnect(true);
+    }
+
+    private void disconnect(boolean reconnect) {
+        close();
+        listener.statusChanged(this);
+        listener.disconnected(this, reconnect);
+    }
+
+    /**
+     * Closes the channel without notifying the listener, called from the selector thread
+     */
+    void close() {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                Logger.error(e);
+            }
+        }
+        channel = null;
+        key = null;
+        output = null;
+        phase = null;
+        batch.clear();
+        status = SeedlinkStatus.DISCONNECTED;
+        connectedStations = 0;
+    }
+
+    /**
+     * @return the delay before the next reconnection in seconds, each call doubles the following one up to a limit
+     */
+    int nextReconnectDelay() {
+        return reconnectDelay.getAndUpdate(delay -> delay < MAX_RECONNECT_DELAY ? delay * 2 : delay);
+    }
+
+    void reconnecting() {
+        reconnects.incrementAndGet();
+    }
+
+    public SeedlinkNetwork getSeedlinkNetwork() {
+        return seedlinkNetwork;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public SeedlinkStatus getStatus() {
+        return status;
+    }
+
+    public int getSelectedStations() {
+        return stations.size();
+    }
+
+    public int getConnectedStations() {
+        return connectedStations;
+    }
+
+    public long getPackets() {
+        return packets.get();
+    }
+
+    public long getUnknownPackets() {
+        return unknownPackets.get();
+    }
+
+    public long getReconnects() {
+        return reconnects.get();
+    }
+
+    /**
+     * @return wall clock time of the last received packet or 0
+     */
+    public long getLastPacketTime() {
+        return lastPacketTime;
+    }
+
+    /**
+     * @return how far behind the given time the newest received sample is in ms or -1 if nothing was received
+     */
+    public long getLag(long now) {
+        return lastSampleTime == 0 ? -1 : now - lastSampleTime;
+    }
+}
@@ -1,34 +1,46 @@
 package globalquake.core.seedlink;
 
 import edu.sc.seis.seisFile.mseed.DataRecord;
-import edu.sc.seis.seisFile.mseed.SeedFormatException;
-import edu.sc.seis.seisFile.seedlink.SeedlinkException;
 import edu.sc.seis.seisFile.seedlink.SeedlinkPacket;
 import edu.sc.seis.seisFile.seedlink.SeedlinkReader;
 import globalquake.core.GlobalQuake;
+import globalquake.core.Settings;
 import globalquake.core.database.SeedlinkNetwork;
 import globalquake.core.database.SeedlinkStatus;
+import globalquake.core.metrics.Metrics;
 import globalquake.core.station.AbstractStation;
 import globalquake.core.station.GlobalStation;
+import globalquake.utils.NamedThreadFactory;
 import org.tinylog.Logger;
 
-import java.net.SocketException;
-import java.time.Instant;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
 import java.util.*;
-import java.util.concurrent.ConcurrentLinkedQueue;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.*;
+import java.util.function.ToLongFunction;
 
+/**
+ * Reads all seedlink upstreams on a single selector thread, so the number of connections does not cost threads.
+ * Reconnections are scheduled with an increasing delay on a separate thread.
+ */
 public class SeedlinkNetworksReader {
 
     protected static final int RECONNECT_DELAY = 10;
-    private static final int SEEDLINK_TIMEOUT = 90;
-    private Instant lastData;
 
-    private ExecutorService seedlinkReaderService;
+    private static final long TIMEOUT_CHECK_INTERVAL = 1000;
 
-    private final Queue<SeedlinkReader> activeReaders = new ConcurrentLinkedQueue<>();
+    private ScheduledExecutorService reconnectService;
+    private Selector selector;
+    private Thread selectorThread;
+    private volatile boolean running;
+
+    // work handed to the selector thread, such as opening a connection once its address is resolved
+    private final Queue<Runnable> selectorTasks = new ConcurrentLinkedQueue<>();
+
+    private final Map<SeedlinkNetwork, List<SeedlinkConnection>> connections = new ConcurrentHashMap<>();
+    private volatile SeedlinkStationLookup lookup;
 
     public static void main(String[] args) throws Exception {
         SeedlinkReader reader = new SeedlinkReader("rtserve.iris.washington.edu", 18000);
@@ -55,146 +67,226 @@ public class SeedlinkNetworksReader {
     }
 
     public void run() {
-        createCache();
-        seedlinkReaderService = Executors.newCachedThreadPool();
+        List<SeedlinkNetwork> seedlinkNetworks;
         GlobalQuake.instance.getStationDatabaseManager().getStationDatabase().getDatabaseReadLock().lock();
-
         try {
-            GlobalQuake.instance.getStationDatabaseManager().getStationDatabase().getSeedlinkNetworks().forEach(
-                    seedlinkServer -> seedlinkReaderService.submit(() -> runSeedlinkThread(seedlinkServer, RECONNECT_DELAY)));
+            seedlinkNetworks = new ArrayList<>(GlobalQuake.instance.getStationDatabaseManager().getStationDatabase().getSeedlinkNetworks());
         } finally {
             GlobalQuake.instance.getStationDatabaseManager().getStationDatabase().getDatabaseReadLock().unlock();
         }
+
+        run(seedlinkNetworks, GlobalQuake.instance.getStationManager().getStations(), Settings.seedlinkMaxStationsPerConnection);
     }
 
-    private final Map<String, GlobalStation> stationCache = new HashMap<>();
+    void run(List<SeedlinkNetwork> seedlinkNetworks, Collection<AbstractStation> stations, int perConnection) {
+        try {
+            selector = Selector.open();
+        } catch (IOException e) {
+            Logger.error(e);
+            return;
+        }
 
-    private void createCache() {
-        for (AbstractStation s : GlobalQuake.instance.getStationManager().getStations()) {
-            if (s instanceof GlobalStation) {
-                stationCache.put("%s %s".formatted(s.getNetworkCode(), s.getStationCode()), (GlobalStation) s);
+        lookup = new SeedlinkStationLookup(stations);
+        reconnectService = Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory("Seedlink Reconnect Thread"));
+
+        Map<SeedlinkNetwork, List<GlobalStation>> selected = new HashMap<>();
+        for (AbstractStation station : stations) {
+            if (station instanceof GlobalStation globalStation && station.getSeedlinkNetwork() != null) {
+                selected.computeIfAbsent(station.getSeedlinkNetwork(), k -> new ArrayList<>()).add(globalStation);
             }
         }
-    }
 
-    private void runSeedlinkThread(SeedlinkNetwork seedlinkNetwork, int reconnectDelay) {
-        seedlinkNetwork.status = SeedlinkStatus.CONNECTING;
-        seedlinkNetwork.connectedStations = 0;
+        running = true;
+        selectorThread = new NamedThreadFactory("Seedlink Reader Thread").newThread(this::runSelector);
+        selectorThread.start();
+
+        for (SeedlinkNetwork seedlinkNetwork : seedlinkNetworks) {
+            List<SeedlinkConnection> networkConnections = createConnections(seedlinkNetwork, selected.getOrDefault(seedlinkNetwork, List.of()), perConnection);
+            connections.put(seedlinkNetwork, networkConnections);
+            registerMetrics(seedlinkNetwork);
+            networkConnections.forEach(connection -> openLater(connection, 0));
+        }
+    }
 
-        SeedlinkReader reader = null;
+    /**
+     * All connections are read by this single thread, they only do non-blocking work when their channel is ready
+     */
+    private void runSelector() {
+        long lastTimeoutCheck = System.currentTimeMillis();
         try {
-            Logger.info("Connecting to seedlink server \"" + seedlinkNetwork.getName() + "\"");
-            reader = new SeedlinkReader(seedlinkNetwork.getHost(), seedlinkNetwork.getPort(), SEEDLINK_TIMEOUT, false, SEEDLINK_TIMEOUT);
-            activeReaders.add(reader);
-
-            reader.sendHello();
-
-            reconnectDelay = RECONNECT_DELAY; // if connect succeeded then reset the delay
-
-            int errors = 0;
-
-            for (AbstractStation station : GlobalQuake.instance.getStationManager().getStations()) {
-                if (station.getSeedlinkNetwork() != null && station.getSeedlinkNetwork().equals(seedlinkNetwork)) {
-                    Logger.trace("Connecting to %s %s %s %s [%s]".formatted(station.getStationCode(), station.getNetworkCode(), station.getChannelName(), station.getLocationCode(), seedlinkNetwork.getName()));
-                    try {
-                        reader.selectData(station.getNetworkCode(), station.getStationCode(), List.of("%s%s".formatted(station.getLocationCode(),
-                                station.getChannelName())));
-                        seedlinkNetwork.connectedStations++;
-                    } catch (SeedlinkException seedlinkException) {
-                        Logger.warn("Unable to connect to %s %s %s %s [%s]!".formatted(station.getStationCode(), station.getNetworkCode(), station.getChannelName(), station.getLocationCode(), seedlinkNetwork.getName()));
-                        errors++;
-                        if (errors > seedlinkNetwork.selectedStations * 0.1) {
-                            Logger.warn("Too many errors in seedlink network %s, resetting!".formatted(seedlinkNetwork.getName()));
-                            throw seedlinkException;
-                        }
-                    }
+            while (running) {
+                selector.select(TIMEOUT_CHECK_INTERVAL);
+
+                Runnable task;
+                while ((task = selectorTasks.poll()) != null) {
+                    task.run();
                 }
-            }
 
-            if (seedlinkNetwork.connectedStations == 0) {
-                Logger.info("No stations connected to " + seedlinkNetwork.getName());
-                seedlinkNetwork.status = SeedlinkStatus.DISCONNECTED;
-                return;
-            }
+                Iterator<SelectionKey> iterator = selector.selectedKeys().iterator();
+                while (iterator.hasNext()) {
+                    SelectionKey key = iterator.next();
+                    iterator.remove();
+                    if (key.isValid()) {
+                        ((SeedlinkConnection) key.attachment()).handle();
+                    }
+                }
 
-            reader.endHandshake();
-            seedlinkNetwork.status = SeedlinkStatus.RUNNING;
-
-            while (reader.hasNext()) {
-                SeedlinkPacket slp = reader.readPacket();
-                try {
-                    newPacket(slp.getMiniSeed());
-                } catch (SocketException | SeedFormatException se) {
-                    Logger.trace(se);
-                } catch (Exception e) {
-                    Logger.error(e);
+                long now = System.currentTimeMillis();
+                if (now - lastTimeoutCheck >= TIMEOUT_CHECK_INTERVAL) {
+                    lastTimeoutCheck = now;
+                    getConnections().forEach(connection -> connection.checkTimeout(now));
                 }
             }
-
-            reader.close();
         } catch (Exception e) {
-            Logger.warn("Seedlink reader failed for seedlink `%s`: %s".formatted(seedlinkNetwork.getName(), e.getMessage()));
+            Logger.error(e);
         } finally {
-            if (reader != null) {
-                try {
-                    reader.close();
-                } catch (Exception ex) {
-                    Logger.error(ex);
-                }
-                activeReaders.remove(reader);
+            getConnections().forEach(SeedlinkConnection::close);
+            try {
+                selector.close();
+            } catch (IOException e) {
+                Logger.error(e);
             }
         }
+    }
 
-        seedlinkNetwork.status = SeedlinkStatus.DISCONNECTED;
-        seedlinkNetwork.connectedStations = 0;
-        Logger.warn("%s Disconnected, Reconnecting after %d seconds...".formatted(seedlinkNetwork.getName(), reconnectDelay));
-
+    /**
+     * The address is resolved on the reconnect thread so that a slow DNS lookup never blocks the selector
+     */
+    private void openLater(SeedlinkConnection connection, int delay) {
         try {
-            Thread.sleep(reconnectDelay * 1000L);
-            if (reconnectDelay < 60 * 5) {
-                reconnectDelay *= 2;
+            reconnectService.schedule(() -> {
+                SeedlinkNetwork seedlinkNetwork = connection.getSeedlinkNetwork();
+                InetSocketAddress address = new InetSocketAddress(seedlinkNetwork.getHost(), seedlinkNetwork.getPort());
+                selectorTasks.add(() -> {
+                    if (running) {
+                        connection.open(selector, address, lookup, listener);
+                    }
+                });
+                selector.wakeup();
+            }, delay, TimeUnit.SECONDS);
+        } catch (RejectedExecutionException ignored) {
+            Logger.warn("Seedlink reader for %s stopped".formatted(connection.getName()));
+        }
+    }
+
+    private final SeedlinkConnection.Listener listener = new SeedlinkConnection.Listener() {
+        @Override
+        public void statusChanged(SeedlinkConnection connection) {
+            updateNetworkStatus(connection.getSeedlinkNetwork());
+        }
+
+        @Override
+        public void disconnected(SeedlinkConnection connection, boolean reconnect) {
+            if (!reconnect || !running) {
+                return;
             }
-        } catch (InterruptedException ignored) {
-            Logger.warn("Seedlink reader thread for %s interrupted".formatted(seedlinkNetwork.getName()));
-            return;
+
+            int reconnectDelay = connection.nextReconnectDelay();
+            Logger.warn("%s Disconnected, Reconnecting after %d seconds...".formatted(connection.getName(), reconnectDelay));
+            connection.reconnecting();
+            openLater(connection, reconnectDelay);
         }
+    };
+
+    private void registerMetrics(SeedlinkNetwork seedlinkNetwork) {
+        String name = seedlinkNetwork.getName();
+        Metrics.counter("gq_seedlink_records_total", "Data records received from the seedlink network",
+                () -> sumConnections(seedlinkNetwork, SeedlinkConnection::getPackets), "network", name);
+        Metrics.counter("gq_seedlink_unknown_records_total", "Data records of stations that were not selected",
+                () -> sumConnections(seedlinkNetwork, SeedlinkConnection::getUnknownPackets), "network", name);
+        Metrics.counter("gq_seedlink_reconnects_total", "Reconnections to the seedlink network",
+                () -> sumConnections(seedlinkNetwork, SeedlinkConnection::getReconnects), "network", name);
+        Metrics.gauge("gq_seedlink_connected_stations", "Stations currently connected through the seedlink network",
+                () -> seedlinkNetwork.connectedStations, "network", name);
+        Metrics.gauge("gq_seedlink_lag_seconds", "Delay of the newest received sample of the most lagging connection",
+                () -> getLag(seedlinkNetwork), "network", name);
+    }
 
-        int finalReconnectDelay = reconnectDelay;
-        seedlinkReaderService.submit(() -> runSeedlinkThread(seedlinkNetwork, finalReconnectDelay));
+    private long sumConnections(SeedlinkNetwork seedlinkNetwork, ToLongFunction<SeedlinkConnection> value) {
+        return connections.getOrDefault(seedlinkNetwork, List.of()).stream().mapToLong(value).sum();
     }
 
-    private void newPacket(DataRecord dr) {
-        if (lastData == null || dr.getLastSampleBtime().toInstant().isAfter(lastData)) {
-            lastData = dr.getLastSampleBtime().toInstant();
+    /**
+     * @return lag of the most lagging connection in seconds or NaN if nothing was received yet
+     */
+    private double getLag(SeedlinkNetwork seedlinkNetwork) {
+        long now = System.currentTimeMillis();
+        OptionalLong lag = connections.getOrDefault(seedlinkNetwork, List.of()).stream()
+                .mapToLong(connection -> connection.getLag(now)).filter(value -> value >= 0).max();
+        return lag.isPresent() ? lag.getAsLong() / 1000.0 : Double.NaN;
+    }
+
+    /**
+     * Large networks can be split into several connections, see {@link Settings#seedlinkMaxStationsPerConnection}
+     */
+    private static List<SeedlinkConnection> createConnections(SeedlinkNetwork seedlinkNetwork, List<GlobalStation> stations, int perConnection) {
+        if (perConnection <= 0 || stations.size() <= perConnection) {
+            return List.of(new SeedlinkConnection(seedlinkNetwork, stations, seedlinkNetwork.getName()));
         }
 
-        String network = dr.getHeader().getNetworkCode().replaceAll(" ", "");
-        String station = dr.getHeader().getStationIdentifier().replaceAll(" ", "");
-        var globalStation = stationCache.get("%s %s".formatted(network, station));
-        if (globalStation == null) {
-            Logger.trace("Seedlink sent data for %s %s, but that was never selected!".formatted(network, station));
-        } else {
-            globalStation.addRecord(dr);
+        List<SeedlinkConnection> result = new ArrayList<>();
+        int parts = (stations.size() + perConnection - 1) / perConnection;
+        for (int part = 0; part < parts; part++) {
+            List<GlobalStation> partStations = stations.subList(part * perConnection, Math.min(stations.size(), (part + 1) * perConnection));
+            result.add(new SeedlinkConnection(seedlinkNetwork, partStations, "%s #%d".formatted(seedlinkNetwork.getName(), part + 1)));
         }
+
+        return result;
     }
 
-    public void stop() {
-        if (seedlinkReaderService != null) {
-            seedlinkReaderService.shutdownNow();
-            for (Iterator<SeedlinkReader> iterator = activeReaders.iterator(); iterator.hasNext(); ) {
-                SeedlinkReader reader = iterator.next();
-                reader.close();
-                iterator.remove();
+    /**
+     * The network is running if any of its connections is
+     */
+    private void updateNetworkStatus(SeedlinkNetwork seedlinkNetwork) {
+        List<SeedlinkConnection> networkConnections = connections.get(seedlinkNetwork);
+        if (networkConnections == null) {
+            return;
+        }
+
+        int connectedStations = 0;
+        SeedlinkStatus status = SeedlinkStatus.DISCONNECTED;
+        for (SeedlinkConnection connection : networkConnections) {
+            connectedStations += connection.getConnectedStations();
+            if (connection.getStatus() == SeedlinkStatus.RUNNING) {
+                status = SeedlinkStatus.RUNNING;
+            } else if (connection.getStatus() == SeedlinkStatus.CONNECTING && status != SeedlinkStatus.RUNNING) {
+                status = SeedlinkStatus.CONNECTING;
             }
+        }
+
+        seedlinkNetwork.connectedStations = connectedStations;
+        seedlinkNetwork.status = status;
+    }
+
+    /**
+     * @return all upstream connections with their statistics
+     */
+    public List<SeedlinkConnection> getConnections() {
+        List<SeedlinkConnection> result = new ArrayList<>();
+        connections.values().forEach(result::addAll);
+        return result;
+    }
+
+    public void stop() {
+        running = false;
+        if (reconnectService != null) {
+            reconnectService.shutdownNow();
+        }
+        if (selectorThread != null) {
+            selector.wakeup();
             try {
-                if (!seedlinkReaderService.awaitTermination(10, TimeUnit.SECONDS)) {
-                    Logger.error("Unable to terminate seedlinkReaderService!");
+                selectorThread.join(10_000);
+                if (selectorThread.isAlive()) {
+                    Logger.error("Unable to terminate the seedlink reader thread!");
                 }
             } catch (InterruptedException e) {
                 Logger.error(e);
             }
+            selectorThread = null;
         }
-        stationCache.clear();
+        selectorTasks.clear();
+        connections.clear();
+        lookup = null;
     }
 
 }
@@ -0,0 +1,68 @@
+package globalquake.core.seedlink;
+
+import edu.sc.seis.seisFile.mseed.DataHeader;
+import globalquake.core.station.AbstractStation;
+import globalquake.core.station.GlobalStation;
+
+import java.util.*;
+
+/**
+ * Finds the station of an incoming miniSEED record by its network and station codes without building any keys,
+ * the location and channel are only compared if more channels of the same station are selected.
+ */
+public class SeedlinkStationLookup {
+
+    private final Map<String, Map<String, GlobalStation[]>> stations = new HashMap<>();
+    private final int size;
+
+    public SeedlinkStationLookup(Collection<AbstractStation> allStations) {
+        Map<String, Map<String, List<GlobalStation>>> grouped = new HashMap<>();
+        int count = 0;
+        for (AbstractStation station : allStations) {
+            if (station instanceof GlobalStation globalStation) {
+                grouped.computeIfAbsent(station.getNetworkCode().trim().intern(), k -> new HashMap<>())
+                        .computeIfAbsent(station.getStationCode().trim().intern(), k -> new ArrayList<>()).add(globalStation);
+                count++;
+            }
+        }
+
+        grouped.forEach((network, byStation) -> {
+            Map<String, GlobalStation[]> map = new HashMap<>();
+            byStation.forEach((station, channels) -> map.put(station, channels.toArray(new GlobalStation[0])));
+            stations.put(network, map);
+        });
+
+        this.size = count;
+    }
+
+    public GlobalStation find(DataHeader header) {
+        Map<String, GlobalStation[]> byStation = stations.get(header.getNetworkCode().trim());
+        if (byStation == null) {
+            return null;
+        }
+
+        GlobalStation[] channels = byStation.get(header.getStationIdentifier().trim());
+        if (channels == null) {
+            return null;
+        }
+
+        if (channels.length == 1) {
+            return channels[0];
+        }
+
+        String location = header.getLocationIdentifier().trim();
+        String channel = header.getChannelIdentifier().trim();
+        for (GlobalStation station : channels) {
+            if (station.getChannelName().equals(channel) && station.getLocationCode().trim().equals(location)) {
+                return station;
+            }
+        }
+
+        // the last selected channel, same as before the channels were told apart
+        return channels[channels.length - 1];
+    }
+
+    public int size() {
+        return size;
+    }
+}
@@ -5,12 +5,10 @@ import globalquake.core.analysis.Analysis;
 import globalquake.core.analysis.BetterAnalysis;
 import globalquake.core.analysis.Event;
 import globalquake.core.database.SeedlinkNetwork;
+import globalquake.utils.SlidingWindowMax;
 import gqserver.api.packets.station.InputType;
 
 import java.util.Collection;
-import java.util.Deque;
-import java.util.concurrent.ConcurrentLinkedDeque;
-import java.util.concurrent.LinkedBlockingDeque;
 
 public abstract class AbstractStation {
 
@@ -29,13 +27,12 @@ public abstract class AbstractStation {
     private final int id;
     private final SeedlinkNetwork seedlinkNetwork;
 
-    private final Deque<Double> ratioHistory = new LinkedBlockingDeque<>();
+    private final SlidingWindowMax ratioHistory = new SlidingWindowMax(RATIO_HISTORY_SECONDS);
     private final double sensitivity;
     public boolean disabled = false;
-    public double _lastRenderSize;
     private Collection<NearbyStationDistanceInfo> nearbyStations;
 
-    private final Deque<StationInterval> intervals = new ConcurrentLinkedDeque<>();
+    private final StationIntervalHistory intervals = new StationIntervalHistory();
 
     public AbstractStation(String networkCode, String stationCode, String channelName,
                            String locationCode, double lat, double lon, double alt,
@@ -54,12 +51,7 @@ public abstract class AbstractStation {
     }
 
     public StationState getStateAt(long time) {
-        for (StationInterval interval : intervals) {
-            if (time >= interval.getStart() && time < interval.getEnd()) {
-                return interval.getState();
-            }
-        }
-        return StationState.UNKNOWN;
+        return intervals.getStateAt(time);
     }
 
     public Event getEventAt(long time, long tolerance) {
@@ -67,11 +59,29 @@ public abstract class AbstractStation {
             return null;
         }
 
-        for (Event event : getAnalysis().getDetectedEvents()) {
+        Event[] events = getAnalysis().getEventsByPWave();
+
+        // skip all the events that start after the given time
+        int low = 0;
+        int high = events.length - 1;
+        int last = -1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (events[mid].getpWave() - tolerance <= time) {
+                last = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+
+        // from the latest event to the oldest event
+        for (int i = last; i >= 0; i--) {
+            Event event = events[i];
             if (!event.isValid()) {
                 continue;
             }
-            if (time >= event.getpWave() - tolerance && (!event.hasEnded() || time < event.getEnd() - tolerance)) {
+            if (!event.hasEnded() || time < event.getEnd() - tolerance) {
                 return event;
             }
         }
@@ -80,28 +90,10 @@ public abstract class AbstractStation {
     }
 
     public void reportState(StationState state, long time) {
-        while (intervals.peekFirst() != null && time - intervals.peekFirst().getEnd() > INTERVAL_STORAGE_TIME) {
-            intervals.removeFirst();
-        }
-        StationInterval lastInterval = getIntervals().peekLast();
-        if (lastInterval == null) {
-            getIntervals().add(new StationInterval(time, time, state));
-            return;
-        }
-
-        if (time - lastInterval.getEnd() > INTERVAL_MAX_GAP) {
-            getIntervals().add(new StationInterval(time, time, state));
-            return;
-        }
-
-        lastInterval.setEnd(time);
-
-        if (lastInterval.getState() != state) {
-            getIntervals().add(new StationInterval(time, time, state));
-        }
+        intervals.report(state, time);
     }
 
-    public Deque<StationInterval> getIntervals() {
+    public StationIntervalHistory getIntervals() {
         return intervals;
     }
 
@@ -157,18 +149,13 @@ public abstract class AbstractStation {
         if (getAnalysis()._maxRatio > 0) {
             ratioHistory.add(Settings.debugSendPGV && isSensitivityValid() ? getAnalysis()._maxVelocity : getAnalysis()._maxRatio);
             getAnalysis()._maxRatioReset = true;
-
-            if (ratioHistory.size() >= RATIO_HISTORY_SECONDS) {
-                ratioHistory.remove();
-            }
         }
 
         getAnalysis().second(time);
     }
 
     public double getMaxRatio60S() {
-        var opt = ratioHistory.stream().max(Double::compareTo);
-        return opt.orElse(0.0);
+        return ratioHistory.getMax(0);
     }
 
     public void reset() {
@@ -0,0 +1,215 @@
+package globalquake.core.station;
+
+import edu.sc.seis.seisFile.mseed.DataRecord;
+import edu.sc.seis.seisFile.mseed.SeedFormatException;
+import globalquake.core.GlobalQuake;
+import globalquake.core.metrics.Counter;
+import globalquake.core.metrics.LatencyHistogram;
+import globalquake.core.metrics.Metrics;
+import globalquake.utils.NamedThreadFactory;
+import globalquake.utils.SpscQueue;
+import org.tinylog.Logger;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+/**
+ * Decodes and analyses the raw data records received from the server off the socket thread.
+ * The socket thread only puts the frames into a queue of their station, the stations are partitioned by their index
+ * between a few single threaded workers, so the analysis of one station always runs on the same thread and in order.
+ * A worker takes the frames of a station in batches and moves the analysis to the current time once per batch.
+ * When a station falls too far behind, its new frames are dropped instead of delaying the rest of the packets.
+ */
+public class DataRecordIngest {
+
+    private static final int QUEUE_CAPACITY = 256;
+    private static final int MAX_BATCH = 32;
+
+    private static final Counter RECORDS = Metrics.counter("gq_client_ingest_records_total", "Data records decoded and analysed by the client");
+    private static final Counter DROPPED = Metrics.counter("gq_client_ingest_dropped_total", "Data records dropped because the queue of their station was full");
+    private static final LatencyHistogram BATCH_TIME = Metrics.histogram("gq_client_ingest_batch_seconds", "Time to decode and analyse one batch of data records of a station");
+
+    private final ExecutorService[] workers;
+    private final LongSupplier currentTime;
+    private final Map<Integer, StationQueue> queues = new ConcurrentHashMap<>();
+    private final AtomicInteger queued = new AtomicInteger();
+
+    private static final class StationQueue {
+        private final AbstractStation station;
+        private final SpscQueue<byte[]> frames = new SpscQueue<>(QUEUE_CAPACITY);
+        private final AtomicBoolean scheduled = new AtomicBoolean(false);
+        private volatile boolean discarded = false;
+
+        private StationQueue(AbstractStation station) {
+            this.station = station;
+        }
+    }
+
+    public DataRecordIngest() {
+        this(Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() / 2)), () -> GlobalQuake.instance.currentTimeMillis());
+    }
+
+    /**
+     * @param currentTime the time the analysis is moved to after each batch
+     */
+    public DataRecordIngest(int threads, LongSupplier currentTime) {
+        this.currentTime = currentTime;
+        workers = new ExecutorService[threads];
+        for (int i = 0; i < threads; i++) {
+            workers[i] = Executors.newSingleThreadExecutor(new NamedThreadFactory("Data Record Ingest Thread #%d".formatted(i), true));
+        }
+
+        Metrics.gauge("gq_client_ingest_queued", "Data records waiting to be decoded", queued::get);
+        Metrics.gauge("gq_client_ingest_max_station_queued", "Data records waiting in the longest queue of a single station", this::getMaxStationQueued);
+    }
+
+    /**
+     * Queues the raw data record of the station, called only from the socket reader thread
+     */
+    public void submit(AbstractStation station, byte[] data) {
+        StationQueue queue = queues.get(station.getId());
+        if (queue == null || queue.station != station) {
+            discard(queue);
+            queue = new StationQueue(station);
+            queues.put(station.getId(), queue);
+        }
+
+        if (!queue.frames.offer(data)) {
+            DROPPED.inc();
+            Logger.trace("Ingest queue of %s is full, dropping a data record".formatted(station.getIdentifier()));
+            return;
+        }
+
+        queued.incrementAndGet();
+        schedule(queue);
+    }
+
+    private void schedule(StationQueue queue) {
+        if (!queue.scheduled.compareAndSet(false, true)) {
+            return;
+        }
+
+        try {
+            workers[Math.floorMod(queue.station.getId(), workers.length)].execute(() -> drain(queue));
+        } catch (RejectedExecutionException e) {
+            queue.scheduled.set(false);
+        }
+    }
+
+    /**
+     * The frames of a replaced queue belong to a station that is no longer shown. Only the worker may poll the queue,
+     * so it is scheduled once more to throw the frames away and take them off the gauge.
+     */
+    private void discard(StationQueue queue) {
+        if (queue == null) {
+            return;
+        }
+
+        queue.discarded = true;
+        if (queue.frames.isEmpty()) {
+            return;
+        }
+
+        schedule(queue);
+    }
+
+    private void drain(StationQueue queue) {
+        queue.scheduled.set(false);
+        if (queue.discarded) {
+            int count = 0;
+            while (queue.frames.poll() != null) {
+                count++;
+            }
+            queued.addAndGet(-count);
+            return;
+        }
+
+        long start = System.nanoTime();
+
+        int count = 0;
+        byte[] data;
+        while (count < MAX_BATCH && !queue.discarded && (data = queue.frames.poll()) != null) {
+            count++;
+            try {
+                DataRecord dataRecord = (DataRecord) DataRecord.read(data);
+                queue.station.getAnalysis().analyse(dataRecord);
+            } catch (IOException | SeedFormatException e) {
+                Logger.error(e);
+            } catch (Exception e) {
+                Logger.error("Analysis of %s failed".formatted(queue.station.getIdentifier()));
+                Logger.error(e);
+            }
+        }
+
+        if (count == 0) {
+            return;
+        }
+
+        queued.addAndGet(-count);
+        RECORDS.add(count);
+        try {
+            queue.station.getAnalysis().second(currentTime.getAsLong());
+        } catch (Exception e) {
+            Logger.error(e);
+        }
+        BATCH_TIME.recordSince(start);
+
+        if (!queue.frames.isEmpty()) {
+            schedule(queue);
+        }
+    }
+
+    /**
+     * Forgets all the stations, called when the server changes the station indexing
+     */
+    public void clear() {
+        for (StationQueue queue : queues.values()) {
+            discard(queue);
+        }
+        queues.clear();
+    }
+
+    /**
+     * Stops the workers, the queued frames are dropped
+     */
+    public void destroy() {
+        queues.clear();
+        for (ExecutorService worker : workers) {
+            worker.shutdownNow();
+        }
+        try {
+            for (ExecutorService worker : workers) {
+                if (!worker.awaitTermination(10, TimeUnit.SECONDS)) {
+                    Logger.warn("Data record ingest worker did not terminate");
+                }
+            }
+        } catch (InterruptedException e) {
+            Logger.error("Thread interrupted while shutting down the data record ingest!");
+        }
+        queued.set(0);
+    }
+
+    public int getQueued() {
+        return queued.get();
+    }
+
+    public int getMaxStationQueued() {
+        int max = 0;
+        for (StationQueue queue : queues.values()) {
+            max = Math.max(max, queue.frames.size());
+        }
+        return max;
+    }
+
+    public long getDropped() {
+        return DROPPED.get();
+    }
+}
@@ -2,6 +2,7 @@ package globalquake.core.station;
 
 import edu.sc.seis.seisFile.mseed.DataRecord;
 import globalquake.core.GlobalQuake;
+import globalquake.core.GlobalQuakeRuntime;
 import globalquake.core.Settings;
 import globalquake.core.analysis.Event;
 import globalquake.core.database.SeedlinkNetwork;
@@ -10,6 +11,7 @@ import gqserver.api.packets.station.InputType;
 
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
+import java.util.Collection;
 import java.util.Comparator;
 import java.util.SortedSet;
 import java.util.TreeSet;
@@ -37,6 +39,16 @@ public class GlobalStation extends AbstractStation {
         synchronized (recordsQueueLock) {
             records.add(dr);
         }
+
+        GlobalQuakeRuntime.notifyStationDataReceived(this);
+    }
+
+    public void addRecords(Collection<DataRecord> drs) {
+        synchronized (recordsQueueLock) {
+            records.addAll(drs);
+        }
+
+        GlobalQuakeRuntime.notifyStationDataReceived(this);
     }
 
     @Override
@@ -18,6 +18,8 @@ public class GlobalStationManager {
     protected final AtomicInteger nextID = new AtomicInteger(0);
     protected UUID indexing;
 
+    private volatile StationSpatialIndex spatialIndex;
+
     public void initStations(StationDatabaseManager databaseManager) {
         if (databaseManager == null) {
             return;
@@ -119,6 +121,25 @@ public class GlobalStationManager {
         return indexing;
     }
 
+    /**
+     * @param radius great circle distance in km
+     * @return all stations that are at most radius km away from the given point
+     */
+    public List<AbstractStation> getStationsWithin(double lat, double lon, double radius) {
+        return getSpatialIndex().getStationsWithin(lat, lon, radius);
+    }
+
+    private StationSpatialIndex getSpatialIndex() {
+        StationSpatialIndex index = spatialIndex;
+        if (index == null || !index.matches(indexing, stations.size())) {
+            // the stations are replaced as a whole, so a new indexing or count means the index is stale
+            index = new StationSpatialIndex(stations, indexing);
+            spatialIndex = index;
+        }
+
+        return index;
+    }
+
     public AbstractStation getStationByIdentifier(String identifier) {
         return stations.stream().filter(station -> station.getIdentifier().equals(identifier)).findFirst().orElse(null);
     }
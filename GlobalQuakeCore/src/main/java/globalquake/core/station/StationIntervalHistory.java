@@ -0,0 +1,134 @@
+package globalquake.core.station;
+
+import java.util.Arrays;
+
+/**
+ * History of station states stored as a ring of primitive arrays sorted by the interval start,
+ * so that the state at a given time can be found by binary search.
+ * The intervals do not overlap, each of them is <code>start &lt;= time &lt; end</code>.
+ */
+public class StationIntervalHistory {
+
+    private static final int INITIAL_CAPACITY = 8;
+
+    private long[] starts = new long[INITIAL_CAPACITY];
+    private long[] ends = new long[INITIAL_CAPACITY];
+    private StationState[] states = new StationState[INITIAL_CAPACITY];
+
+    private int head = 0;
+    private int size = 0;
+
+    public synchronized void add(StationInterval interval) {
+        add(interval.getStart(), interval.getEnd(), interval.getState());
+    }
+
+    public synchronized void add(long start, long end, StationState state) {
+        if (size == starts.length) {
+            grow();
+        }
+
+        // intervals are reported in order, so this only moves anything if they are added by hand
+        int index = size;
+        while (index > 0 && starts[slot(index - 1)] > start) {
+            int from = slot(index - 1);
+            int to = slot(index);
+            starts[to] = starts[from];
+            ends[to] = ends[from];
+            states[to] = states[from];
+            index--;
+        }
+
+        int slot = slot(index);
+        starts[slot] = start;
+        ends[slot] = end;
+        states[slot] = state;
+        size++;
+    }
+
+    /**
+     * Extends the latest interval or starts a new one and forgets the intervals that are too old
+     */
+    public synchronized void report(StationState state, long time) {
+        while (size > 0 && time - ends[head] > AbstractStation.INTERVAL_STORAGE_TIME) {
+            removeFirst();
+        }
+
+        if (size == 0) {
+            add(time, time, state);
+            return;
+        }
+
+        int last = slot(size - 1);
+        if (time - ends[last] > AbstractStation.INTERVAL_MAX_GAP) {
+            add(time, time, state);
+            return;
+        }
+
+        ends[last] = time;
+
+        if (states[last] != state) {
+            add(time, time, state);
+        }
+    }
+
+    public synchronized StationState getStateAt(long time) {
+        // last interval that starts before or at the given time
+        int low = 0;
+        int high = size - 1;
+        int found = -1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (starts[slot(mid)] <= time) {
+                found = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+
+        if (found == -1) {
+            return StationState.UNKNOWN;
+        }
+
+        int slot = slot(found);
+        return time < ends[slot] ? states[slot] : StationState.UNKNOWN;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public synchronized void clear() {
+        Arrays.fill(states, null);
+        head = 0;
+        size = 0;
+    }
+
+    private void removeFirst() {
+        states[head] = null;
+        head = (head + 1) % starts.length;
+        size--;
+    }
+
+    private int slot(int index) {
+        return (head + index) % starts.length;
+    }
+
+    private void grow() {
+        int capacity = starts.length * 2;
+        long[] newStarts = new long[capacity];
+        long[] newEnds = new long[capacity];
+        StationState[] newStates = new StationState[capacity];
+        for (int i = 0; i < size; i++) {
+            int slot = slot(i);
+            newStarts[i] = starts[slot];
+            newEnds[i] = ends[slot];
+            newStates[i] = states[slot];
+        }
+
+        starts = newStarts;
+        ends = newEnds;
+        states = newStates;
+        head = 0;
+    }
+}
@@ -0,0 +1,110 @@
+package globalquake.core.station;
+
+import globalquake.utils.GeoUtils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Latitude/longitude grid of stations used to find the stations around a point without testing the whole network.
+ * The index is immutable, {@link GlobalStationManager} builds a new one whenever the stations change.
+ */
+public class StationSpatialIndex {
+
+    private static final double CELL_SIZE = 2.0;
+    private static final int ROWS = (int) (180 / CELL_SIZE);
+    private static final int COLS = (int) (360 / CELL_SIZE);
+
+    private final UUID indexing;
+    private final int size;
+
+    private final int[] cellStart = new int[ROWS * COLS + 1];
+    private final AbstractStation[] items;
+
+    public StationSpatialIndex(Collection<AbstractStation> stations, UUID indexing) {
+        this.indexing = indexing;
+
+        AbstractStation[] array = stations.toArray(new AbstractStation[0]);
+        this.size = array.length;
+        this.items = new AbstractStation[array.length];
+
+        for (AbstractStation station : array) {
+            cellStart[cellOf(station.getLatitude(), station.getLongitude()) + 1]++;
+        }
+
+        for (int c = 0; c < ROWS * COLS; c++) {
+            cellStart[c + 1] += cellStart[c];
+        }
+
+        int[] cellFill = new int[ROWS * COLS];
+        System.arraycopy(cellStart, 0, cellFill, 0, cellFill.length);
+
+        for (AbstractStation station : array) {
+            items[cellFill[cellOf(station.getLatitude(), station.getLongitude())]++] = station;
+        }
+    }
+
+    /**
+     * @return true if the index was built from the same stations
+     */
+    public boolean matches(UUID indexing, int size) {
+        return this.size == size && (this.indexing == null ? indexing == null : this.indexing.equals(indexing));
+    }
+
+    private static int row(double lat) {
+        return Math.max(0, Math.min(ROWS - 1, (int) Math.floor((lat + 90.0) / CELL_SIZE)));
+    }
+
+    private static int col(double lon) {
+        return Math.floorMod((int) Math.floor((lon + 180.0) / CELL_SIZE), COLS);
+    }
+
+    private static int cellOf(double lat, double lon) {
+        return row(lat) * COLS + col(lon);
+    }
+
+    /**
+     * @param radius great circle distance in km
+     * @return all stations that are at most radius km away from the given point
+     */
+    public List<AbstractStation> getStationsWithin(double lat, double lon, double radius) {
+        List<AbstractStation> result = new ArrayList<>();
+        double delta = radius / GeoUtils.EARTH_RADIUS;
+        double deltaLat = Math.toDegrees(delta);
+
+        int r0 = row(lat - deltaLat);
+        int r1 = row(lat + deltaLat);
+
+        // widest longitude difference of a spherical cap, all longitudes if it contains a pole
+        double sinLon = Math.sin(delta) / Math.cos(Math.toRadians(lat));
+        boolean allCols = delta >= Math.PI / 2.0 || Math.abs(lat) + deltaLat >= 90.0 || sinLon >= 1.0;
+        double deltaLon = allCols ? 180.0 : Math.toDegrees(Math.asin(sinLon));
+
+        int k0 = (int) Math.floor((lon - deltaLon + 180.0) / CELL_SIZE);
+        int k1 = (int) Math.floor((lon + deltaLon + 180.0) / CELL_SIZE);
+        if (allCols || k1 - k0 + 1 >= COLS) {
+            k0 = 0;
+            k1 = COLS - 1;
+        }
+
+        for (int r = r0; r <= r1; r++) {
+            for (int k = k0; k <= k1; k++) {
+                int cell = r * COLS + Math.floorMod(k, COLS);
+                for (int i = cellStart[cell]; i < cellStart[cell + 1]; i++) {
+                    AbstractStation station = items[i];
+                    if (GeoUtils.greatCircleDistance(lat, lon, station.getLatitude(), station.getLongitude()) <= radius) {
+                        result.add(station);
+                    }
+                }
+            }
+        }
+
+        return result;
+    }
+
+    public int size() {
+        return size;
+    }
+}
@@ -0,0 +1,91 @@
+package globalquake.core.synthetic;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Periodic band limited noise for one sample rate, precomputed once and shared by all the channels.
+ * Every octave band from {@link #MIN_FREQ} is a sum of sinusoids with random frequencies inside the band,
+ * which are whole multiples of the table frequency, so the table repeats seamlessly.
+ * The spectrum of a channel is a fixed weighting of the bands, so the bands are summed into two tables in advance:
+ * the background noise and the noise that is scaled by the envelopes of the earthquakes.
+ */
+final class NoiseTables {
+
+    static final double MIN_FREQ = 0.1;
+    static final int BANDS = 10;
+
+    static final int SIZE = 1 << 17;
+    static final int MASK = SIZE - 1;
+
+    private static final int COMPONENTS = 24;
+
+    // same level as a single octave of Perlin noise that the playground used before
+    private static final double BAND_RMS = 0.3;
+
+    private static final Map<Long, NoiseTables> cache = new ConcurrentHashMap<>();
+
+    final float[] background = new float[SIZE];
+    final float[] quake = new float[SIZE];
+
+    static NoiseTables get(double sampleRate, long seed) {
+        long key = Double.doubleToLongBits(sampleRate) * 31 + seed;
+        return cache.computeIfAbsent(key, k -> new NoiseTables(sampleRate, seed));
+    }
+
+    private NoiseTables(double sampleRate, long seed) {
+        Random random = new Random(seed);
+
+        double[] sin = new double[SIZE];
+        for (int i = 0; i < SIZE; i++) {
+            sin[i] = Math.sin(2 * Math.PI * i / SIZE);
+        }
+
+        double cycleFreq = sampleRate / SIZE;
+        int maxCycles = (int) (0.45 * sampleRate / cycleFreq);
+        double[] band = new double[SIZE];
+
+        for (int b = 0; b < BANDS; b++) {
+            double freq = MIN_FREQ * Math.pow(2, b);
+            double backgroundWeight = backgroundNoise(freq);
+            double quakeWeight = magnitudeFrequencyRange(5.0, freq) * Math.sqrt(freq);
+
+            // bands above the nyquist frequency are folded below it, as the sampled Perlin noise used to alias
+            int from = Math.min(maxCycles - COMPONENTS, (int) (freq / Math.sqrt(2) / cycleFreq));
+            int to = Math.min(maxCycles, (int) (freq * Math.sqrt(2) / cycleFreq));
+
+            Arrays.fill(band, 0);
+            for (int c = 0; c < COMPONENTS; c++) {
+                int cycles = Math.max(1, from + random.nextInt(Math.max(1, to - from)));
+                int phase = random.nextInt(SIZE);
+                for (int i = 0; i < SIZE; i++) {
+                    band[i] += sin[(int) (((long) cycles * i + phase) & MASK)];
+                }
+            }
+
+            double sumSquares = 0;
+            for (double v : band) {
+                sumSquares += v * v;
+            }
+            double norm = BAND_RMS / Math.sqrt(sumSquares / SIZE);
+
+            for (int i = 0; i < SIZE; i++) {
+                double v = band[i] * norm;
+                background[i] += (float) (v * backgroundWeight);
+                quake[i] += (float) (v * quakeWeight);
+            }
+        }
+    }
+
+    static double backgroundNoise(double freq) {
+        return (freq * 120000.0) / (160 * (freq - 0.15) * (freq - 0.15) + 1);
+    }
+
+    static double magnitudeFrequencyRange(double mag, double freq) {
+        double centerFreq = 1000.0 / Math.pow(2.5, mag);
+        double lnd = Math.abs(Math.log(freq) - Math.log(centerFreq));
+        return 1.0 / Math.pow(lnd + 1.0, 3);
+    }
+}
@@ -0,0 +1,222 @@
+package globalquake.core.synthetic;
+
+import globalquake.core.geo.taup.TauPTravelTimeCalculator;
+import globalquake.core.intensity.IntensityTable;
+import globalquake.utils.GeoUtils;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * One synthetic seismometer. Samples are produced in blocks by {@link SyntheticWaveformEngine#generate}
+ * and always continue where the previous block ended, the generation of a channel must not run on two threads at once.
+ */
+public class SyntheticChannel {
+
+    public interface SampleSink {
+        /**
+         * @param samples   generated samples, the array is reused for the next block
+         * @param startTime time of the first sample in ms
+         */
+        void accept(int[] samples, int count, long startTime);
+    }
+
+    private static final int ENVELOPE_STEP = 16;
+
+    private final double lat;
+    private final double lon;
+    private final double sampleRate;
+    private final NoiseTables tables;
+    private final SampleSink sink;
+
+    private final double sensMul;
+    private final int offset;
+
+    private long nextSample = -1;
+
+    private long quakesVersion = -1;
+    private Envelope[] envelopes = new Envelope[0];
+    private Envelope[] active = new Envelope[0];
+
+    /**
+     * Wave arrivals of one earthquake at this channel, computed once per quake
+     */
+    static final class Envelope {
+        private final SyntheticQuake quake;
+        private final double pTravel;
+        private final double sTravel;
+        private final double m2;
+        private final double psRatio;
+        private final double amplitude;
+        final long start;
+
+        Envelope(SyntheticQuake quake, double lat, double lon, double sensMul) {
+            this.quake = quake;
+            double gcd = GeoUtils.greatCircleDistance(quake.lat(), quake.lon(), lat, lon);
+            double angle = TauPTravelTimeCalculator.toAngle(gcd);
+            pTravel = TauPTravelTimeCalculator.getPWaveTravelTime(quake.depth(), angle);
+            sTravel = TauPTravelTimeCalculator.getSWaveTravelTime(quake.depth(), angle);
+
+            double m = quake.mag() + gcd / 30.0;
+            m2 = m * m;
+            psRatio = 2.0 / (0.000015 * gcd * gcd + 1);
+            amplitude = 2E3 * IntensityTable.getIntensity(quake.mag(), GeoUtils.gcdToGeo(gcd)) / 20.0 * sensMul;
+
+            double first = pTravel >= 0 ? pTravel : sTravel >= 0 ? sTravel : Double.POSITIVE_INFINITY;
+            start = first == Double.POSITIVE_INFINITY ? Long.MAX_VALUE : quake.origin() + (long) (first * 1000);
+        }
+
+        double value(long time) {
+            double age = (time - quake.origin()) / 1000.0;
+            double result = 0;
+
+            double secondsP = pTravel - age;
+            if (secondsP < 0 && pTravel >= 0) {
+                double decay = m2 / (secondsP * secondsP + m2);
+                double increase = Math.min(1.0, -secondsP / quake.mag());
+                result += decay * increase;
+            }
+
+            double secondsS = sTravel - age;
+            if (secondsS < 0 && sTravel >= 0) {
+                double decay = m2 / (secondsS * secondsS + m2);
+                double increase = Math.min(1.0, -secondsS / quake.mag());
+                result += decay * increase * psRatio;
+            }
+
+            return result * amplitude;
+        }
+    }
+
+    SyntheticChannel(double lat, double lon, double sampleRate, NoiseTables tables, long seed, SampleSink sink) {
+        this.lat = lat;
+        this.lon = lon;
+        this.sampleRate = sampleRate;
+        this.tables = tables;
+        this.sink = sink;
+
+        Random random = new Random(seed);
+        sensMul = Math.pow(100, random.nextGaussian() * 0.12 + 0.5) / 10.0;
+        offset = random.nextInt(NoiseTables.SIZE);
+    }
+
+    long sampleIndex(long time) {
+        return (long) Math.floor(time * sampleRate / 1000.0);
+    }
+
+    long sampleTime(long index) {
+        return (long) (index * 1000.0 / sampleRate);
+    }
+
+    /**
+     * Generates all samples up to the given time and passes them to the sink
+     *
+     * @param backfill how many ms of data to generate when the channel runs for the first time
+     */
+    void generate(long untilTime, long backfill, SyntheticWaveformEngine.QuakeSet quakes, int[] buffer) {
+        long until = sampleIndex(untilTime);
+        if (nextSample < 0 || nextSample > until) {
+            nextSample = sampleIndex(untilTime - backfill);
+        }
+
+        updateEnvelopes(quakes);
+
+        while (nextSample < until) {
+            int count = (int) Math.min(buffer.length, until - nextSample);
+            fill(nextSample, count, buffer);
+            sink.accept(buffer, count, sampleTime(nextSample));
+            nextSample += count;
+        }
+    }
+
+    private void updateEnvelopes(SyntheticWaveformEngine.QuakeSet quakes) {
+        if (quakesVersion == quakes.version()) {
+            return;
+        }
+
+        Map<SyntheticQuake, Envelope> previous = new HashMap<>();
+        for (Envelope envelope : envelopes) {
+            previous.put(envelope.quake, envelope);
+        }
+
+        List<SyntheticQuake> list = quakes.quakes();
+        Envelope[] result = new Envelope[list.size()];
+        for (int i = 0; i < result.length; i++) {
+            SyntheticQuake quake = list.get(i);
+            Envelope envelope = previous.get(quake);
+            result[i] = envelope != null ? envelope : new Envelope(quake, lat, lon, sensMul);
+        }
+
+        envelopes = result;
+        active = new Envelope[result.length];
+        quakesVersion = quakes.version();
+    }
+
+    /**
+     * Fills the buffer with the samples from the given index, only the quakes whose waves already arrived are evaluated
+     */
+    void fill(long from, int count, int[] buffer) {
+        long endTime = sampleTime(from + count);
+        int activeCount = 0;
+        for (Envelope envelope : envelopes) {
+            if (envelope.start <= endTime) {
+                active[activeCount++] = envelope;
+            }
+        }
+
+        float[] background = tables.background;
+        float[] quake = tables.quake;
+        int index = (int) ((from + offset) & NoiseTables.MASK);
+
+        if (activeCount == 0) {
+            for (int i = 0; i < count; i++) {
+                buffer[i] = (int) background[index];
+                index = (index + 1) & NoiseTables.MASK;
+            }
+            return;
+        }
+
+        // the envelopes change over seconds, so they are evaluated only every few samples and interpolated in between
+        double previous = power(from, activeCount);
+        for (int step = 0; step < count; step += ENVELOPE_STEP) {
+            int stepCount = Math.min(ENVELOPE_STEP, count - step);
+            double next = power(from + step + stepCount, activeCount);
+            double slope = (next - previous) / stepCount;
+            for (int i = 0; i < stepCount; i++) {
+                buffer[step + i] = (int) (background[index] + quake[index] * (previous + slope * i));
+                index = (index + 1) & NoiseTables.MASK;
+            }
+            previous = next;
+        }
+    }
+
+    private double power(long sample, int activeCount) {
+        long time = sampleTime(sample);
+        double result = 0;
+        for (int q = 0; q < activeCount; q++) {
+            result += active[q].value(time);
+        }
+        return result;
+    }
+
+    public double getLat() {
+        return lat;
+    }
+
+    public double getLon() {
+        return lon;
+    }
+
+    public double getSampleRate() {
+        return sampleRate;
+    }
+
+    /**
+     * @return time of the next sample to be generated or -1 if nothing was generated yet
+     */
+    public long getNextSampleTime() {
+        return nextSample < 0 ? -1 : sampleTime(nextSample);
+    }
+}
@@ -0,0 +1,82 @@
+package globalquake.core.synthetic;
+
+import globalquake.core.geo.taup.TauPTravelTimeCalculator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Headless run of the {@link SyntheticWaveformEngine} as fast as possible, reports whether the given number of channels
+ * could be generated in real time.
+ * <p>
+ * Usage: {@code [channels] [sample rate] [seconds] [threads] [quakes]}, by default 50000 channels at 100 sps for 120 s
+ */
+public class SyntheticLoadTest {
+
+    public static void main(String[] args) throws Exception {
+        int channelCount = args.length > 0 ? Integer.parseInt(args[0]) : 50_000;
+        double sampleRate = args.length > 1 ? Double.parseDouble(args[1]) : 100.0;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 120;
+        int threads = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+        int quakeCount = args.length > 4 ? Integer.parseInt(args[4]) : 3;
+
+        TauPTravelTimeCalculator.init();
+
+        long tableStart = System.nanoTime();
+        SyntheticWaveformEngine engine = new SyntheticWaveformEngine(sampleRate, 0, threads);
+        System.out.printf(Locale.ROOT, "Noise tables prepared in %.2f s%n", (System.nanoTime() - tableStart) / 1e9);
+
+        Random random = new Random(0);
+        long[][] stats = new long[channelCount][2];
+        List<SyntheticChannel> channels = new ArrayList<>(channelCount);
+        for (int i = 0; i < channelCount; i++) {
+            long[] channelStats = stats[i];
+            double lat = Math.toDegrees(Math.asin(2 * random.nextDouble() - 1));
+            double lon = random.nextDouble() * 360.0 - 180.0;
+            channels.add(engine.createChannel(lat, lon, i, (samples, count, startTime) -> {
+                channelStats[0] += count;
+                for (int j = 0; j < count; j++) {
+                    channelStats[1] = Math.max(channelStats[1], Math.abs(samples[j]));
+                }
+            }));
+        }
+
+        long start = 1_700_000_000_000L;
+        List<SyntheticQuake> quakes = new ArrayList<>();
+        for (int i = 0; i < quakeCount; i++) {
+            quakes.add(new SyntheticQuake(random.nextDouble() * 120 - 60, random.nextDouble() * 360 - 180,
+                    random.nextDouble() * 100, start + (long) ((i + 0.5) * seconds * 1000.0 / (quakeCount + 1)), 5 + random.nextDouble() * 3));
+        }
+        engine.setQuakes(quakes);
+
+        engine.generate(channels, start, 0);
+
+        long wallStart = System.nanoTime();
+        long slowestStep = 0;
+        for (int second = 1; second <= seconds; second++) {
+            long stepStart = System.nanoTime();
+            engine.generate(channels, start + second * 1000L, 0);
+            slowestStep = Math.max(slowestStep, System.nanoTime() - stepStart);
+        }
+        double wall = (System.nanoTime() - wallStart) / 1e9;
+
+        long samples = 0;
+        long peak = 0;
+        for (long[] channelStats : stats) {
+            samples += channelStats[0];
+            peak = Math.max(peak, channelStats[1]);
+        }
+
+        double speed = seconds / wall;
+        System.out.printf(Locale.ROOT, "Generated %d samples of %d channels at %.0f sps (%d s) in %.2f s using %d threads%n",
+                samples, channelCount, sampleRate, seconds, wall, threads);
+        System.out.printf(Locale.ROOT, "%.1f M samples/s, %.1fx real time, slowest second took %.0f ms, peak amplitude %d%n",
+                samples / wall / 1e6, speed, slowestStep / 1e6, peak);
+        System.out.printf(Locale.ROOT, "About %d channels could be generated in real time%n", (long) (channelCount * speed));
+
+        engine.shutdown();
+        System.exit(speed >= 1.0 ? 0 : 1);
+    }
+}
@@ -0,0 +1,8 @@
+package globalquake.core.synthetic;
+
+/**
+ * Earthquake whose waves are added to the synthetic waveforms.
+ * Quakes are compared by value, so moving a quake is the same as replacing it with a new one.
+ */
+public record SyntheticQuake(double lat, double lon, double depth, long origin, double mag) {
+}
@@ -0,0 +1,128 @@
+package globalquake.core.synthetic;
+
+import edu.sc.seis.seisFile.mseed.DataRecord;
+import globalquake.core.GlobalQuake;
+import globalquake.core.database.*;
+import globalquake.core.exception.ApplicationErrorHandler;
+import globalquake.core.replay.ReplayEngine;
+import globalquake.core.replay.ReplayReport;
+import globalquake.core.seedlink.MiniSeedRecords;
+import gqserver.api.packets.station.InputType;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Records synthetic stations around a synthetic earthquake into miniSEED files and replays them through the runtime,
+ * see {@link ReplayEngine}. With magnitude 0 there is no earthquake and the run shows the CPU time of the idle pipeline,
+ * otherwise the summary shows the time from the origin to the first hypocenter.
+ * <p>
+ * Usage: {@code [stations] [seconds] [magnitude] [speed]}, by default 300 stations, 300 s of data, M5.5 at real time.
+ * The earthquake happens 60 s into the data. The travel time table has to be on the classpath.
+ */
+public class SyntheticReplay {
+
+    private static final double SENSITIVITY = 7E10;
+    private static final double SAMPLE_RATE = 50;
+    private static final long START = 1_700_000_000_000L;
+    private static final long QUAKE_DELAY = 60_000;
+
+    public static void main(String[] args) throws Exception {
+        int stationCount = args.length > 0 ? Integer.parseInt(args[0]) : 300;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 300;
+        double magnitude = args.length > 2 ? Double.parseDouble(args[2]) : 5.5;
+        double speed = args.length > 3 ? Double.parseDouble(args[3]) : 1;
+
+        File folder = Files.createTempDirectory("gq-synthetic-replay").toFile();
+        GlobalQuake.prepare(folder, new ApplicationErrorHandler(null, true));
+
+        double quakeLat = 45;
+        double quakeLon = 15;
+        Random random = new Random(0);
+        double[][] locations = new double[stationCount][];
+        for (int i = 0; i < stationCount; i++) {
+            // stations within about 1500 km of the epicenter
+            locations[i] = new double[]{quakeLat + (random.nextDouble() - 0.5) * 26, quakeLon + (random.nextDouble() - 0.5) * 36};
+        }
+
+        List<File> files = record(locations, seconds, magnitude > 0 ?
+                new SyntheticQuake(quakeLat, quakeLon, 10, START + QUAKE_DELAY, magnitude) : null, new File(folder, "data"));
+        System.out.printf(Locale.ROOT, "Recorded %d stations, %d s of data%s%n", stationCount, seconds,
+                magnitude > 0 ? " with M%.1f at %.1f %.1f".formatted(magnitude, quakeLat, quakeLon) : "");
+
+        ReplayReport report = new ReplayEngine(createDatabase(locations), files).setSpeed(speed).run();
+        report.printSummary(System.out);
+
+        System.exit(0);
+    }
+
+    private static String stationCode(int index) {
+        return "S%04d".formatted(index);
+    }
+
+    private static List<File> record(double[][] locations, int seconds, SyntheticQuake quake, File folder) throws Exception {
+        if (!folder.mkdirs()) {
+            throw new IOException("Unable to create %s".formatted(folder));
+        }
+
+        SyntheticWaveformEngine engine = new SyntheticWaveformEngine(SAMPLE_RATE, 0, Runtime.getRuntime().availableProcessors());
+        if (quake != null) {
+            engine.setQuakes(List.of(quake));
+        }
+
+        int length = (int) (seconds * SAMPLE_RATE);
+        int[][] samples = new int[locations.length][length];
+        int[] counts = new int[locations.length];
+        List<SyntheticChannel> channels = new ArrayList<>();
+        for (int i = 0; i < locations.length; i++) {
+            int index = i;
+            channels.add(engine.createChannel(locations[i][0], locations[i][1], i, (block, count, startTime) -> {
+                int copied = Math.min(count, length - counts[index]);
+                for (int j = 0; j < copied; j++) {
+                    samples[index][counts[index]++] = MiniSeedRecords.clamp(block[j]);
+                }
+            }));
+        }
+
+        engine.generate(channels, START, 0);
+        for (int second = 1; second <= seconds; second++) {
+            engine.generate(channels, START + second * 1000L, 0);
+        }
+        engine.shutdown();
+
+        List<File> files = new ArrayList<>();
+        for (int i = 0; i < locations.length; i++) {
+            File file = new File(folder, "XX.%s..HHZ.mseed".formatted(stationCode(i)));
+            try (FileOutputStream out = new FileOutputStream(file)) {
+                for (DataRecord record : MiniSeedRecords.create("XX", stationCode(i), "HHZ", "", START, SAMPLE_RATE,
+                        Arrays.copyOf(samples[i], counts[i]))) {
+                    out.write(record.toByteArray());
+                }
+            }
+            files.add(file);
+        }
+
+        return files;
+    }
+
+    private static StationDatabase createDatabase(double[][] locations) {
+        StationDatabase database = new StationDatabase();
+        StationSource stationSource = new StationSource("Synthetic replay", "");
+        Network network = database.getOrCreateNetwork("XX", "Synthetic stations");
+        for (int i = 0; i < locations.length; i++) {
+            double lat = locations[i][0];
+            double lon = locations[i][1];
+            Station station = StationDatabase.getOrCreateStation(network, stationCode(i), "Synthetic station", lat, lon, 0);
+            station.setSelectedChannel(StationDatabase.getOrCreateChannel(station, "HHZ", "", lat, lon, 0, SAMPLE_RATE,
+                    stationSource, SENSITIVITY, InputType.VELOCITY));
+        }
+        return database;
+    }
+}
@@ -0,0 +1,113 @@
+package globalquake.core.synthetic;
+
+import globalquake.utils.NamedThreadFactory;
+import org.tinylog.Logger;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * Generates the waveforms of many synthetic channels at once.
+ * The noise comes from tables shared by all the channels and the arrivals of every earthquake are computed
+ * only once per channel, so a sample costs two table lookups plus the envelopes of the quakes that already arrived.
+ * Channels are split into shards that are generated in parallel, every channel always in whole blocks.
+ */
+public class SyntheticWaveformEngine {
+
+    public static final int BLOCK_SIZE = 256;
+
+    // shards per thread, so that a slower shard does not keep the other threads idle
+    private static final int SHARDS_PER_THREAD = 4;
+
+    private final double sampleRate;
+    private final NoiseTables tables;
+    private final ExecutorService executor;
+    private final int threads;
+
+    private volatile QuakeSet quakes = new QuakeSet(0, List.of());
+
+    record QuakeSet(long version, List<SyntheticQuake> quakes) {
+    }
+
+    public SyntheticWaveformEngine(double sampleRate, long seed, int threads) {
+        this.sampleRate = sampleRate;
+        this.tables = NoiseTables.get(sampleRate, seed);
+        this.threads = threads;
+        this.executor = threads > 1 ? Executors.newFixedThreadPool(threads, new NamedThreadFactory("Synthetic Waveform Thread")) : null;
+    }
+
+    public SyntheticChannel createChannel(double lat, double lon, long seed, SyntheticChannel.SampleSink sink) {
+        return new SyntheticChannel(lat, lon, sampleRate, tables, seed, sink);
+    }
+
+    /**
+     * Replaces the earthquakes, the channels compute the arrivals of the new quakes at their next generation
+     */
+    public synchronized void setQuakes(Collection<SyntheticQuake> newQuakes) {
+        List<SyntheticQuake> list = List.copyOf(newQuakes);
+        if (!list.equals(quakes.quakes())) {
+            quakes = new QuakeSet(quakes.version() + 1, list);
+        }
+    }
+
+    public List<SyntheticQuake> getQuakes() {
+        return quakes.quakes();
+    }
+
+    /**
+     * Generates the samples of all the channels up to the given time
+     *
+     * @param backfill how many ms of data to generate for channels that run for the first time
+     */
+    public void generate(List<SyntheticChannel> channels, long untilTime, long backfill) {
+        QuakeSet quakeSet = quakes;
+        if (executor == null || channels.size() < BLOCK_SIZE) {
+            generateShard(channels, untilTime, backfill, quakeSet);
+            return;
+        }
+
+        int shards = Math.min(channels.size(), threads * SHARDS_PER_THREAD);
+        List<Callable<Void>> tasks = new ArrayList<>(shards);
+        for (int i = 0; i < shards; i++) {
+            List<SyntheticChannel> shard = channels.subList(
+                    (int) ((long) channels.size() * i / shards), (int) ((long) channels.size() * (i + 1) / shards));
+            tasks.add(() -> {
+                generateShard(shard, untilTime, backfill, quakeSet);
+                return null;
+            });
+        }
+
+        try {
+            for (Future<Void> future : executor.invokeAll(tasks)) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            Logger.error(e.getCause());
+        }
+    }
+
+    private static void generateShard(List<SyntheticChannel> channels, long untilTime, long backfill, QuakeSet quakeSet) {
+        int[] buffer = new int[BLOCK_SIZE];
+        for (SyntheticChannel channel : channels) {
+            try {
+                channel.generate(untilTime, backfill, quakeSet, buffer);
+            } catch (Exception e) {
+                Logger.error(e);
+            }
+        }
+    }
+
+    public double getSampleRate() {
+        return sampleRate;
+    }
+
+    public void shutdown() {
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+}
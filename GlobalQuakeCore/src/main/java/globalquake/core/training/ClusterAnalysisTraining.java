@@ -11,10 +11,10 @@ import globalquake.core.regions.Regions;
 import globalquake.core.station.AbstractStation;
 import globalquake.core.station.GlobalStationManager;
 import globalquake.utils.GeoUtils;
+import globalquake.utils.monitorable.MonitorableRegistry;
 import gqserver.api.packets.station.InputType;
 
 import java.util.*;
-import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.atomic.AtomicInteger;
 
 @SuppressWarnings("unused")
@@ -87,7 +87,7 @@ public class ClusterAnalysisTraining {
 
         GlobalStationManager.createListOfClosestStations(stations);
 
-        List<Earthquake> earthquakes = new CopyOnWriteArrayList<>();
+        MonitorableRegistry<Earthquake> earthquakes = new MonitorableRegistry<>(Earthquake::getUuid);
 
         ClusterAnalysis clusterAnalysis = new ClusterAnalysis(earthquakes, stations);
         EarthquakeAnalysis earthquakeAnalysis = new EarthquakeAnalysis(clusterAnalysis, earthquakes);
@@ -227,7 +227,7 @@ public class ClusterAnalysisTraining {
                         event.maxRatio = expectedRatio;
                         event.setpWave(earthquake.origin + expectedTravelP + r.nextLong(INACCURACY * 2) - INACCURACY);
 
-                        station.getAnalysis().getDetectedEvents().add(event);
+                        station.getAnalysis().addDetectedEvent(event);
                         eventC++;
                     }
                 }
@@ -243,7 +243,7 @@ public class ClusterAnalysisTraining {
                         event.maxRatio = expectedRatio;
                         event.setpWave(earthquake.origin + expectedTravelP + r.nextLong(INACCURACY * 2) - INACCURACY);
 
-                        station.getAnalysis().getDetectedEvents().add(event);
+                        station.getAnalysis().addDetectedEvent(event);
                         eventC++;
                     }
                 }
@@ -1,10 +1,63 @@
 package globalquake.core.training;
 
-@SuppressWarnings("all")
+import globalquake.core.GlobalQuake;
+import globalquake.core.database.StationDatabase;
+import globalquake.core.database.StationDatabaseIO;
+import globalquake.core.replay.MiniSeedReplaySource;
+import globalquake.core.replay.ReplayEngine;
+import globalquake.core.replay.ReplayReport;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.ObjectInputStream;
+import java.util.List;
+
+/**
+ * Replays a folder of miniSEED files through the whole pipeline, see {@link ReplayEngine}.
+ * <pre>
+ * MiniseedWaveformTraining &lt;miniSEED folder&gt; &lt;station database&gt; [speed|max] [timeline.csv]
+ * </pre>
+ * The station database is either a stations folder of GlobalQuake or a legacy serialized database file.
+ * A speed, for example 1 for real time, replays through the threads of the runtime, max (the default) replays
+ * in fixed steps on the main thread.
+ */
 public class MiniseedWaveformTraining {
 
-    public static void main(String[] args) {
+    private static final File mainFolder = new File("./training/");
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.err.println("Usage: MiniseedWaveformTraining <miniSEED folder> <station database> [speed|max] [timeline.csv]");
+            System.exit(1);
+        }
+
+        GlobalQuake.prepare(mainFolder, null);
+
+        List<File> files = MiniSeedReplaySource.findFiles(new File(args[0]));
+        StationDatabase database = loadDatabase(new File(args[1]));
 
+        ReplayEngine engine = new ReplayEngine(database, files);
+        if (args.length > 2 && !args[2].equals("max")) {
+            engine.setSpeed(Double.parseDouble(args[2]));
+        }
+
+        ReplayReport report = engine.run();
+        report.printSummary(System.out);
+
+        if (args.length > 3) {
+            report.writeTimeline(new File(args[3]));
+        }
+
+        System.exit(0);
     }
 
+    private static StationDatabase loadDatabase(File file) throws Exception {
+        if (file.isDirectory()) {
+            return StationDatabaseIO.load(file);
+        }
+
+        try (ObjectInputStream in = new ObjectInputStream(new FileInputStream(file))) {
+            return (StationDatabase) in.readObject();
+        }
+    }
 }
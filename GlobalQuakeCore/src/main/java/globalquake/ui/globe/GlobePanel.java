@@ -6,7 +6,6 @@ import globalquake.ui.globe.feature.FeatureGeoPolygons;
 import globalquake.ui.globe.feature.FeatureHorizon;
 import globalquake.ui.globe.feature.RenderEntity;
 import globalquake.utils.GeoUtils;
-import org.apache.commons.math3.geometry.euclidean.threed.Vector3D;
 import org.tinylog.Logger;
 
 import javax.swing.*;
@@ -384,26 +383,11 @@ public class GlobePanel extends JPanel implements GeoUtils {
     private void handleClick(int x, int y) {
         ArrayList<RenderEntity<?>> clicked = new ArrayList<>();
         renderer.getRenderFeatures().parallelStream().forEach(feature -> {
-            for (RenderEntity<?> entity : feature.getEntities()) {
-                if (!feature.isEntityVisible(entity)) {
-                    continue;
-                }
-                Point2D centerCoords = feature.getCenterCoords(entity);
-                if (centerCoords != null) {
-                    Vector3D pos = new Vector3D(GlobeRenderer.getX_3D(centerCoords.x, centerCoords.y, 0),
-                            GlobeRenderer.getY_3D(centerCoords.x, centerCoords.y, 0), GlobeRenderer.getZ_3D(centerCoords.x, centerCoords.y, 0));
-
-                    if (!renderer.isAboveHorizon(pos, getRenderer().getRenderProperties())) {
-                        continue;
-                    }
-
-                    Point2D centerProjected = renderer.projectPoint(pos, renderer.getRenderProperties());
-                    double distOnScreen = Math.sqrt(Math.pow(centerProjected.x - x, 2) + Math.pow(centerProjected.y - y, 2));
-                    if (distOnScreen <= 10) {
-                        synchronized (clicked) {
-                            clicked.add(entity);
-                        }
-                    }
+            ArrayList<RenderEntity<?>> nearby = new ArrayList<>();
+            feature.collectNearby(renderer, x, y, 10, renderer.getRenderProperties(), nearby);
+            if (!nearby.isEmpty()) {
+                synchronized (clicked) {
+                    clicked.addAll(nearby);
                 }
             }
         });
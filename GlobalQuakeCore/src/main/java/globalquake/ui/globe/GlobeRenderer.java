@@ -98,6 +98,68 @@ public class GlobeRenderer {
         return point2D;
     }
 
+    /**
+     * Projects many surface points at once. Points are given as unit vectors (see {@link #getX_3D} etc. divided
+     * by the Earth radius), points behind the horizon or further than margin pixels off-screen are skipped.
+     *
+     * @return the number of visible points, whose indices are written into visibleIndices
+     */
+    public int projectSurfacePoints(float[] unitX, float[] unitY, float[] unitZ, int count,
+                                    float[] screenX, float[] screenY, int[] visibleIndices, double margin,
+                                    RenderProperties renderProperties) {
+        RenderPrecomputedValues precomputed = renderProperties.getRenderPrecomputedValues();
+        double cameraZ = GeoUtils.EARTH_RADIUS + precomputed.camera_altitude;
+        double camX = precomputed.cameraPoint.getX();
+        double camY = precomputed.cameraPoint.getY();
+        double camZ = precomputed.cameraPoint.getZ();
+
+        // |camera - point| <= maxDistance rewritten as a single dot product threshold
+        double horizonDot = (camX * camX + camY * camY + camZ * camZ + GeoUtils.EARTH_RADIUS * GeoUtils.EARTH_RADIUS
+                - precomputed.maxDistance * precomputed.maxDistance) / (2.0 * GeoUtils.EARTH_RADIUS);
+
+        double cosYaw = precomputed.cosYaw;
+        double sinYaw = precomputed.sinYaw;
+        double cosPitch = precomputed.cosPitch;
+        double sinPitch = precomputed.sinPitch;
+        double focal = projectionMatrix[3][2];
+        int width = renderProperties.width;
+        int height = renderProperties.height;
+
+        int visible = 0;
+        for (int i = 0; i < count; i++) {
+            double x = unitX[i];
+            double y = unitY[i];
+            double z = unitZ[i];
+
+            if (x * camX + y * camY + z * camZ < horizonDot) {
+                continue;
+            }
+
+            x *= GeoUtils.EARTH_RADIUS;
+            y *= GeoUtils.EARTH_RADIUS;
+            z *= GeoUtils.EARTH_RADIUS;
+
+            double newX = x * cosYaw + z * sinYaw;
+            double newZ = z * cosYaw - x * sinYaw;
+            double newY = y * cosPitch - newZ * sinPitch;
+            newZ = newZ * cosPitch + y * sinPitch - cameraZ;
+
+            double w = newZ * focal;
+            double sx = (newX / w + 1.0) * width - width / 2.0;
+            double sy = (1.0 - newY / w) * width - width + height / 2.0;
+
+            if (sx < -margin || sy < -margin || sx > width + margin || sy > height + margin) {
+                continue;
+            }
+
+            screenX[i] = (float) sx;
+            screenY[i] = (float) sy;
+            visibleIndices[visible++] = i;
+        }
+
+        return visible;
+    }
+
     public boolean project3D(Path2D.Float result, Polygon3D polygon3D, boolean canClip, RenderProperties renderProperties) {
         if (polygon3D == null || polygon3D.getBoundingBoxCorner(0) == null) {
             return false;
@@ -390,11 +452,9 @@ public class GlobeRenderer {
 
     public <E> List<E> getAllInside(RenderFeature<E> renderFeature, Shape shape, RenderProperties renderPropertiesLocal) {
         List<E> result = new ArrayList<>();
-        renderFeature.getEntities().forEach(renderEntity -> {
-            if (isMouseInside(renderFeature.getCenterCoords(renderEntity), shape, renderPropertiesLocal)) {
-                result.add(renderEntity.getOriginal());
-            }
-        });
+        if (shape != null) {
+            renderFeature.collectInside(this, shape, renderPropertiesLocal, result);
+        }
         return result;
     }
 
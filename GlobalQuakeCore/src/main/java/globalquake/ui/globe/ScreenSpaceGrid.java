@@ -0,0 +1,154 @@
+package globalquake.ui.globe;
+
+import java.awt.geom.Rectangle2D;
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Uniform grid over the screen used to look up projected points near a position
+ * without testing every point. Rebuilt whenever the points are projected again.
+ */
+public class ScreenSpaceGrid {
+
+    private final int cellSize;
+
+    private int cols;
+    private int rows;
+    private int[] cellStart = new int[1];
+    private int[] cellFill = new int[0];
+    private int[] items = new int[0];
+
+    private float[] xs;
+    private float[] ys;
+
+    public ScreenSpaceGrid(int cellSize) {
+        this.cellSize = cellSize;
+    }
+
+    /**
+     * @param xs      screen x coordinates, indexed by point index
+     * @param ys      screen y coordinates, indexed by point index
+     * @param indices indices of the points that should be inserted
+     * @param count   number of valid entries in indices
+     */
+    public void build(float[] xs, float[] ys, int[] indices, int count, int width, int height) {
+        this.xs = xs;
+        this.ys = ys;
+        cols = Math.max(1, (width + cellSize - 1) / cellSize);
+        rows = Math.max(1, (height + cellSize - 1) / cellSize);
+
+        int cells = cols * rows;
+        if (cellStart.length < cells + 1) {
+            cellStart = new int[cells + 1];
+            cellFill = new int[cells];
+        } else {
+            Arrays.fill(cellStart, 0, cells + 1, 0);
+        }
+
+        if (items.length < count) {
+            items = new int[count];
+        }
+
+        for (int i = 0; i < count; i++) {
+            int index = indices[i];
+            cellStart[cellOf(xs[index], ys[index]) + 1]++;
+        }
+
+        for (int c = 0; c < cells; c++) {
+            cellStart[c + 1] += cellStart[c];
+        }
+
+        System.arraycopy(cellStart, 0, cellFill, 0, cells);
+
+        for (int i = 0; i < count; i++) {
+            int index = indices[i];
+            items[cellFill[cellOf(xs[index], ys[index])]++] = index;
+        }
+    }
+
+    private int cellOf(double x, double y) {
+        return row(y) * cols + col(x);
+    }
+
+    private int col(double x) {
+        return Math.max(0, Math.min(cols - 1, (int) Math.floor(x / cellSize)));
+    }
+
+    private int row(double y) {
+        return Math.max(0, Math.min(rows - 1, (int) Math.floor(y / cellSize)));
+    }
+
+    /**
+     * Calls the consumer for every point within radius pixels of (x, y)
+     */
+    public void forEachNear(double x, double y, double radius, IntConsumer consumer) {
+        if (xs == null) {
+            return;
+        }
+
+        double radiusSq = radius * radius;
+        int c0 = col(x - radius);
+        int c1 = col(x + radius);
+        int r0 = row(y - radius);
+        int r1 = row(y + radius);
+
+        for (int r = r0; r <= r1; r++) {
+            for (int c = c0; c <= c1; c++) {
+                int cell = r * cols + c;
+                for (int i = cellStart[cell]; i < cellStart[cell + 1]; i++) {
+                    int index = items[i];
+                    double dx = xs[index] - x;
+                    double dy = ys[index] - y;
+                    if (dx * dx + dy * dy <= radiusSq) {
+                        consumer.accept(index);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Calls the consumer for every point inside the rectangle
+     */
+    public void forEachInside(Rectangle2D bounds, IntConsumer consumer) {
+        if (xs == null) {
+            return;
+        }
+
+        int c0 = col(bounds.getMinX());
+        int c1 = col(bounds.getMaxX());
+        int r0 = row(bounds.getMinY());
+        int r1 = row(bounds.getMaxY());
+
+        for (int r = r0; r <= r1; r++) {
+            for (int c = c0; c <= c1; c++) {
+                int cell = r * cols + c;
+                for (int i = cellStart[cell]; i < cellStart[cell + 1]; i++) {
+                    int index = items[i];
+                    if (bounds.contains(xs[index], ys[index])) {
+                        consumer.accept(index);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @return index of the closest point within radius pixels of (x, y) or -1 if there is none
+     */
+    public int findNearest(double x, double y, double radius) {
+        double[] best = {Double.MAX_VALUE};
+        int[] bestIndex = {-1};
+        forEachNear(x, y, radius, index -> {
+            double dx = xs[index] - x;
+            double dy = ys[index] - y;
+            double dist = dx * dx + dy * dy;
+            if (dist < best[0]) {
+                best[0] = dist;
+                bestIndex[0] = index;
+            }
+        });
+
+        return bestIndex[0];
+    }
+}
@@ -0,0 +1,86 @@
+package globalquake.ui.globe.feature;
+
+import globalquake.ui.globe.GlobeRenderer;
+import globalquake.ui.globe.Point2D;
+import globalquake.ui.globe.RenderProperties;
+import globalquake.ui.globe.ScreenSpaceGrid;
+import globalquake.utils.GeoUtils;
+
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Screen positions of the entity centers of one feature, projected in one pass and put into a {@link ScreenSpaceGrid},
+ * so that hover, click and drag selection look only at the entities around the queried position.
+ * Immutable once built, valid for the render properties and the projection it was built from.
+ */
+public final class EntityScreenIndex<E> {
+
+    private static final double SCREEN_MARGIN = 32.0;
+    private static final int GRID_CELL_SIZE = 16;
+
+    private final RenderProperties renderProperties;
+    private final int revision;
+
+    private final List<RenderEntity<E>> entities;
+    private final float[] screenX;
+    private final float[] screenY;
+    private final ScreenSpaceGrid grid = new ScreenSpaceGrid(GRID_CELL_SIZE);
+
+    EntityScreenIndex(RenderFeature<E> feature, GlobeRenderer renderer, RenderProperties renderProperties, int revision) {
+        this.renderProperties = renderProperties;
+        this.revision = revision;
+
+        entities = new ArrayList<>(feature.getEntities().size());
+        List<Point2D> centers = new ArrayList<>(feature.getEntities().size());
+        for (RenderEntity<E> entity : feature.getEntities()) {
+            Point2D center = feature.getCenterCoords(entity);
+            if (center != null) {
+                entities.add(entity);
+                centers.add(center);
+            }
+        }
+
+        int count = entities.size();
+        float[] unitX = new float[count];
+        float[] unitY = new float[count];
+        float[] unitZ = new float[count];
+        for (int i = 0; i < count; i++) {
+            Point2D center = centers.get(i);
+            unitX[i] = (float) (GlobeRenderer.getX_3D(center.x, center.y, 0) / GeoUtils.EARTH_RADIUS);
+            unitY[i] = (float) (GlobeRenderer.getY_3D(center.x, center.y, 0) / GeoUtils.EARTH_RADIUS);
+            unitZ[i] = (float) (GlobeRenderer.getZ_3D(center.x, center.y, 0) / GeoUtils.EARTH_RADIUS);
+        }
+
+        screenX = new float[count];
+        screenY = new float[count];
+        int[] visible = new int[count];
+        int visibleCount = renderer.projectSurfacePoints(unitX, unitY, unitZ, count,
+                screenX, screenY, visible, SCREEN_MARGIN, renderProperties);
+        grid.build(screenX, screenY, visible, visibleCount, renderProperties.width, renderProperties.height);
+    }
+
+    boolean isValid(RenderProperties renderProperties, int revision) {
+        return this.renderProperties == renderProperties && this.revision == revision;
+    }
+
+    /**
+     * Calls the consumer for every entity whose center is within radius pixels of (x, y)
+     */
+    public void forEachNear(double x, double y, double radius, Consumer<RenderEntity<E>> consumer) {
+        grid.forEachNear(x, y, radius, index -> consumer.accept(entities.get(index)));
+    }
+
+    /**
+     * Calls the consumer for every entity whose center is inside the shape
+     */
+    public void forEachInside(Shape shape, Consumer<RenderEntity<E>> consumer) {
+        grid.forEachInside(shape.getBounds2D(), index -> {
+            if (shape.contains(screenX[index], screenY[index])) {
+                consumer.accept(entities.get(index));
+            }
+        });
+    }
+}
@@ -10,7 +10,12 @@ import org.tinylog.Logger;
 import java.awt.*;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public abstract class RenderFeature<E> {
 
@@ -25,6 +30,10 @@ public abstract class RenderFeature<E> {
     private ConcurrentHashMap<E, RenderEntity<E>> entities = new ConcurrentHashMap<>();
     private ConcurrentHashMap<E, RenderEntity<E>> entities_temp = new ConcurrentHashMap<>();
 
+    // changes whenever the entities or their projection change, see getScreenIndex
+    private final AtomicInteger projectionRevision = new AtomicInteger();
+    private volatile EntityScreenIndex<E> screenIndex;
+
     public RenderFeature(int renderElements) {
         this.renderElements = renderElements;
     }
@@ -52,6 +61,7 @@ public abstract class RenderFeature<E> {
             getElements().parallelStream().forEach(element -> entities_temp.put(element, entities.getOrDefault(element, new RenderEntity<>(element, renderElements))));
             swapEntities();
             entities_temp.clear();
+            projectionRevision.incrementAndGet();
 
             lastHash = hash;
             return true;
@@ -93,12 +103,37 @@ public abstract class RenderFeature<E> {
         boolean propertiesChanged = propertiesChanged(renderProperties) || settingsChanged;
 
         boolean finalEntitiesUpdated = entitiesUpdated;
+        AtomicBoolean projected = new AtomicBoolean(false);
         getEntities().parallelStream().forEach(entity -> {
             if (finalEntitiesUpdated || settingsChanged || needsCreatePolygon(entity, propertiesChanged))
                 createPolygon(renderer, entity, renderProperties);
-            if (finalEntitiesUpdated || settingsChanged || needsProject(entity, propertiesChanged))
+            if (finalEntitiesUpdated || settingsChanged || needsProject(entity, propertiesChanged)) {
                 project(renderer, entity, renderProperties);
+                projected.lazySet(true);
+            }
         });
+
+        if (projected.get()) {
+            projectionRevision.incrementAndGet();
+        }
+    }
+
+    /**
+     * Screen positions of the entity centers. The index is built on the first query after the entities were
+     * projected again, so all the queries of one frame share a single projection pass.
+     */
+    public final EntityScreenIndex<E> getScreenIndex(GlobeRenderer renderer, RenderProperties renderProperties) {
+        int revision = projectionRevision.get();
+        EntityScreenIndex<E> index = screenIndex;
+        if (index == null || !index.isValid(renderProperties, revision)) {
+            synchronized (this) {
+                index = screenIndex;
+                if (index == null || !index.isValid(renderProperties, revision)) {
+                    screenIndex = index = new EntityScreenIndex<>(this, renderer, renderProperties, revision);
+                }
+            }
+        }
+        return index;
     }
 
     public final Collection<RenderEntity<E>> getEntities() {
@@ -123,4 +158,38 @@ public abstract class RenderFeature<E> {
     }
 
     public abstract Point2D getCenterCoords(RenderEntity<?> entity);
+
+    /**
+     * Adds all visible entities whose center is within radius pixels of the given screen position
+     */
+    public void collectNearby(GlobeRenderer renderer, double x, double y, double radius,
+                              RenderProperties renderProperties, List<RenderEntity<?>> result) {
+        getScreenIndex(renderer, renderProperties).forEachNear(x, y, radius, entity -> {
+            if (isEntityVisible(entity)) {
+                result.add(entity);
+            }
+        });
+    }
+
+    /**
+     * @return entities whose center is within radius pixels of the last mouse position,
+     * empty if the mouse has not moved recently. Meant to be evaluated once per frame instead of once per entity
+     */
+    protected final Set<RenderEntity<E>> findNearMouse(GlobeRenderer renderer, double radius, RenderProperties renderProperties) {
+        Point mouse = renderer.getLastMouse();
+        if (mouse == null || !renderer.hasMouseMovedRecently()) {
+            return Set.of();
+        }
+
+        Set<RenderEntity<E>> result = new HashSet<>();
+        getScreenIndex(renderer, renderProperties).forEachNear(mouse.x, mouse.y, radius, result::add);
+        return result;
+    }
+
+    /**
+     * Adds the original elements of all entities whose center is inside the shape on the screen
+     */
+    public void collectInside(GlobeRenderer renderer, Shape shape, RenderProperties renderProperties, List<E> result) {
+        getScreenIndex(renderer, renderProperties).forEachInside(shape, entity -> result.add(entity.getOriginal()));
+    }
 }
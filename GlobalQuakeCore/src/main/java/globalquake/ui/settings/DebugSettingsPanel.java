@@ -9,6 +9,7 @@ import javax.swing.border.EmptyBorder;
 public class DebugSettingsPanel extends SettingsPanel {
 
     private final JCheckBox chkBoxReports;
+    private final JSlider sliderCompression;
     private final JCheckBox chkBoxCoreWaves;
     private final JCheckBox chkBoxConfidencePolygons;
     private final JCheckBox chkBoxRevisions;
@@ -19,6 +20,17 @@ public class DebugSettingsPanel extends SettingsPanel {
 
         add(chkBoxReports = new JCheckBox("Enable Earthquake Reports", Settings.reportsEnabled));
         add(new JLabel("     Reports will be stored in %s".formatted(EarthquakeReporter.ANALYSIS_FOLDER.getPath())));
+
+        JPanel compressionPanel = new JPanel();
+        compressionPanel.setLayout(new BoxLayout(compressionPanel, BoxLayout.X_AXIS));
+        compressionPanel.add(new JLabel("     Report images compression (0 = fastest, 9 = smallest): "));
+        sliderCompression = new JSlider(JSlider.HORIZONTAL, 0, 9, Settings.reportsCompressionLevel);
+        sliderCompression.setMajorTickSpacing(1);
+        sliderCompression.setPaintTicks(true);
+        sliderCompression.setPaintLabels(true);
+        compressionPanel.add(sliderCompression);
+        add(compressionPanel);
+
         add(chkBoxCoreWaves = new JCheckBox("Display PKP and PKIKP Waves", Settings.displayCoreWaves));
         add(chkBoxConfidencePolygons = new JCheckBox("Display epicenter confidence polygons", Settings.confidencePolygons));
         add(chkBoxRevisions = new JCheckBox("Reduce number of revisions", Settings.reduceRevisions));
@@ -27,6 +39,7 @@ public class DebugSettingsPanel extends SettingsPanel {
     @Override
     public void save() {
         Settings.reportsEnabled = chkBoxReports.isSelected();
+        Settings.reportsCompressionLevel = sliderCompression.getValue();
         Settings.displayCoreWaves = chkBoxCoreWaves.isSelected();
         Settings.confidencePolygons = chkBoxConfidencePolygons.isSelected();
         Settings.reduceRevisions = chkBoxRevisions.isSelected();
@@ -15,13 +15,19 @@ import gqserver.api.packets.station.InputType;
 
 import java.awt.*;
 import java.util.Collection;
+import java.util.HashSet;
 import java.util.Optional;
+import java.util.Set;
 
 public class FeatureSelectableStation extends RenderFeature<Station> {
 
     private final MonitorableCopyOnWriteArrayList<Station> allStationsList;
     private final StationSelectPanel stationSelectPanel;
 
+    // evaluated once per frame from the screen index
+    private Set<RenderEntity<Station>> nearMouse = Set.of();
+    private Set<RenderEntity<Station>> insideDrag = Set.of();
+
     public FeatureSelectableStation(MonitorableCopyOnWriteArrayList<Station> allStationsList, StationSelectPanel stationSelectPanel) {
         super(1);
         this.allStationsList = allStationsList;
@@ -85,6 +91,22 @@ public class FeatureSelectableStation extends RenderFeature<Station> {
                 entity.getRenderElement(0).getShape(), entity.getRenderElement(0).getPolygon(), true, renderProperties);
     }
 
+    @Override
+    public void renderAll(GlobeRenderer renderer, Graphics2D graphics, RenderProperties properties) {
+        nearMouse = properties.scroll < 1 ? findNearMouse(renderer, 10.0, properties) : Set.of();
+
+        Rectangle dragRectangle = stationSelectPanel.getDragRectangle();
+        if (dragRectangle != null) {
+            Set<RenderEntity<Station>> inside = new HashSet<>();
+            getScreenIndex(renderer, properties).forEachInside(dragRectangle, inside::add);
+            insideDrag = inside;
+        } else {
+            insideDrag = Set.of();
+        }
+
+        super.renderAll(renderer, graphics, properties);
+    }
+
     @Override
     public void render(GlobeRenderer renderer, Graphics2D graphics, RenderEntity<Station> entity, RenderProperties renderProperties) {
         RenderElement element = entity.getRenderElement(0);
@@ -96,21 +118,21 @@ public class FeatureSelectableStation extends RenderFeature<Station> {
         graphics.setColor(Color.BLACK);
         graphics.draw(element.getShape());
 
-        boolean mouseNearby = renderer.isMouseNearby(getCenterCoords(entity), 10.0, true, renderProperties) && renderProperties.scroll < 1;
+        boolean mouseNearby = nearMouse.contains(entity);
 
-        if (mouseNearby || renderer.isMouseInside(getCenterCoords(entity), stationSelectPanel.getDragRectangle(), renderProperties)) {
+        if (mouseNearby || insideDrag.contains(entity)) {
             graphics.setColor(Color.yellow);
             graphics.draw(element.getShape());
         }
 
         var centerCoords = getCenterCoords(entity);
-        var point3D = GlobeRenderer.createVec3D(centerCoords);
-        var centerPonint = renderer.projectPoint(point3D, renderProperties);
 
         if (mouseNearby) {
+            var centerPonint = renderer.projectPoint(GlobeRenderer.createVec3D(centerCoords), renderProperties);
             drawInfo(graphics, (int) centerPonint.x, (int) centerPonint.y, entity.getOriginal());
         } else if (entity.getOriginal().getSelectedChannel() != null && entity.getOriginal().getSelectedChannel().isAvailable()
-                && renderer.getAngularDistance(centerCoords, renderProperties) < 25.0 && renderProperties.scroll < 0.75) {
+                && renderProperties.scroll < 0.75 && renderer.getAngularDistance(centerCoords, renderProperties) < 25.0) {
+            var centerPonint = renderer.projectPoint(GlobeRenderer.createVec3D(centerCoords), renderProperties);
             Optional<Long> minDelay = entity.getOriginal().getSelectedChannel().getSeedlinkNetworks().values().stream().min(Long::compare);
 
             int x = (int) (centerPonint.x + 10);
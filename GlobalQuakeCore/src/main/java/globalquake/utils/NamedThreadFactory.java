@@ -6,15 +6,25 @@ import java.util.concurrent.ThreadFactory;
 public class NamedThreadFactory implements ThreadFactory {
 
     private final String name;
+    private final boolean daemon;
 
     public NamedThreadFactory(String name) {
+        this(name, false);
+    }
+
+    /**
+     * @param daemon whether the threads are daemon threads that do not keep the JVM running
+     */
+    public NamedThreadFactory(String name, boolean daemon) {
         this.name = name;
+        this.daemon = daemon;
     }
 
     @Override
     public Thread newThread(@Nonnull Runnable r) {
         Thread t = new Thread(r);
         t.setName(name);
+        t.setDaemon(daemon);
         return t;
     }
 
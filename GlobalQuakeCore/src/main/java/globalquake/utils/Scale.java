@@ -26,6 +26,28 @@ public class Scale {
         return Settings.useOldColorScheme ? getColorRatioOld(ratio) : getColorRatioNew(ratio);
     }
 
+    /**
+     * Same as {@link #getColorRatio(double)} but returns the packed RGB value, so that callers
+     * that only need to bucket or cache by color do not allocate a new {@link Color}
+     */
+    public static int getRGBRatio(double ratio) {
+        if (Settings.useOldColorScheme) {
+            int i = (int) (Math.log10(ratio) * 20.0);
+            return pgaScale.getRGB(0, Math.max(0, Math.min(pgaScale.getHeight() - 1, i)));
+        }
+
+        if (ENABLE_INTERPOLATION) {
+            return getColorRatioNew(ratio).getRGB();
+        }
+
+        if (ratio < 1) {
+            return pgaScale.getRGB(0, 0);
+        }
+
+        int i1 = (int) (Math.pow(ratio - 1.0, EXPONENT) / K * (pgaScale.getHeight() - 1));
+        return pgaScale.getRGB(0, Math.max(0, Math.min(pgaScale.getHeight() - 1, i1)));
+    }
+
     public static Color getColorRatioOld(double ratio) {
         int i = (int) (Math.log10(ratio) * 20.0);
         return new Color(pgaScale.getRGB(0, Math.max(0, Math.min(pgaScale.getHeight() - 1, i))));
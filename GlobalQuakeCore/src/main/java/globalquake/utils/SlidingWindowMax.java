@@ -0,0 +1,103 @@
+package globalquake.utils;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Maximum of the last N values for several window lengths at once.
+ * Every window keeps a monotonic deque of positions in a primitive ring, so adding a value is amortized O(1)
+ * and does not allocate. The current maxima are published after every change and can be read from any thread without locking.
+ */
+public class SlidingWindowMax {
+
+    private final int[] windows;
+
+    // the last values, indexed by their position modulo the capacity
+    private final double[] values;
+    private long count;
+
+    // per window ring of positions whose values are decreasing from head to tail
+    private final long[][] deques;
+    private final int[] heads;
+    private final int[] sizes;
+
+    private final AtomicLongArray maxima;
+
+    /**
+     * @param windows window lengths in number of values
+     */
+    public SlidingWindowMax(int... windows) {
+        if (windows.length == 0) {
+            throw new IllegalArgumentException("At least one window is needed");
+        }
+
+        int capacity = 0;
+        for (int window : windows) {
+            if (window <= 0) {
+                throw new IllegalArgumentException("Window length must be positive, got %d".formatted(window));
+            }
+            capacity = Math.max(capacity, window);
+        }
+
+        this.windows = windows.clone();
+        this.values = new double[capacity];
+        this.deques = new long[windows.length][];
+        for (int i = 0; i < windows.length; i++) {
+            deques[i] = new long[windows[i]];
+        }
+        this.heads = new int[windows.length];
+        this.sizes = new int[windows.length];
+        this.maxima = new AtomicLongArray(windows.length);
+        clear();
+    }
+
+    public synchronized void add(double value) {
+        long position = count++;
+        values[(int) (position % values.length)] = value;
+
+        for (int w = 0; w < windows.length; w++) {
+            long[] deque = deques[w];
+            int window = windows[w];
+
+            // values that are not greater than the new one can never be the maximum again
+            while (sizes[w] > 0 && valueAt(deque[(heads[w] + sizes[w] - 1) % window]) <= value) {
+                sizes[w]--;
+            }
+
+            // positions that left the window
+            while (sizes[w] > 0 && deque[heads[w]] <= position - window) {
+                heads[w] = (heads[w] + 1) % window;
+                sizes[w]--;
+            }
+
+            deque[(heads[w] + sizes[w]) % window] = position;
+            sizes[w]++;
+
+            maxima.set(w, Double.doubleToRawLongBits(valueAt(deque[heads[w]])));
+        }
+    }
+
+    private double valueAt(long position) {
+        return values[(int) (position % values.length)];
+    }
+
+    /**
+     * @param window index of the window as given in the constructor
+     * @return maximum of the values in the window or 0 if there are none
+     */
+    public double getMax(int window) {
+        return Double.longBitsToDouble(maxima.get(window));
+    }
+
+    public synchronized long getCount() {
+        return count;
+    }
+
+    public synchronized void clear() {
+        count = 0;
+        for (int w = 0; w < windows.length; w++) {
+            heads[w] = 0;
+            sizes[w] = 0;
+            maxima.set(w, Double.doubleToRawLongBits(0.0));
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package globalquake.utils;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded lock free queue for exactly one producer thread and one consumer thread.
+ * Each side writes only its own position, so offering and polling need no locks or CAS loops.
+ */
+public class SpscQueue<T> {
+
+    private final Object[] buffer;
+    private final int mask;
+
+    // next position to read, written only by the consumer
+    private final AtomicLong head = new AtomicLong();
+    // next position to write, written only by the producer
+    private final AtomicLong tail = new AtomicLong();
+
+    /**
+     * @param capacity rounded up to the nearest power of two
+     */
+    public SpscQueue(int capacity) {
+        if (capacity < 1 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("Invalid capacity %d".formatted(capacity));
+        }
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size <<= 1;
+        }
+        buffer = new Object[size];
+        mask = size - 1;
+    }
+
+    /**
+     * Called only from the producer thread
+     *
+     * @return false if the queue is full
+     */
+    public boolean offer(T value) {
+        long t = tail.get();
+        if (t - head.get() == buffer.length) {
+            return false;
+        }
+        buffer[(int) (t & mask)] = value;
+        tail.lazySet(t + 1);
+        return true;
+    }
+
+    /**
+     * Called only from the consumer thread
+     *
+     * @return the oldest value or null if the queue is empty
+     */
+    @SuppressWarnings("unchecked")
+    public T poll() {
+        long h = head.get();
+        if (h == tail.get()) {
+            return null;
+        }
+        int index = (int) (h & mask);
+        T value = (T) buffer[index];
+        buffer[index] = null;
+        head.lazySet(h + 1);
+        return value;
+    }
+
+    /**
+     * @return number of queued values, only a snapshot when called while the other side is active
+     */
+    public int size() {
+        long h = head.get();
+        return (int) Math.max(0, tail.get() - h);
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    public int capacity() {
+        return buffer.length;
+    }
+}
@@ -0,0 +1,225 @@
+package globalquake.utils.monitorable;
+
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Live entities indexed by their UUID. Adding, replacing, removing and looking up an entity is O(1), readers iterate
+ * over an immutable snapshot in the order the entities were added. Unlike {@link MonitorableCopyOnWriteArrayList},
+ * the snapshot is copied only on the first read after a change, so a burst of changes costs one copy.
+ * The revision changes with every change of the set and with every {@link #update(Object)} of an entity,
+ * renderers compare it to find out if they have to rebuild.
+ */
+public class MonitorableRegistry<E> extends AbstractList<E> implements Monitorable, RandomAccess {
+
+    private final Function<E, UUID> keyFunction;
+    private final Map<UUID, E> entities = new LinkedHashMap<>();
+
+    private volatile List<E> snapshot = List.of();
+    private volatile int revision = 0;
+
+    public MonitorableRegistry(Function<E, UUID> keyFunction) {
+        this.keyFunction = keyFunction;
+    }
+
+    /**
+     * @return the entity with the given UUID or null
+     */
+    public synchronized E get(UUID uuid) {
+        return entities.get(uuid);
+    }
+
+    /**
+     * Adds the entity, or replaces the entity with the same UUID and keeps its position
+     */
+    @Override
+    public synchronized boolean add(E e) {
+        E previous = entities.put(keyFunction.apply(Objects.requireNonNull(e)), e);
+        if (previous != e) {
+            changed();
+        }
+        return true;
+    }
+
+    @Override
+    public synchronized boolean addAll(Collection<? extends E> c) {
+        boolean changed = false;
+        for (E e : c) {
+            changed |= entities.put(keyFunction.apply(Objects.requireNonNull(e)), e) != e;
+        }
+        if (changed) {
+            changed();
+        }
+        return !c.isEmpty();
+    }
+
+    /**
+     * Marks the entity as modified, so that the renderers pick up the change
+     *
+     * @return false if the entity is not in the registry
+     */
+    public synchronized boolean update(E e) {
+        if (entities.get(keyFunction.apply(e)) != e) {
+            return false;
+        }
+        revision++;
+        noteChange();
+        return true;
+    }
+
+    /**
+     * @return the removed entity or null
+     */
+    public synchronized E remove(UUID uuid) {
+        E removed = entities.remove(uuid);
+        if (removed != null) {
+            changed();
+        }
+        return removed;
+    }
+
+    @Override
+    public synchronized boolean remove(Object o) {
+        UUID uuid = keyOf(o);
+        if (uuid == null || !o.equals(entities.get(uuid))) {
+            return false;
+        }
+
+        entities.remove(uuid);
+        changed();
+        return true;
+    }
+
+    @Override
+    public synchronized boolean removeAll(Collection<?> c) {
+        boolean changed = false;
+        for (Object o : c) {
+            changed |= remove(o);
+        }
+        return changed;
+    }
+
+    @Override
+    public synchronized boolean removeIf(Predicate<? super E> filter) {
+        if (entities.values().removeIf(filter)) {
+            changed();
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public boolean retainAll(Collection<?> c) {
+        return removeIf(e -> !c.contains(e));
+    }
+
+    @Override
+    public synchronized void clear() {
+        if (!entities.isEmpty()) {
+            entities.clear();
+            changed();
+        }
+    }
+
+    @Override
+    public synchronized boolean contains(Object o) {
+        UUID uuid = keyOf(o);
+        return uuid != null && o.equals(entities.get(uuid));
+    }
+
+    @SuppressWarnings("unchecked")
+    private UUID keyOf(Object o) {
+        if (o == null) {
+            return null;
+        }
+
+        try {
+            return keyFunction.apply((E) o);
+        } catch (ClassCastException e) {
+            return null;
+        }
+    }
+
+    private void changed() {
+        snapshot = null;
+        revision++;
+        noteChange();
+    }
+
+    /**
+     * @return immutable list of the entities at this moment
+     */
+    public List<E> snapshot() {
+        List<E> result = snapshot;
+        if (result == null) {
+            synchronized (this) {
+                result = snapshot;
+                if (result == null) {
+                    snapshot = result = List.copyOf(entities.values());
+                }
+            }
+        }
+        return result;
+    }
+
+    public int getRevision() {
+        return revision;
+    }
+
+    @Override
+    public int getMonitorState() {
+        return revision;
+    }
+
+    @Override
+    public E get(int index) {
+        return snapshot().get(index);
+    }
+
+    @Override
+    public int size() {
+        return snapshot().size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return snapshot().isEmpty();
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        return snapshot().iterator();
+    }
+
+    @Override
+    public ListIterator<E> listIterator(int index) {
+        return snapshot().listIterator(index);
+    }
+
+    @Override
+    public List<E> subList(int fromIndex, int toIndex) {
+        return snapshot().subList(fromIndex, toIndex);
+    }
+
+    @Override
+    public Spliterator<E> spliterator() {
+        return snapshot().spliterator();
+    }
+
+    @Override
+    public void forEach(Consumer<? super E> action) {
+        snapshot().forEach(action);
+    }
+
+    @Override
+    public Object[] toArray() {
+        return snapshot().toArray();
+    }
+
+    @Override
+    public <T> T[] toArray(T[] a) {
+        return snapshot().toArray(a);
+    }
+}
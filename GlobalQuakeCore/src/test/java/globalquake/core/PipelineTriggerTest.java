@@ -0,0 +1,95 @@
+package globalquake.core;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class PipelineTriggerTest {
+
+    @Test
+    public void testCoalescing() throws InterruptedException {
+        ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+        try {
+            CountDownLatch started = new CountDownLatch(1);
+            CountDownLatch release = new CountDownLatch(1);
+            AtomicInteger runs = new AtomicInteger();
+
+            PipelineTrigger trigger = new PipelineTrigger(executor, () -> {
+                if (runs.incrementAndGet() == 1) {
+                    started.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        throw new RuntimeException(e);
+                    }
+                }
+            }, 0, 0);
+
+            trigger.signal();
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+
+            // all the signals during the first run end up in one more run
+            for (int i = 0; i < 1000; i++) {
+                trigger.signal();
+            }
+            release.countDown();
+
+            waitForRuns(trigger, 2);
+            Thread.sleep(50);
+            assertEquals(2, runs.get());
+            assertEquals(1001, trigger.getSignals());
+
+            trigger.signal();
+            waitForRuns(trigger, 3);
+            assertEquals(3, runs.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testMinInterval() throws InterruptedException {
+        ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+        try {
+            long[] times = new long[2];
+            AtomicInteger runs = new AtomicInteger();
+            PipelineTrigger trigger = new PipelineTrigger(executor, () -> times[runs.getAndIncrement()] = System.currentTimeMillis(), 200, 0);
+
+            trigger.signal();
+            waitForRuns(trigger, 1);
+            trigger.signal();
+            waitForRuns(trigger, 2);
+
+            assertTrue(times[1] - times[0] >= 190);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testIdleRuns() throws InterruptedException {
+        ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+        try {
+            PipelineTrigger trigger = new PipelineTrigger(executor, () -> {
+            }, 0, 20);
+            trigger.start();
+            waitForRuns(trigger, 3);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void waitForRuns(PipelineTrigger trigger, long runs) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (trigger.getRuns() < runs) {
+            assertTrue("Trigger did not run in time", System.currentTimeMillis() < deadline);
+            Thread.sleep(1);
+        }
+    }
+}
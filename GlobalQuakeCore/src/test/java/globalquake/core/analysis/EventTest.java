@@ -0,0 +1,30 @@
+package globalquake.core.analysis;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class EventTest {
+
+    @Test
+    public void testClusterRevision() {
+        Event event = new Event(null);
+        long revision = event.getClusterRevision();
+
+        // growing ratio below the level thresholds is not a change for the clusters
+        event.maxRatio = 10;
+        event.maxRatio = 50;
+        assertEquals(revision, event.getClusterRevision());
+
+        event.maxRatio = 64;
+        assertNotEquals(revision, event.getClusterRevision());
+        revision = event.getClusterRevision();
+
+        event.end(1000);
+        assertNotEquals(revision, event.getClusterRevision());
+        revision = event.getClusterRevision();
+
+        event.endBadly();
+        assertNotEquals(revision, event.getClusterRevision());
+    }
+}
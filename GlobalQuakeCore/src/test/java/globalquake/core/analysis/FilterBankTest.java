@@ -0,0 +1,98 @@
+package globalquake.core.analysis;
+
+import org.junit.Test;
+import uk.me.berndporr.iirj.Butterworth;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class FilterBankTest {
+
+    private static final double[] MIN_FREQS = {BetterAnalysis.minFreqDefault, BetterAnalysis.minFreqLow, BetterAnalysis.minFreqUltraLow};
+    private static final double[] MAX_FREQS = {BetterAnalysis.maxFreqDefault, BetterAnalysis.maxFreqLow, BetterAnalysis.maxFreqUltraLow};
+
+    private static double[] createSignal(int length, double sampleRate) {
+        Random random = new Random(7);
+        double[] signal = new double[length];
+        for (int i = 0; i < length; i++) {
+            double t = i / sampleRate;
+            signal[i] = 5000 * Math.sin(2 * Math.PI * 3.0 * t) + 20000 * Math.sin(2 * Math.PI * 0.05 * t)
+                    + random.nextGaussian() * 1000 + (i > length / 2 ? 50000 : 0);
+        }
+        return signal;
+    }
+
+    private static Butterworth[] createReference(double sampleRate) {
+        Butterworth[] filters = new Butterworth[MIN_FREQS.length];
+        for (int band = 0; band < filters.length; band++) {
+            filters[band] = new Butterworth();
+            filters[band].bandPass(FilterBank.ORDER, sampleRate, (MIN_FREQS[band] + MAX_FREQS[band]) * 0.5, MAX_FREQS[band] - MIN_FREQS[band]);
+        }
+        return filters;
+    }
+
+    @Test
+    public void testMatchesButterworth() {
+        for (double sampleRate : new double[]{20, 40, 100, 200}) {
+            double[] signal = createSignal((int) (sampleRate * 600), sampleRate);
+            Butterworth[] reference = createReference(sampleRate);
+            FilterBank bank = new FilterBank(sampleRate, MIN_FREQS, MAX_FREQS);
+
+            for (double value : signal) {
+                bank.accept(value);
+                for (int band = 0; band < reference.length; band++) {
+                    double expected = reference[band].filter(value);
+                    // differs only by rounding, the input is in the order of 1e4
+                    assertEquals(expected, bank.getOutput(band), 1e-3);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testBlockMatchesSingleSamples() {
+        double sampleRate = 50;
+        double[] signal = createSignal(10_000, sampleRate);
+
+        FilterBank single = new FilterBank(sampleRate, MIN_FREQS, MAX_FREQS);
+        FilterBank block = new FilterBank(sampleRate, MIN_FREQS, MAX_FREQS);
+        double[][] out = new double[MIN_FREQS.length][signal.length];
+
+        // uneven blocks so that the state is carried over between them
+        int offset = 0;
+        int blockSize = 1;
+        while (offset < signal.length) {
+            int length = Math.min(blockSize, signal.length - offset);
+            block.process(signal, offset, length, out);
+            offset += length;
+            blockSize = blockSize * 2 + 1;
+        }
+
+        for (int i = 0; i < signal.length; i++) {
+            single.accept(signal[i]);
+            for (int band = 0; band < MIN_FREQS.length; band++) {
+                assertEquals(single.getOutput(band), out[band][i], 0.0);
+            }
+        }
+
+        for (int band = 0; band < MIN_FREQS.length; band++) {
+            assertEquals(single.getOutput(band), block.getOutput(band), 0.0);
+        }
+    }
+
+    @Test
+    public void testReset() {
+        FilterBank bank = new FilterBank(100, MIN_FREQS, MAX_FREQS);
+        for (double value : createSignal(1000, 100)) {
+            bank.accept(value);
+        }
+
+        bank.reset();
+        bank.accept(0);
+        for (int band = 0; band < bank.getBands(); band++) {
+            assertEquals(0.0, bank.getOutput(band), 0.0);
+        }
+    }
+
+}
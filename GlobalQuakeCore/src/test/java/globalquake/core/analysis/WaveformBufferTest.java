@@ -99,4 +99,69 @@ public class WaveformBufferTest {
 
     }
 
-}
\ No newline at end of file
+    @Test
+    public void testRawCompression() {
+        WaveformBuffer waveformBuffer = new WaveformBuffer(1, 200, false);
+        assertTrue(waveformBuffer.isRawCompressed());
+
+        // wraps around several times with slowly drifting values
+        for (int i = 0; i < 1000; i++) {
+            waveformBuffer.log(i * 1000L, 1_000_000 + i * 7, 0, 1, 1, 1, 1, false);
+        }
+
+        assertTrue(waveformBuffer.isRawCompressed());
+        for (int i = 0; i < waveformBuffer.getSize(); i++) {
+            int index = (waveformBuffer.getOldestDataSlot() + i) % waveformBuffer.getSize();
+            assertEquals(1_000_000 + (800 + i) * 7, waveformBuffer.getRaw(index));
+        }
+
+        waveformBuffer.log(1_000_000L, -5_000_000, 0, 1, 1, 1, 1, false);
+        assertFalse(waveformBuffer.isRawCompressed());
+        assertEquals(-5_000_000, waveformBuffer.getRaw(waveformBuffer.getNewestDataSlot()));
+        assertEquals(1_000_000 + 801 * 7, waveformBuffer.getRaw(waveformBuffer.getOldestDataSlot()));
+    }
+
+    @Test
+    public void testExtract() {
+        WaveformBuffer waveformBuffer = new WaveformBuffer(1, 100, false);
+        for (int i = 0; i < 250; i++) {
+            waveformBuffer.log(i * 1000L, i * 1000, i, i, i, 1, i, false);
+        }
+
+        // starts at the first sample after the start time, same as getClosestIndex
+        WaveformBuffer extracted = waveformBuffer.extract(200_000, 240_000);
+        assertEquals(40, extracted.getNextSlot());
+        assertEquals(201_000, extracted.getTime(extracted.getOldestDataSlot()));
+        assertEquals(240_000, extracted.getTime(extracted.getNewestDataSlot()));
+        assertEquals(240_000, extracted.getRaw(extracted.getNewestDataSlot()));
+        assertEquals(221, extracted.getRatio(20), 1e-6);
+
+        // the extracted buffer can continue to grow on its own
+        extracted.log(250_000, 7, 7, 7, 7, 1, 7, true);
+        assertEquals(250_000, extracted.getTime(extracted.getNewestDataSlot()));
+        assertEquals(7, extracted.getRaw(extracted.getNewestDataSlot()));
+    }
+
+    @Test
+    public void testView() {
+        WaveformBuffer waveformBuffer = new WaveformBuffer(1, 10, false);
+        for (int i = 0; i < 15; i++) {
+            waveformBuffer.log(i * 1000L, i, i, i, i, 1, i, false);
+        }
+
+        WaveformBuffer.View view = waveformBuffer.view();
+        assertEquals(10, view.size());
+        assertEquals(5000, view.getTime(0));
+        assertEquals(14, view.getRaw(9));
+
+        WaveformBuffer.View range = waveformBuffer.view(7000, 9000);
+        assertEquals(2, range.size());
+        assertEquals(9, range.toLog(1).rawValue());
+
+        waveformBuffer.log(15_000, 15, 15, 15, 15, 1, 15, false);
+        assertFalse(view.isValid());
+        assertTrue(range.isValid());
+        assertEquals(8000, range.getTime(0));
+    }
+
+}
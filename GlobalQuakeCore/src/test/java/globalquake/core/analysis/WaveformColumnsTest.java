@@ -0,0 +1,90 @@
+package globalquake.core.analysis;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class WaveformColumnsTest {
+
+    private static final double SPS = 10;
+
+    private static void log(WaveformBuffer buffer, long time, int raw, float ratio) {
+        buffer.log(time, raw, raw * 0.5f, ratio, 1, 1, 1, false);
+    }
+
+    private static void assertColumn(WaveformColumns columns, long column, float min, float max) {
+        assertTrue(columns.hasData(column));
+        assertEquals(min, columns.getMin(column, WaveformColumns.RAW), 0);
+        assertEquals(max, columns.getMax(column, WaveformColumns.RAW), 0);
+        assertEquals(min * 0.5f, columns.getMin(column, WaveformColumns.FILTERED), 0);
+        assertEquals(max * 0.5f, columns.getMax(column, WaveformColumns.FILTERED), 0);
+    }
+
+    @Test
+    public void testMinMaxPerColumn() {
+        WaveformBuffer buffer = new WaveformBuffer(SPS, 100, false);
+        WaveformColumns columns = new WaveformColumns(4, 250);
+        assertEquals(Long.MAX_VALUE, columns.update(buffer, SPS));
+
+        log(buffer, 0, 5, 1);
+        log(buffer, 100, -3, 4);
+        log(buffer, 200, 8, 2);
+        log(buffer, 300, 1, 1);
+        log(buffer, 400, 2, 1);
+        assertEquals(0, columns.update(buffer, SPS));
+
+        assertColumn(columns, 0, -3, 8);
+        assertEquals(4, columns.getMax(0, WaveformColumns.RATIO), 0);
+        assertEquals(1, columns.getMin(0, WaveformColumns.RATIO), 0);
+
+        // the segment from the last sample of column 0 is drawn in column 1
+        assertColumn(columns, 1, 1, 8);
+        assertFalse(columns.hasData(2));
+
+        // only the new samples are read, the first changed column is the one of the first new segment
+        assertEquals(Long.MAX_VALUE, columns.update(buffer, SPS));
+        log(buffer, 500, 10, 1);
+        assertEquals(2, columns.update(buffer, SPS));
+        assertColumn(columns, 1, 1, 8);
+        assertColumn(columns, 2, 2, 10);
+    }
+
+    @Test
+    public void testGapAndSlotReuse() {
+        WaveformBuffer buffer = new WaveformBuffer(SPS, 100, false);
+        WaveformColumns columns = new WaveformColumns(4, 250);
+
+        log(buffer, 0, 1, 1);
+        log(buffer, 100, 2, 1);
+        assertEquals(0, columns.update(buffer, SPS));
+        assertColumn(columns, 0, 1, 2);
+
+        // more than two sample periods after the last sample, nothing connects to it
+        log(buffer, 1000, 100, 1);
+        assertEquals(Long.MAX_VALUE, columns.update(buffer, SPS));
+        assertFalse(columns.hasData(4));
+
+        // column 4 took the slot of column 0
+        assertFalse(columns.hasData(0));
+
+        log(buffer, 1100, 50, 1);
+        assertEquals(4, columns.update(buffer, SPS));
+        assertColumn(columns, 4, 50, 100);
+    }
+
+    @Test
+    public void testNewBufferStartsOver() {
+        WaveformBuffer buffer = new WaveformBuffer(SPS, 100, false);
+        WaveformColumns columns = new WaveformColumns(4, 250);
+        log(buffer, 0, 1, 1);
+        log(buffer, 100, 2, 1);
+        assertEquals(0, columns.update(buffer, SPS));
+
+        WaveformBuffer other = new WaveformBuffer(SPS, 100, false);
+        log(other, 150, 7, 1);
+        assertEquals(Long.MAX_VALUE, columns.update(other, SPS));
+        assertFalse(columns.hasData(0));
+
+        assertEquals(Long.MAX_VALUE, columns.update(null, SPS));
+    }
+}
@@ -0,0 +1,140 @@
+package globalquake.core.archive;
+
+import globalquake.core.earthquake.quality.QualityClass;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class ArchiveListViewTest {
+
+    private static ArchivedQuake quake(double mag, long origin) {
+        return new ArchivedQuake(null, 0, 0, 0, mag, origin, QualityClass.S, origin + 100);
+    }
+
+    @Test
+    public void testIncrementalInsert() {
+        List<ArchivedQuake> archive = new ArrayList<>();
+        ArchivedQuake old = quake(5, 1000);
+        ArchivedQuake small = quake(1, 3000);
+        archive.add(small);
+        archive.add(old);
+
+        AtomicInteger modifications = new AtomicInteger();
+        AtomicInteger revision = new AtomicInteger();
+        double[] minMag = {2.0};
+        ArchiveListView view = new ArchiveListView(archive, modifications::get, quake -> quake.getMag() >= minMag[0], revision::get);
+
+        assertEquals(List.of(old), view.getDisplayed(Long.MIN_VALUE));
+
+        ArchivedQuake middle = quake(4, 2000);
+        archive.add(1, middle);
+        modifications.incrementAndGet();
+        view.onArchived(middle);
+        assertEquals(List.of(middle, old), view.getDisplayed(Long.MIN_VALUE));
+
+        // the same quake seen twice is not duplicated
+        view.onArchived(middle);
+        archive.add(quake(1, 500));
+        modifications.incrementAndGet();
+        assertEquals(List.of(middle, old), view.getDisplayed(Long.MIN_VALUE));
+
+        // quakes dropped from the archive without an event
+        archive.remove(old);
+        modifications.incrementAndGet();
+        assertEquals(List.of(middle), view.getDisplayed(Long.MIN_VALUE));
+
+        // the filter is evaluated again only after the settings change
+        minMag[0] = 0;
+        assertEquals(1, view.getDisplayed(Long.MIN_VALUE).size());
+        revision.incrementAndGet();
+        assertEquals(3, view.getDisplayed(Long.MIN_VALUE).size());
+    }
+
+    @Test
+    public void testTimeFilter() {
+        List<ArchivedQuake> archive = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            archive.add(quake(3, i * 1000L));
+        }
+
+        ArchiveListView view = new ArchiveListView(archive, () -> 0, quake -> true, () -> 0);
+        List<ArchivedQuake> displayed = view.getDisplayed(Long.MIN_VALUE);
+        assertEquals(10, displayed.size());
+        assertEquals(9000, displayed.get(0).getOrigin());
+
+        displayed = view.getDisplayed(6000);
+        assertEquals(4, displayed.size());
+        assertEquals(6000, displayed.get(3).getOrigin());
+        assertTrue(view.getDisplayed(10000).isEmpty());
+    }
+
+    /**
+     * Inserts like {@link EarthquakeArchive#archiveQuake(ArchivedQuake, globalquake.core.earthquake.data.Earthquake)}
+     * and drops the oldest quakes over the limit
+     */
+    private static void archive(List<ArchivedQuake> archive, AtomicInteger modifications, ArchivedQuake quake, int max) {
+        archive.add(0, quake);
+        archive.sort(Comparator.comparing(archivedQuake -> -archivedQuake.getOrigin()));
+        modifications.incrementAndGet();
+        while (archive.size() > max) {
+            archive.remove(archive.size() - 1);
+            modifications.incrementAndGet();
+        }
+    }
+
+    @Test
+    public void testFullArchiveWithoutEvent() {
+        List<ArchivedQuake> archive = new ArrayList<>();
+        AtomicInteger modifications = new AtomicInteger();
+        for (int i = 0; i < 3; i++) {
+            archive(archive, modifications, quake(3, i * 1000L), 3);
+        }
+
+        ArchiveListView view = new ArchiveListView(archive, modifications::get, quake -> true, () -> 0);
+        assertEquals(archive, view.getDisplayed(Long.MIN_VALUE));
+
+        // one insert and one drop keep the size, like a quake received by the client
+        ArchivedQuake newest = quake(3, 5000);
+        archive(archive, modifications, newest, 3);
+        assertEquals(3, archive.size());
+
+        List<ArchivedQuake> displayed = view.getDisplayed(Long.MIN_VALUE);
+        assertEquals(archive, displayed);
+        assertSame(newest, displayed.get(0));
+        assertEquals(1000, displayed.get(2).getOrigin());
+    }
+
+    @Test
+    public void testFullArchiveWithEvents() {
+        List<ArchivedQuake> archive = new ArrayList<>();
+        AtomicInteger modifications = new AtomicInteger();
+        for (int i = 0; i < 4; i++) {
+            archive(archive, modifications, quake(i % 2 == 0 ? 3 : 1, i * 1000L), 4);
+        }
+
+        AtomicInteger filterCalls = new AtomicInteger();
+        ArchiveListView view = new ArchiveListView(archive, modifications::get, quake -> {
+            filterCalls.incrementAndGet();
+            return quake.getMag() >= 2;
+        }, () -> 0);
+        assertEquals(List.of(archive.get(1), archive.get(3)), view.getDisplayed(Long.MIN_VALUE));
+
+        // same origin as an archived quake, the archive puts the new one first
+        for (long origin : new long[]{2000, 5000, 6000}) {
+            ArchivedQuake quake = quake(3, origin);
+            archive(archive, modifications, quake, 4);
+            view.onArchived(quake);
+
+            filterCalls.set(0);
+            List<ArchivedQuake> expected = archive.stream().filter(q -> q.getMag() >= 2).toList();
+            assertEquals(expected, view.getDisplayed(Long.MIN_VALUE));
+            // only the new quake was filtered, the view was not rebuilt
+            assertEquals(1, filterCalls.get());
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package globalquake.core.database;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import gqserver.api.packets.station.InputType;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Runs the downloader against a local stand-in of a FDSNWS station service serving recorded StationXML
+ */
+public class FDSNWSClientTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private HttpServer server;
+    private final AtomicInteger queries = new AtomicInteger();
+
+    @Before
+    public void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/fdsnws/station/1/application.wadl", exchange -> respond(exchange, 200, "application.wadl", null));
+        server.createContext("/fdsnws/station/1/query", this::handleQuery);
+        server.start();
+    }
+
+    @After
+    public void stopServer() {
+        server.stop(0);
+    }
+
+    private void handleQuery(HttpExchange exchange) throws IOException {
+        queries.incrementAndGet();
+        Map<String, String> params = new HashMap<>();
+        for (String param : exchange.getRequestURI().getQuery().split("&")) {
+            String[] split = param.split("=");
+            params.put(split[0], split.length > 1 ? split[1] : "");
+        }
+
+        double minLon = Double.parseDouble(params.get("minlongitude"));
+        double maxLon = Double.parseDouble(params.get("maxlongitude"));
+        if (maxLon - minLon > 180) {
+            respond(exchange, 413, null, null);
+            return;
+        }
+
+        String fixture = minLon < 0 ? "station_west.xml" : "station_east.xml";
+        String eTag = "\"%s\"".formatted(fixture);
+        if (eTag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+            respond(exchange, 304, null, eTag);
+            return;
+        }
+
+        respond(exchange, 200, fixture, eTag);
+    }
+
+    private static void respond(HttpExchange exchange, int code, String fixture, String eTag) throws IOException {
+        if (eTag != null) {
+            exchange.getResponseHeaders().set("ETag", eTag);
+        }
+
+        if (fixture == null) {
+            exchange.sendResponseHeaders(code, -1);
+            exchange.close();
+            return;
+        }
+
+        try (InputStream in = FDSNWSClientTest.class.getResourceAsStream("/fdsnws/" + fixture)) {
+            assertNotNull(in);
+            byte[] data = in.readAllBytes();
+            exchange.sendResponseHeaders(code, data.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(data);
+            }
+        }
+    }
+
+    private StationSource createSource() {
+        return new StationSource("test", "http://127.0.0.1:%d/fdsnws/station/1/".formatted(server.getAddress().getPort()));
+    }
+
+    @Test
+    public void testSplitAndParse() throws Exception {
+        FDSNWSClient client = new FDSNWSClient(null, 2, 10);
+        FDSNWSDownloadStats stats = new FDSNWSDownloadStats();
+        List<Network> networks = client.download(createSource(), "", stats);
+
+        assertEquals(3, queries.get());
+        assertEquals(1, stats.getSplits());
+        assertEquals(2, stats.getChannels());
+        assertTrue(stats.getBytes() > 0);
+
+        assertEquals(1, networks.size());
+        Network network = networks.get(0);
+        assertEquals("Test network", network.getDescription());
+        assertEquals(2, network.getStations().size());
+
+        Station west = network.findStation("WEST");
+        assertNotNull(west);
+        assertEquals("West station", west.getStationSite());
+        assertEquals(-50.25, west.getLongitude(), 1e-9);
+        // the ended channel and the unsupported LDZ channel are skipped
+        assertEquals(1, west.getChannels().size());
+
+        Channel hhz = west.findChannel("HHZ", "");
+        assertEquals(InputType.VELOCITY, hhz.getInputType());
+        assertEquals(1.5E9, hhz.getSensitivity(), 1e-3);
+        assertEquals(118, hhz.getElevation(), 1e-9);
+        assertEquals(100, hhz.getSampleRate(), 1e-9);
+
+        Channel hnz = network.findStation("EAST").findChannel("HNZ", "00");
+        assertEquals(InputType.ACCELERATION, hnz.getInputType());
+        assertEquals(4e5, hnz.getSensitivity(), 1e-6);
+    }
+
+    @Test
+    public void testConditionalRequests() throws Exception {
+        File cache = temporaryFolder.newFolder();
+        FDSNWSClient client = new FDSNWSClient(cache, 2, 10);
+
+        List<Network> first = client.download(createSource(), "", new FDSNWSDownloadStats());
+        assertEquals(3, queries.get());
+
+        FDSNWSDownloadStats stats = new FDSNWSDownloadStats();
+        List<Network> second = client.download(createSource(), "", stats);
+
+        // the split is remembered and both slices are answered with 304
+        assertEquals(5, queries.get());
+        assertEquals(2, stats.getNotModified());
+        assertEquals(0, stats.getBytes());
+        assertEquals(2, stats.getChannels());
+
+        assertEquals(first.size(), second.size());
+        assertEquals(first.get(0).getStations().size(), second.get(0).getStations().size());
+        assertNotNull(second.get(0).findStation("EAST").findChannel("HNZ", "00"));
+    }
+
+}
@@ -1,8 +1,13 @@
 package globalquake.core.database;
 
 import gqserver.api.packets.station.InputType;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
+import java.io.File;
+import java.io.IOException;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -11,6 +16,9 @@ import static org.junit.Assert.*;
 @SuppressWarnings("OptionalGetWithoutIsPresent")
 public class StationDatabaseManagerTest {
 
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
     @Test
     public void testConstructor() {
         StationDatabase stationDatabase = new StationDatabase();
@@ -194,9 +202,9 @@ public class StationDatabaseManagerTest {
         Channel dummyChannel = new Channel("coolChannel", "00", 50, 0, 0, 0, null, -1, InputType.UNKNOWN);
         Channel dummyChannelNew = new Channel("coolChannel", "00", 50, 50, 0, 0, null, -1, InputType.UNKNOWN);
 
-        dummyNetwork.getStations().add(dummyStation);
-        dummyStation.getChannels().add(dummyChannel);
-        dummyStation.getChannels().add(dummyChannelNew);
+        dummyNetwork.addStation(dummyStation);
+        dummyStation.addChannel(dummyChannel);
+        dummyStation.addChannel(dummyChannelNew);
 
         StationDatabase stationDatabase = new StationDatabase();
         stationDatabase.acceptChannel(dummyNetwork, dummyStation, dummyChannel);
@@ -217,9 +225,9 @@ public class StationDatabaseManagerTest {
         Channel dummyChannel = new Channel("coolChannel", "00", 50, 0, 0, 0, null, -1, InputType.UNKNOWN);
         Channel dummyChannelNew = new Channel("coolChannel", "00", 50, 50, 0, 0, null, -1, InputType.UNKNOWN);
 
-        dummyNetwork.getStations().add(dummyStation);
-        dummyStation.getChannels().add(dummyChannel);
-        dummyStation.getChannels().add(dummyChannelNew);
+        dummyNetwork.addStation(dummyStation);
+        dummyStation.addChannel(dummyChannel);
+        dummyStation.addChannel(dummyChannelNew);
 
         StationDatabaseManager databaseManager = new StationDatabaseManager(new StationDatabase());
         databaseManager.acceptNetworks(List.of(dummyNetwork));
@@ -233,9 +241,9 @@ public class StationDatabaseManagerTest {
         Channel dummyChannel = new Channel("coolChannel", "00", 50, 0, 0, 0, null, -1, InputType.UNKNOWN);
         Channel dummyChannelNew = new Channel("coolChannel", "00", 50, 50, 0, 0, null, -1, InputType.UNKNOWN);
 
-        dummyNetwork.getStations().add(dummyStation);
-        dummyStation.getChannels().add(dummyChannel);
-        dummyStation.getChannels().add(dummyChannelNew);
+        dummyNetwork.addStation(dummyStation);
+        dummyStation.addChannel(dummyChannel);
+        dummyStation.addChannel(dummyChannelNew);
 
         StationDatabaseManager databaseManager = new StationDatabaseManager(new StationDatabase());
         databaseManager.acceptNetworks(List.of(dummyNetwork));
@@ -249,4 +257,124 @@ public class StationDatabaseManagerTest {
     }
 
 
-}
\ No newline at end of file
+
+    @Test
+    public void testIndexAfterRemoveAndAdd() {
+        StationDatabase stationDatabase = new StationDatabase();
+        Network network = new Network("CZ", "");
+        stationDatabase.addNetwork(network);
+        Station removed = new Station(network, "KRUC", "", 0, 0, 0);
+        network.addStation(removed);
+        Channel removedChannel = new Channel("HHZ", "", 100, 0, 0, 0, null, -1, InputType.UNKNOWN);
+        removed.addChannel(removedChannel);
+
+        // lookups build the indexes
+        assertSame(removed, stationDatabase.getStation("CZ", "KRUC"));
+        assertSame(removedChannel, removed.findChannel("HHZ", ""));
+
+        // the sizes stay the same after every remove and add, the lookups must not return the removed objects
+        Channel addedChannel = new Channel("HHZ", "", 100, 1, 1, 1, null, -1, InputType.UNKNOWN);
+        removed.removeChannelsIf(channel -> channel == removedChannel);
+        removed.addChannel(addedChannel);
+        assertSame(addedChannel, removed.findChannel("hhz", ""));
+
+        Station added = new Station(network, "KRUC", "", 1, 1, 1);
+        network.removeStationsIf(station -> station == removed);
+        network.addStation(added);
+        assertSame(added, stationDatabase.getStation("CZ", "KRUC"));
+
+        Network addedNetwork = new Network("CZ", "new");
+        stationDatabase.removeNetworksIf(n -> n == network);
+        stationDatabase.addNetwork(addedNetwork);
+        assertSame(addedNetwork, stationDatabase.getNetwork("cz"));
+        assertNull(stationDatabase.getStation("CZ", "KRUC"));
+    }
+
+    @Test
+    public void testIndexWithDuplicateCodes() {
+        StationDatabase stationDatabase = new StationDatabase();
+        Network first = new Network("CZ", "");
+        Network duplicate = new Network("cz", "");
+        stationDatabase.addNetwork(first);
+        stationDatabase.addNetwork(duplicate);
+
+        Station kruc = new Station(first, "KRUC", "", 0, 0, 0);
+        first.addStation(kruc);
+        first.addStation(new Station(first, "kruc", "", 0, 0, 0));
+
+        // the first one wins, same as a linear search
+        assertSame(first, stationDatabase.getNetwork("CZ"));
+        assertSame(kruc, first.findStation("Kruc"));
+
+        // the index stays in sync with the list even though it has fewer entries
+        Station other = new Station(first, "OTHER", "", 0, 0, 0);
+        first.addStation(other);
+        assertSame(other, first.findStation("other"));
+        assertSame(kruc, first.findStation("KRUC"));
+
+        // removing the first one exposes the duplicate
+        stationDatabase.removeNetworksIf(network -> network == first);
+        assertSame(duplicate, stationDatabase.getNetwork("CZ"));
+        first.removeStationsIf(station -> station == kruc);
+        assertEquals("kruc", first.findStation("KRUC").getStationCode());
+    }
+
+    @Test
+    public void testGetOrCreateNetwork() {
+        StationDatabase stationDatabase = new StationDatabase();
+        Network network = stationDatabase.getOrCreateNetwork("CZ", "Czech");
+        assertSame(network, stationDatabase.getOrCreateNetwork("cz", "Other"));
+        assertEquals(List.of(network), stationDatabase.getNetworks());
+    }
+
+    @Test
+    public void testBinaryStoreRoundTrip() throws IOException {
+        StationSource source1 = new StationSource("source1", "https://example.com/1/");
+        StationSource source2 = new StationSource("source2", "https://example.com/2/");
+        source1.setLastUpdate(LocalDateTime.of(2023, 10, 1, 12, 0));
+
+        StationDatabase stationDatabase = new StationDatabase();
+        stationDatabase.getStationSources().add(source1);
+        stationDatabase.getStationSources().add(source2);
+        stationDatabase.getSeedlinkNetworks().add(new SeedlinkNetwork("seedlink", "localhost", 18000, 30));
+
+        Network network = new Network("CZ", "Czech network");
+        Station station = new Station(network, "KRUC", "Moravsky Krumlov", 49.06, 16.39, 341);
+        stationDatabase.acceptChannel(network, station, new Channel("HHZ", "", 100, 49.06, 16.39, 341, source1, 1e9, InputType.VELOCITY));
+        stationDatabase.acceptChannel(network, station, new Channel("HNZ", "00", 200, 49.06, 16.39, 341, source2, 4e5, InputType.ACCELERATION));
+        stationDatabase.acceptChannel(network, station, new Channel("HHZ", "", 100, 49.06, 16.39, 341, source2, 1e9, InputType.VELOCITY));
+        stationDatabase.acceptChannel(new Network("XX", null), new Station(null, "TEST", null, 1, 2, 3),
+                new Channel("BHZ", "", 20, 1, 2, 3, null, -1, InputType.UNKNOWN));
+
+        Station kruc = stationDatabase.getStation("CZ", "KRUC");
+        kruc.setSelectedChannel(kruc.findChannel("HNZ", "00"));
+
+        File folder = temporaryFolder.newFolder();
+        StationDatabaseIO.save(stationDatabase, folder);
+        assertTrue(stationDatabase.getModifiedSources().isEmpty());
+
+        StationDatabase loaded = StationDatabaseIO.load(folder);
+        assertEquals(2, loaded.getNetworks().size());
+        assertEquals(2, loaded.getStationSources().size());
+        assertEquals(source1.getLastUpdate(), loaded.getStationSources().get(0).getLastUpdate());
+        assertEquals(30, loaded.getSeedlinkNetworks().get(0).getTimeout());
+
+        Station loadedStation = loaded.getStation("cz", "kruc");
+        assertNotNull(loadedStation);
+        assertEquals("Moravsky Krumlov", loadedStation.getStationSite());
+        assertEquals(2, loadedStation.getChannels().size());
+        assertEquals("HNZ", loadedStation.getSelectedChannel().getCode());
+
+        Channel hhz = StationDatabase.getChannel(loadedStation, "HHZ", "");
+        assertNotNull(hhz);
+        assertEquals(2, hhz.getStationSources().size());
+        assertEquals(InputType.VELOCITY, hhz.getInputType());
+        assertEquals(1e9, hhz.getSensitivity(), 1e-3);
+
+        Channel unsourced = StationDatabase.getChannel(loaded.getStation("XX", "TEST"), "BHZ", "");
+        assertNotNull(unsourced);
+        assertTrue(unsourced.getStationSources().contains(null));
+        assertNull(loaded.getNetwork("XX").getDescription());
+    }
+
+}
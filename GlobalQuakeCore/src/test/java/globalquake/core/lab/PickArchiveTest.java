@@ -0,0 +1,78 @@
+package globalquake.core.lab;
+
+import globalquake.core.archive.ArchivedEvent;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.Assert.*;
+
+public class PickArchiveTest {
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        File file = File.createTempFile("picks", ".gqp");
+        file.deleteOnExit();
+
+        LabQuake first = new LabQuake(UUID.randomUUID(), "M5.20_Somewhere", 50.1, 17.2, 10.5, 1700000000000L, 5.2,
+                List.of(new ArchivedEvent(50.3, 17.0, 12.5, 1700000004321L), new ArchivedEvent(49.2, 18.1, 3.0, 1700000012000L)));
+        LabQuake second = new LabQuake(UUID.randomUUID(), "Empty", -10, -170, 600, 1600000000000L, 3.1, List.of());
+
+        try (PickArchive.Writer writer = new PickArchive.Writer(file)) {
+            writer.write(first);
+            writer.write(second);
+        }
+
+        try (PickArchive.Reader reader = new PickArchive.Reader(file)) {
+            assertEquals(first, reader.read());
+            assertEquals(second, reader.read());
+            assertNull(reader.read());
+        }
+    }
+
+    @Test
+    public void testDistantPickRejected() throws IOException {
+        File file = File.createTempFile("picks", ".gqp");
+        file.deleteOnExit();
+
+        LabQuake quake = new LabQuake(UUID.randomUUID(), "Broken", 0, 0, 0, 0, 4.0,
+                List.of(new ArchivedEvent(1, 1, 10, 100L * 24 * 3600 * 1000)));
+
+        try (PickArchive.Writer writer = new PickArchive.Writer(file)) {
+            assertThrows(IllegalArgumentException.class, () -> writer.write(quake));
+        }
+
+        try (PickArchive.Reader reader = new PickArchive.Reader(file)) {
+            assertNull(reader.read());
+        }
+    }
+
+    @Test
+    public void testReadReportsPassesReportFolder() throws IOException {
+        File reports = Files.createTempDirectory("reports").toFile();
+        File first = new File(reports, "M4.00_First");
+        File second = new File(reports, "M5.00_Second");
+        assertTrue(first.mkdirs());
+        assertTrue(second.mkdirs());
+
+        LabQuake a = new LabQuake(UUID.randomUUID(), first.getName(), 1, 2, 3, 1700000000000L, 4.0, List.of());
+        LabQuake b = new LabQuake(UUID.randomUUID(), second.getName(), 4, 5, 6, 1700000000000L, 5.0, List.of());
+        try (PickArchive.Writer writer = new PickArchive.Writer(new File(second, "picks.gqp"))) {
+            writer.write(b);
+        }
+        try (PickArchive.Writer writer = new PickArchive.Writer(new File(first, "picks.gqp"))) {
+            writer.write(a);
+        }
+
+        List<Map.Entry<File, LabQuake>> found = new ArrayList<>();
+        PickArchive.readReports(reports, (folder, quake) -> found.add(Map.entry(folder, quake)));
+
+        assertEquals(List.of(Map.entry(first, a), Map.entry(second, b)), found);
+    }
+}
@@ -0,0 +1,70 @@
+package globalquake.core.metrics;
+
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+public class MetricsRegistryTest {
+
+    @Test
+    public void testBucketBounds() {
+        for (long value : new long[]{0, 1, 15, 16, 17, 31, 32, 1000, 123456789, Long.MAX_VALUE / 3}) {
+            int index = LatencyHistogram.bucketIndex(value);
+            assertTrue(LatencyHistogram.bucketLowerBound(index) <= value);
+            assertTrue(value < LatencyHistogram.bucketUpperBound(index));
+        }
+
+        assertEquals(LatencyHistogram.BUCKETS - 1, LatencyHistogram.bucketIndex(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void testPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.getPercentile(50));
+
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i * 1000L);
+        }
+
+        assertEquals(1000, histogram.getCount());
+        assertEquals(500500000L, histogram.getSum());
+        assertEquals(500_000, histogram.getPercentile(50), 500_000 * 0.07);
+        assertEquals(990_000, histogram.getPercentile(99), 990_000 * 0.07);
+        assertEquals(1000, histogram.getCountBelowPowerOfTwo(30));
+        assertEquals(0, histogram.getCountBelowPowerOfTwo(9));
+    }
+
+    @Test
+    public void testPrometheusFormat() throws IOException {
+        MetricsRegistry registry = new MetricsRegistry();
+        registry.counter("test_records_total", "Records", "network", "a\"b").add(5);
+        registry.counter("test_records_total", "Records", "network", "a\"b").inc();
+        registry.gauge("test_queue", "Queue", () -> 2.5);
+        registry.gauge("test_broken", "Broken", () -> {
+            throw new IllegalStateException();
+        });
+        registry.histogram("test_time_seconds", "Time").record(1500);
+
+        StringBuilder builder = new StringBuilder();
+        registry.writePrometheus(builder);
+        String text = builder.toString();
+
+        assertTrue(text.contains("# TYPE test_records_total counter\n"));
+        assertTrue(text.contains("test_records_total{network=\"a\\\"b\"} 6\n"));
+        assertTrue(text.contains("test_queue 2.5\n"));
+        assertFalse(text.contains("\ntest_broken "));
+        assertTrue(text.contains("test_time_seconds_bucket{le=\"0.000001024\"} 0\n"));
+        assertTrue(text.contains("test_time_seconds_bucket{le=\"0.000002048\"} 1\n"));
+        assertTrue(text.contains("test_time_seconds_bucket{le=\"+Inf\"} 1\n"));
+        assertTrue(text.contains("test_time_seconds_count 1\n"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testTypeConflict() {
+        MetricsRegistry registry = new MetricsRegistry();
+        registry.counter("test_metric", "Metric");
+        registry.histogram("test_metric", "Metric");
+    }
+}
@@ -0,0 +1,56 @@
+package globalquake.core.regions;
+
+import org.junit.Test;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class RawPolygonListTest {
+
+    private static GQPolygon polygon() {
+        return new GQPolygon(new float[]{0, 1, 0}, new float[]{0, 0, 1});
+    }
+
+    @Test
+    public void testLazyPartsAreNotAccessed() {
+        List<GQPolygon> accessed = new ArrayList<>();
+        GQPolygon lazyPolygon = polygon();
+        List<GQPolygon> lazy = new AbstractList<>() {
+            @Override
+            public GQPolygon get(int index) {
+                accessed.add(lazyPolygon);
+                return lazyPolygon;
+            }
+
+            @Override
+            public int size() {
+                return 3;
+            }
+        };
+
+        GQPolygon first = polygon();
+        GQPolygon last = polygon();
+
+        RawPolygonList list = new RawPolygonList();
+        list.add(first);
+        list.addLazy(lazy);
+        list.addLazy(List.of());
+        list.add(last);
+
+        assertTrue(accessed.isEmpty());
+        assertEquals(5, list.size());
+        assertSame(first, list.get(0));
+        assertSame(lazyPolygon, list.get(2));
+        assertSame(last, list.get(4));
+        assertEquals(1, accessed.size());
+
+        int count = 0;
+        for (GQPolygon ignored : list) {
+            count++;
+        }
+        assertEquals(5, count);
+    }
+}
@@ -0,0 +1,120 @@
+package globalquake.core.regions;
+
+import org.junit.Test;
+
+import java.awt.geom.Path2D;
+import java.awt.geom.PathIterator;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class RegionsGeometryPackTest {
+
+    private static final String GEOJSON = "regions/pack_test.json";
+
+    private static File writePack(List<Region> regions, String version) throws IOException {
+        File file = new File(Files.createTempDirectory("regions").toFile(), "regions.gqr");
+        file.deleteOnExit();
+
+        RegionsGeometryPack.Builder builder = new RegionsGeometryPack.Builder();
+        builder.add("test", regions);
+        builder.add("empty", List.of());
+        builder.write(file, version);
+        return file;
+    }
+
+    private static List<float[]> segments(Path2D.Float path) {
+        List<float[]> result = new ArrayList<>();
+        for (PathIterator iterator = path.getPathIterator(null); !iterator.isDone(); iterator.next()) {
+            float[] coords = new float[7];
+            coords[6] = iterator.currentSegment(coords);
+            result.add(coords);
+        }
+        return result;
+    }
+
+    private static void assertSamePolygon(GQPolygon expected, GQPolygon actual) {
+        assertEquals(expected.getSize(), actual.getSize());
+        assertArrayEquals(expected.getLats(), actual.getLats(), 0);
+        assertArrayEquals(expected.getLons(), actual.getLons(), 0);
+    }
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        List<GQPolygon> parsedRaw = new ArrayList<>();
+        List<Region> parsed = new ArrayList<>();
+        Regions.parseGeoJson(GEOJSON, parsedRaw, parsed, List.of("Removed"));
+        assertEquals(2, parsed.size());
+
+        File file = writePack(parsed, "1.0");
+        RegionsGeometryPack pack = RegionsGeometryPack.load(file, "1.0", List.of("test", "empty"));
+        assertNotNull(pack);
+
+        RawPolygonList raw = new RawPolygonList();
+        List<Region> loaded = new ArrayList<>();
+        pack.fill("test", raw, loaded);
+        pack.fill("empty", raw, loaded);
+
+        assertEquals(parsed.size(), loaded.size());
+        for (int i = 0; i < parsed.size(); i++) {
+            Region expected = parsed.get(i);
+            Region actual = loaded.get(i);
+            assertEquals(expected.name(), actual.name());
+            assertEquals(expected.bounds(), actual.bounds());
+
+            assertEquals(expected.paths().size(), actual.paths().size());
+            for (int j = 0; j < expected.paths().size(); j++) {
+                List<float[]> expectedSegments = segments(expected.paths().get(j));
+                List<float[]> actualSegments = segments(actual.paths().get(j));
+                assertEquals(expectedSegments.size(), actualSegments.size());
+                for (int k = 0; k < expectedSegments.size(); k++) {
+                    assertArrayEquals(expectedSegments.get(k), actualSegments.get(k), 0);
+                }
+            }
+
+            assertEquals(expected.raws().size(), actual.raws().size());
+            for (int j = 0; j < expected.raws().size(); j++) {
+                assertSamePolygon(expected.raws().get(j), actual.raws().get(j));
+            }
+        }
+
+        assertEquals(parsedRaw.size(), raw.size());
+        for (int i = 0; i < parsedRaw.size(); i++) {
+            assertSamePolygon(parsedRaw.get(i), raw.get(i));
+        }
+    }
+
+    @Test
+    public void testOutdatedPackIsRejected() throws IOException {
+        List<Region> parsed = new ArrayList<>();
+        Regions.parseGeoJson(GEOJSON, null, parsed, List.of());
+        File file = writePack(parsed, "1.0");
+
+        assertNull(RegionsGeometryPack.load(file, "2.0", List.of("test")));
+        assertNull(RegionsGeometryPack.load(file, "1.0", List.of("test", "missing")));
+        assertNull(RegionsGeometryPack.load(new File(file.getParentFile(), "none.gqr"), "1.0", List.of("test")));
+        assertNotNull(RegionsGeometryPack.load(file, "1.0", List.of("test")));
+
+        // format version written by a different release
+        int formatVersion;
+        try (RandomAccessFile access = new RandomAccessFile(file, "rw")) {
+            access.seek(Integer.BYTES);
+            formatVersion = access.readInt();
+            access.seek(Integer.BYTES);
+            access.writeInt(formatVersion + 1);
+        }
+        assertNull(RegionsGeometryPack.load(file, "1.0", List.of("test")));
+
+        // not a pack at all
+        try (RandomAccessFile access = new RandomAccessFile(file, "rw")) {
+            access.writeInt(0);
+            access.writeInt(formatVersion);
+        }
+        assertNull(RegionsGeometryPack.load(file, "1.0", List.of("test")));
+    }
+}
@@ -0,0 +1,80 @@
+package globalquake.core.replay;
+
+import edu.sc.seis.seisFile.mseed.DataRecord;
+import globalquake.core.seedlink.MiniSeedRecords;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class MiniSeedReplaySourceTest {
+
+    private static final long START = 1_700_000_000_000L;
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private File write(String name, List<DataRecord> records) throws IOException {
+        File file = temporaryFolder.newFile(name);
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            for (DataRecord record : records) {
+                out.write(record.toByteArray());
+            }
+        }
+        return file;
+    }
+
+    private static List<DataRecord> records(String station, long start) throws Exception {
+        Random random = new Random(station.hashCode());
+        int[] samples = new int[2000];
+        for (int i = 0; i < samples.length; i++) {
+            samples[i] = random.nextInt(20000) - 10000;
+        }
+        return MiniSeedRecords.create("XX", station, "HHZ", "", start, 20, samples);
+    }
+
+    @Test
+    public void testMergeOrderAcrossFiles() throws Exception {
+        List<DataRecord> a = records("AAA", START);
+        List<DataRecord> b = records("BBB", START + 1500);
+        List<DataRecord> c = records("CCC", START + 3600_000);
+        assertTrue(a.size() > 3);
+
+        List<File> files = List.of(write("c.mseed", c), write("a.mseed", a), write("b.mseed", b));
+
+        try (MiniSeedReplaySource source = new MiniSeedReplaySource(files)) {
+            assertEquals(3, source.getFirstHeaders().size());
+            assertEquals(0, source.getOpenFiles());
+
+            long previous = Long.MIN_VALUE;
+            Map<String, Integer> counts = new HashMap<>();
+            List<String> stations = new ArrayList<>();
+            int maxOpenFiles = 0;
+            while (source.hasNext()) {
+                long time = source.peekTime();
+                DataRecord record = source.next();
+                assertEquals(time, record.getLastSampleBtime().toInstant().toEpochMilli());
+                assertTrue("Records are not ordered by time", time >= previous);
+                previous = time;
+
+                String station = record.getHeader().getStationIdentifier().trim();
+                counts.merge(station, 1, Integer::sum);
+                stations.add(station);
+                maxOpenFiles = Math.max(maxOpenFiles, source.getOpenFiles());
+            }
+
+            assertEquals(Map.of("AAA", a.size(), "BBB", b.size(), "CCC", c.size()), counts);
+            // the overlapping files are interleaved, the file of the next hour is opened only after both are done
+            assertTrue(stations.indexOf("BBB") < stations.lastIndexOf("AAA"));
+            assertEquals(a.size() + b.size(), stations.indexOf("CCC"));
+            assertEquals(2, maxOpenFiles);
+            assertEquals(Long.MAX_VALUE, source.peekTime());
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package globalquake.core.replay;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+public class ReplayClockTest {
+
+    @Test
+    public void testClockAdvances() {
+        AtomicLong nanos = new AtomicLong(123_000_000L);
+        ReplayClock clock = new ReplayClock(nanos::get);
+
+        clock.set(1000);
+        nanos.addAndGet(5_000_000_000L);
+        assertEquals(1000, clock.currentTimeMillis());
+        assertEquals(0, clock.realMillisUntil(2000));
+
+        // ten times real time
+        clock.start(5000, 10);
+        assertEquals(5000, clock.currentTimeMillis());
+        nanos.addAndGet(1_000_000_000L);
+        assertEquals(15000, clock.currentTimeMillis());
+        assertEquals(1000, clock.realMillisUntil(25000));
+        assertEquals(0, clock.realMillisUntil(10000));
+
+        // skipping a gap keeps the clock running
+        clock.skip(60000);
+        assertEquals(75000, clock.currentTimeMillis());
+        nanos.addAndGet(500_000_000L);
+        assertEquals(80000, clock.currentTimeMillis());
+
+        clock.set(100);
+        clock.skip(50);
+        assertEquals(150, clock.currentTimeMillis());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testStartNeedsSpeed() {
+        new ReplayClock().start(0, 0);
+    }
+}
@@ -0,0 +1,55 @@
+package globalquake.core.report;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class ReportPipelineTest {
+
+    @Test
+    public void testOnlyLatestReportIsRendered() throws InterruptedException {
+        ReportPipeline pipeline = new ReportPipeline(1, 1);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(2);
+        List<String> rendered = new CopyOnWriteArrayList<>();
+
+        pipeline.submit(UUID.randomUUID(), () -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+            rendered.add("first");
+            done.countDown();
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        UUID uuid = UUID.randomUUID();
+        for (int revision = 1; revision <= 3; revision++) {
+            String name = "revision %d".formatted(revision);
+            pipeline.submit(uuid, () -> {
+                rendered.add(name);
+                done.countDown();
+            });
+        }
+
+        // the only worker is busy and the queue is full
+        pipeline.submit(UUID.randomUUID(), () -> rendered.add("dropped"));
+        assertEquals(1, pipeline.getPending());
+
+        release.countDown();
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        pipeline.shutdown();
+
+        assertEquals(List.of("first", "revision 3"), rendered);
+        assertEquals(0, pipeline.getPending());
+    }
+}
@@ -0,0 +1,197 @@
+package globalquake.core.seedlink;
+
+import edu.sc.seis.seisFile.mseed.DataRecord;
+import globalquake.core.database.SeedlinkNetwork;
+import globalquake.core.database.SeedlinkStatus;
+import globalquake.core.station.AbstractStation;
+import globalquake.core.station.GlobalStation;
+import gqserver.api.packets.station.InputType;
+import org.junit.Test;
+
+import java.io.*;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.Assert.*;
+
+public class SeedlinkNetworksReaderTest {
+
+    private static class RecordingStation extends GlobalStation {
+
+        private final List<DataRecord> received = Collections.synchronizedList(new ArrayList<>());
+
+        RecordingStation(String network, String code, SeedlinkNetwork seedlinkNetwork) {
+            super(network, code, "HHZ", "", 0, 0, 0, 0, seedlinkNetwork, -1, InputType.UNKNOWN);
+        }
+
+        @Override
+        public void addRecords(Collection<DataRecord> records) {
+            received.addAll(records);
+        }
+    }
+
+    /**
+     * Answers the seedlink handshake, rejects the stations in {@code rejected} and streams the records after END
+     */
+    private static class FakeSeedlinkServer implements Closeable {
+
+        private final ServerSocket serverSocket = new ServerSocket(0);
+        private final AtomicInteger accepted = new AtomicInteger();
+        private final Thread thread;
+
+        FakeSeedlinkServer(Set<String> rejected, List<DataRecord> records) throws IOException {
+            thread = new Thread(() -> {
+                while (!serverSocket.isClosed()) {
+                    try (Socket socket = serverSocket.accept()) {
+                        accepted.incrementAndGet();
+                        serve(socket, rejected, records);
+                    } catch (Exception ignored) {
+                    }
+                }
+            });
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        private static void serve(Socket socket, Set<String> rejected, List<DataRecord> records) throws Exception {
+            BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+            OutputStream out = socket.getOutputStream();
+            boolean stationRejected = false;
+            String line;
+            while ((line = in.readLine()) != null) {
+                String[] parts = line.split(" ");
+                switch (parts[0]) {
+                    case "HELLO" -> write(out, "SeedLink v3.1\r\nFake server\r\n");
+                    case "STATION" -> {
+                        stationRejected = rejected.contains(parts[1]);
+                        write(out, stationRejected ? "ERROR\r\n" : "OK\r\n");
+                    }
+                    case "SELECT", "DATA" -> write(out, stationRejected ? "ERROR\r\n" : "OK\r\n");
+                    case "END" -> {
+                        int sequence = 0;
+                        for (DataRecord record : records) {
+                            out.write("SL%06X".formatted(sequence++).getBytes(StandardCharsets.US_ASCII));
+                            out.write(record.toByteArray());
+                        }
+                        out.flush();
+                    }
+                    default -> {
+                        return;
+                    }
+                }
+            }
+        }
+
+        private static void write(OutputStream out, String text) throws IOException {
+            out.write(text.getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+        }
+
+        int getPort() {
+            return serverSocket.getLocalPort();
+        }
+
+        @Override
+        public void close() throws IOException {
+            serverSocket.close();
+        }
+    }
+
+    private static void waitFor(String message, BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            assertTrue(message, System.currentTimeMillis() < deadline);
+            Thread.sleep(5);
+        }
+    }
+
+    @Test
+    public void testReceivesRecords() throws Exception {
+        List<DataRecord> recordsA = MiniSeedRecords.create("XX", "AAA", "HHZ", "", 0, 50, new int[500]);
+        List<DataRecord> recordsB = MiniSeedRecords.create("XX", "BBB", "HHZ", "", 0, 50, new int[100]);
+        List<DataRecord> recordsC = MiniSeedRecords.create("XX", "CCC", "HHZ", "", 0, 50, new int[100]);
+        List<DataRecord> records = new ArrayList<>();
+        records.addAll(recordsA);
+        records.addAll(recordsB);
+        records.addAll(recordsC);
+
+        try (FakeSeedlinkServer server = new FakeSeedlinkServer(Set.of(), records)) {
+            SeedlinkNetwork seedlinkNetwork = new SeedlinkNetwork("fake", "localhost", server.getPort());
+            RecordingStation a = new RecordingStation("XX", "AAA", seedlinkNetwork);
+            RecordingStation b = new RecordingStation("XX", "BBB", seedlinkNetwork);
+
+            SeedlinkNetworksReader reader = new SeedlinkNetworksReader();
+            try {
+                reader.run(List.of(seedlinkNetwork), List.<AbstractStation>of(a, b), 0);
+                SeedlinkConnection connection = reader.getConnections().get(0);
+
+                waitFor("Records were not delivered", () -> connection.getPackets() == records.size());
+                assertEquals(recordsA.size(), a.received.size());
+                assertEquals(recordsB.size(), b.received.size());
+                assertEquals(recordsC.size(), connection.getUnknownPackets());
+
+                assertEquals(SeedlinkStatus.RUNNING, connection.getStatus());
+                assertEquals(SeedlinkStatus.RUNNING, seedlinkNetwork.status);
+                assertEquals(2, seedlinkNetwork.connectedStations);
+                assertEquals(0, connection.getReconnects());
+            } finally {
+                reader.stop();
+            }
+        }
+    }
+
+    @Test
+    public void testRejectedStationResetsConnection() throws Exception {
+        try (FakeSeedlinkServer server = new FakeSeedlinkServer(Set.of("AAA"), List.of())) {
+            SeedlinkNetwork seedlinkNetwork = new SeedlinkNetwork("fake", "localhost", server.getPort());
+            RecordingStation a = new RecordingStation("XX", "AAA", seedlinkNetwork);
+
+            SeedlinkNetworksReader reader = new SeedlinkNetworksReader();
+            try {
+                reader.run(List.of(seedlinkNetwork), List.<AbstractStation>of(a), 0);
+                SeedlinkConnection connection = reader.getConnections().get(0);
+
+                // the only station failed, which is over the error limit, so a reconnect is scheduled
+                waitFor("Reconnect was not scheduled", () -> connection.getReconnects() == 1);
+                assertEquals(SeedlinkStatus.DISCONNECTED, connection.getStatus());
+                assertEquals(SeedlinkStatus.DISCONNECTED, seedlinkNetwork.status);
+            } finally {
+                reader.stop();
+            }
+        }
+    }
+
+    @Test
+    public void testNoStationsDoesNotReconnect() throws Exception {
+        try (FakeSeedlinkServer server = new FakeSeedlinkServer(Set.of(), List.of())) {
+            SeedlinkNetwork seedlinkNetwork = new SeedlinkNetwork("fake", "localhost", server.getPort());
+
+            SeedlinkNetworksReader reader = new SeedlinkNetworksReader();
+            try {
+                reader.run(List.of(seedlinkNetwork), List.of(), 0);
+                SeedlinkConnection connection = reader.getConnections().get(0);
+
+                waitFor("Server was not contacted", () -> server.accepted.get() == 1);
+                waitFor("Connection was not closed", () -> connection.getStatus() == SeedlinkStatus.DISCONNECTED);
+                Thread.sleep(100);
+                assertEquals(0, connection.getReconnects());
+            } finally {
+                reader.stop();
+            }
+        }
+    }
+
+    @Test
+    public void testReconnectDelay() {
+        SeedlinkConnection connection = new SeedlinkConnection(new SeedlinkNetwork("fake", "localhost", 1), List.of(), "fake");
+        List<Integer> delays = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            delays.add(connection.nextReconnectDelay());
+        }
+        assertEquals(List.of(10, 20, 40, 80, 160, 320, 320, 320), delays);
+    }
+}
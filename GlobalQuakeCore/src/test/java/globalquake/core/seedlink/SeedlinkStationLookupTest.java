@@ -0,0 +1,46 @@
+package globalquake.core.seedlink;
+
+import edu.sc.seis.seisFile.mseed.DataHeader;
+import globalquake.core.station.AbstractStation;
+import globalquake.core.station.GlobalStation;
+import gqserver.api.packets.station.InputType;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class SeedlinkStationLookupTest {
+
+    private static GlobalStation station(String network, String code, String channel, String location) {
+        return new GlobalStation(network, code, channel, location, 0, 0, 0, 0, null, -1, InputType.UNKNOWN);
+    }
+
+    private static DataHeader header(String network, String code, String channel, String location) {
+        DataHeader header = new DataHeader(1, 'D', false);
+        header.setNetworkCode(network);
+        header.setStationIdentifier(code);
+        header.setChannelIdentifier(channel);
+        header.setLocationIdentifier(location);
+        return header;
+    }
+
+    @Test
+    public void testFind() {
+        GlobalStation a = station("CZ", "KRUC", "HHZ", "");
+        GlobalStation b = station("CZ", "PRU", "HHZ", "");
+        GlobalStation c1 = station("GE", "MORC", "BHZ", "");
+        GlobalStation c2 = station("GE", "MORC", "HHZ", "00");
+
+        SeedlinkStationLookup lookup = new SeedlinkStationLookup(List.<AbstractStation>of(a, b, c1, c2));
+        assertEquals(4, lookup.size());
+
+        assertSame(a, lookup.find(header("CZ", "KRUC", "HHZ", "")));
+        assertSame(b, lookup.find(header("CZ", "PRU", "HHZ", "")));
+        assertSame(c1, lookup.find(header("GE", "MORC", "BHZ", "")));
+        assertSame(c2, lookup.find(header("GE", "MORC", "HHZ", "00")));
+
+        assertNull(lookup.find(header("CZ", "XXX", "HHZ", "")));
+        assertNull(lookup.find(header("XX", "KRUC", "HHZ", "")));
+    }
+}
@@ -1,9 +1,11 @@
 package globalquake.core.station;
 
+import globalquake.core.analysis.Event;
 import gqserver.api.packets.station.InputType;
 import org.junit.Test;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 
 public class AbstractStationTest {
 
@@ -59,4 +61,52 @@ public class AbstractStationTest {
         assertEquals(StationState.ACTIVE, abstractStation.getStateAt(65 + AbstractStation.INTERVAL_MAX_GAP));
     }
 
-}
\ No newline at end of file
+    @Test
+    public void testManyIntervals() {
+        AbstractStation abstractStation = new GlobalStation("", "", "", "", 5, 5, 5, 5, null, -1, InputType.UNKNOWN);
+        for (int i = 0; i < 1000; i++) {
+            abstractStation.reportState(i % 2 == 0 ? StationState.ACTIVE : StationState.INACTIVE, i * 10L);
+        }
+
+        assertEquals(StationState.UNKNOWN, abstractStation.getStateAt(-1));
+        assertEquals(StationState.ACTIVE, abstractStation.getStateAt(5));
+        assertEquals(StationState.INACTIVE, abstractStation.getStateAt(10));
+        assertEquals(StationState.INACTIVE, abstractStation.getStateAt(4475));
+        assertEquals(StationState.ACTIVE, abstractStation.getStateAt(4985));
+        assertEquals(StationState.UNKNOWN, abstractStation.getStateAt(9990));
+
+        // intervals added by hand out of order are still found
+        abstractStation.getIntervals().add(new StationInterval(-100, -50, StationState.ACTIVE));
+        assertEquals(StationState.ACTIVE, abstractStation.getStateAt(-60));
+        assertEquals(StationState.ACTIVE, abstractStation.getStateAt(5));
+    }
+
+    @Test
+    public void testEventAt() {
+        AbstractStation abstractStation = new GlobalStation("", "", "", "", 5, 5, 5, 5, null, -1, InputType.UNKNOWN);
+        assertNull(abstractStation.getEventAt(0, 0));
+
+        Event first = new Event(abstractStation.getAnalysis());
+        first.setpWave(10_000);
+        first.end(20_000);
+        abstractStation.getAnalysis().addDetectedEvent(first);
+
+        Event second = new Event(abstractStation.getAnalysis());
+        second.setpWave(50_000);
+        abstractStation.getAnalysis().addDetectedEvent(second);
+
+        assertNull(abstractStation.getEventAt(5_000, 1000));
+        assertEquals(first, abstractStation.getEventAt(9_500, 1000));
+        assertEquals(first, abstractStation.getEventAt(15_000, 1000));
+        assertNull(abstractStation.getEventAt(19_500, 1000));
+        assertEquals(second, abstractStation.getEventAt(60_000, 1000));
+
+        // moving the P wave is reflected in the index
+        second.setpWave(30_000);
+        assertEquals(second, abstractStation.getEventAt(29_500, 1000));
+
+        second.endBadly();
+        assertNull(abstractStation.getEventAt(60_000, 1000));
+    }
+
+}
@@ -0,0 +1,218 @@
+package globalquake.core.station;
+
+import edu.sc.seis.seisFile.mseed.DataRecord;
+import globalquake.core.analysis.Analysis;
+import globalquake.core.seedlink.MiniSeedRecords;
+import gqserver.api.packets.station.InputType;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.Assert.*;
+
+public class DataRecordIngestTest {
+
+    private static final int QUEUE_CAPACITY = 256;
+
+    /**
+     * Records the start times of the analysed records and the threads that analysed them,
+     * the analysis of a record can be held until {@code release} is counted down
+     */
+    private static class RecordingAnalysis extends Analysis {
+
+        private final List<Long> starts = new CopyOnWriteArrayList<>();
+        private final Set<Thread> threads = ConcurrentHashMap.newKeySet();
+        private final CountDownLatch entered = new CountDownLatch(1);
+        private final CountDownLatch release;
+        private volatile long lastSecond = -1;
+
+        RecordingAnalysis(AbstractStation station, boolean blocking) {
+            super(station);
+            this.release = new CountDownLatch(blocking ? 1 : 0);
+        }
+
+        @Override
+        public void analyse(DataRecord dr) {
+            threads.add(Thread.currentThread());
+            starts.add(dr.getStartBtime().toInstant().toEpochMilli());
+            entered.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        @Override
+        public void nextSample(int v, long time, long currentTime) {
+        }
+
+        @Override
+        public long getGapThreshold() {
+            return 0;
+        }
+
+        @Override
+        public void second(long time) {
+            lastSecond = time;
+        }
+    }
+
+    private static class RecordingStation extends GlobalStation {
+
+        private final RecordingAnalysis analysis;
+
+        RecordingStation(int id, boolean blocking) {
+            super("XX", "S%d".formatted(id), "HHZ", "", 0, 0, 0, id, null, -1, InputType.UNKNOWN);
+            this.analysis = new RecordingAnalysis(this, blocking);
+        }
+
+        @Override
+        public RecordingAnalysis getAnalysis() {
+            return analysis;
+        }
+    }
+
+    private static byte[] frame(long start) throws Exception {
+        return MiniSeedRecords.create("XX", "S", "HHZ", "", start, 50, new int[10]).get(0).toByteArray();
+    }
+
+    private static void waitFor(String message, BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            assertTrue(message, System.currentTimeMillis() < deadline);
+            Thread.sleep(5);
+        }
+    }
+
+    @Test
+    public void testOrderPerStation() throws Exception {
+        DataRecordIngest ingest = new DataRecordIngest(2, () -> 12345L);
+        try {
+            List<RecordingStation> stations = new ArrayList<>();
+            for (int id = 0; id < 4; id++) {
+                stations.add(new RecordingStation(id, false));
+            }
+
+            List<Long> expected = new ArrayList<>();
+            for (int i = 0; i < 50; i++) {
+                long start = i * 1000L;
+                expected.add(start);
+                byte[] data = frame(start);
+                for (RecordingStation station : stations) {
+                    ingest.submit(station, data);
+                }
+            }
+
+            waitFor("Records were not analysed", () -> ingest.getQueued() == 0);
+            for (RecordingStation station : stations) {
+                RecordingAnalysis analysis = station.getAnalysis();
+                assertEquals(expected, analysis.starts);
+                assertEquals(1, analysis.threads.size());
+                waitFor("Analysis was not moved to the current time", () -> analysis.lastSecond == 12345L);
+            }
+
+            // stations with the same index modulo the number of workers share one
+            assertEquals(stations.get(0).getAnalysis().threads, stations.get(2).getAnalysis().threads);
+            assertNotEquals(stations.get(0).getAnalysis().threads, stations.get(1).getAnalysis().threads);
+        } finally {
+            ingest.destroy();
+        }
+    }
+
+    @Test
+    public void testClearDiscardsQueuedFrames() throws Exception {
+        DataRecordIngest ingest = new DataRecordIngest(1, () -> 0L);
+        RecordingStation station = new RecordingStation(0, true);
+        RecordingAnalysis analysis = station.getAnalysis();
+        try {
+            byte[] data = frame(0);
+            ingest.submit(station, data);
+            assertTrue(analysis.entered.await(5, TimeUnit.SECONDS));
+
+            for (int i = 0; i < 10; i++) {
+                ingest.submit(station, data);
+            }
+            assertEquals(11, ingest.getQueued());
+            assertEquals(10, ingest.getMaxStationQueued());
+
+            ingest.clear();
+            assertEquals(0, ingest.getMaxStationQueued());
+            analysis.release.countDown();
+
+            waitFor("Discarded records are still counted", () -> ingest.getQueued() == 0);
+            assertEquals(1, analysis.starts.size());
+
+            // the station is queued again from scratch
+            ingest.submit(station, frame(1000));
+            waitFor("Records were not analysed", () -> ingest.getQueued() == 0);
+            assertEquals(List.of(0L, 1000L), analysis.starts);
+        } finally {
+            ingest.destroy();
+        }
+    }
+
+    @Test
+    public void testFullQueueDropsFrames() throws Exception {
+        DataRecordIngest ingest = new DataRecordIngest(1, () -> 0L);
+        RecordingStation station = new RecordingStation(0, true);
+        RecordingAnalysis analysis = station.getAnalysis();
+        try {
+            byte[] data = frame(0);
+            ingest.submit(station, data);
+            assertTrue(analysis.entered.await(5, TimeUnit.SECONDS));
+
+            long dropped = ingest.getDropped();
+            for (int i = 0; i < QUEUE_CAPACITY + 5; i++) {
+                ingest.submit(station, data);
+            }
+            assertEquals(dropped + 5, ingest.getDropped());
+            assertEquals(QUEUE_CAPACITY + 1, ingest.getQueued());
+            assertEquals(QUEUE_CAPACITY, ingest.getMaxStationQueued());
+
+            analysis.release.countDown();
+            waitFor("Records were not analysed", () -> ingest.getQueued() == 0);
+            assertEquals(QUEUE_CAPACITY + 1, analysis.starts.size());
+            assertEquals(dropped + 5, ingest.getDropped());
+        } finally {
+            ingest.destroy();
+        }
+    }
+
+    @Test
+    public void testDestroyStopsWorkers() throws Exception {
+        DataRecordIngest ingest = new DataRecordIngest(2, () -> 0L);
+        RecordingStation idle = new RecordingStation(0, false);
+        RecordingStation stuck = new RecordingStation(1, true);
+
+        byte[] data = frame(0);
+        ingest.submit(idle, data);
+        ingest.submit(stuck, data);
+        ingest.submit(stuck, data);
+        assertTrue(stuck.getAnalysis().entered.await(5, TimeUnit.SECONDS));
+        waitFor("Records were not analysed", () -> idle.getAnalysis().starts.size() == 1);
+
+        // the worker held in the analysis is interrupted
+        ingest.destroy();
+        assertEquals(0, ingest.getQueued());
+
+        List<Thread> threads = new ArrayList<>(idle.getAnalysis().threads);
+        threads.addAll(stuck.getAnalysis().threads);
+        assertEquals(2, threads.size());
+        for (Thread thread : threads) {
+            thread.join(5000);
+            assertFalse(thread.isAlive());
+        }
+
+        // frames arriving after the shutdown are not analysed
+        ingest.submit(idle, data);
+        assertEquals(1, idle.getAnalysis().starts.size());
+    }
+}
@@ -0,0 +1,59 @@
+package globalquake.core.station;
+
+import globalquake.utils.GeoUtils;
+import gqserver.api.packets.station.InputType;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class StationSpatialIndexTest {
+
+    private static List<AbstractStation> createStations(int count, Random random) {
+        List<AbstractStation> stations = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            double lat = Math.toDegrees(Math.asin(2 * random.nextDouble() - 1));
+            double lon = random.nextDouble() * 360.0 - 180.0;
+            stations.add(new GlobalStation("", "", "", "", lat, lon, 0, i, null, -1, InputType.UNKNOWN));
+        }
+        return stations;
+    }
+
+    @Test
+    public void testMatchesBruteForce() {
+        Random random = new Random(42);
+        List<AbstractStation> stations = createStations(20000, random);
+        StationSpatialIndex index = new StationSpatialIndex(stations, null);
+
+        double[][] queries = {{0, 0}, {0, 179.9}, {0, -179.9}, {89.5, 30}, {-89.9, -120}, {60, 175}, {-45, 0.5}};
+        double[] radii = {100, 1000, 3000, 12000};
+
+        for (double[] query : queries) {
+            for (double radius : radii) {
+                Set<AbstractStation> expected = new HashSet<>();
+                for (AbstractStation station : stations) {
+                    if (GeoUtils.greatCircleDistance(query[0], query[1], station.getLatitude(), station.getLongitude()) <= radius) {
+                        expected.add(station);
+                    }
+                }
+
+                List<AbstractStation> result = index.getStationsWithin(query[0], query[1], radius);
+                assertEquals(expected.size(), result.size());
+                assertEquals(expected, new HashSet<>(result));
+            }
+        }
+    }
+
+    @Test
+    public void testManagerRebuildsIndex() {
+        GlobalStationManager manager = new GlobalStationManager();
+        assertTrue(manager.getStationsWithin(0, 0, 1000).isEmpty());
+
+        manager.getStations().addAll(createStations(500, new Random(1)));
+        manager.getStations().add(new GlobalStation("", "", "", "", 1, 1, 0, 999, null, -1, InputType.UNKNOWN));
+
+        assertTrue(manager.getStationsWithin(1, 1, 1).stream().anyMatch(station -> station.getId() == 999));
+    }
+
+}
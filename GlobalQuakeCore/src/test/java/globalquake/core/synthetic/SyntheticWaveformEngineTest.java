@@ -0,0 +1,57 @@
+package globalquake.core.synthetic;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class SyntheticWaveformEngineTest {
+
+    private static List<Integer> run(SyntheticWaveformEngine engine, long start, long[] steps) {
+        List<Integer> result = new ArrayList<>();
+        SyntheticChannel channel = engine.createChannel(50, 17, 42, (samples, count, startTime) -> {
+            for (int i = 0; i < count; i++) {
+                result.add(samples[i]);
+            }
+        });
+
+        engine.generate(List.of(channel), start, 0);
+        for (long step : steps) {
+            engine.generate(List.of(channel), start + step, 0);
+        }
+        return result;
+    }
+
+    @Test
+    public void testBlocksAreContinuous() {
+        SyntheticWaveformEngine engine = new SyntheticWaveformEngine(100, 0, 1);
+        long start = 1_700_000_000_000L;
+
+        List<Integer> once = run(engine, start, new long[]{60_000});
+        List<Integer> inSteps = run(engine, start, new long[]{250, 260, 5000, 5003, 33_333, 60_000});
+
+        assertEquals(6000, once.size());
+        assertEquals(once, inSteps);
+    }
+
+    @Test
+    public void testBackgroundNoise() {
+        NoiseTables tables = NoiseTables.get(50, 0);
+        assertSame(tables, NoiseTables.get(50, 0));
+
+        double sumSquares = 0;
+        for (float value : tables.background) {
+            sumSquares += value * value;
+        }
+        double rms = Math.sqrt(sumSquares / NoiseTables.SIZE);
+
+        double expected = 0;
+        for (int band = 0; band < NoiseTables.BANDS; band++) {
+            double level = 0.3 * NoiseTables.backgroundNoise(NoiseTables.MIN_FREQ * Math.pow(2, band));
+            expected += level * level;
+        }
+        assertEquals(Math.sqrt(expected), rms, Math.sqrt(expected) * 0.1);
+    }
+}
@@ -0,0 +1,44 @@
+package globalquake.ui.globe;
+
+import org.junit.Test;
+
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ScreenSpaceGridTest {
+
+    @Test
+    public void testQueries() {
+        float[] xs = {5, 20, 21, 95, -10, 50};
+        float[] ys = {5, 20, 22, 95, 50, 50};
+        int[] indices = {0, 1, 2, 3, 4};
+
+        // the last point is not inserted
+        ScreenSpaceGrid grid = new ScreenSpaceGrid(16);
+        grid.build(xs, ys, indices, indices.length, 100, 100);
+
+        List<Integer> near = new ArrayList<>();
+        grid.forEachNear(20, 20, 3, near::add);
+        near.sort(null);
+        assertEquals(List.of(1, 2), near);
+        assertEquals(1, grid.findNearest(19, 19, 10));
+        assertEquals(-1, grid.findNearest(50, 50, 10));
+
+        // points slightly off the screen are kept in the border cells
+        near.clear();
+        grid.forEachNear(0, 50, 12, near::add);
+        assertEquals(List.of(4), near);
+
+        List<Integer> inside = new ArrayList<>();
+        grid.forEachInside(new Rectangle2D.Double(0, 0, 21, 21), inside::add);
+        inside.sort(null);
+        assertEquals(List.of(0, 1), inside);
+
+        inside.clear();
+        grid.forEachInside(new Rectangle2D.Double(-20, 0, 200, 200), inside::add);
+        assertEquals(5, inside.size());
+    }
+}
@@ -0,0 +1,62 @@
+package globalquake.utils;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class SlidingWindowMaxTest {
+
+    @Test
+    public void testMatchesBruteForce() {
+        int[] windows = {1, 10, 60, 300};
+        SlidingWindowMax windowMax = new SlidingWindowMax(windows);
+        List<Double> values = new ArrayList<>();
+        Random random = new Random(42);
+
+        for (int i = 0; i < 2000; i++) {
+            // runs of equal and decreasing values are the tricky cases for the deque
+            double value = i % 97 < 20 ? 5.0 : i % 53 < 15 ? 1000.0 - i : random.nextDouble() * 100.0;
+            windowMax.add(value);
+            values.add(value);
+
+            for (int w = 0; w < windows.length; w++) {
+                double expected = values.subList(Math.max(0, values.size() - windows[w]), values.size())
+                        .stream().mapToDouble(Double::doubleValue).max().orElse(0.0);
+                assertEquals(expected, windowMax.getMax(w), 0.0);
+            }
+        }
+
+        assertEquals(2000, windowMax.getCount());
+    }
+
+    @Test
+    public void testClear() {
+        SlidingWindowMax windowMax = new SlidingWindowMax(3);
+        assertEquals(0.0, windowMax.getMax(0), 0.0);
+
+        windowMax.add(7.0);
+        windowMax.add(2.0);
+        assertEquals(7.0, windowMax.getMax(0), 0.0);
+
+        windowMax.clear();
+        assertEquals(0.0, windowMax.getMax(0), 0.0);
+        assertEquals(0, windowMax.getCount());
+
+        windowMax.add(1.0);
+        windowMax.add(3.0);
+        windowMax.add(2.0);
+        windowMax.add(1.5);
+        assertEquals(3.0, windowMax.getMax(0), 0.0);
+        windowMax.add(0.5);
+        assertEquals(2.0, windowMax.getMax(0), 0.0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidWindow() {
+        new SlidingWindowMax(10, 0);
+    }
+}
@@ -0,0 +1,55 @@
+package globalquake.utils;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class SpscQueueTest {
+
+    @Test
+    public void testCapacity() {
+        SpscQueue<Integer> queue = new SpscQueue<>(5);
+        assertEquals(8, queue.capacity());
+        for (int i = 0; i < 8; i++) {
+            assertTrue(queue.offer(i));
+        }
+        assertFalse(queue.offer(8));
+        assertEquals(8, queue.size());
+
+        assertEquals(Integer.valueOf(0), queue.poll());
+        assertTrue(queue.offer(8));
+        for (int i = 1; i <= 8; i++) {
+            assertEquals(Integer.valueOf(i), queue.poll());
+        }
+        assertNull(queue.poll());
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    public void testConcurrentOrder() throws InterruptedException {
+        SpscQueue<Integer> queue = new SpscQueue<>(64);
+        int count = 50_000;
+
+        Thread producer = new Thread(() -> {
+            for (int i = 0; i < count; i++) {
+                while (!queue.offer(i)) {
+                    Thread.yield();
+                }
+            }
+        });
+        producer.start();
+
+        int expected = 0;
+        while (expected < count) {
+            Integer value = queue.poll();
+            if (value == null) {
+                Thread.yield();
+                continue;
+            }
+            assertEquals(expected++, value.intValue());
+        }
+
+        producer.join();
+        assertTrue(queue.isEmpty());
+    }
+}
@@ -0,0 +1,71 @@
+package globalquake.utils.monitorable;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.Assert.*;
+
+public class MonitorableRegistryTest {
+
+    private record Entity(UUID uuid, String name) {
+    }
+
+    @Test
+    public void testLookupAndOrder() {
+        MonitorableRegistry<Entity> registry = new MonitorableRegistry<>(Entity::uuid);
+        Entity a = new Entity(UUID.randomUUID(), "a");
+        Entity b = new Entity(UUID.randomUUID(), "b");
+        Entity c = new Entity(UUID.randomUUID(), "c");
+
+        registry.add(a);
+        registry.add(b);
+        registry.add(c);
+
+        assertEquals(List.of(a, b, c), registry);
+        assertSame(b, registry.get(b.uuid()));
+        assertTrue(registry.contains(c));
+        assertFalse(registry.contains(new Entity(UUID.randomUUID(), "d")));
+
+        Entity b2 = new Entity(b.uuid(), "b2");
+        registry.add(b2);
+        assertEquals(List.of(a, b2, c), registry);
+
+        assertFalse(registry.remove(b));
+        assertTrue(registry.remove(b2));
+        assertSame(a, registry.remove(a.uuid()));
+        assertEquals(List.of(c), registry);
+        assertNull(registry.get(a.uuid()));
+    }
+
+    @Test
+    public void testSnapshotAndRevision() {
+        MonitorableRegistry<Entity> registry = new MonitorableRegistry<>(Entity::uuid);
+        Entity a = new Entity(UUID.randomUUID(), "a");
+        Entity b = new Entity(UUID.randomUUID(), "b");
+        registry.add(a);
+
+        List<Entity> snapshot = registry.snapshot();
+        int revision = registry.getRevision();
+
+        registry.add(b);
+        assertEquals(List.of(a), snapshot);
+        assertNotEquals(revision, registry.getRevision());
+
+        revision = registry.getRevision();
+        assertTrue(registry.update(a));
+        assertNotEquals(revision, registry.getRevision());
+        assertFalse(registry.update(new Entity(UUID.randomUUID(), "c")));
+
+        revision = registry.getRevision();
+        registry.add(a);
+        assertEquals(revision, registry.getRevision());
+
+        // removing while iterating works on the snapshot
+        for (Entity entity : registry) {
+            registry.remove(entity);
+        }
+        assertTrue(registry.isEmpty());
+    }
+}
@@ -0,0 +1,274 @@
+package globalquake.loadtest.ingest;
+
+import edu.sc.seis.seisFile.mseed.DataRecord;
+import globalquake.core.GlobalQuake;
+import globalquake.core.Settings;
+import globalquake.core.database.*;
+import globalquake.core.events.GlobalQuakeEventListener;
+import globalquake.core.events.specific.SeedlinkDataEvent;
+import globalquake.core.metrics.LatencyHistogram;
+import globalquake.core.station.AbstractStation;
+import globalquake.loadtest.seedlink.SeedlinkServer;
+import globalquake.loadtest.seedlink.SeedlinkServerMain;
+import globalquake.loadtest.seedlink.ServedStation;
+import globalquake.loadtest.seedlink.SyntheticRecordSource;
+import gqserver.api.packets.station.InputType;
+import gqserver.server.GlobalQuakeServer;
+import org.tinylog.Logger;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs a headless {@link GlobalQuakeServer} connected to a local {@link SeedlinkServer} with synthetic stations and measures
+ * the time from the moment a record is released by the seedlink server until it is analysed by its station and passed
+ * to the listeners of the data, which is where {@link gqserver.server.DataService} picks it up for the clients.
+ * <p>
+ * In the real time mode the records are produced as they would be recorded, the test shows whether the server keeps up
+ * and with what latency. In the throughput mode the seedlink server starts in the past and sends the backlog as fast
+ * as it is read, the rate at which the records are analysed until the server catches up is the most it can sustain.
+ * <pre>
+ * java -cp GlobalQuakeLoadTest.jar globalquake.loadtest.ingest.IngestLoadTest [options]
+ *   --stations N         number of synthetic stations, 1000 by default
+ *   --sps RATE           sample rate, 100 by default
+ *   --record SECONDS     duration of one record, 2 by default
+ *   --seconds N          duration of the test, 120 by default
+ *   --connections N      stations per seedlink connection, all stations use one connection by default
+ *   --jitter MS          random delay of the records
+ *   --out-of-order P     probability that a record is swapped with the next one of its station
+ *   --gaps P             probability that a record is left out
+ *   --throughput SECONDS start this far in the past, at most the time the server keeps the data for
+ *   --quakes N           synthetic earthquakes during the test
+ *   --threads N          threads generating the synthetic data
+ * </pre>
+ * The travel time table has to be on the classpath, same as for the server.
+ */
+public class IngestLoadTest extends GlobalQuakeEventListener {
+
+    private static final double SENSITIVITY = 7E10;
+    private static final long REPORT_INTERVAL = 10_000;
+
+    private final Map<Long, Long> releaseTimes = new ConcurrentHashMap<>();
+    private final Map<AbstractStation, Integer> stationIndexes = new IdentityHashMap<>();
+
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private volatile LatencyHistogram intervalLatency = new LatencyHistogram();
+
+    private final AtomicLong released = new AtomicLong();
+    private final AtomicLong analysed = new AtomicLong();
+    private final AtomicLong unknown = new AtomicLong();
+
+    // newest analysed sample of each station, written only by the thread of the data events
+    private long[] newestAnalysed;
+
+    public static void main(String[] args) throws Exception {
+        int stations = 1000;
+        double sampleRate = 100;
+        double recordSeconds = 2;
+        int seconds = 120;
+        int perConnection = 0;
+        long jitter = 0;
+        double outOfOrder = 0;
+        double gaps = 0;
+        long backlog = -1;
+        int quakes = 0;
+        int threads = Runtime.getRuntime().availableProcessors();
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--stations" -> stations = Integer.parseInt(nextArg(args, ++i));
+                case "--sps" -> sampleRate = Double.parseDouble(nextArg(args, ++i));
+                case "--record" -> recordSeconds = Double.parseDouble(nextArg(args, ++i));
+                case "--seconds" -> seconds = Integer.parseInt(nextArg(args, ++i));
+                case "--connections" -> perConnection = Integer.parseInt(nextArg(args, ++i));
+                case "--jitter" -> jitter = Long.parseLong(nextArg(args, ++i));
+                case "--out-of-order" -> outOfOrder = Double.parseDouble(nextArg(args, ++i));
+                case "--gaps" -> gaps = Double.parseDouble(nextArg(args, ++i));
+                case "--throughput" -> backlog = Long.parseLong(nextArg(args, ++i)) * 1000;
+                case "--quakes" -> quakes = Integer.parseInt(nextArg(args, ++i));
+                case "--threads" -> threads = Integer.parseInt(nextArg(args, ++i));
+                default -> throw new IllegalArgumentException("Unknown argument " + args[i]);
+            }
+        }
+
+        File folder = Files.createTempDirectory("gq-loadtest").toFile();
+        folder.deleteOnExit();
+        GlobalQuake.prepare(folder, null);
+        Settings.seedlinkMaxStationsPerConnection = perConnection;
+
+        // older records would be thrown away by the stations
+        long maxBacklog = TimeUnit.MINUTES.toMillis(Settings.logsStoreTimeMinutes) - 30_000;
+        if (backlog > maxBacklog) {
+            Logger.warn("Backlog limited to %d s by the logs store time".formatted(maxBacklog / 1000));
+            backlog = maxBacklog;
+        }
+
+        new IngestLoadTest().run(stations, sampleRate, recordSeconds, seconds, jitter, outOfOrder, gaps, backlog, quakes, threads);
+        System.exit(0);
+    }
+
+    private void run(int stationCount, double sampleRate, double recordSeconds, int seconds, long jitter, double outOfOrder,
+                     double gaps, long backlog, int quakes, int threads) throws Exception {
+        SyntheticRecordSource source = new SyntheticRecordSource(stationCount, sampleRate, recordSeconds, 0, threads);
+        newestAnalysed = new long[stationCount];
+        long start = System.currentTimeMillis();
+        if (quakes > 0) {
+            source.setQuakes(SeedlinkServerMain.createQuakes(quakes, start - Math.max(0, backlog), Math.max(0, backlog) + seconds * 1000L, 0));
+        }
+
+        SeedlinkServer server = new SeedlinkServer(source)
+                .setJitter(jitter)
+                .setOutOfOrder(outOfOrder)
+                .setGaps(gaps)
+                .setListener(this::released);
+        if (backlog >= 0) {
+            server.setThroughputMode(backlog);
+        }
+
+        int port = server.start("127.0.0.1", 0);
+
+        StationDatabase database = createDatabase(source.getStations(), new SeedlinkNetwork("Load test", "127.0.0.1", port));
+        GlobalQuakeServer globalQuake = new GlobalQuakeServer(new StationDatabaseManager(database));
+        globalQuake.initStations();
+        // synthetic stations are named by their index
+        for (AbstractStation station : globalQuake.getStationManager().getStations()) {
+            stationIndexes.put(station, Integer.parseInt(station.getStationCode()));
+        }
+
+        globalQuake.getServerSocket().getDataService().run();
+        globalQuake.getEventHandler().registerEventListener(this);
+        globalQuake.startRuntime();
+
+        System.out.printf(Locale.ROOT, "%d stations at %.0f sps in records of %.1f s, %s%n", stationCount, sampleRate, recordSeconds,
+                backlog >= 0 ? "throughput mode with %d s of backlog".formatted(backlog / 1000) : "real time");
+        System.out.printf("%8s %10s %10s %9s %9s %9s %8s%n", "time", "sent/s", "analysed/s", "p50 ms", "p99 ms", "max ms", "lag s");
+
+        long testStart = System.currentTimeMillis();
+        long caughtUp = -1;
+        long analysedAtCatchUp = 0;
+        long lastReleased = 0;
+        long lastAnalysed = 0;
+        long end = testStart + seconds * 1000L;
+        while (System.currentTimeMillis() < end) {
+            Thread.sleep(REPORT_INTERVAL);
+            long now = System.currentTimeMillis();
+
+            LatencyHistogram histogram = intervalLatency;
+            intervalLatency = new LatencyHistogram();
+            long releasedNow = released.get();
+            long analysedNow = analysed.get();
+            double lag = getLag(now);
+
+            System.out.printf(Locale.ROOT, "%7ds %10.0f %10.0f %9.1f %9.1f %9.1f %8.1f%n", (now - testStart) / 1000,
+                    (releasedNow - lastReleased) * 1000.0 / REPORT_INTERVAL, (analysedNow - lastAnalysed) * 1000.0 / REPORT_INTERVAL,
+                    histogram.getPercentile(50) / 1E6, histogram.getPercentile(99) / 1E6, histogram.getPercentile(100) / 1E6, lag);
+
+            // caught up once the data of every station are not older than a record and the usual delay
+            if (backlog >= 0 && caughtUp < 0 && lag < recordSeconds + 5) {
+                caughtUp = now;
+                analysedAtCatchUp = analysedNow;
+            }
+
+            lastReleased = releasedNow;
+            lastAnalysed = analysedNow;
+        }
+
+        System.out.printf(Locale.ROOT, "Released %d records, analysed %d, %d were not analysed or are still in flight, %d of unknown stations%n",
+                released.get(), analysed.get(), releaseTimes.size(), unknown.get());
+        System.out.printf(Locale.ROOT, "Server left out %d records, reordered %d, dropped %d packets for slow clients%n",
+                server.getDropped(), server.getReordered(), server.getOverflows());
+        System.out.printf(Locale.ROOT, "Record to analysis latency: p50 %.1f ms, p90 %.1f ms, p99 %.1f ms, max %.1f ms%n",
+                latency.getPercentile(50) / 1E6, latency.getPercentile(90) / 1E6, latency.getPercentile(99) / 1E6, latency.getPercentile(100) / 1E6);
+
+        if (backlog >= 0) {
+            if (caughtUp < 0) {
+                System.out.printf(Locale.ROOT, "Did not catch up, at least %.0f records/s can not be sustained%n",
+                        analysed.get() * 1000.0 / (System.currentTimeMillis() - testStart));
+            } else {
+                System.out.printf(Locale.ROOT, "Caught up after %.1f s, sustained %.0f records/s (%.0f samples/s)%n",
+                        (caughtUp - testStart) / 1000.0, analysedAtCatchUp * 1000.0 / (caughtUp - testStart),
+                        analysedAtCatchUp * 1000.0 / (caughtUp - testStart) * recordSeconds * sampleRate);
+            }
+        } else {
+            System.out.printf(Locale.ROOT, "Real time rate is %.0f records/s%n", stationCount / recordSeconds);
+        }
+
+        globalQuake.stopRuntime();
+        server.close();
+    }
+
+    /**
+     * @return database of the stations served by a local seedlink server, each with its only channel selected
+     */
+    public static StationDatabase createDatabase(List<ServedStation> stations, SeedlinkNetwork seedlinkNetwork) {
+        StationDatabase database = new StationDatabase();
+        database.getSeedlinkNetworks().add(seedlinkNetwork);
+        StationSource stationSource = new StationSource("Load test", "");
+
+        for (ServedStation served : stations) {
+            Network network = database.getOrCreateNetwork(served.network(), "Synthetic stations");
+            Station station = StationDatabase.getOrCreateStation(network, served.station(), "Synthetic station", served.lat(), served.lon(), 0);
+            Channel channel = StationDatabase.getOrCreateChannel(station, served.channel(), served.location(), served.lat(), served.lon(), 0,
+                    served.sampleRate(), stationSource, SENSITIVITY, InputType.VELOCITY);
+            channel.getSeedlinkNetworks().put(seedlinkNetwork, 0L);
+            station.setSelectedChannel(channel);
+        }
+
+        return database;
+    }
+
+    private static long key(int stationIndex, DataRecord record) {
+        return ((long) stationIndex << 42) | record.getStartBtime().toInstant().toEpochMilli();
+    }
+
+    private void released(ServedStation station, DataRecord record, long time) {
+        releaseTimes.put(key(station.index(), record), time);
+        released.incrementAndGet();
+    }
+
+    @Override
+    public void onNewData(SeedlinkDataEvent event) {
+        long now = System.currentTimeMillis();
+        Integer index = stationIndexes.get(event.getStation());
+        Long releaseTime = index == null ? null : releaseTimes.remove(key(index, event.getDataRecord()));
+        if (releaseTime == null) {
+            unknown.incrementAndGet();
+            return;
+        }
+
+        long nanos = TimeUnit.MILLISECONDS.toNanos(now - releaseTime);
+        latency.record(nanos);
+        intervalLatency.record(nanos);
+        analysed.incrementAndGet();
+
+        long sampleTime = event.getDataRecord().getLastSampleBtime().toInstant().toEpochMilli();
+        newestAnalysed[index] = Math.max(newestAnalysed[index], sampleTime);
+    }
+
+    /**
+     * @return how old the newest analysed data of the most lagging station are in seconds or NaN if nothing was analysed
+     */
+    private double getLag(long now) {
+        long oldest = Long.MAX_VALUE;
+        for (long time : newestAnalysed) {
+            if (time > 0) {
+                oldest = Math.min(oldest, time);
+            }
+        }
+        return oldest == Long.MAX_VALUE ? Double.NaN : (now - oldest) / 1000.0;
+    }
+
+    private static String nextArg(String[] args, int i) {
+        if (i >= args.length) {
+            throw new IllegalArgumentException("Missing value of " + args[i - 1]);
+        }
+        return args[i];
+    }
+}
@@ -0,0 +1,118 @@
+package globalquake.loadtest.seedlink;
+
+import edu.sc.seis.seisFile.mseed.Btime;
+import edu.sc.seis.seisFile.mseed.DataHeader;
+import edu.sc.seis.seisFile.mseed.DataRecord;
+import globalquake.core.replay.MiniSeedReplaySource;
+import globalquake.core.seedlink.MiniSeedRecords;
+import org.tinylog.Logger;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.Instant;
+import java.util.*;
+import java.util.function.BiConsumer;
+
+/**
+ * Serves recorded miniSEED files as if they were recorded now: all the records are shifted by the same amount of time,
+ * so that the first record is sent right after the server starts and the rest follows with the original timing.
+ * Records that are not 512 bytes long are compressed again, because seedlink packets carry only 512 byte records.
+ */
+public class FileRecordSource implements RecordSource {
+
+    private final List<File> files;
+    private final List<ServedStation> stations = new ArrayList<>();
+    private final Map<String, ServedStation> stationMap = new HashMap<>();
+
+    private MiniSeedReplaySource source;
+    private long shift;
+    private long recompressed = 0;
+
+    public FileRecordSource(List<File> files) throws IOException {
+        this.files = files;
+
+        // the stations must be known before the clients connect
+        SortedMap<String, DataRecord> streams = new TreeMap<>();
+        try (MiniSeedReplaySource scan = new MiniSeedReplaySource(files)) {
+            while (scan.hasNext()) {
+                DataRecord record = scan.next();
+                streams.putIfAbsent(key(record.getHeader()), record);
+            }
+        }
+
+        for (var entry : streams.entrySet()) {
+            DataHeader header = entry.getValue().getHeader();
+            ServedStation station = new ServedStation(stations.size(), header.getNetworkCode().trim(), header.getStationIdentifier().trim(),
+                    header.getLocationIdentifier().trim(), header.getChannelIdentifier().trim(), Double.NaN, Double.NaN,
+                    entry.getValue().getSampleRate());
+            stations.add(station);
+            stationMap.put(entry.getKey(), station);
+        }
+    }
+
+    private static String key(DataHeader header) {
+        return "%s.%s.%s.%s".formatted(header.getNetworkCode().trim(), header.getStationIdentifier().trim(),
+                header.getLocationIdentifier().trim(), header.getChannelIdentifier().trim());
+    }
+
+    @Override
+    public List<ServedStation> getStations() {
+        return stations;
+    }
+
+    @Override
+    public void produce(long untilTime, BiConsumer<ServedStation, DataRecord> consumer) throws IOException {
+        if (source == null) {
+            source = new MiniSeedReplaySource(files);
+            shift = untilTime - source.peekTime();
+        }
+
+        while (source.hasNext() && source.peekTime() + shift <= untilTime) {
+            DataRecord record = source.next();
+            ServedStation station = stationMap.get(key(record.getHeader()));
+            if (station == null) {
+                continue;
+            }
+
+            for (DataRecord shifted : shift(record, station)) {
+                consumer.accept(station, shifted);
+            }
+        }
+    }
+
+    private List<DataRecord> shift(DataRecord record, ServedStation station) {
+        long start = record.getStartBtime().toInstant().toEpochMilli() + shift;
+        if (record.getRecordSize() == MiniSeedRecords.RECORD_LENGTH) {
+            record.getHeader().setStartBtime(new Btime(Instant.ofEpochMilli(start)));
+            return List.of(record);
+        }
+
+        try {
+            recompressed++;
+            return MiniSeedRecords.create(station.network(), station.station(), station.channel(), station.location(),
+                    start, station.sampleRate(), record.decompress().getAsInt());
+        } catch (Exception e) {
+            Logger.warn("Unable to compress a record of %s again: %s".formatted(station, e.getMessage()));
+            return List.of();
+        }
+    }
+
+    /**
+     * @return number of records that had to be compressed again
+     */
+    public long getRecompressed() {
+        return recompressed;
+    }
+
+    @Override
+    public boolean isExhausted() {
+        return source != null && !source.hasNext();
+    }
+
+    @Override
+    public void close() {
+        if (source != null) {
+            source.close();
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package globalquake.loadtest.seedlink;
+
+import edu.sc.seis.seisFile.mseed.DataRecord;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+/**
+ * Provides the data records served by the {@link SeedlinkServer}. All the methods are called from the server's pump thread.
+ */
+public interface RecordSource extends Closeable {
+
+    /**
+     * @return all the stations of the source, the list must not change once the server is started
+     */
+    List<ServedStation> getStations();
+
+    /**
+     * Passes all the records whose last sample is not after the given time, in the order of time for each station.
+     * The first call determines the time from which the source starts.
+     */
+    void produce(long untilTime, BiConsumer<ServedStation, DataRecord> consumer) throws IOException;
+
+    /**
+     * @return true if the source will not produce any more records
+     */
+    default boolean isExhausted() {
+        return false;
+    }
+
+    @Override
+    default void close() {
+    }
+}
@@ -0,0 +1,249 @@
+package globalquake.loadtest.seedlink;
+
+import org.tinylog.Logger;
+
+import java.io.*;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * One connection to the {@link SeedlinkServer}. The handshake is done in the multi-station mode:
+ * {@code STATION}, any number of {@code SELECT} and {@code DATA} or {@code FETCH} for each station and {@code END} at last.
+ * After that the packets of the selected stations are written until the client disconnects.
+ */
+class SeedlinkClient implements Runnable {
+
+    private static final int MAX_LINE = 256;
+
+    private final SeedlinkServer server;
+    private final Socket socket;
+    private final boolean[] selected;
+    private final BlockingQueue<byte[]> queue;
+
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong overflows = new AtomicLong();
+
+    private volatile boolean closed = false;
+
+    // station being negotiated
+    private String stationPattern;
+    private String networkPattern;
+    private final List<SeedlinkSelector> selectors = new ArrayList<>();
+
+    SeedlinkClient(SeedlinkServer server, Socket socket, int bufferPackets) {
+        this.server = server;
+        this.socket = socket;
+        this.selected = new boolean[server.getStations().size()];
+        this.queue = new ArrayBlockingQueue<>(bufferPackets);
+    }
+
+    @Override
+    public void run() {
+        try (socket) {
+            InputStream in = new BufferedInputStream(socket.getInputStream());
+            OutputStream out = new BufferedOutputStream(socket.getOutputStream(), 64 * 1024);
+
+            if (handshake(in, out)) {
+                server.startStreaming(this);
+                stream(out);
+            }
+        } catch (IOException e) {
+            Logger.debug("Seedlink client %s disconnected: %s".formatted(getName(), e.getMessage()));
+        } finally {
+            closed = true;
+            server.clientLeft(this);
+            queue.clear();
+        }
+    }
+
+    /**
+     * @return true if the client ended the handshake and wants the data
+     */
+    private boolean handshake(InputStream in, OutputStream out) throws IOException {
+        String line;
+        while ((line = readLine(in)) != null) {
+            if (line.isBlank()) {
+                continue;
+            }
+
+            String[] parts = line.trim().split("\\s+");
+            String command = parts[0].toUpperCase(Locale.ROOT);
+            switch (command) {
+                case "HELLO" -> reply(out, "SeedLink v3.1 (GlobalQuake load test server) :: SLPROTO:3.1 CAP EXTREPLY\r\nGlobalQuake\r\n");
+                case "STATION" -> reply(out, station(parts) ? "OK" : "ERROR");
+                case "SELECT" -> reply(out, select(parts) ? "OK" : "ERROR");
+                case "DATA", "FETCH" -> reply(out, data() ? "OK" : "ERROR");
+                case "END" -> {
+                    return true;
+                }
+                case "BYE" -> {
+                    return false;
+                }
+                default -> reply(out, "ERROR");
+            }
+        }
+
+        return false;
+    }
+
+    private boolean station(String[] parts) {
+        if (parts.length < 2) {
+            return false;
+        }
+
+        stationPattern = parts[1];
+        networkPattern = parts.length > 2 ? parts[2] : "??";
+        selectors.clear();
+        return server.getStations().stream().anyMatch(this::matchesStation);
+    }
+
+    private boolean matchesStation(ServedStation station) {
+        return SeedlinkSelector.matches(stationPattern, station.station())
+                && (networkPattern.equals("??") || SeedlinkSelector.matches(networkPattern, station.network()));
+    }
+
+    private boolean select(String[] parts) {
+        if (stationPattern == null) {
+            return false;
+        }
+
+        SeedlinkSelector selector = parts.length > 1 ? SeedlinkSelector.parse(parts[1]) : SeedlinkSelector.ALL;
+        if (selector == null) {
+            return false;
+        }
+
+        selectors.add(selector);
+        return true;
+    }
+
+    /**
+     * Selects the streams of the negotiated station, the sequence number and time arguments are ignored
+     */
+    private boolean data() {
+        if (stationPattern == null) {
+            // the uni-station mode is not supported
+            return false;
+        }
+
+        List<SeedlinkSelector> stationSelectors = selectors.isEmpty() ? List.of(SeedlinkSelector.ALL) : selectors;
+        int count = 0;
+        for (ServedStation station : server.getStations()) {
+            if (matchesStation(station) && stationSelectors.stream().anyMatch(selector -> selector.matches(station))) {
+                selected[station.index()] = true;
+                count++;
+            }
+        }
+
+        stationPattern = null;
+        selectors.clear();
+        return count > 0;
+    }
+
+    private static void reply(OutputStream out, String text) throws IOException {
+        // the whole reply has to arrive at once, the readers stop reading a line when there are no more bytes available
+        out.write((text.endsWith("\n") ? text : text + "\r\n").getBytes(StandardCharsets.US_ASCII));
+        out.flush();
+    }
+
+    /**
+     * @return the line without the terminator or null if the connection was closed
+     */
+    private static String readLine(InputStream in) throws IOException {
+        StringBuilder result = new StringBuilder();
+        int c;
+        while ((c = in.read()) != -1) {
+            if (c == '\r' || c == '\n') {
+                return result.toString();
+            }
+            if (result.length() >= MAX_LINE) {
+                throw new IOException("Command too long");
+            }
+            result.append((char) c);
+        }
+
+        return result.isEmpty() ? null : result.toString();
+    }
+
+    private void stream(OutputStream out) throws IOException {
+        while (!closed) {
+            byte[] packet;
+            try {
+                packet = queue.poll(1, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                return;
+            }
+
+            if (packet == null) {
+                continue;
+            }
+
+            do {
+                out.write(packet);
+                sent.incrementAndGet();
+            } while ((packet = queue.poll()) != null);
+
+            out.flush();
+        }
+    }
+
+    boolean isSelected(ServedStation station) {
+        return selected[station.index()];
+    }
+
+    /**
+     * Queues the packet for the client
+     *
+     * @param block wait until there is space in the buffer instead of dropping the packet
+     */
+    void send(byte[] packet, boolean block) {
+        if (!block) {
+            if (!queue.offer(packet)) {
+                overflows.incrementAndGet();
+            }
+            return;
+        }
+
+        try {
+            // a client that disconnected must not block the server forever
+            while (!closed) {
+                if (queue.offer(packet, 100, TimeUnit.MILLISECONDS)) {
+                    return;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    void close() {
+        closed = true;
+        try {
+            socket.close();
+        } catch (IOException e) {
+            Logger.trace(e);
+        }
+    }
+
+    String getName() {
+        return String.valueOf(socket.getRemoteSocketAddress());
+    }
+
+    long getSent() {
+        return sent.get();
+    }
+
+    long getOverflows() {
+        return overflows.get();
+    }
+
+    int getQueued() {
+        return queue.size();
+    }
+}
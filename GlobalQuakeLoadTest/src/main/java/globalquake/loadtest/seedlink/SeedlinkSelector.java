@@ -0,0 +1,56 @@
+package globalquake.loadtest.seedlink;
+
+/**
+ * Seedlink SELECT pattern {@code LLCCC.T}, where {@code ?} matches any character and the location can be omitted
+ * to match any location. Only data records ({@code D}) are served.
+ *
+ * @param location location pattern or null if any location matches
+ */
+record SeedlinkSelector(String location, String channel) {
+
+    static final SeedlinkSelector ALL = new SeedlinkSelector(null, "???");
+
+    /**
+     * @return the selector or null if the pattern is not valid or selects other types than data records
+     */
+    static SeedlinkSelector parse(String pattern) {
+        String streams = pattern;
+        int dot = pattern.indexOf('.');
+        if (dot != -1) {
+            String type = pattern.substring(dot + 1);
+            if (!(type.equals("D") || type.equals("?"))) {
+                return null;
+            }
+            streams = pattern.substring(0, dot);
+        }
+
+        return switch (streams.length()) {
+            case 3 -> new SeedlinkSelector(null, streams);
+            // empty location is written as "--" in the selectors
+            case 5 -> new SeedlinkSelector(streams.startsWith("??") ? null : streams.substring(0, 2).replace('-', ' '), streams.substring(2));
+            default -> null;
+        };
+    }
+
+    boolean matches(ServedStation station) {
+        return matches(channel, station.channel()) && (location == null || matches(location.trim(), station.location()));
+    }
+
+    /**
+     * @return true if the value matches the pattern character by character, {@code ?} matches any character
+     */
+    static boolean matches(String pattern, String value) {
+        if (pattern.length() != value.length()) {
+            return false;
+        }
+
+        for (int i = 0; i < pattern.length(); i++) {
+            char c = pattern.charAt(i);
+            if (c != '?' && c != value.charAt(i)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+}
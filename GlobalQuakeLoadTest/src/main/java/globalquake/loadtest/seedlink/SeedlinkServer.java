@@ -0,0 +1,425 @@
+package globalquake.loadtest.seedlink;
+
+import edu.sc.seis.seisFile.mseed.DataRecord;
+import globalquake.core.seedlink.MiniSeedRecords;
+import globalquake.utils.NamedThreadFactory;
+import org.tinylog.Logger;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Minimal SeedLink 3 server that serves the records of a {@link RecordSource} to any number of clients,
+ * so that the whole ingest path can be tested over loopback without the real upstream servers.
+ * <p>
+ * A single pump thread takes the records from the source as they become due and can degrade the stream the way
+ * real networks do: records can be delayed by a random jitter, swapped with the next record of the same station
+ * or left out completely. Each client has its own buffer of packets, which is written by the client's thread.
+ * <p>
+ * In the throughput mode the source starts in the past and once the first client starts streaming, the pump produces
+ * the data as fast as the clients take them, waiting for the clients instead of dropping the packets,
+ * until it catches up with the wall clock.
+ */
+public class SeedlinkServer implements Closeable {
+
+    /**
+     * Called on the pump thread whenever a record is released to the clients
+     */
+    public interface ReleaseListener {
+        void released(ServedStation station, DataRecord record, long time);
+    }
+
+    // the most of data produced at once while catching up
+    private static final long MAX_STEP = 1000;
+
+    private final RecordSource source;
+    private final List<ServedStation> stations;
+
+    private long interval = 100;
+    private long jitter = 0;
+    private double outOfOrder = 0;
+    private double gaps = 0;
+    private long backlog = 0;
+    private boolean throughputMode = false;
+    private int clientBuffer = 10_000;
+    private long seed = 0;
+    private ReleaseListener listener;
+
+    private final List<SeedlinkClient> streamingClients = new CopyOnWriteArrayList<>();
+    private final Set<SeedlinkClient> allClients = Collections.synchronizedSet(new HashSet<>());
+
+    private ServerSocket serverSocket;
+    private ExecutorService clientService;
+    private Thread acceptThread;
+    private Thread pumpThread;
+    private volatile boolean running = false;
+
+    private final AtomicLong produced = new AtomicLong();
+    private final AtomicLong released = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong reordered = new AtomicLong();
+    private final AtomicLong connections = new AtomicLong();
+    private volatile long clock;
+
+    // state of the pump thread
+    private DataRecord[] held;
+    private final PriorityQueue<Delayed> delayed = new PriorityQueue<>();
+    private Random random;
+    private int sequence = 0;
+    private long delayedCount = 0;
+
+    private record Delayed(long time, long order, ServedStation station, DataRecord record) implements Comparable<Delayed> {
+        @Override
+        public int compareTo(Delayed o) {
+            int result = Long.compare(time, o.time);
+            return result != 0 ? result : Long.compare(order, o.order);
+        }
+    }
+
+    public SeedlinkServer(RecordSource source) {
+        this.source = source;
+        this.stations = List.copyOf(source.getStations());
+    }
+
+    /**
+     * @param interval how often in ms the pump checks the source for new records
+     */
+    public SeedlinkServer setInterval(long interval) {
+        if (interval <= 0) {
+            throw new IllegalArgumentException("Interval must be positive");
+        }
+        this.interval = interval;
+        return this;
+    }
+
+    /**
+     * @param jitter each record is held back by a random delay of up to this many ms
+     */
+    public SeedlinkServer setJitter(long jitter) {
+        this.jitter = jitter;
+        return this;
+    }
+
+    /**
+     * @param outOfOrder probability that a record is sent after the next record of the same station
+     */
+    public SeedlinkServer setOutOfOrder(double outOfOrder) {
+        this.outOfOrder = outOfOrder;
+        return this;
+    }
+
+    /**
+     * @param gaps probability that a record is never sent
+     */
+    public SeedlinkServer setGaps(double gaps) {
+        this.gaps = gaps;
+        return this;
+    }
+
+    /**
+     * Serves the data from the given number of ms in the past as fast as the clients read them
+     */
+    public SeedlinkServer setThroughputMode(long backlog) {
+        this.throughputMode = true;
+        this.backlog = backlog;
+        return this;
+    }
+
+    /**
+     * @param clientBuffer how many packets can wait for a client, more packets are dropped unless in the throughput mode
+     */
+    public SeedlinkServer setClientBuffer(int clientBuffer) {
+        this.clientBuffer = clientBuffer;
+        return this;
+    }
+
+    public SeedlinkServer setSeed(long seed) {
+        this.seed = seed;
+        return this;
+    }
+
+    public SeedlinkServer setListener(ReleaseListener listener) {
+        this.listener = listener;
+        return this;
+    }
+
+    /**
+     * Binds the server and starts serving
+     *
+     * @param port port or 0 for any free port
+     * @return the port the server listens on
+     */
+    public int start(String host, int port) throws IOException {
+        serverSocket = new ServerSocket();
+        serverSocket.bind(new InetSocketAddress(host, port));
+
+        held = new DataRecord[stations.size()];
+        random = new Random(seed);
+        clock = System.currentTimeMillis() - backlog;
+        running = true;
+
+        clientService = Executors.newCachedThreadPool(new NamedThreadFactory("Seedlink Server Client Thread"));
+        acceptThread = new NamedThreadFactory("Seedlink Server Accept Thread").newThread(this::runAccept);
+        pumpThread = new NamedThreadFactory("Seedlink Server Pump Thread").newThread(this::runPump);
+        acceptThread.start();
+        pumpThread.start();
+
+        Logger.info("Seedlink server with %d streams listening on %s:%d".formatted(stations.size(), host, serverSocket.getLocalPort()));
+        return serverSocket.getLocalPort();
+    }
+
+    private void runAccept() {
+        while (running) {
+            try {
+                Socket socket = serverSocket.accept();
+                socket.setTcpNoDelay(true);
+                connections.incrementAndGet();
+                SeedlinkClient client = new SeedlinkClient(this, socket, clientBuffer);
+                allClients.add(client);
+                clientService.submit(client);
+            } catch (IOException e) {
+                if (running) {
+                    Logger.error(e);
+                }
+            }
+        }
+    }
+
+    private void runPump() {
+        boolean exhausted = false;
+        while (running) {
+            try {
+                long now = System.currentTimeMillis();
+                // the backlog is kept until the first client is ready to read it
+                boolean waiting = throughputMode && streamingClients.isEmpty();
+                if (clock < now && !exhausted && !waiting) {
+                    clock = throughputMode ? Math.min(now, clock + MAX_STEP) : now;
+                    source.produce(clock, this::dispatch);
+                    if (source.isExhausted()) {
+                        flushHeld();
+                        exhausted = true;
+                        Logger.info("All the records of the source were produced");
+                    }
+                }
+
+                releaseDelayed(System.currentTimeMillis());
+
+                if (clock >= now || exhausted || waiting) {
+                    Thread.sleep(interval);
+                }
+            } catch (InterruptedException e) {
+                return;
+            } catch (Exception e) {
+                Logger.error(e);
+            }
+        }
+    }
+
+    private void dispatch(ServedStation station, DataRecord record) {
+        produced.incrementAndGet();
+        if (gaps > 0 && random.nextDouble() < gaps) {
+            dropped.incrementAndGet();
+            return;
+        }
+
+        if (outOfOrder > 0) {
+            DataRecord previous = held[station.index()];
+            if (previous != null) {
+                held[station.index()] = null;
+                schedule(station, record);
+                schedule(station, previous);
+                reordered.incrementAndGet();
+                return;
+            }
+
+            if (random.nextDouble() < outOfOrder) {
+                held[station.index()] = record;
+                return;
+            }
+        }
+
+        schedule(station, record);
+    }
+
+    /**
+     * Records that wait for the next record of their station are sent when the source has nothing more
+     */
+    private void flushHeld() {
+        for (int i = 0; i < held.length; i++) {
+            if (held[i] != null) {
+                schedule(stations.get(i), held[i]);
+                held[i] = null;
+            }
+        }
+    }
+
+    private void schedule(ServedStation station, DataRecord record) {
+        if (jitter <= 0) {
+            release(station, record);
+            return;
+        }
+
+        delayed.add(new Delayed(System.currentTimeMillis() + (long) (random.nextDouble() * jitter), delayedCount++, station, record));
+    }
+
+    private void releaseDelayed(long now) {
+        Delayed next;
+        while ((next = delayed.peek()) != null && next.time() <= now) {
+            delayed.poll();
+            release(next.station(), next.record());
+        }
+    }
+
+    private void release(ServedStation station, DataRecord record) {
+        byte[] packet = createPacket(record);
+        if (packet == null) {
+            return;
+        }
+
+        if (listener != null) {
+            listener.released(station, record, System.currentTimeMillis());
+        }
+
+        for (SeedlinkClient client : streamingClients) {
+            if (client.isSelected(station)) {
+                client.send(packet, throughputMode);
+            }
+        }
+        released.incrementAndGet();
+    }
+
+    /**
+     * @return the 8 byte seedlink header followed by the record or null if the record is not 512 bytes long
+     */
+    private byte[] createPacket(DataRecord record) {
+        byte[] data = record.toByteArray();
+        if (data.length != MiniSeedRecords.RECORD_LENGTH) {
+            Logger.warn("Record of %s has %d bytes, skipping".formatted(record.getHeader().getStationIdentifier(), data.length));
+            return null;
+        }
+
+        byte[] result = new byte[8 + data.length];
+        byte[] header = "SL%06X".formatted(sequence).getBytes(StandardCharsets.US_ASCII);
+        sequence = (sequence + 1) & 0xFFFFFF;
+        System.arraycopy(header, 0, result, 0, header.length);
+        System.arraycopy(data, 0, result, header.length, data.length);
+        return result;
+    }
+
+    void startStreaming(SeedlinkClient client) {
+        streamingClients.add(client);
+        Logger.debug("Seedlink client %s started streaming".formatted(client.getName()));
+    }
+
+    void clientLeft(SeedlinkClient client) {
+        streamingClients.remove(client);
+        allClients.remove(client);
+    }
+
+    public List<ServedStation> getStations() {
+        return stations;
+    }
+
+    public int getPort() {
+        return serverSocket == null ? -1 : serverSocket.getLocalPort();
+    }
+
+    /**
+     * @return records taken from the source
+     */
+    public long getProduced() {
+        return produced.get();
+    }
+
+    /**
+     * @return records passed to the clients
+     */
+    public long getReleased() {
+        return released.get();
+    }
+
+    /**
+     * @return records left out to create gaps
+     */
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    public long getReordered() {
+        return reordered.get();
+    }
+
+    public long getConnections() {
+        return connections.get();
+    }
+
+    public int getStreamingClients() {
+        return streamingClients.size();
+    }
+
+    /**
+     * @return packets written to the connected clients
+     */
+    public long getSent() {
+        return streamingClients.stream().mapToLong(SeedlinkClient::getSent).sum();
+    }
+
+    /**
+     * @return packets dropped because a connected client did not keep up
+     */
+    public long getOverflows() {
+        return streamingClients.stream().mapToLong(SeedlinkClient::getOverflows).sum();
+    }
+
+    public int getQueued() {
+        return streamingClients.stream().mapToInt(SeedlinkClient::getQueued).sum();
+    }
+
+    /**
+     * @return time up to which the source produced the data
+     */
+    public long getClock() {
+        return clock;
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        try {
+            if (serverSocket != null) {
+                serverSocket.close();
+            }
+        } catch (IOException e) {
+            Logger.error(e);
+        }
+
+        if (pumpThread != null) {
+            pumpThread.interrupt();
+            try {
+                pumpThread.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        synchronized (allClients) {
+            allClients.forEach(SeedlinkClient::close);
+        }
+
+        if (clientService != null) {
+            clientService.shutdownNow();
+        }
+
+        source.close();
+    }
+}
@@ -0,0 +1,108 @@
+package globalquake.loadtest.seedlink;
+
+import globalquake.core.geo.taup.TauPTravelTimeCalculator;
+import globalquake.core.replay.MiniSeedReplaySource;
+import globalquake.core.synthetic.SyntheticQuake;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Runs the {@link SeedlinkServer} on its own, for example to feed a GlobalQuake client or server with recorded data
+ * of the stations it knows.
+ * <pre>
+ * java -jar GlobalQuakeLoadTest.jar [options]
+ *   --files FOLDER       serve the miniSEED files in the folder instead of synthetic data
+ *   --stations N         number of synthetic stations, 1000 by default
+ *   --sps RATE           sample rate of the synthetic stations, 100 by default
+ *   --record SECONDS     duration of one synthetic record, 2 by default
+ *   --quakes N           random synthetic earthquakes during the first hour, none by default
+ *   --threads N          threads generating the synthetic data
+ *   --bind HOST          address to listen on, 127.0.0.1 by default
+ *   --port PORT          18000 by default
+ *   --jitter MS          random delay of the records
+ *   --out-of-order P     probability that a record is swapped with the next one of its station
+ *   --gaps P             probability that a record is left out
+ *   --throughput SECONDS start this far in the past and serve as fast as the clients read
+ * </pre>
+ */
+public class SeedlinkServerMain {
+
+    public static void main(String[] args) throws Exception {
+        File files = null;
+        int stations = 1000;
+        double sampleRate = 100;
+        double recordSeconds = 2;
+        int quakes = 0;
+        int threads = Runtime.getRuntime().availableProcessors();
+        String host = "127.0.0.1";
+        int port = 18000;
+        long jitter = 0;
+        double outOfOrder = 0;
+        double gaps = 0;
+        long backlog = -1;
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--files" -> files = new File(nextArg(args, ++i));
+                case "--stations" -> stations = Integer.parseInt(nextArg(args, ++i));
+                case "--sps" -> sampleRate = Double.parseDouble(nextArg(args, ++i));
+                case "--record" -> recordSeconds = Double.parseDouble(nextArg(args, ++i));
+                case "--quakes" -> quakes = Integer.parseInt(nextArg(args, ++i));
+                case "--threads" -> threads = Integer.parseInt(nextArg(args, ++i));
+                case "--bind" -> host = nextArg(args, ++i);
+                case "--port" -> port = Integer.parseInt(nextArg(args, ++i));
+                case "--jitter" -> jitter = Long.parseLong(nextArg(args, ++i));
+                case "--out-of-order" -> outOfOrder = Double.parseDouble(nextArg(args, ++i));
+                case "--gaps" -> gaps = Double.parseDouble(nextArg(args, ++i));
+                case "--throughput" -> backlog = Long.parseLong(nextArg(args, ++i)) * 1000;
+                default -> throw new IllegalArgumentException("Unknown argument " + args[i]);
+            }
+        }
+
+        RecordSource source;
+        if (files != null) {
+            source = new FileRecordSource(MiniSeedReplaySource.findFiles(files));
+        } else {
+            SyntheticRecordSource synthetic = new SyntheticRecordSource(stations, sampleRate, recordSeconds, 0, threads);
+            if (quakes > 0) {
+                TauPTravelTimeCalculator.init();
+                synthetic.setQuakes(createQuakes(quakes, System.currentTimeMillis() - Math.max(0, backlog), 3_600_000, 0));
+            }
+            source = synthetic;
+        }
+
+        SeedlinkServer server = new SeedlinkServer(source)
+                .setJitter(jitter)
+                .setOutOfOrder(outOfOrder)
+                .setGaps(gaps);
+        if (backlog >= 0) {
+            server.setThroughputMode(backlog);
+        }
+
+        Runtime.getRuntime().addShutdownHook(new Thread(server::close));
+        server.start(host, port);
+    }
+
+    /**
+     * @return random shallow earthquakes of magnitude 5 - 8 spread over the given ms after the start
+     */
+    public static List<SyntheticQuake> createQuakes(int count, long start, long duration, long seed) {
+        Random random = new Random(seed);
+        List<SyntheticQuake> result = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            result.add(new SyntheticQuake(random.nextDouble() * 120 - 60, random.nextDouble() * 360 - 180,
+                    random.nextDouble() * 100, start + (long) ((i + 0.5) * duration / count), 5 + random.nextDouble() * 3));
+        }
+        return result;
+    }
+
+    private static String nextArg(String[] args, int i) {
+        if (i >= args.length) {
+            throw new IllegalArgumentException("Missing value of " + args[i - 1]);
+        }
+        return args[i];
+    }
+}
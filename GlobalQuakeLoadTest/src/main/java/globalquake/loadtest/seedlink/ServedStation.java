@@ -0,0 +1,16 @@
+package globalquake.loadtest.seedlink;
+
+/**
+ * One stream served by the {@link SeedlinkServer}
+ *
+ * @param index position of the station in the list of its {@link RecordSource}
+ * @param lat   latitude or NaN if the source does not know where the station is
+ */
+public record ServedStation(int index, String network, String station, String location, String channel,
+                            double lat, double lon, double sampleRate) {
+
+    @Override
+    public String toString() {
+        return "%s %s %s %s".formatted(network, station, location, channel);
+    }
+}
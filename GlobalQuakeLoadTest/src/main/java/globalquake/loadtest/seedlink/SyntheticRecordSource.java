@@ -0,0 +1,133 @@
+package globalquake.loadtest.seedlink;
+
+import edu.sc.seis.seisFile.mseed.DataRecord;
+import globalquake.core.seedlink.MiniSeedRecords;
+import globalquake.core.synthetic.SyntheticChannel;
+import globalquake.core.synthetic.SyntheticQuake;
+import globalquake.core.synthetic.SyntheticWaveformEngine;
+import org.tinylog.Logger;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Random;
+import java.util.function.BiConsumer;
+
+/**
+ * Stations spread randomly over the globe recording the noise and earthquakes of a {@link SyntheticWaveformEngine}.
+ * The samples are cut into records of a fixed duration, which are compressed on the threads of the engine.
+ */
+public class SyntheticRecordSource implements RecordSource {
+
+    public static final String NETWORK = "XX";
+    public static final String LOCATION = "00";
+
+    private final SyntheticWaveformEngine engine;
+    private final List<ServedStation> stations = new ArrayList<>();
+    private final List<SyntheticChannel> channels = new ArrayList<>();
+    private final List<RecordBuffer> buffers = new ArrayList<>();
+
+    private boolean started = false;
+
+    /**
+     * Collects the samples of one channel until there is enough of them for a record
+     */
+    private static final class RecordBuffer {
+        private final ServedStation station;
+        private final int[] samples;
+        private final List<DataRecord> ready = new ArrayList<>();
+        private int count = 0;
+        private long startTime;
+
+        RecordBuffer(ServedStation station, int recordSamples) {
+            this.station = station;
+            this.samples = new int[recordSamples];
+        }
+
+        void accept(int[] block, int blockCount, long blockStart) {
+            for (int i = 0; i < blockCount; i++) {
+                if (count == 0) {
+                    startTime = blockStart + (long) (i * 1000.0 / station.sampleRate());
+                }
+                samples[count++] = MiniSeedRecords.clamp(block[i]);
+                if (count == samples.length) {
+                    encode();
+                    count = 0;
+                }
+            }
+        }
+
+        private void encode() {
+            try {
+                ready.addAll(MiniSeedRecords.create(station.network(), station.station(), station.channel(), station.location(),
+                        startTime, station.sampleRate(), samples));
+            } catch (Exception e) {
+                Logger.error(e);
+            }
+        }
+    }
+
+    /**
+     * @param recordSeconds duration of one record, the data of real stations usually arrive in records of 1 - 10 s
+     */
+    public SyntheticRecordSource(int stationCount, double sampleRate, double recordSeconds, long seed, int threads) {
+        if (stationCount > 100_000) {
+            throw new IllegalArgumentException("At most 100000 stations can be named");
+        }
+
+        engine = new SyntheticWaveformEngine(sampleRate, seed, threads);
+        int recordSamples = Math.max(1, (int) Math.round(recordSeconds * sampleRate));
+        String channel = channelCode(sampleRate);
+
+        Random random = new Random(seed);
+        for (int i = 0; i < stationCount; i++) {
+            double lat = Math.toDegrees(Math.asin(2 * random.nextDouble() - 1));
+            double lon = random.nextDouble() * 360.0 - 180.0;
+            ServedStation station = new ServedStation(i, NETWORK, "%05d".formatted(i), LOCATION, channel, lat, lon, sampleRate);
+            RecordBuffer buffer = new RecordBuffer(station, recordSamples);
+
+            stations.add(station);
+            buffers.add(buffer);
+            channels.add(engine.createChannel(lat, lon, seed * 31 + i, buffer::accept));
+        }
+    }
+
+    /**
+     * @return SEED band code of a broadband vertical channel with the given sample rate
+     */
+    static String channelCode(double sampleRate) {
+        return sampleRate >= 80 ? "HHZ" : sampleRate >= 10 ? "BHZ" : "LHZ";
+    }
+
+    public void setQuakes(Collection<SyntheticQuake> quakes) {
+        engine.setQuakes(quakes);
+    }
+
+    @Override
+    public List<ServedStation> getStations() {
+        return stations;
+    }
+
+    @Override
+    public void produce(long untilTime, BiConsumer<ServedStation, DataRecord> consumer) {
+        if (!started) {
+            // the first call only sets where the channels start
+            engine.generate(channels, untilTime, 0);
+            started = true;
+            return;
+        }
+
+        engine.generate(channels, untilTime, 0);
+        for (RecordBuffer buffer : buffers) {
+            for (DataRecord record : buffer.ready) {
+                consumer.accept(buffer.station, record);
+            }
+            buffer.ready.clear();
+        }
+    }
+
+    @Override
+    public void close() {
+        engine.shutdown();
+    }
+}
@@ -0,0 +1,277 @@
+package globalquake.loadtest.swarm;
+
+import globalquake.core.GlobalQuake;
+import globalquake.core.Settings;
+import globalquake.core.database.SeedlinkNetwork;
+import globalquake.core.database.StationDatabaseManager;
+import globalquake.core.metrics.LatencyHistogram;
+import globalquake.loadtest.ingest.IngestLoadTest;
+import globalquake.loadtest.seedlink.SeedlinkServer;
+import globalquake.loadtest.seedlink.SyntheticRecordSource;
+import gqserver.api.ServerClient;
+import gqserver.server.GlobalQuakeServer;
+import org.tinylog.Logger;
+
+import java.io.File;
+import java.net.ServerSocket;
+import java.nio.file.Files;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Connects a {@link Swarm} of simulated clients to a GlobalQuake server and measures how fast the server answers them
+ * and delivers the earthquakes, intensities and waveforms, optionally while running a scripted scenario:
+ * <ul>
+ *     <li>{@code steady} - the clients only stay connected</li>
+ *     <li>{@code burst} - a few earthquakes are revised many times per second, which needs the server in this process</li>
+ *     <li>{@code reconnect} - all the connections are dropped at once and the clients connect again</li>
+ * </ul>
+ * Without {@code --host} a headless {@link GlobalQuakeServer} is started in this process, fed by a local
+ * {@link SeedlinkServer} with synthetic stations, and the longest queue of packets waiting for a client is reported too.
+ * <pre>
+ * java -cp GlobalQuakeLoadTest.jar globalquake.loadtest.swarm.ClientSwarmLoadTest [options]
+ *   --host HOST             server to connect to, a server is started in this process by default
+ *   --port PORT             38000 by default
+ *   --clients N             number of clients, 500 by default
+ *   --ramp SECONDS          time over which the clients connect, 10 by default
+ *   --seconds N             duration of the test, 120 by default
+ *   --subscriptions N       waveforms requested by each client, none by default, the server sends at most 16
+ *   --no-quakes             clients do not ask for the earthquakes
+ *   --no-stations           clients do not ask for the station intensities
+ *   --scenario NAME         steady, burst or reconnect, steady by default
+ *   --at SECONDS            start of the scenario, 30 by default
+ *   --burst-quakes N        earthquakes revised during the burst, 5 by default
+ *   --burst-rate N          revisions per second during the burst, 50 by default
+ *   --burst-seconds N       duration of the burst, 30 by default
+ *   --reconnect-window MS   clients connect again within this time, 10000 by default
+ *   --stations N            synthetic stations of the server in this process, 100 by default
+ *   --max-clients N         client limit of the server in this process, the number of clients by default
+ * </pre>
+ * The travel time table has to be on the classpath when the server runs in this process.
+ */
+public class ClientSwarmLoadTest {
+
+    private static final long REPORT_INTERVAL = 10_000;
+
+    private enum Scenario {
+        STEADY, BURST, RECONNECT
+    }
+
+    public static void main(String[] args) throws Exception {
+        String host = null;
+        int port = 38000;
+        int clients = 500;
+        int ramp = 10;
+        int seconds = 120;
+        int subscriptions = 0;
+        boolean earthquakeData = true;
+        boolean stationData = true;
+        Scenario scenario = Scenario.STEADY;
+        int at = 30;
+        int burstQuakes = 5;
+        double burstRate = 50;
+        int burstSeconds = 30;
+        long reconnectWindow = 10_000;
+        int stations = 100;
+        int maxClients = -1;
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--host" -> host = nextArg(args, ++i);
+                case "--port" -> port = Integer.parseInt(nextArg(args, ++i));
+                case "--clients" -> clients = Integer.parseInt(nextArg(args, ++i));
+                case "--ramp" -> ramp = Integer.parseInt(nextArg(args, ++i));
+                case "--seconds" -> seconds = Integer.parseInt(nextArg(args, ++i));
+                case "--subscriptions" -> subscriptions = Integer.parseInt(nextArg(args, ++i));
+                case "--no-quakes" -> earthquakeData = false;
+                case "--no-stations" -> stationData = false;
+                case "--scenario" -> scenario = Scenario.valueOf(nextArg(args, ++i).toUpperCase(Locale.ROOT));
+                case "--at" -> at = Integer.parseInt(nextArg(args, ++i));
+                case "--burst-quakes" -> burstQuakes = Integer.parseInt(nextArg(args, ++i));
+                case "--burst-rate" -> burstRate = Double.parseDouble(nextArg(args, ++i));
+                case "--burst-seconds" -> burstSeconds = Integer.parseInt(nextArg(args, ++i));
+                case "--reconnect-window" -> reconnectWindow = Long.parseLong(nextArg(args, ++i));
+                case "--stations" -> stations = Integer.parseInt(nextArg(args, ++i));
+                case "--max-clients" -> maxClients = Integer.parseInt(nextArg(args, ++i));
+                default -> throw new IllegalArgumentException("Unknown argument " + args[i]);
+            }
+        }
+
+        boolean local = host == null;
+        if (scenario == Scenario.BURST && !local) {
+            throw new IllegalArgumentException("The quake burst needs the server in this process");
+        }
+
+        SeedlinkServer seedlinkServer = null;
+        if (local) {
+            host = "127.0.0.1";
+            port = findFreePort();
+            seedlinkServer = startLocalServer(stations, port, maxClients > 0 ? maxClients : clients);
+        }
+
+        Swarm swarm = new Swarm(host, port)
+                .setEarthquakeData(earthquakeData)
+                .setStationData(stationData)
+                .setSubscriptions(subscriptions);
+        swarm.start();
+
+        System.out.printf(Locale.ROOT, "%d clients connecting to %s:%d over %d s, %s scenario at %d s%n",
+                clients, host, port, ramp, scenario.name().toLowerCase(Locale.ROOT), at);
+        swarm.connect(clients, ramp * 1000L);
+
+        run(swarm, scenario, seconds, at, burstQuakes, burstRate, burstSeconds, reconnectWindow, local);
+
+        // the connections are left to the exit, closing them one by one would only fill the log of the server
+        if (local) {
+            GlobalQuakeServer.instance.stopRuntime();
+            seedlinkServer.close();
+        }
+        System.exit(0);
+    }
+
+    private static int findFreePort() throws Exception {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    /**
+     * Starts a headless server fed by synthetic stations
+     *
+     * @return the seedlink server feeding it
+     */
+    private static SeedlinkServer startLocalServer(int stations, int port, int maxClients) throws Exception {
+        File folder = Files.createTempDirectory("gq-swarm").toFile();
+        folder.deleteOnExit();
+        GlobalQuake.prepare(folder, null);
+        Settings.maxClients = maxClients;
+        // every client comes from the same address
+        Settings.maxConnectionsFromIP = Integer.MAX_VALUE - 1;
+
+        SyntheticRecordSource source = new SyntheticRecordSource(stations, 100, 2, 0, 1);
+        SeedlinkServer seedlinkServer = new SeedlinkServer(source);
+        int seedlinkPort = seedlinkServer.start("127.0.0.1", 0);
+
+        GlobalQuakeServer globalQuake = new GlobalQuakeServer(new StationDatabaseManager(
+                IngestLoadTest.createDatabase(source.getStations(), new SeedlinkNetwork("Load test", "127.0.0.1", seedlinkPort))));
+        globalQuake.initStations();
+        globalQuake.startRuntime();
+        globalQuake.getServerSocket().run("127.0.0.1", port);
+        return seedlinkServer;
+    }
+
+    private static void run(Swarm swarm, Scenario scenario, int seconds, int at, int burstQuakes, double burstRate, int burstSeconds,
+                     long reconnectWindow, boolean local) throws InterruptedException {
+        SwarmStats stats = swarm.getStats();
+        System.out.printf("%8s %9s %9s %9s %10s %10s %10s %10s %9s%n", "time", "connected", "packets/s", "KB/s",
+                "hb p50 ms", "hb p99 ms", "quake p99", "data p99", "queue max");
+
+        long testStart = System.currentTimeMillis();
+        long end = testStart + seconds * 1000L;
+        long scenarioStart = testStart + at * 1000L;
+        boolean scenarioStarted = false;
+        Thread burstThread = null;
+        QuakeBurst burst = null;
+
+        long lastPackets = 0;
+        long lastBytes = 0;
+        long nextReport = testStart + REPORT_INTERVAL;
+        while (System.currentTimeMillis() < end) {
+            long now = System.currentTimeMillis();
+            if (!scenarioStarted && now >= scenarioStart) {
+                scenarioStarted = true;
+                switch (scenario) {
+                    case BURST -> {
+                        System.out.printf("-- %d earthquakes revised %.0f times per second for %d s%n", burstQuakes, burstRate, burstSeconds);
+                        QuakeBurst quakeBurst = burst = new QuakeBurst(burstQuakes, burstRate, 0);
+                        burstThread = new Thread(() -> {
+                            try {
+                                quakeBurst.run(burstSeconds * 1000L);
+                            } catch (InterruptedException ignored) {
+                            }
+                        }, "Quake Burst Thread");
+                        burstThread.start();
+                    }
+                    case RECONNECT -> {
+                        System.out.printf("-- all %d clients reconnecting within %d ms%n", swarm.getClientCount(), reconnectWindow);
+                        swarm.reconnect(reconnectWindow);
+                    }
+                    case STEADY -> {
+                    }
+                }
+            }
+
+            if (now >= nextReport) {
+                nextReport += REPORT_INTERVAL;
+                LatencyHistogram[] interval = stats.rollInterval();
+                long packets = stats.getReceivedPackets();
+                long bytes = stats.getReceivedBytes();
+                System.out.printf(Locale.ROOT, "%7ds %9d %9.0f %9.1f %10.1f %10.1f %10.1f %10.1f %9s%n",
+                        (now - testStart) / 1000, swarm.getConnected(),
+                        (packets - lastPackets) * 1000.0 / REPORT_INTERVAL, (bytes - lastBytes) / 1024.0 * 1000.0 / REPORT_INTERVAL,
+                        millis(interval[SwarmStats.Latency.HEARTBEAT.ordinal()], 50), millis(interval[SwarmStats.Latency.HEARTBEAT.ordinal()], 99),
+                        millis(interval[SwarmStats.Latency.QUAKE.ordinal()], 99), millis(interval[SwarmStats.Latency.DATA.ordinal()], 99),
+                        local ? String.valueOf(getLongestServerQueue()) : "-");
+                lastPackets = packets;
+                lastBytes = bytes;
+            }
+
+            Thread.sleep(Math.max(1, Math.min(nextReport, scenarioStarted ? end : scenarioStart) - System.currentTimeMillis()));
+        }
+
+        if (burstThread != null) {
+            burstThread.interrupt();
+            burstThread.join();
+        }
+
+        printSummary(swarm, burst);
+    }
+
+    private static void printSummary(Swarm swarm, QuakeBurst burst) {
+        SwarmStats stats = swarm.getStats();
+        System.out.printf("Connected %d times, %d attempts failed, %d connections were closed%n",
+                stats.getConnects(), stats.getFailedConnects(), stats.getDisconnects());
+        for (Map.Entry<String, Long> kv : stats.getTerminations().entrySet()) {
+            System.out.printf("  %6d x %s%n", kv.getValue(), kv.getKey());
+        }
+
+        if (burst != null) {
+            System.out.printf("Revised the earthquakes %d times%n", burst.getUpdates());
+        }
+
+        System.out.printf(Locale.ROOT, "Received %d packets, %.1f MB%n", stats.getReceivedPackets(), stats.getReceivedBytes() / 1024.0 / 1024.0);
+        for (Map.Entry<String, Long> kv : stats.getPackets().entrySet()) {
+            System.out.printf("  %10d x %s%n", kv.getValue(), kv.getKey());
+        }
+
+        System.out.printf("%-14s %9s %10s %10s %10s %10s%n", "latency", "count", "p50 ms", "p90 ms", "p99 ms", "max ms");
+        for (SwarmStats.Latency latency : SwarmStats.Latency.values()) {
+            LatencyHistogram histogram = stats.getTotal(latency);
+            System.out.printf(Locale.ROOT, "%-14s %9d %10.1f %10.1f %10.1f %10.1f%n", latency.getName(), histogram.getCount(),
+                    millis(histogram, 50), millis(histogram, 90), millis(histogram, 99), millis(histogram, 100));
+        }
+    }
+
+    private static double millis(LatencyHistogram histogram, double percentile) {
+        return histogram.getCount() == 0 ? Double.NaN : histogram.getPercentile(percentile) / 1E6;
+    }
+
+    /**
+     * @return most packets waiting for one client of the server in this process
+     */
+    private static int getLongestServerQueue() {
+        try {
+            return GlobalQuakeServer.instance.getServerSocket().getClients().stream().mapToInt(ServerClient::getQueuedPackets).max().orElse(0);
+        } catch (Exception e) {
+            Logger.trace(e);
+            return -1;
+        }
+    }
+
+    private static String nextArg(String[] args, int i) {
+        if (i >= args.length) {
+            throw new IllegalArgumentException("Missing value of " + args[i - 1]);
+        }
+        return args[i];
+    }
+}
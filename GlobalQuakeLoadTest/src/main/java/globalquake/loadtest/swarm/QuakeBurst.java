@@ -0,0 +1,121 @@
+package globalquake.loadtest.swarm;
+
+import globalquake.core.GlobalQuake;
+import globalquake.core.earthquake.data.Cluster;
+import globalquake.core.earthquake.data.Earthquake;
+import globalquake.core.earthquake.data.Hypocenter;
+import globalquake.core.earthquake.data.MagnitudeReading;
+import globalquake.core.earthquake.interval.DepthConfidenceInterval;
+import globalquake.core.earthquake.interval.PolygonConfidenceInterval;
+import globalquake.core.events.specific.QuakeCreateEvent;
+import globalquake.core.events.specific.QuakeRemoveEvent;
+import globalquake.core.events.specific.QuakeUpdateEvent;
+import gqserver.api.packets.station.InputType;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Burst of earthquake updates on the server running in this process. The earthquakes are put directly into
+ * the earthquake analysis and revised at a fixed rate with the same events the analysis fires when every new arrival
+ * moves the hypocenter of a large event, then they are removed again.
+ */
+class QuakeBurst {
+
+    private static final int CONFIDENCE_POLYGON_POINTS = 16;
+    private static final int MAGNITUDE_READINGS = 64;
+
+    private final int quakes;
+    private final double updatesPerSecond;
+    private final Random random;
+
+    private long updates = 0;
+
+    QuakeBurst(int quakes, double updatesPerSecond, long seed) {
+        if (quakes <= 0 || updatesPerSecond <= 0) {
+            throw new IllegalArgumentException("The burst needs at least one earthquake and a positive rate");
+        }
+        this.quakes = quakes;
+        this.updatesPerSecond = updatesPerSecond;
+        this.random = new Random(seed);
+    }
+
+    /**
+     * Runs the burst on the calling thread
+     */
+    void run(long durationMillis) throws InterruptedException {
+        List<Earthquake> earthquakes = new ArrayList<>();
+        for (int i = 0; i < quakes; i++) {
+            Cluster cluster = new Cluster();
+            cluster.updateLevel(4);
+            cluster.setPreviousHypocenter(createHypocenter(random.nextDouble() * 120 - 60, random.nextDouble() * 360 - 180,
+                    GlobalQuake.instance.currentTimeMillis()));
+
+            Earthquake earthquake = new Earthquake(cluster);
+            cluster.setEarthquake(earthquake);
+            earthquakes.add(earthquake);
+            GlobalQuake.instance.getEarthquakeAnalysis().getEarthquakes().add(earthquake);
+            GlobalQuake.instance.getEventHandler().fireEvent(new QuakeCreateEvent(earthquake));
+        }
+
+        long interval = (long) (TimeUnit.SECONDS.toNanos(1) / updatesPerSecond);
+        long end = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(durationMillis);
+        long next = System.nanoTime();
+        while (next < end) {
+            revise(earthquakes.get(random.nextInt(earthquakes.size())));
+            updates++;
+
+            next += interval;
+            TimeUnit.NANOSECONDS.sleep(next - System.nanoTime());
+        }
+
+        for (Earthquake earthquake : earthquakes) {
+            GlobalQuake.instance.getEarthquakeAnalysis().getEarthquakes().remove(earthquake);
+            GlobalQuake.instance.getEventHandler().fireEvent(new QuakeRemoveEvent(earthquake));
+        }
+    }
+
+    private void revise(Earthquake earthquake) {
+        Cluster cluster = earthquake.getCluster();
+        Hypocenter previous = earthquake.getHypocenter();
+        cluster.setPreviousHypocenter(createHypocenter(previous.lat + random.nextGaussian() * 0.05,
+                previous.lon + random.nextGaussian() * 0.05, previous.origin));
+        cluster.revisionID += 1;
+        earthquake.update();
+
+        GlobalQuake.instance.getEventHandler().fireEvent(new QuakeUpdateEvent(earthquake, previous));
+    }
+
+    /**
+     * @return hypocenter with all the data the clients get for a real earthquake, so that the packets have the usual size
+     */
+    private Hypocenter createHypocenter(double lat, double lon, long origin) {
+        List<Double> lengths = new ArrayList<>();
+        for (int i = 0; i < CONFIDENCE_POLYGON_POINTS; i++) {
+            lengths.add(5 + random.nextDouble() * 20);
+        }
+
+        Hypocenter hypocenter = new Hypocenter(lat, lon, 10 + random.nextDouble() * 50, origin, 0, 40,
+                new DepthConfidenceInterval(5, 80),
+                List.of(new PolygonConfidenceInterval(CONFIDENCE_POLYGON_POINTS, 0, lengths, origin - 1000, origin + 1000)));
+        hypocenter.usedEvents = 50;
+        hypocenter.totalEvents = 60;
+        hypocenter.reducedEvents = 55;
+        hypocenter.magnitude = 6 + random.nextDouble();
+        hypocenter.calculateQuality();
+
+        List<MagnitudeReading> mags = new ArrayList<>();
+        for (int i = 0; i < MAGNITUDE_READINGS; i++) {
+            mags.add(new MagnitudeReading(hypocenter.magnitude + random.nextGaussian() * 0.3, 0, 0, InputType.VELOCITY));
+        }
+        hypocenter.mags = mags;
+
+        return hypocenter;
+    }
+
+    long getUpdates() {
+        return updates;
+    }
+}
@@ -0,0 +1,163 @@
+package globalquake.loadtest.swarm;
+
+import globalquake.utils.NamedThreadFactory;
+import gqserver.api.data.system.ServerClientConfig;
+import org.tinylog.Logger;
+
+import java.io.Closeable;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.*;
+
+/**
+ * Any number of simulated clients connected to one GlobalQuake server. Each client has its own reader thread, same as
+ * on the server, the connecting and the periodic packets are handled by a few shared threads. Clients that lose
+ * their connection or are refused try again every 10 s, like the real ones.
+ */
+public class Swarm implements Closeable {
+
+    private static final int CONNECT_THREADS = 16;
+    private static final long RECONNECT_INTERVAL = 10_000;
+
+    private final String host;
+    private final int port;
+    private final SwarmStats stats = new SwarmStats();
+    private final List<SwarmClient> clients = new CopyOnWriteArrayList<>();
+
+    private boolean earthquakeData = true;
+    private boolean stationData = true;
+    private int subscriptions = 0;
+    private long seed = 0;
+    private Random random;
+
+    private ScheduledExecutorService connectService;
+    private ScheduledExecutorService tickService;
+    private ExecutorService readerService;
+
+    public Swarm(String host, int port) {
+        this.host = host;
+        this.port = port;
+    }
+
+    /**
+     * @param earthquakeData whether the clients ask for the earthquakes in their handshake
+     */
+    public Swarm setEarthquakeData(boolean earthquakeData) {
+        this.earthquakeData = earthquakeData;
+        return this;
+    }
+
+    /**
+     * @param stationData whether the clients ask for the station intensities in their handshake
+     */
+    public Swarm setStationData(boolean stationData) {
+        this.stationData = stationData;
+        return this;
+    }
+
+    /**
+     * @param subscriptions how many random stations each client requests the waveforms of, like opened station monitors
+     */
+    public Swarm setSubscriptions(int subscriptions) {
+        this.subscriptions = subscriptions;
+        return this;
+    }
+
+    public Swarm setSeed(long seed) {
+        this.seed = seed;
+        return this;
+    }
+
+    public void start() {
+        random = new Random(seed);
+        connectService = Executors.newScheduledThreadPool(CONNECT_THREADS, new NamedThreadFactory("Swarm Connect Thread"));
+        tickService = Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory("Swarm Tick Thread"));
+        readerService = Executors.newCachedThreadPool(new NamedThreadFactory("Swarm Reader Thread"));
+        tickService.scheduleAtFixedRate(this::tick, 1, 1, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Adds new clients that connect evenly over the given time
+     */
+    public void connect(int count, long rampMillis) {
+        ServerClientConfig config = new ServerClientConfig(earthquakeData, stationData);
+        for (int i = 0; i < count; i++) {
+            SwarmClient client = new SwarmClient(clients.size(), host, port, config, subscriptions, stats, random.nextLong());
+            clients.add(client);
+            scheduleConnect(client, rampMillis * i / count);
+        }
+    }
+
+    /**
+     * Drops all the connections at once and connects the clients again, each after a random delay within the given time.
+     * The real clients check their connection every 10 s.
+     */
+    public void reconnect(long windowMillis) {
+        for (SwarmClient client : clients) {
+            client.close();
+        }
+
+        for (SwarmClient client : clients) {
+            scheduleConnect(client, windowMillis <= 0 ? 0 : (long) (random.nextDouble() * windowMillis));
+        }
+    }
+
+    private void scheduleConnect(SwarmClient client, long delay) {
+        if (client.startConnecting()) {
+            connectService.schedule(() -> connect(client), delay, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void connect(SwarmClient client) {
+        try {
+            if (client.connect()) {
+                readerService.submit(client);
+            }
+        } catch (Exception e) {
+            Logger.error(e);
+        } finally {
+            client.connectingFinished();
+        }
+    }
+
+    private void tick() {
+        long now = System.currentTimeMillis();
+        for (SwarmClient client : clients) {
+            try {
+                if (client.shouldReconnect(now, RECONNECT_INTERVAL)) {
+                    scheduleConnect(client, 0);
+                } else {
+                    client.tick(now);
+                }
+            } catch (Exception e) {
+                Logger.error(e);
+            }
+        }
+    }
+
+    public int getClientCount() {
+        return clients.size();
+    }
+
+    public int getConnected() {
+        return (int) clients.stream().filter(SwarmClient::isConnected).count();
+    }
+
+    public SwarmStats getStats() {
+        return stats;
+    }
+
+    @Override
+    public void close() {
+        if (connectService != null) {
+            connectService.shutdownNow();
+            tickService.shutdownNow();
+        }
+
+        clients.forEach(SwarmClient::close);
+
+        if (readerService != null) {
+            readerService.shutdownNow();
+        }
+    }
+}
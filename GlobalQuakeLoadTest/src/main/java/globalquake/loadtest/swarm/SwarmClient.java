@@ -0,0 +1,396 @@
+package globalquake.loadtest.swarm;
+
+import edu.sc.seis.seisFile.mseed.DataRecord;
+import gqserver.api.GQApi;
+import gqserver.api.Packet;
+import gqserver.api.data.earthquake.EarthquakeInfo;
+import gqserver.api.data.station.StationInfoData;
+import gqserver.api.data.system.ServerClientConfig;
+import gqserver.api.packets.data.DataRecordPacket;
+import gqserver.api.packets.data.DataRequestPacket;
+import gqserver.api.packets.earthquake.*;
+import gqserver.api.packets.station.StationsInfoPacket;
+import gqserver.api.packets.station.StationsIntensityPacket;
+import gqserver.api.packets.station.StationsRequestPacket;
+import gqserver.api.packets.system.HandshakePacket;
+import gqserver.api.packets.system.HandshakeSuccessfulPacket;
+import gqserver.api.packets.system.HeartbeatPacket;
+import gqserver.api.packets.system.TerminationPacket;
+import org.tinylog.Logger;
+
+import java.io.*;
+import java.net.ConnectException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * One simulated GlobalQuake client. It follows the protocol of the {@code ClientSocket} of the client: the same
+ * handshake and initial requests, a heartbeat every 10 s, a check of the current earthquakes every 20 s and a request
+ * for every earthquake it does not know the latest revision of. The received packets are only counted and timed.
+ * <p>
+ * The periodic packets are sent by the {@link Swarm} calling {@link #tick(long)}, so that thousands of clients
+ * need only one thread besides their readers.
+ */
+class SwarmClient implements Runnable {
+
+    private static final int CONNECT_TIMEOUT = 10 * 1000;
+    private static final int SO_TIMEOUT = 60 * 1000;
+    private static final long HEARTBEAT_INTERVAL = 10 * 1000;
+    private static final long QUAKE_CHECK_INTERVAL = 20 * 1000;
+
+    private final int id;
+    private final String host;
+    private final int port;
+    private final ServerClientConfig config;
+    private final int subscriptions;
+    private final SwarmStats stats;
+    private final Random random;
+
+    private volatile Socket socket;
+    private ObjectOutputStream outputStream;
+    private ObjectInputStream inputStream;
+    private volatile boolean connected = false;
+    private volatile boolean connecting = false;
+    private volatile long lastAttempt = 0;
+
+    private final Queue<Long> heartbeatTimes = new ConcurrentLinkedQueue<>();
+    private volatile long stationsRequestTime = -1;
+    private long nextHeartbeat;
+    private long nextQuakeCheck;
+
+    // written by the reader thread
+    private final List<String> stations = new ArrayList<>();
+    private final Map<UUID, Integer> revisions = new HashMap<>();
+    private UUID stationsIndexing;
+    private volatile boolean subscribed;
+    private volatile long subscribeTime;
+
+    /**
+     * Counts the bytes read from the socket
+     */
+    private final class CountingInputStream extends FilterInputStream {
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int result = super.read();
+            if (result >= 0) {
+                stats.bytesReceived(1);
+            }
+            return result;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int result = super.read(b, off, len);
+            if (result > 0) {
+                stats.bytesReceived(result);
+            }
+            return result;
+        }
+    }
+
+    /**
+     * @param subscriptions how many stations to request the waveform data of
+     */
+    SwarmClient(int id, String host, int port, ServerClientConfig config, int subscriptions, SwarmStats stats, long seed) {
+        this.id = id;
+        this.host = host;
+        this.port = port;
+        this.config = config;
+        this.subscriptions = subscriptions;
+        this.stats = stats;
+        this.random = new Random(seed);
+    }
+
+    /**
+     * Connects and performs the handshake, the caller then has to run the reader
+     *
+     * @return whether the server accepted the client
+     */
+    boolean connect() {
+        long start = System.currentTimeMillis();
+        lastAttempt = start;
+        try {
+            synchronized (this) {
+                reset();
+                socket = new Socket();
+                socket.setSoTimeout(SO_TIMEOUT);
+                socket.connect(new InetSocketAddress(host, port), CONNECT_TIMEOUT);
+
+                outputStream = new ObjectOutputStream(socket.getOutputStream());
+                inputStream = new ObjectInputStream(new BufferedInputStream(new CountingInputStream(socket.getInputStream())));
+                outputStream.writeObject(new HandshakePacket(GQApi.COMPATIBILITY_VERSION, config));
+            }
+
+            Object response = inputStream.readObject();
+            if (response instanceof TerminationPacket terminationPacket) {
+                closeSocket();
+                stats.connectFailed(terminationPacket.cause());
+                return false;
+            }
+
+            if (!(response instanceof HandshakeSuccessfulPacket)) {
+                closeSocket();
+                stats.connectFailed("Unexpected handshake response");
+                return false;
+            }
+
+            stats.record(SwarmStats.Latency.HANDSHAKE, System.currentTimeMillis() - start);
+            stats.connected();
+            connected = true;
+
+            long now = System.currentTimeMillis();
+            send(new ArchivedQuakesRequestPacket());
+            stationsRequestTime = now;
+            send(new StationsRequestPacket());
+            tick(now);
+            return connected;
+        } catch (ConnectException e) {
+            stats.connectFailed("Connection refused");
+        } catch (SocketTimeoutException e) {
+            stats.connectFailed("Timed out");
+        } catch (Exception e) {
+            stats.connectFailed(e.getClass().getSimpleName());
+            Logger.trace(e);
+        }
+
+        closeSocket();
+        return false;
+    }
+
+    private void reset() {
+        heartbeatTimes.clear();
+        stationsRequestTime = -1;
+        nextHeartbeat = 0;
+        nextQuakeCheck = 0;
+        synchronized (stations) {
+            stations.clear();
+        }
+        revisions.clear();
+        stationsIndexing = null;
+        subscribed = false;
+    }
+
+    @Override
+    public void run() {
+        // the client can be connected again before this reader notices that its socket was closed
+        Socket ownSocket;
+        ObjectInputStream in;
+        synchronized (this) {
+            ownSocket = socket;
+            in = inputStream;
+        }
+
+        try {
+            while (isCurrent(ownSocket)) {
+                Packet packet = (Packet) in.readObject();
+                stats.packetReceived(packet.getClass().getSimpleName());
+                process(packet, System.currentTimeMillis());
+            }
+        } catch (Exception e) {
+            if (isCurrent(ownSocket)) {
+                stats.terminated("Connection lost");
+                Logger.trace(e);
+            }
+        } finally {
+            if (isCurrent(ownSocket)) {
+                close();
+            }
+        }
+    }
+
+    private boolean isCurrent(Socket ownSocket) {
+        return connected && socket == ownSocket;
+    }
+
+    private void process(Packet packet, long now) throws IOException {
+        if (packet instanceof HeartbeatPacket) {
+            Long sent = heartbeatTimes.poll();
+            if (sent != null) {
+                stats.record(SwarmStats.Latency.HEARTBEAT, now - sent);
+            }
+        } else if (packet instanceof HypocenterDataPacket hypocenterDataPacket) {
+            stats.record(SwarmStats.Latency.QUAKE, now - hypocenterDataPacket.data().lastUpdate());
+            revisions.put(hypocenterDataPacket.data().uuid(), hypocenterDataPacket.data().revisionID());
+        } else if (packet instanceof EarthquakeCheckPacket checkPacket) {
+            processQuakeCheck(checkPacket.info());
+        } else if (packet instanceof ArchivedQuakePacket archivedQuakePacket) {
+            revisions.remove(archivedQuakePacket.archivedQuakeData().uuid());
+        } else if (packet instanceof StationsInfoPacket stationsInfoPacket) {
+            processStationsInfo(stationsInfoPacket, now);
+        } else if (packet instanceof StationsIntensityPacket intensityPacket) {
+            stats.record(SwarmStats.Latency.INTENSITY, now - intensityPacket.time());
+        } else if (packet instanceof DataRecordPacket dataRecordPacket) {
+            processDataRecord(dataRecordPacket, now);
+        } else if (packet instanceof TerminationPacket terminationPacket) {
+            stats.terminated(terminationPacket.cause());
+            close();
+        }
+    }
+
+    private void processQuakeCheck(EarthquakeInfo info) throws IOException {
+        if (info.revisionID() == EarthquakeInfo.REMOVED) {
+            revisions.remove(info.uuid());
+            return;
+        }
+
+        Integer known = revisions.get(info.uuid());
+        if (known == null || known < info.revisionID()) {
+            send(new EarthquakeRequestPacket(info.uuid()));
+        }
+    }
+
+    private void processStationsInfo(StationsInfoPacket packet, long now) {
+        long requestTime = stationsRequestTime;
+        if (requestTime >= 0) {
+            stats.record(SwarmStats.Latency.STATIONS, now - requestTime);
+            stationsRequestTime = -1;
+        }
+
+        synchronized (stations) {
+            if (!packet.stationsIndexing().equals(stationsIndexing)) {
+                stationsIndexing = packet.stationsIndexing();
+                stations.clear();
+            }
+
+            for (StationInfoData data : packet.stationInfoDataList()) {
+                stations.add("%s %s %s %s".formatted(data.network(), data.station(), data.channel(), data.location()));
+            }
+        }
+    }
+
+    /**
+     * Requests the waveforms of random stations, the list of stations comes in parts and the last one is not marked,
+     * so this is done on the first tick after some stations are known
+     */
+    private void subscribe() throws IOException {
+        List<String> chosen;
+        synchronized (stations) {
+            if (stations.isEmpty()) {
+                return;
+            }
+            chosen = new ArrayList<>(stations);
+        }
+
+        subscribed = true;
+        subscribeTime = System.currentTimeMillis();
+        Collections.shuffle(chosen, random);
+        for (String station : chosen.subList(0, Math.min(subscriptions, chosen.size()))) {
+            send(new DataRequestPacket(station, false));
+        }
+    }
+
+    private void processDataRecord(DataRecordPacket packet, long now) {
+        try {
+            DataRecord record = (DataRecord) DataRecord.read(packet.data());
+            long lastSample = record.getLastSampleBtime().toInstant().toEpochMilli();
+            // the stored history is sent right after the request, only the records recorded since then show the latency
+            if (lastSample >= subscribeTime) {
+                stats.record(SwarmStats.Latency.DATA, now - lastSample);
+            }
+        } catch (Exception e) {
+            stats.terminated("Invalid data record");
+            Logger.trace(e);
+        }
+    }
+
+    /**
+     * Sends the periodic packets that are due
+     */
+    synchronized void tick(long now) {
+        if (!connected) {
+            return;
+        }
+
+        try {
+            if (now >= nextHeartbeat) {
+                nextHeartbeat = now + HEARTBEAT_INTERVAL;
+                heartbeatTimes.add(now);
+                send(HeartbeatPacket.getInstance());
+            }
+
+            if (now >= nextQuakeCheck) {
+                nextQuakeCheck = now + QUAKE_CHECK_INTERVAL;
+                send(EarthquakesRequestPacket.getInstance());
+            }
+
+            if (!subscribed && subscriptions > 0) {
+                subscribe();
+            }
+        } catch (IOException e) {
+            Logger.trace(e);
+            close();
+        }
+    }
+
+    private synchronized void send(Packet packet) throws IOException {
+        if (outputStream == null) {
+            return;
+        }
+
+        outputStream.writeObject(packet);
+    }
+
+    boolean isConnected() {
+        return connected;
+    }
+
+    /**
+     * Marks the client as waiting for a connection attempt
+     *
+     * @return false if an attempt is already scheduled
+     */
+    boolean startConnecting() {
+        if (connecting) {
+            return false;
+        }
+        connecting = true;
+        return true;
+    }
+
+    void connectingFinished() {
+        connecting = false;
+    }
+
+    /**
+     * @return whether the client is neither connected nor about to connect and its last attempt is older than the given time
+     */
+    boolean shouldReconnect(long now, long interval) {
+        return !connected && !connecting && now - lastAttempt >= interval;
+    }
+
+    void close() {
+        boolean wasConnected;
+        synchronized (this) {
+            wasConnected = connected;
+            connected = false;
+        }
+
+        closeSocket();
+        if (wasConnected) {
+            stats.disconnected();
+        }
+    }
+
+    private synchronized void closeSocket() {
+        if (socket != null) {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                Logger.trace(e);
+            }
+        }
+        outputStream = null;
+    }
+
+    int getId() {
+        return id;
+    }
+}
@@ -0,0 +1,159 @@
+package globalquake.loadtest.swarm;
+
+import globalquake.core.metrics.LatencyHistogram;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latencies and counters shared by all the clients of a {@link Swarm}. Every latency is recorded both into the total
+ * histogram and into the histogram of the current reporting interval.
+ */
+public class SwarmStats {
+
+    public enum Latency {
+        /**
+         * from opening the socket until the handshake is accepted
+         */
+        HANDSHAKE("handshake"),
+        /**
+         * from sending a heartbeat until the server echoes it, the echo waits in the same queue as every other packet
+         */
+        HEARTBEAT("heartbeat rtt"),
+        /**
+         * from requesting the stations until the first part of the list arrives
+         */
+        STATIONS("stations"),
+        /**
+         * from the last update of an earthquake on the server until the client receives it
+         */
+        QUAKE("quake update"),
+        /**
+         * from collecting the station intensities on the server until the client receives them
+         */
+        INTENSITY("intensities"),
+        /**
+         * from the last sample of a waveform record until the client receives it, without the history sent on request
+         */
+        DATA("data age");
+
+        private final String name;
+
+        Latency(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+    }
+
+    private final LatencyHistogram[] total = createHistograms();
+    private volatile LatencyHistogram[] interval = createHistograms();
+
+    private final Map<String, LongAdder> packets = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> terminations = new ConcurrentHashMap<>();
+    private final LongAdder receivedPackets = new LongAdder();
+    private final LongAdder receivedBytes = new LongAdder();
+    private final LongAdder connects = new LongAdder();
+    private final LongAdder failedConnects = new LongAdder();
+    private final LongAdder disconnects = new LongAdder();
+
+    private static LatencyHistogram[] createHistograms() {
+        LatencyHistogram[] result = new LatencyHistogram[Latency.values().length];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = new LatencyHistogram();
+        }
+        return result;
+    }
+
+    public void record(Latency latency, long millis) {
+        long nanos = TimeUnit.MILLISECONDS.toNanos(millis);
+        total[latency.ordinal()].record(nanos);
+        interval[latency.ordinal()].record(nanos);
+    }
+
+    /**
+     * Starts a new reporting interval
+     *
+     * @return histograms of the interval that just ended, indexed by {@link Latency#ordinal()}
+     */
+    public LatencyHistogram[] rollInterval() {
+        LatencyHistogram[] result = interval;
+        interval = createHistograms();
+        return result;
+    }
+
+    public LatencyHistogram getTotal(Latency latency) {
+        return total[latency.ordinal()];
+    }
+
+    void packetReceived(String type) {
+        receivedPackets.increment();
+        packets.computeIfAbsent(type, k -> new LongAdder()).increment();
+    }
+
+    void bytesReceived(long bytes) {
+        receivedBytes.add(bytes);
+    }
+
+    void connected() {
+        connects.increment();
+    }
+
+    void connectFailed(String cause) {
+        failedConnects.increment();
+        terminated(cause);
+    }
+
+    void disconnected() {
+        disconnects.increment();
+    }
+
+    void terminated(String cause) {
+        terminations.computeIfAbsent(cause, k -> new LongAdder()).increment();
+    }
+
+    public long getReceivedPackets() {
+        return receivedPackets.sum();
+    }
+
+    public long getReceivedBytes() {
+        return receivedBytes.sum();
+    }
+
+    public long getConnects() {
+        return connects.sum();
+    }
+
+    public long getFailedConnects() {
+        return failedConnects.sum();
+    }
+
+    public long getDisconnects() {
+        return disconnects.sum();
+    }
+
+    /**
+     * @return received packets by their type
+     */
+    public Map<String, Long> getPackets() {
+        return snapshot(packets);
+    }
+
+    /**
+     * @return why the connections failed or were closed by the server
+     */
+    public Map<String, Long> getTerminations() {
+        return snapshot(terminations);
+    }
+
+    private static Map<String, Long> snapshot(Map<String, LongAdder> map) {
+        Map<String, Long> result = new TreeMap<>();
+        map.forEach((key, value) -> result.put(key, value.sum()));
+        return result;
+    }
+}
@@ -0,0 +1,67 @@
+package globalquake.loadtest.seedlink;
+
+import edu.sc.seis.seisFile.mseed.DataRecord;
+import edu.sc.seis.seisFile.seedlink.SeedlinkException;
+import edu.sc.seis.seisFile.seedlink.SeedlinkReader;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class SeedlinkServerTest {
+
+    @Test
+    public void testSelectedStationsAreStreamed() throws Exception {
+        SyntheticRecordSource source = new SyntheticRecordSource(3, 20, 1, 0, 1);
+        try (SeedlinkServer server = new SeedlinkServer(source).setThroughputMode(60_000)) {
+            int port = server.start("127.0.0.1", 0);
+
+            SeedlinkReader reader = new SeedlinkReader("127.0.0.1", port, 10, false, 10);
+            try {
+                reader.sendHello();
+                reader.selectData("XX", "00000", List.of("00BHZ"));
+                reader.selectData("XX", "00002", List.of("BHZ"));
+                assertThrows(SeedlinkException.class, () -> reader.selectData("XX", "99999", List.of("BHZ")));
+                assertThrows(SeedlinkException.class, () -> reader.selectData("XX", "00001", List.of("HHZ")));
+                reader.endHandshake();
+
+                Map<String, Long> nextStart = new HashMap<>();
+                for (int i = 0; i < 12; i++) {
+                    assertTrue(reader.hasNext());
+                    DataRecord record = reader.readPacket().getMiniSeed();
+                    String station = record.getHeader().getStationIdentifier().trim();
+                    assertNotEquals("00001", station);
+
+                    long start = record.getStartBtime().toInstant().toEpochMilli();
+                    Long expected = nextStart.put(station, record.getPredictedNextStartBtime().toInstant().toEpochMilli());
+                    if (expected != null) {
+                        assertEquals(expected, start, 1);
+                    }
+                }
+                assertEquals(2, nextStart.size());
+            } finally {
+                reader.close();
+            }
+        }
+    }
+
+    @Test
+    public void testSelectors() {
+        ServedStation station = new ServedStation(0, "XX", "00000", "00", "HHZ", 0, 0, 100);
+        ServedStation noLocation = new ServedStation(1, "XX", "00001", "", "HHZ", 0, 0, 100);
+
+        assertTrue(SeedlinkSelector.parse("HHZ.D").matches(station));
+        assertTrue(SeedlinkSelector.parse("HHZ").matches(noLocation));
+        assertTrue(SeedlinkSelector.parse("00HH?.D").matches(station));
+        assertTrue(SeedlinkSelector.parse("??HHZ").matches(noLocation));
+        assertTrue(SeedlinkSelector.parse("--HHZ").matches(noLocation));
+        assertFalse(SeedlinkSelector.parse("--HHZ").matches(station));
+        assertFalse(SeedlinkSelector.parse("10HHZ").matches(station));
+        assertFalse(SeedlinkSelector.parse("BHZ").matches(station));
+        assertNull(SeedlinkSelector.parse("HHZ.E"));
+        assertNull(SeedlinkSelector.parse("HZ"));
+    }
+}
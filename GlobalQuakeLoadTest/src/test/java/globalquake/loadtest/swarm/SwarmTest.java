@@ -0,0 +1,95 @@
+package globalquake.loadtest.swarm;
+
+import edu.sc.seis.seisFile.mseed.DataRecord;
+import globalquake.core.seedlink.MiniSeedRecords;
+import gqserver.api.Packet;
+import gqserver.api.ServerClient;
+import gqserver.api.data.station.StationInfoData;
+import gqserver.api.packets.data.DataRecordPacket;
+import gqserver.api.packets.data.DataRequestPacket;
+import gqserver.api.packets.station.InputType;
+import gqserver.api.packets.station.StationsInfoPacket;
+import gqserver.api.packets.station.StationsRequestPacket;
+import gqserver.api.packets.system.HandshakePacket;
+import gqserver.api.packets.system.HandshakeSuccessfulPacket;
+import org.junit.Test;
+
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class SwarmTest {
+
+    @Test
+    public void testClientFollowsProtocol() throws Exception {
+        try (ServerSocket serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress())) {
+            BlockingQueue<Packet> received = new LinkedBlockingQueue<>();
+            Thread server = new Thread(() -> serve(serverSocket, received));
+            server.setDaemon(true);
+            server.start();
+
+            try (Swarm swarm = new Swarm("127.0.0.1", serverSocket.getLocalPort()).setSubscriptions(1)) {
+                swarm.start();
+                swarm.connect(1, 0);
+
+                DataRequestPacket request = null;
+                long end = System.currentTimeMillis() + 10_000;
+                while (request == null && System.currentTimeMillis() < end) {
+                    if (received.poll(100, TimeUnit.MILLISECONDS) instanceof DataRequestPacket dataRequestPacket) {
+                        request = dataRequestPacket;
+                    }
+                }
+
+                assertNotNull(request);
+                assertEquals("XX 00000 HHZ 00", request.station());
+                assertFalse(request.cancel());
+
+                SwarmStats stats = swarm.getStats();
+                while (stats.getTotal(SwarmStats.Latency.DATA).getCount() == 0 && System.currentTimeMillis() < end) {
+                    Thread.sleep(10);
+                }
+
+                assertEquals(1, swarm.getConnected());
+                assertEquals(1, stats.getTotal(SwarmStats.Latency.HANDSHAKE).getCount());
+                assertEquals(1, stats.getTotal(SwarmStats.Latency.STATIONS).getCount());
+                assertEquals(1, stats.getTotal(SwarmStats.Latency.HEARTBEAT).getCount());
+                assertEquals(1, stats.getTotal(SwarmStats.Latency.DATA).getCount());
+                assertEquals(Long.valueOf(1), stats.getPackets().get("DataRecordPacket"));
+                assertTrue(stats.getReceivedBytes() > 512);
+            }
+        }
+    }
+
+    /**
+     * Accepts one client and answers it with a single station and a single record of its waveform
+     */
+    private static void serve(ServerSocket serverSocket, BlockingQueue<Packet> received) {
+        try {
+            ServerClient client = new ServerClient(serverSocket.accept());
+            assertTrue(client.readPacket() instanceof HandshakePacket);
+            client.queuePacket(new HandshakeSuccessfulPacket());
+
+            while (client.isConnected()) {
+                Packet packet = client.readPacket();
+                received.add(packet);
+                packet.onServerReceive(client);
+
+                long now = System.currentTimeMillis();
+                if (packet instanceof StationsRequestPacket) {
+                    client.queuePacket(new StationsInfoPacket(UUID.randomUUID(), List.of(
+                            new StationInfoData(0, 0, 0, "XX", "00000", "HHZ", "00", now, 0, false, InputType.VELOCITY))));
+                } else if (packet instanceof DataRequestPacket) {
+                    DataRecord record = MiniSeedRecords.create("XX", "00000", "HHZ", "00", now, 100, new int[100]).get(0);
+                    client.queuePacket(new DataRecordPacket(0, record.toByteArray()));
+                }
+            }
+        } catch (Throwable ignored) {
+        }
+    }
+}
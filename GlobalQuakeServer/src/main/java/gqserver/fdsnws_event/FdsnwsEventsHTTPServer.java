@@ -31,6 +31,10 @@ public class FdsnwsEventsHTTPServer {
 
         server.createContext("/fdsnws/event/1/query", ev1handler);
         server.createContext("/fdsnws/event/1/application.wadl", ev1handler);
+
+        if (Settings.FDSNWSEventMetricsEnabled) {
+            server.createContext("/metrics", new MetricsHandler());
+        }
     }
 
     public static FdsnwsEventsHTTPServer getInstance() {
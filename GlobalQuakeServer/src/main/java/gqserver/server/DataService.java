@@ -14,6 +14,9 @@ import globalquake.core.earthquake.interval.PolygonConfidenceInterval;
 import globalquake.core.earthquake.quality.Quality;
 import globalquake.core.events.GlobalQuakeEventListener;
 import globalquake.core.events.specific.*;
+import globalquake.core.metrics.Counter;
+import globalquake.core.metrics.LatencyHistogram;
+import globalquake.core.metrics.Metrics;
 import globalquake.core.station.AbstractStation;
 import globalquake.core.station.GlobalStation;
 import gqserver.api.Packet;
@@ -47,7 +50,18 @@ public class DataService extends GlobalQuakeEventListener {
     private static final int STATIONS_INFO_PACKET_MAX_SIZE = 64;
     private static final int DATA_REQUESTS_MAX_COUNT = 16;
 
-    private final Queue<EarthquakeInfo> currentEarthquakes;
+    private static final ClassValue<Counter> BROADCAST_PACKETS = new ClassValue<>() {
+        @Override
+        protected Counter computeValue(Class<?> type) {
+            return Metrics.counter("gq_server_broadcast_packets_total", "Packets queued for the clients by the data service",
+                    "packet", type.getSimpleName());
+        }
+    };
+
+    private static final LatencyHistogram INTENSITY_TIME = Metrics.histogram("gq_server_intensity_update_seconds",
+            "Time to collect and queue the station intensities for the clients");
+
+    private final Map<UUID, EarthquakeInfo> currentEarthquakes;
 
     private final Map<AbstractStation, StationStatus> stationIntensities = new HashMap<>();
     private ScheduledExecutorService stationIntensityService;
@@ -59,7 +73,7 @@ public class DataService extends GlobalQuakeEventListener {
     private ScheduledExecutorService cleanupService;
 
     public DataService() {
-        currentEarthquakes = new ConcurrentLinkedQueue<>();
+        currentEarthquakes = new ConcurrentHashMap<>();
     }
 
     public void run() {
@@ -76,6 +90,9 @@ public class DataService extends GlobalQuakeEventListener {
 
         cleanupService = Executors.newSingleThreadScheduledExecutor();
         cleanupService.scheduleAtFixedRate(this::cleanup, 0, 10, TimeUnit.SECONDS);
+
+        Metrics.gauge("gq_server_data_requests", "Active waveform data requests of all the clients",
+                () -> clientDataRequestMap.values().stream().mapToInt(Set::size).sum());
     }
 
     private void cleanup() {
@@ -91,18 +108,7 @@ public class DataService extends GlobalQuakeEventListener {
         clientDataRequestMap.entrySet().removeIf(kv -> isOld(kv.getKey()));
 
         // remove earthquakes that are not really on the list
-        mainloop:
-        for (Iterator<EarthquakeInfo> iterator = currentEarthquakes.iterator(); iterator.hasNext(); ) {
-            EarthquakeInfo earthquakeInfo = iterator.next();
-
-            for (Earthquake earthquake : GlobalQuake.instance.getEarthquakeAnalysis().getEarthquakes()) {
-                if (earthquake.getUuid().equals(earthquakeInfo.uuid())) {
-                    continue mainloop;
-                }
-            }
-
-            iterator.remove();
-        }
+        currentEarthquakes.keySet().removeIf(uuid -> GlobalQuake.instance.getEarthquakeAnalysis().getEarthquake(uuid) == null);
 
     }
 
@@ -120,6 +126,7 @@ public class DataService extends GlobalQuakeEventListener {
     }
 
     private void sendIntensityData() {
+        long start = System.nanoTime();
         try {
             List<StationIntensityData> data = new ArrayList<>();
             for (AbstractStation abstractStation : GlobalQuake.instance.getStationManager().getStations()) {
@@ -139,6 +146,8 @@ public class DataService extends GlobalQuakeEventListener {
             }
         } catch (Exception e) {
             Logger.tag("Server").error(e);
+        } finally {
+            INTENSITY_TIME.recordSince(start);
         }
     }
 
@@ -146,14 +155,14 @@ public class DataService extends GlobalQuakeEventListener {
     public void onQuakeCreate(QuakeCreateEvent event) {
         Earthquake earthquake = event.earthquake();
 
-        currentEarthquakes.add(new EarthquakeInfo(earthquake.getUuid(), earthquake.getRevisionID()));
+        currentEarthquakes.put(earthquake.getUuid(), new EarthquakeInfo(earthquake.getUuid(), earthquake.getRevisionID()));
 
         broadcast(getEarthquakeReceivingClients(), createQuakePacket(earthquake));
     }
 
     @Override
     public void onQuakeRemove(QuakeRemoveEvent event) {
-        currentEarthquakes.removeIf(earthquakeInfo -> earthquakeInfo.uuid().equals(event.earthquake().getUuid()));
+        currentEarthquakes.remove(event.earthquake().getUuid());
 
         broadcast(getEarthquakeReceivingClients(), new EarthquakeCheckPacket(new EarthquakeInfo(event.earthquake().getUuid(), EarthquakeInfo.REMOVED)));
     }
@@ -166,15 +175,14 @@ public class DataService extends GlobalQuakeEventListener {
             return;
         }
 
-        currentEarthquakes.removeIf(earthquakeInfo -> earthquakeInfo.uuid().equals(event.earthquake().getUuid()));
-        currentEarthquakes.add(new EarthquakeInfo(earthquake.getUuid(), earthquake.getRevisionID()));
+        currentEarthquakes.put(earthquake.getUuid(), new EarthquakeInfo(earthquake.getUuid(), earthquake.getRevisionID()));
 
         broadcast(getEarthquakeReceivingClients(), createQuakePacket(earthquake));
     }
 
     @Override
     public void onQuakeArchive(QuakeArchiveEvent event) {
-        currentEarthquakes.removeIf(earthquakeInfo -> earthquakeInfo.uuid().equals(event.earthquake().getUuid()));
+        currentEarthquakes.remove(event.earthquake().getUuid());
         broadcast(getEarthquakeReceivingClients(), createArchivedPacket(event.archivedQuake()));
     }
 
@@ -323,6 +331,7 @@ public class DataService extends GlobalQuakeEventListener {
     }
 
     private void broadcast(List<ServerClient> clients, Packet packet) {
+        BROADCAST_PACKETS.get(packet.getClass()).add(clients.size());
         clients.forEach(client -> {
             try {
                 client.queuePacket(packet);
@@ -435,16 +444,14 @@ public class DataService extends GlobalQuakeEventListener {
     }
 
     private void processEarthquakeRequest(ServerClient client, EarthquakeRequestPacket earthquakeRequestPacket) {
-        for (Earthquake earthquake : GlobalQuakeServer.instance.getEarthquakeAnalysis().getEarthquakes()) {
-            if (earthquake.getUuid().equals(earthquakeRequestPacket.uuid())) {
-                client.queuePacket(createQuakePacket(earthquake));
-                return;
-            }
+        Earthquake earthquake = GlobalQuakeServer.instance.getEarthquakeAnalysis().getEarthquake(earthquakeRequestPacket.uuid());
+        if (earthquake != null) {
+            client.queuePacket(createQuakePacket(earthquake));
         }
     }
 
     private void processEarthquakesRequest(ServerClient client) {
-        for (EarthquakeInfo info : currentEarthquakes) {
+        for (EarthquakeInfo info : currentEarthquakes.values()) {
             client.queuePacket(new EarthquakeCheckPacket(info));
         }
     }
@@ -3,6 +3,7 @@ package gqserver.server;
 import globalquake.core.GlobalQuake;
 import globalquake.core.Settings;
 import globalquake.core.exception.RuntimeApplicationException;
+import globalquake.core.metrics.Metrics;
 import globalquake.utils.monitorable.MonitorableCopyOnWriteArrayList;
 import gqserver.api.GQApi;
 import gqserver.api.Packet;
@@ -31,6 +32,7 @@ import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.function.IntSupplier;
 
 public class GQServerSocket {
 
@@ -70,6 +72,7 @@ public class GQServerSocket {
         clientsLimitWatchdog = Executors.newSingleThreadScheduledExecutor();
         statusReportingService = Executors.newSingleThreadScheduledExecutor();
         stats = new GQServerStats();
+        registerMetrics(stats);
 
         setStatus(SocketStatus.OPENING);
         try {
@@ -93,6 +96,25 @@ public class GQServerSocket {
         }
     }
 
+    private void registerMetrics(GQServerStats stats) {
+        Metrics.gauge("gq_server_clients", "Connected clients", clients::size);
+        Metrics.gauge("gq_server_client_queue_packets", "Packets queued for all the clients",
+                () -> clients.stream().mapToInt(ServerClient::getQueuedPackets).sum());
+        Metrics.gauge("gq_server_client_queue_max_packets", "Packets queued for the client with the longest queue",
+                () -> clients.stream().mapToInt(ServerClient::getQueuedPackets).max().orElse(0));
+
+        Map<String, IntSupplier> results = Map.of(
+                "accepted", () -> stats.accepted,
+                "wrong_version", () -> stats.wrongVersion,
+                "wrong_packet", () -> stats.wrongPacket,
+                "server_full", () -> stats.serverFull,
+                "successful", () -> stats.successfull,
+                "error", () -> stats.errors,
+                "ip_rejected", () -> stats.ipRejects);
+        results.forEach((result, value) -> Metrics.counter("gq_server_connections_total", "Incoming connections by their outcome",
+                value::getAsInt, "result", result));
+    }
+
     private void updateLimits() {
         clients.forEach(ServerClient::updateLimits);
     }